@@ -37,6 +37,7 @@ public class RepositoryValidatorProcessor extends AbstractProcessor {
         Now.class.getCanonicalName(),
         Id.class.getCanonicalName(),
         AutoIncrement.class.getCanonicalName(),
+        Sequence.class.getCanonicalName(),
         Named.class.getCanonicalName(),
         OnDelete.class.getCanonicalName(),
         OnUpdate.class.getCanonicalName(),
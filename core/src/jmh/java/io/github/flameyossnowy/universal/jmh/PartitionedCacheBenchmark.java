@@ -0,0 +1,81 @@
+package io.github.flameyossnowy.universal.jmh;
+
+import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmType;
+import io.github.flameyossnowy.universal.api.cache.PartitionedCache;
+import io.github.flameyossnowy.universal.api.cache.SecondLevelCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a {@link PartitionedCache} with a single {@link SecondLevelCache} of the same total size,
+ * with 64 threads reading and writing sequential {@code Long} ids.
+ */
+@SuppressWarnings("unused")
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode(Mode.Throughput)
+@State(Scope.Benchmark)
+@Threads(64)
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class PartitionedCacheBenchmark {
+    private static final int KEYS = 65_536;
+
+    @Param({"16", "64"})
+    public int partitions;
+
+    @Param({"NONE", "LEAST_RECENTLY_USED"})
+    public CacheAlgorithmType algorithm;
+
+    private PartitionedCache<Long, Long> partitioned;
+    private SecondLevelCache<Long, Long> single;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private final SplittableRandom random = new SplittableRandom();
+
+        long next() {
+            return random.nextInt(KEYS);
+        }
+
+        boolean write() {
+            // One write for every nine reads
+            return random.nextInt(10) == 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        partitioned = new PartitionedCache<>(partitions, KEYS / partitions, algorithm);
+        single = new SecondLevelCache<>(KEYS, TimeUnit.HOURS.toMillis(1), algorithm);
+
+        for (long key = 0; key < KEYS; key++) {
+            partitioned.put(key, key);
+            single.put(key, key);
+        }
+    }
+
+    @Benchmark
+    public Long partitionedRead(Keys keys) {
+        return partitioned.get(keys.next());
+    }
+
+    @Benchmark
+    public Long singleRead(Keys keys) {
+        return single.get(keys.next());
+    }
+
+    @Benchmark
+    public Long partitionedMixed(Keys keys) {
+        long key = keys.next();
+        return keys.write() ? partitioned.put(key, key) : partitioned.get(key);
+    }
+
+    @Benchmark
+    public Long singleMixed(Keys keys) {
+        long key = keys.next();
+        return keys.write() ? single.put(key, key) : single.get(key);
+    }
+}
@@ -3,6 +3,7 @@ package io.github.flameyossnowy.universal.api;
 import com.google.errorprone.annotations.CheckReturnValue;
 import io.github.flameyossnowy.universal.api.cache.TransactionResult;
 import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.operation.AsyncExecutor;
 import io.github.flameyossnowy.universal.api.operation.Operation;
 import io.github.flameyossnowy.universal.api.operation.OperationContext;
 import io.github.flameyossnowy.universal.api.operation.OperationExecutor;
@@ -12,6 +13,7 @@ import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Base repository adapter that works with Operation abstraction.
@@ -46,7 +48,20 @@ public interface BaseRepositoryAdapter<T, ID, C> extends AutoCloseable {
     @CheckReturnValue
     @NotNull
     default <R> CompletableFuture<TransactionResult<R>> executeAsync(@NotNull Operation<R, C> operation) {
-        return CompletableFuture.supplyAsync(() -> execute(operation));
+        return CompletableFuture.supplyAsync(() -> execute(operation), getAsyncExecutor());
+    }
+
+    /**
+     * Gets the executor running the asynchronous methods of this adapter.
+     * <p>
+     * Defaults to {@link AsyncExecutor#common()}, adapters backed by a connection pool usually
+     * limit it to the size of the pool.
+     *
+     * @return The executor for asynchronous calls
+     */
+    @NotNull
+    default Executor getAsyncExecutor() {
+        return AsyncExecutor.common();
     }
 
     /**
@@ -7,14 +7,19 @@ import io.github.flameyossnowy.universal.api.cache.TransactionResult;
 import io.github.flameyossnowy.universal.api.connection.TransactionContext;
 import io.github.flameyossnowy.universal.api.operation.Operation;
 import io.github.flameyossnowy.universal.api.operation.operations.*;
+import io.github.flameyossnowy.universal.api.options.AggregateEvaluator;
+import io.github.flameyossnowy.universal.api.options.AggregateQuery;
 import io.github.flameyossnowy.universal.api.options.DeleteQuery;
+import io.github.flameyossnowy.universal.api.options.Query;
 import io.github.flameyossnowy.universal.api.options.SelectQuery;
 import io.github.flameyossnowy.universal.api.options.UpdateQuery;
 import io.github.flameyossnowy.universal.api.proxy.ProxiedAdapterHandler;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Proxy;
 import java.util.Collection;
@@ -232,6 +237,101 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
     @NotNull
     Stream<T> findStream(SelectQuery query);
 
+    /**
+     * Executes the given select query as a parallel scan split into the given amount of partitions.
+     *
+     * <p>Every partition is read on its own connection and virtual thread. The returned stream merges
+     * the partitions in arrival order, so its results are unordered, and it supports {@link Stream#parallel()}
+     * by handing every worker its own group of partitions.
+     *
+     * <p>Queries that sort or limit cannot be split and run like {@link #findStream(SelectQuery)},
+     * as do all queries of adapters that cannot split their storage.
+     *
+     * <p><strong>Resource management:</strong> the stream holds a connection per partition until it is
+     * closed. Callers <em>must</em> use this stream within a try-with-resources block or explicitly call
+     * {@link Stream#close()}.
+     *
+     * @param query the query to execute, or null to scan the whole repository
+     * @param partitions the amount of partitions to split the scan into
+     * @return a stream over the query results
+     * @see io.github.flameyossnowy.universal.api.annotations.ParallelScan
+     */
+    @CheckReturnValue
+    @NotNull
+    default Stream<T> findPartitioned(@Nullable SelectQuery query, int partitions) {
+        return findStream(query);
+    }
+
+    /**
+     * Counts the entities matching the filters of the given query, ignoring its sort options and limit.
+     *
+     * <p>Adapters backed by a database count on the server without reading the entities or their relationships.
+     * The default implementation counts a stream of the matching entities.
+     *
+     * @param query the query whose filters entities must match
+     * @return the amount of matching entities
+     */
+    default long count(@NotNull SelectQuery query) {
+        try (Stream<T> stream = findStream(Query.select().where(query.filters()).build())) {
+            return stream.count();
+        }
+    }
+
+    /**
+     * Counts every entity of the repository.
+     *
+     * @return the amount of entities
+     * @see #count(SelectQuery)
+     */
+    default long count() {
+        return count(Query.select().build());
+    }
+
+    /**
+     * Checks whether any entity matches the filters of the given query, reading at most one match.
+     *
+     * <p>Adapters backed by a database only ask for the existence of a row, not for its content.
+     * The default implementation stops a stream of the matching entities at the first one.
+     *
+     * @param query the query whose filters an entity must match
+     * @return whether an entity matches
+     */
+    default boolean exists(@NotNull SelectQuery query) {
+        try (Stream<T> stream = findStream(Query.select().where(query.filters()).limit(1).build())) {
+            return stream.findAny().isPresent();
+        }
+    }
+
+    @NotNull
+    default CompletableFuture<Long> countAsync(@NotNull SelectQuery query) {
+        return CompletableFuture.supplyAsync(() -> count(query), getAsyncExecutor());
+    }
+
+    @NotNull
+    default CompletableFuture<Boolean> existsAsync(@NotNull SelectQuery query) {
+        return CompletableFuture.supplyAsync(() -> exists(query), getAsyncExecutor());
+    }
+
+    /**
+     * Executes the given aggregate query, returning one row per group with the group-by fields
+     * followed by the aggregations under their alias.
+     *
+     * <p>Adapters backed by a database compute the aggregation on the server, so only the result rows are
+     * transferred. The default implementation streams the matching entities through {@link AggregateEvaluator},
+     * keeping one accumulator per group in memory instead of the entities.
+     *
+     * @param query the aggregate query to execute
+     * @return the result rows, in the order of the sort options of the query
+     * @see io.github.flameyossnowy.universal.api.options.Query#aggregate()
+     */
+    @CheckReturnValue
+    @NotNull
+    default List<Map<String, Object>> aggregate(@NotNull AggregateQuery query) {
+        try (Stream<T> stream = findStream(query.toSelectQuery())) {
+            return AggregateEvaluator.evaluate(query, getRepositoryInformation(), stream);
+        }
+    }
+
     /**
      * Asynchronously prepares an {@link Iterator} over the results of the given query.
      *
@@ -255,7 +355,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
     @CheckReturnValue
     @NotNull
     default CompletableFuture<CloseableIterator<T>> findIteratorAsync(SelectQuery query) {
-        return CompletableFuture.supplyAsync(() -> this.findIterator(query));
+        return CompletableFuture.supplyAsync(() -> this.findIterator(query), getAsyncExecutor());
     }
 
     /**
@@ -280,7 +380,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
     @CheckReturnValue
     @NotNull
     default CompletableFuture<Stream<T>> findStreamAsync(SelectQuery query) {
-        return CompletableFuture.supplyAsync(() -> this.findStream(query));
+        return CompletableFuture.supplyAsync(() -> this.findStream(query), getAsyncExecutor());
     }
 
     /**
@@ -478,6 +578,158 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
     @CheckReturnValue
     TransactionResult<Boolean> insertAll(Collection<T> query);
 
+    /**
+     * Updates every entity of the collection within the given transaction context.
+     * <p>
+     * By default, every entity is updated on its own. Adapters may send the updates to the database as one batch.
+     *
+     * @param entities The entities to update.
+     * @param transactionContext The transaction context within which the operation is performed.
+     * @return {@code true} if every update was successful, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> updateAll(@NotNull Collection<T> entities, TransactionContext<C> transactionContext) {
+        boolean updated = true;
+        for (T entity : entities) {
+            TransactionResult<Boolean> result = updateAll(entity, transactionContext);
+            if (result.isError()) return result;
+            updated &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(updated);
+    }
+
+    /**
+     * Updates every entity of the collection.
+     * <p>
+     * By default, every entity is updated on its own. Adapters may send the updates to the database as one batch.
+     *
+     * @param entities The entities to update.
+     * @return {@code true} if every update was successful, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> updateAll(@NotNull Collection<T> entities) {
+        boolean updated = true;
+        for (T entity : entities) {
+            TransactionResult<Boolean> result = updateAll(entity);
+            if (result.isError()) return result;
+            updated &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(updated);
+    }
+
+    /**
+     * Deletes every entity of the collection within the given transaction context.
+     * <p>
+     * By default, every entity is deleted on its own. Adapters may send the deletions to the database as one batch.
+     *
+     * @param entities The entities to delete.
+     * @param transactionContext The transaction context within which the operation is performed.
+     * @return {@code true} if every entity was deleted, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> deleteAll(@NotNull Collection<T> entities, TransactionContext<C> transactionContext) {
+        boolean deleted = true;
+        for (T entity : entities) {
+            TransactionResult<Boolean> result = delete(entity, transactionContext);
+            if (result.isError()) return result;
+            deleted &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(deleted);
+    }
+
+    /**
+     * Deletes the items with the specified IDs within the given transaction context.
+     * <p>
+     * By default, every item is deleted on its own. Adapters may send the deletions to the database as one batch.
+     *
+     * @param ids The IDs of the items to delete.
+     * @param transactionContext The transaction context within which the operation is performed.
+     * @return {@code true} if every item was deleted, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> deleteAllById(@NotNull Collection<ID> ids, TransactionContext<C> transactionContext) {
+        boolean deleted = true;
+        for (ID id : ids) {
+            TransactionResult<Boolean> result = deleteById(id, transactionContext);
+            if (result.isError()) return result;
+            deleted &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(deleted);
+    }
+
+    /**
+     * Deletes the items with the specified IDs.
+     * <p>
+     * By default, every item is deleted on its own. Adapters may send the deletions to the database as one batch.
+     *
+     * @param ids The IDs of the items to delete.
+     * @return {@code true} if every item was deleted, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> deleteAllById(@NotNull Collection<ID> ids) {
+        boolean deleted = true;
+        for (ID id : ids) {
+            TransactionResult<Boolean> result = deleteById(id);
+            if (result.isError()) return result;
+            deleted &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(deleted);
+    }
+
+    /**
+     * Inserts the entities of the collection that do not exist yet and updates the others, within the given transaction context.
+     * <p>
+     * By default, the existence of every entity is looked up by its ID, outside the transaction. Adapters may write
+     * them as one batch of upserts instead.
+     *
+     * @param entities The entities to insert or update.
+     * @param transactionContext The transaction context within which the operation is performed.
+     * @return {@code true} if every entity was written, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> upsertAll(@NotNull Collection<T> entities, TransactionContext<C> transactionContext) {
+        FieldData<?> primaryKey = getRepositoryInformation().getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found for " + getRepositoryInformation().getRepositoryName());
+        }
+
+        boolean written = true;
+        for (T entity : entities) {
+            ID id = primaryKey.getValue(entity);
+            TransactionResult<Boolean> result = id != null && findById(id) != null
+                ? updateAll(entity, transactionContext)
+                : insert(entity, transactionContext);
+            if (result.isError()) return result;
+            written &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(written);
+    }
+
+    /**
+     * Inserts the entities of the collection that do not exist yet and updates the others.
+     * <p>
+     * By default, the existence of every entity is looked up by its ID. Adapters may write them as one batch of upserts instead.
+     *
+     * @param entities The entities to insert or update.
+     * @return {@code true} if every entity was written, {@code false} otherwise.
+     */
+    @CheckReturnValue
+    default TransactionResult<Boolean> upsertAll(@NotNull Collection<T> entities) {
+        FieldData<?> primaryKey = getRepositoryInformation().getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found for " + getRepositoryInformation().getRepositoryName());
+        }
+
+        boolean written = true;
+        for (T entity : entities) {
+            ID id = primaryKey.getValue(entity);
+            TransactionResult<Boolean> result = id != null && findById(id) != null ? updateAll(entity) : insert(entity);
+            if (result.isError()) return result;
+            written &= result.getResult().orElse(Boolean.FALSE);
+        }
+        return TransactionResult.success(written);
+    }
+
     /**
      * Removes all items from the repository.
      * <p>
@@ -586,7 +838,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<List<T>> findAsync(SelectQuery query) {
-        return CompletableFuture.supplyAsync(() -> find(query));
+        return CompletableFuture.supplyAsync(() -> find(query), getAsyncExecutor());
     }
 
     /**
@@ -603,32 +855,32 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<List<T>> findAsync() {
-        return CompletableFuture.supplyAsync(this::find);
+        return CompletableFuture.supplyAsync(this::find, getAsyncExecutor());
     }
 
     @CheckReturnValue
     default CompletableFuture<T> firstAsync() {
-        return CompletableFuture.supplyAsync(this::first);
+        return CompletableFuture.supplyAsync(this::first, getAsyncExecutor());
     }
 
     @CheckReturnValue
     default CompletableFuture<T> firstAsync(SelectQuery query) {
-        return CompletableFuture.supplyAsync(() -> first(query));
+        return CompletableFuture.supplyAsync(() -> first(query), getAsyncExecutor());
     }
 
     @CheckReturnValue
     default CompletableFuture<T> findByIdAsync(ID id) {
-        return CompletableFuture.supplyAsync(() -> findById(id));
+        return CompletableFuture.supplyAsync(() -> findById(id), getAsyncExecutor());
     }
 
     @CheckReturnValue
     default CompletableFuture<List<ID>> findIdsAsync(SelectQuery query) {
-        return CompletableFuture.supplyAsync(() -> this.findIds(query));
+        return CompletableFuture.supplyAsync(() -> this.findIds(query), getAsyncExecutor());
     }
 
     @CheckReturnValue
     default CompletableFuture<Map<ID, T>> findAllByIdAsync(Collection<ID> ids) {
-        return CompletableFuture.supplyAsync(() -> this.findAllById(ids));
+        return CompletableFuture.supplyAsync(() -> this.findAllById(ids), getAsyncExecutor());
     }
 
     /**
@@ -642,7 +894,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> insertAsync(T value) {
-        return CompletableFuture.supplyAsync(() -> insert(value));
+        return CompletableFuture.supplyAsync(() -> insert(value), getAsyncExecutor());
     }
 
     /**
@@ -656,7 +908,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> updateAllAsync(T entity) {
-        return CompletableFuture.supplyAsync(() -> updateAll(entity));
+        return CompletableFuture.supplyAsync(() -> updateAll(entity), getAsyncExecutor());
     }
 
     /**
@@ -672,7 +924,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> deleteAsync(T entity) {
-        return CompletableFuture.supplyAsync(() -> delete(entity));
+        return CompletableFuture.supplyAsync(() -> delete(entity), getAsyncExecutor());
     }
 
     /**
@@ -689,7 +941,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
     @CheckReturnValue
     @Deprecated
     default CompletableFuture<TransactionResult<Boolean>> createRepositoryAsync() {
-        return CompletableFuture.supplyAsync(this::createRepository);
+        return CompletableFuture.supplyAsync(this::createRepository, getAsyncExecutor());
     }
 
     /**
@@ -705,7 +957,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> clearAsync() {
-        return CompletableFuture.supplyAsync(this::clear);
+        return CompletableFuture.supplyAsync(this::clear, getAsyncExecutor());
     }
 
     /**
@@ -727,7 +979,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> createIndexAsync(IndexOptions index) {
-        return CompletableFuture.supplyAsync(() -> createIndex(index));
+        return CompletableFuture.supplyAsync(() -> createIndex(index), getAsyncExecutor());
     }
 
     /**
@@ -749,7 +1001,7 @@ public interface RepositoryAdapter<T, ID, C> extends BaseRepositoryAdapter<T, ID
      */
     @CheckReturnValue
     default CompletableFuture<TransactionResult<Boolean>> createIndexesAsync(IndexOptions... indexes) {
-        return CompletableFuture.supplyAsync(() -> createIndexes(indexes));
+        return CompletableFuture.supplyAsync(() -> createIndexes(indexes), getAsyncExecutor());
     }
 
     /**
@@ -0,0 +1,46 @@
+package io.github.flameyossnowy.universal.api.annotations;
+
+import io.github.flameyossnowy.universal.api.annotations.enums.OverflowPolicy;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Dispatches the audit logger and the post-operation lifecycle callbacks of a repository asynchronously,
+ * so slow listeners do not add to write latency.
+ * <p>
+ * Pre-operation callbacks ({@code onPreInsert}, {@code onPreUpdate}, {@code onPreDelete}) always stay
+ * synchronous, since they may modify the entity before it is written.
+ * <p>
+ * Every adapter of the repository dispatches through a pipeline of its own, which is drained and stopped
+ * when that adapter is closed. Events are kept in order per adapter.
+ *
+ * <pre>
+ * &#64;Repository(name = "users")
+ * &#64;RepositoryAuditLogger(UserAuditLogger.class)
+ * &#64;AsyncEvents(bufferSize = 8192, overflow = OverflowPolicy.DROP)
+ * public class User {
+ *      ...
+ * }
+ * </pre>
+ *
+ * @see EventPipeline
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AsyncEvents {
+    /**
+     * The maximum amount of pending events.
+     */
+    int bufferSize() default 4096;
+
+    /**
+     * The maximum amount of events dispatched per drain.
+     */
+    int batchSize() default 256;
+
+    OverflowPolicy overflow() default OverflowPolicy.BLOCK;
+}
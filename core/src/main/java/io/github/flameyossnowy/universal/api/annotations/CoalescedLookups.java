@@ -0,0 +1,40 @@
+package io.github.flameyossnowy.universal.api.annotations;
+
+import io.github.flameyossnowy.universal.api.cache.BatchingLoader;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coalesces concurrent {@code findById} calls of a repository into one {@code findAllById}.
+ * <p>
+ * Ids requested by different threads within {@link #windowMicros()} of each other, or until
+ * {@link #maxBatchSize()} ids are waiting, are loaded with a single query and the results are handed
+ * back to every caller. Ids requested more than once in a window are only loaded once.
+ * Lookups served by the second level cache never wait for a window.
+ *
+ * <pre>
+ * &#64;Repository(name = "users")
+ * &#64;CoalescedLookups(windowMicros = 500, maxBatchSize = 200)
+ * public class User {
+ *      ...
+ * }
+ * </pre>
+ *
+ * @see BatchingLoader
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CoalescedLookups {
+    /**
+     * How long the first id of a batch waits for more ids, in microseconds.
+     */
+    long windowMicros() default 200;
+
+    /**
+     * The amount of ids after which a batch is loaded without waiting for the window to end.
+     */
+    int maxBatchSize() default 128;
+}
@@ -0,0 +1,37 @@
+package io.github.flameyossnowy.universal.api.annotations;
+
+import io.github.flameyossnowy.universal.api.utils.PartitionedSpliterator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs unsorted, unlimited {@code find} and {@code findStream} calls of a repository as parallel scans.
+ * <p>
+ * The scan is split into {@link #partitions()} partitions, primary key ranges for SQL and MongoDB and shards
+ * for file repositories, and each partition is read on its own connection and virtual thread.
+ * Results arrive in no particular order. Queries that sort or limit always run as one sequential scan.
+ *
+ * <pre>
+ * &#64;Repository(name = "events")
+ * &#64;ParallelScan(partitions = 8)
+ * public class Event {
+ *      ...
+ * }
+ * </pre>
+ *
+ * @see io.github.flameyossnowy.universal.api.RepositoryAdapter#findPartitioned
+ * @see PartitionedSpliterator
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParallelScan {
+    /**
+     * The amount of partitions to split a scan into, every partition holds a connection while it is read.
+     * SQL scans use at most one connection less than the pool holds, and the relationships of the rows of a
+     * partition are loaded on its connection.
+     */
+    int partitions() default 4;
+}
@@ -61,4 +61,18 @@ public @interface RemoteEndpoint {
      * HTTP method for update operations.
      */
     HttpMethod updateMethod() default HttpMethod.PUT;
+
+    /**
+     * Endpoint for counting entities (GET), answering with a JSON number.
+     * Receives the same filter parameters as {@link #findAll()}.
+     * If empty, counts are computed by listing the entities.
+     */
+    String count() default "";
+
+    /**
+     * Endpoint for finding several entities by ID (GET), answering with a JSON array of the entities found.
+     * Use {ids} as placeholder for the comma separated ID values.
+     * If empty, the IDs are requested one by one through {@link #findById()}.
+     */
+    String findAllById() default "";
 }
@@ -0,0 +1,44 @@
+package io.github.flameyossnowy.universal.api.annotations;
+
+import io.github.flameyossnowy.universal.api.sequence.SequenceAllocator;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that a numeric {@link Id} is assigned on the client from a pooled hi-lo sequence,
+ * instead of by the database like {@link AutoIncrement}.
+ * <p>
+ * Blocks of {@link #allocationSize()} ids are reserved with a single round trip to a shared
+ * sequence store, so ids are known before the insert is sent and parents and their {@link OneToMany}
+ * children can be inserted in the same batch. Reservations are atomic in the database, which makes
+ * the ids unique across threads and across nodes sharing the database. Ids of blocks that are not
+ * used up before shutdown are skipped, so gaps are expected.
+ * <p>
+ * Example:
+ * <pre>
+ * public class Order {
+ *     &#64;Id
+ *     &#64;Sequence(allocationSize = 500)
+ *     private Long id;
+ * }
+ * </pre>
+ *
+ * @see SequenceAllocator
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT})
+public @interface Sequence {
+    /**
+     * The name of the sequence, defaults to the repository name.
+     * Repositories sharing a name share their ids.
+     */
+    String name() default "";
+
+    /**
+     * The amount of ids reserved per round trip.
+     */
+    int allocationSize() default 100;
+}
@@ -12,23 +12,35 @@ import org.jetbrains.annotations.NotNull;
  * @param update API link to update an element.
  * @param delete API link to delete an element
  * @param updateMethod PUT or PATCH.
+ * @param count API link to count elements, or empty if the API has none.
+ * @param findAllById API link for the elements of several IDs, or empty if the API has none.
  * @author flameyosflow
  * @version 6.0.0
  */
 public record EndpointConfig(String findAll, String findById, String create, String update, String delete,
-                             HttpMethod updateMethod) {
+                             HttpMethod updateMethod, String count, String findAllById) {
     public EndpointConfig(
             String findAll,
             String findById,
             String create,
             String update,
-            String delete, HttpMethod updateMethod) {
+            String delete, HttpMethod updateMethod, String count, String findAllById) {
         this.findAll = findAll.isEmpty() ? "" : findAll;
         this.findById = findById;
         this.create = create.isEmpty() ? "" : create;
         this.update = update;
         this.delete = delete;
         this.updateMethod = updateMethod;
+        this.count = count == null ? "" : count;
+        this.findAllById = findAllById == null ? "" : findAllById;
+    }
+
+    public EndpointConfig(String findAll, String findById, String create, String update, String delete, HttpMethod updateMethod, String count) {
+        this(findAll, findById, create, update, delete, updateMethod, count, "");
+    }
+
+    public EndpointConfig(String findAll, String findById, String create, String update, String delete, HttpMethod updateMethod) {
+        this(findAll, findById, create, update, delete, updateMethod, "");
     }
 
     @SuppressWarnings("HardcodedFileSeparator") // not a file :P
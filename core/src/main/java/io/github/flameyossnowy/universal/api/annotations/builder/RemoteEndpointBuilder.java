@@ -17,6 +17,8 @@ public class RemoteEndpointBuilder {
     private String update = "/{id}";
     private String delete = "/{id}";
     private HttpMethod updateMethod = HttpMethod.PUT;
+    private String count = "";
+    private String findAllById = "";
 
     /**
      * Creates a new builder with default values.
@@ -36,7 +38,9 @@ public class RemoteEndpointBuilder {
                 .create(endpoint.create())
                 .update(endpoint.update())
                 .delete(endpoint.delete())
-                .updateMethod(endpoint.updateMethod());
+                .updateMethod(endpoint.updateMethod())
+                .count(endpoint.count())
+                .findAllById(endpoint.findAllById());
     }
 
     public RemoteEndpointBuilder findAll(String findAll) {
@@ -69,11 +73,21 @@ public class RemoteEndpointBuilder {
         return this;
     }
 
+    public RemoteEndpointBuilder count(String count) {
+        this.count = count != null ? count : "";
+        return this;
+    }
+
+    public RemoteEndpointBuilder findAllById(String findAllById) {
+        this.findAllById = findAllById != null ? findAllById : "";
+        return this;
+    }
+
     /**
      * Builds and returns a new {@link EndpointConfig} instance.
      */
     public EndpointConfig build() {
-        return new EndpointConfig(findAll, findById, create, update, delete, updateMethod);
+        return new EndpointConfig(findAll, findById, create, update, delete, updateMethod, count, findAllById);
     }
 
     /**
@@ -112,6 +126,16 @@ public class RemoteEndpointBuilder {
                 return updateMethod;
             }
 
+            @Override
+            public String count() {
+                return count;
+            }
+
+            @Override
+            public String findAllById() {
+                return findAllById;
+            }
+
             @Override
             public Class<? extends java.lang.annotation.Annotation> annotationType() {
                 return RemoteEndpoint.class;
@@ -0,0 +1,14 @@
+package io.github.flameyossnowy.universal.api.annotations.enums;
+
+/**
+ * What an asynchronous event pipeline does when its buffer is full.
+ * <p>
+ * BLOCK: the writing thread waits until there is room in the buffer
+ * DROP: the event is discarded and counted as dropped
+ * SYNCHRONOUS: the event is dispatched on the writing thread instead
+ */
+public enum OverflowPolicy {
+    BLOCK,
+    DROP,
+    SYNCHRONOUS
+}
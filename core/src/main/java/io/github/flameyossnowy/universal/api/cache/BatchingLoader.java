@@ -0,0 +1,172 @@
+package io.github.flameyossnowy.universal.api.cache;
+
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Micro-batches single key lookups, in the style of a DataLoader.
+ * <p>
+ * Keys requested within a short window are collected into one batch which is loaded with a single call of
+ * the batch function, every caller then receives its own value from the result. A batch is loaded when the
+ * window of its first key ends, on a virtual thread, or as soon as it is full, on the thread that filled it.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @see io.github.flameyossnowy.universal.api.annotations.CoalescedLookups
+ */
+@SuppressWarnings("unused")
+public class BatchingLoader<K, V> {
+    private final String name;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Function<Collection<K>, Map<K, V>> batchFunction;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch<K, V> current;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong loadedKeys = new AtomicLong();
+
+    public BatchingLoader(String name, long window, TimeUnit unit, int maxBatchSize, @NotNull Function<Collection<K>, Map<K, V>> batchFunction) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("Max batch size must be positive");
+        this.name = name;
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.batchFunction = batchFunction;
+    }
+
+    /**
+     * Loads a value, waiting for the batch it is part of.
+     *
+     * @param key the key to load
+     * @return the value, or null if the batch function did not return one
+     */
+    public V load(@NotNull K key) {
+        try {
+            return loadAsync(key).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a key to the current batch.
+     *
+     * @param key the key to load
+     * @return a future completed once the batch was loaded
+     */
+    public @NotNull CompletableFuture<V> loadAsync(@NotNull K key) {
+        requests.incrementAndGet();
+
+        Batch<K, V> full = null;
+        CompletableFuture<V> future;
+        lock.lock();
+        try {
+            Batch<K, V> batch = current;
+            if (batch == null) {
+                batch = current = new Batch<>();
+                scheduleFlush(batch);
+            }
+
+            future = batch.pending.get(key);
+            if (future != null) {
+                deduplicated.incrementAndGet();
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            batch.pending.put(key, future);
+            if (batch.pending.size() >= maxBatchSize) {
+                current = null;
+                full = batch;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) dispatch(full);
+        return future;
+    }
+
+    private void scheduleFlush(Batch<K, V> batch) {
+        Thread.ofVirtual().name("universal-batch-" + name).start(() -> {
+            LockSupport.parkNanos(windowNanos);
+
+            lock.lock();
+            try {
+                // Already dispatched because it became full
+                if (current != batch) return;
+                current = null;
+            } finally {
+                lock.unlock();
+            }
+            dispatch(batch);
+        });
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        Map<K, CompletableFuture<V>> pending = batch.pending;
+        batches.incrementAndGet();
+        loadedKeys.addAndGet(pending.size());
+        Logging.deepInfo(() -> "Loading batch of " + pending.size() + " keys for " + name);
+
+        try {
+            Map<K, V> values = batchFunction.apply(pending.keySet());
+            for (Map.Entry<K, CompletableFuture<V>> entry : pending.entrySet()) {
+                entry.getValue().complete(values == null ? null : values.get(entry.getKey()));
+            }
+        } catch (Exception e) {
+            for (CompletableFuture<V> future : pending.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Gets the amount of lookups made through this loader.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Gets the amount of lookups that joined a pending lookup of the same key.
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    /**
+     * Gets the amount of batch function calls.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Gets the average amount of distinct keys loaded per batch.
+     */
+    public double getAverageBatchSize() {
+        long batchCount = batches.get();
+        return batchCount == 0 ? 0 : (double) loadedKeys.get() / batchCount;
+    }
+
+    private static final class Batch<K, V> {
+        // Only modified under the loader lock, read by the dispatching thread once detached
+        private final Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    }
+}
@@ -9,10 +9,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * Thread-safe and designed for high-concurrency environments.
  */
 public class CacheStatistics {
-    private final AtomicLong hits = new AtomicLong();
-    private final AtomicLong misses = new AtomicLong();
-    private final AtomicLong evictions = new AtomicLong();
-    private final AtomicLong puts = new AtomicLong();
+    // Striped counters, every cache operation of every thread records into them
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder puts = new LongAdder();
     private final LongAdder totalLoadTime = new LongAdder();
 
     // Throughput tracking
@@ -32,7 +33,7 @@ public class CacheStatistics {
      * Records a cache hit.
      */
     public void recordHit() {
-        hits.incrementAndGet();
+        hits.increment();
         recordOperation();
     }
 
@@ -42,7 +43,7 @@ public class CacheStatistics {
      * @param loadTimeMs the time taken to load the value in milliseconds
      */
     public void recordMiss(long loadTimeMs) {
-        misses.incrementAndGet();
+        misses.increment();
         totalLoadTime.add(loadTimeMs);
         recordOperation();
     }
@@ -51,7 +52,18 @@ public class CacheStatistics {
      * Records a cache eviction.
      */
     public void recordEviction() {
-        evictions.incrementAndGet();
+        evictions.increment();
+        recordOperation();
+    }
+
+    /**
+     * Records several cache evictions at once, such as when a cache is cleared.
+     *
+     * @param count the amount of evicted entries
+     */
+    public void recordEvictions(long count) {
+        if (count <= 0) return;
+        evictions.add(count);
         recordOperation();
     }
 
@@ -59,7 +71,7 @@ public class CacheStatistics {
      * Records a cache put operation.
      */
     public void recordPut() {
-        puts.incrementAndGet();
+        puts.increment();
         recordOperation();
     }
 
@@ -73,7 +85,7 @@ public class CacheStatistics {
             try {
                 // Double-check inside lock
                 if (now - lastSnapshotTime.get() >= ONE_MINUTE_MS) {
-                    long totalOps = hits.get() + misses.get() + evictions.get() + puts.get();
+                    long totalOps = hits.sum() + misses.sum() + evictions.sum() + puts.sum();
                     long prevOps = lastSnapshotTotalOps.getAndSet(totalOps);
                     long delta = totalOps - prevOps;
                     lastThroughput.set(delta);
@@ -89,43 +101,43 @@ public class CacheStatistics {
      * Gets the total number of cache hits.
      */
     public long getHits() {
-        return hits.get();
+        return hits.sum();
     }
 
     /**
      * Gets the total number of cache misses.
      */
     public long getMisses() {
-        return misses.get();
+        return misses.sum();
     }
 
     /**
      * Gets the total number of cache evictions.
      */
     public long getEvictions() {
-        return evictions.get();
+        return evictions.sum();
     }
 
     /**
      * Gets the total number of put operations.
      */
     public long getPuts() {
-        return puts.get();
+        return puts.sum();
     }
 
     /**
      * Calculates the cache hit rate as a percentage (0.0 to 1.0).
      */
     public double getHitRate() {
-        long total = hits.get() + misses.get();
-        return total == 0 ? 0.0 : (double) hits.get() / total;
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
     }
 
     /**
      * Calculates the average load time for cache misses in milliseconds.
      */
     public double getAverageLoadTime() {
-        long missCount = misses.get();
+        long missCount = misses.sum();
         return missCount == 0 ? 0.0 : (double) totalLoadTime.sum() / missCount;
     }
 
@@ -142,10 +154,10 @@ public class CacheStatistics {
      */
     public CacheMetrics getMetrics() {
         return new CacheMetrics(
-                hits.get(),
-                misses.get(),
-                evictions.get(),
-                puts.get(),
+                hits.sum(),
+                misses.sum(),
+                evictions.sum(),
+                puts.sum(),
                 getHitRate(),
                 getAverageLoadTime(),
                 getOpsPerMinute()
@@ -156,10 +168,10 @@ public class CacheStatistics {
      * Resets all statistics to zero.
      */
     public void reset() {
-        hits.set(0);
-        misses.set(0);
-        evictions.set(0);
-        puts.set(0);
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        puts.reset();
         totalLoadTime.reset();
         lastSnapshotTime.set(System.currentTimeMillis());
         lastSnapshotTotalOps.set(0);
@@ -170,7 +182,7 @@ public class CacheStatistics {
     public String toString() {
         return String.format(
                 "CacheStatistics{hits=%d, misses=%d, hitRate=%.2f%%, avgLoadTime=%.2fms, evictions=%d, ops/min=%d}",
-                hits.get(), misses.get(), getHitRate() * 100, getAverageLoadTime(), evictions.get(), getOpsPerMinute()
+                hits.sum(), misses.sum(), getHitRate() * 100, getAverageLoadTime(), evictions.sum(), getOpsPerMinute()
         );
     }
 }
\ No newline at end of file
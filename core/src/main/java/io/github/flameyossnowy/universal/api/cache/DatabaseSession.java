@@ -2,6 +2,7 @@ package io.github.flameyossnowy.universal.api.cache;
 
 import com.google.errorprone.annotations.CheckReturnValue;
 import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.operation.AsyncExecutor;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -73,7 +74,7 @@ public interface DatabaseSession<ID, T, C> extends TransactionContext<C>, AutoCl
      * @return a future that completes with {@code true} if the insertion was successful, {@code false} otherwise.
      */
     default CompletableFuture<Boolean> insertAsync(T entity) {
-        return CompletableFuture.supplyAsync(() -> insert(entity));
+        return CompletableFuture.supplyAsync(() -> insert(entity), AsyncExecutor.common());
     }
 
     /**
@@ -88,7 +89,7 @@ public interface DatabaseSession<ID, T, C> extends TransactionContext<C>, AutoCl
      * @return a future that completes with {@code true} if the entity was successfully deleted, {@code false} otherwise.
      */
     default CompletableFuture<Boolean> deleteAsync(T entity) {
-        return CompletableFuture.supplyAsync(() -> delete(entity));
+        return CompletableFuture.supplyAsync(() -> delete(entity), AsyncExecutor.common());
     }
 
     /**
@@ -101,7 +102,7 @@ public interface DatabaseSession<ID, T, C> extends TransactionContext<C>, AutoCl
      * @return a future that completes with {@code true} if the update was successful, {@code false} otherwise.
      */
     default CompletableFuture<Boolean> updateAsync(T entity) {
-        return CompletableFuture.supplyAsync(() -> update(entity));
+        return CompletableFuture.supplyAsync(() -> update(entity), AsyncExecutor.common());
     }
 
     /**
@@ -114,7 +115,7 @@ public interface DatabaseSession<ID, T, C> extends TransactionContext<C>, AutoCl
      * @return a future that completes with the item with the specified key, or null if no such item exists.
      */
     default CompletableFuture<T> findByIdAsync(ID key) {
-        return CompletableFuture.supplyAsync(() -> findById(key));
+        return CompletableFuture.supplyAsync(() -> findById(key), AsyncExecutor.common());
     }
 
     /**
@@ -164,6 +165,6 @@ public interface DatabaseSession<ID, T, C> extends TransactionContext<C>, AutoCl
      * successful or not.
      */
     default CompletableFuture<TransactionResult<Boolean>> commitAsync() {
-        return CompletableFuture.supplyAsync(this::commit);
+        return CompletableFuture.supplyAsync(this::commit, AsyncExecutor.common());
     }
 }
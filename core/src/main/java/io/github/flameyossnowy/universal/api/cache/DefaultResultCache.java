@@ -22,6 +22,8 @@ public class DefaultResultCache<Q, T, ID> {
 
     private final Map<Q, CacheEntry<T>> cache;
     private final Map<ID, Set<Q>> idToQueries = new ConcurrentLRUCache<>(16);
+    // Counts hold no IDs, any write may change them
+    private final Map<Q, CountEntry> counts;
     private final CacheStatistics statistics = new CacheStatistics();
     private final long ttlMillis;
     
@@ -33,6 +35,7 @@ public class DefaultResultCache<Q, T, ID> {
             case LEAST_FREQ_AND_RECENTLY_USED -> new ConcurrentLFRUCache<>(maxSize);
             case NONE -> new ConcurrentHashMap<>(maxSize);
         };
+        this.counts = new ConcurrentLRUCache<>(Math.max(16, maxSize / 4));
     }
 
     public DefaultResultCache(int maxSize, CacheAlgorithmType type) {
@@ -94,6 +97,42 @@ public class DefaultResultCache<Q, T, ID> {
         }
     }
     
+    /**
+     * Fetches the cached count of a query.
+     *
+     * @param query the count query
+     * @return the cached count, or -1 if not found or expired
+     */
+    public long fetchCount(Q query) {
+        CountEntry entry = counts.get(query);
+        if (entry == null) {
+            statistics.recordMiss(0);
+            return -1;
+        }
+
+        if (entry.isExpired()) {
+            counts.remove(query);
+            statistics.recordMiss(0);
+            statistics.recordEviction();
+            return -1;
+        }
+
+        statistics.recordHit();
+        return entry.count;
+    }
+
+    /**
+     * Caches the count of a query, until the next write to the repository.
+     *
+     * @param query the count query
+     * @param count the amount of matching entities
+     */
+    public void insertCount(Q query, long count) {
+        long expiresAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        counts.put(query, new CountEntry(count, expiresAt));
+        statistics.recordPut();
+    }
+
     /**
      * Invalidates all queries that contain the specified entity ID.
      * This is much more efficient than clearing the entire cache.
@@ -101,6 +140,7 @@ public class DefaultResultCache<Q, T, ID> {
      * @param id the entity ID to invalidate
      */
     public void invalidate(ID id) {
+        counts.clear();
         Set<Q> affectedQueries = idToQueries.remove(id);
         if (affectedQueries != null) {
             for (Q query : affectedQueries) {
@@ -128,6 +168,7 @@ public class DefaultResultCache<Q, T, ID> {
      * @param query the query to clear
      */
     public void clear(Q query) {
+        counts.clear();
         if (cache.remove(query) != null) {
             statistics.recordEviction();
         }
@@ -139,6 +180,7 @@ public class DefaultResultCache<Q, T, ID> {
     public void clear() {
         int size = cache.size();
         cache.clear();
+        counts.clear();
         idToQueries.clear();
         for (int i = 0; i < size; i++) {
             statistics.recordEviction();
@@ -166,6 +208,12 @@ public class DefaultResultCache<Q, T, ID> {
         return statistics.getMetrics();
     }
     
+    private record CountEntry(long count, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
     /**
      * Cache entry with expiration time.
      */
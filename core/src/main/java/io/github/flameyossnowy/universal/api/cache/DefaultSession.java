@@ -2,6 +2,7 @@ package io.github.flameyossnowy.universal.api.cache;
 
 import io.github.flameyossnowy.universal.api.RepositoryAdapter;
 import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.utils.Logging;
 
@@ -15,7 +16,8 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
     private final long id;
     private final EnumSet<SessionOption> options;
 
-    private final List<Runnable> pendingOperations = new ArrayList<>(5);
+    // Buffered writes, flushed on commit in batches of consecutive writes of the same kind
+    private final List<PendingWrite<T>> pendingWrites = new ArrayList<>(5);
     private final List<Runnable> rollbackCallbacks = new ArrayList<>(5);
     private final List<TransactionResult<?>> results = new ArrayList<>(5);
 
@@ -58,10 +60,8 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
 
     @Override
     public TransactionResult<Boolean> commit() {
-        if (!options.contains(SessionOption.BUFFERED_WRITE)) {
-            for (Runnable action : pendingOperations) {
-                action.run();
-            }
+        if (options.contains(SessionOption.BUFFERED_WRITE)) {
+            flush();
         }
 
         for (TransactionResult<?> result : results) {
@@ -77,16 +77,17 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
             return TransactionResult.failure(e);
         }
 
-        pendingOperations.clear();
+        pendingWrites.clear();
         rollbackCallbacks.clear();
         results.clear();
-        return TransactionResult.success(null);
+        return TransactionResult.success(true);
     }
 
     @Override
     public void rollback() {
-        rollbackCallbacks.forEach(Runnable::run);
-        pendingOperations.clear();
+        // Undone last to first, so an entity written several times ends up as it was before the first write
+        for (int i = rollbackCallbacks.size() - 1; i >= 0; i--) rollbackCallbacks.get(i).run();
+        pendingWrites.clear();
         rollbackCallbacks.clear();
 
         try {
@@ -100,21 +101,16 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
     public boolean insert(T entity) {
         ID entityId = Objects.requireNonNull(information.getPrimaryKey()).getValue(entity);
 
-        Runnable operation = () -> {
-            TransactionResult<Boolean> result = repository.insert(entity, transactionContext);
-            results.add(result);
-            if (!result.getResult().orElse(Boolean.FALSE)) return;
-            cache.put(entityId, entity);
-        };
-
         if (options.contains(SessionOption.LOG_OPERATIONS)) {
             log("INSERT " + entity);
         }
 
         if (options.contains(SessionOption.BUFFERED_WRITE)) {
-            pendingOperations.add(operation);
+            pendingWrites.add(new PendingWrite<>(WriteType.INSERT, entity));
         } else {
-            operation.run();
+            TransactionResult<Boolean> result = repository.insert(entity, transactionContext);
+            results.add(result);
+            if (result.getResult().orElse(Boolean.FALSE)) cache.put(entityId, entity);
         }
 
         rollbackCallbacks.add(() -> cache.remove(entityId));
@@ -126,21 +122,16 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
         ID entityId = Objects.requireNonNull(information.getPrimaryKey()).getValue(entity);
         T previous = findById(entityId);
 
-        Runnable operation = () -> {
-            TransactionResult<Boolean> result = repository.delete(entity, transactionContext);
-            results.add(result);
-            if (result.getResult().orElse(Boolean.FALSE)) return;
-            cache.remove(entityId);
-        };
-
         if (options.contains(SessionOption.LOG_OPERATIONS)) {
             log("DELETE " + entity);
         }
 
         if (options.contains(SessionOption.BUFFERED_WRITE)) {
-            pendingOperations.add(operation);
+            pendingWrites.add(new PendingWrite<>(WriteType.DELETE, entity));
         } else {
-            operation.run();
+            TransactionResult<Boolean> result = repository.delete(entity, transactionContext);
+            results.add(result);
+            if (result.getResult().orElse(Boolean.FALSE)) cache.remove(entityId);
         }
 
         rollbackCallbacks.add(() -> {
@@ -154,21 +145,16 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
         ID entityId = Objects.requireNonNull(information.getPrimaryKey()).getValue(entity);
         T previous = findById(entityId);
 
-        Runnable operation = () -> {
-            TransactionResult<Boolean> result = repository.updateAll(entity, transactionContext);
-            results.add(result);
-            if (result.getResult().orElse(Boolean.FALSE)) return;
-            cache.put(entityId, entity);
-        };
-
         if (options.contains(SessionOption.LOG_OPERATIONS)) {
             log("UPDATE " + entity);
         }
 
         if (options.contains(SessionOption.BUFFERED_WRITE)) {
-            pendingOperations.add(operation);
+            pendingWrites.add(new PendingWrite<>(WriteType.UPDATE, entity));
         } else {
-            operation.run();
+            TransactionResult<Boolean> result = repository.updateAll(entity, transactionContext);
+            results.add(result);
+            if (result.getResult().orElse(Boolean.FALSE)) cache.put(entityId, entity);
         }
 
         rollbackCallbacks.add(() -> {
@@ -177,6 +163,44 @@ public class DefaultSession<ID, T, C> implements DatabaseSession<ID, T, C> {
         return true;
     }
     
+    /**
+     * Writes the buffered writes in order, every run of consecutive writes of the same kind as one batch,
+     * which adapters may send to the database in a single round trip.
+     */
+    private void flush() {
+        FieldData<?> primaryKey = Objects.requireNonNull(information.getPrimaryKey());
+
+        int start = 0;
+        while (start < pendingWrites.size()) {
+            WriteType type = pendingWrites.get(start).type();
+            int end = start + 1;
+            while (end < pendingWrites.size() && pendingWrites.get(end).type() == type) end++;
+
+            List<T> entities = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) entities.add(pendingWrites.get(i).entity());
+
+            TransactionResult<Boolean> result = switch (type) {
+                case INSERT -> repository.insertAll(entities, transactionContext);
+                case UPDATE -> repository.updateAll(entities, transactionContext);
+                case DELETE -> repository.deleteAll(entities, transactionContext);
+            };
+            results.add(result);
+            if (result.isError()) return;
+
+            for (T entity : entities) {
+                ID entityId = primaryKey.getValue(entity);
+                if (type == WriteType.DELETE) cache.remove(entityId);
+                else cache.put(entityId, entity);
+            }
+            start = end;
+        }
+        pendingWrites.clear();
+    }
+
+    private enum WriteType { INSERT, UPDATE, DELETE }
+
+    private record PendingWrite<T>(WriteType type, T entity) {}
+
     private void log(String message) {
         Logging.info(() -> "[DefaultSession " + id + "] " + message);
     }
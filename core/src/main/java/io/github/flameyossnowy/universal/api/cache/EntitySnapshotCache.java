@@ -0,0 +1,228 @@
+package io.github.flameyossnowy.universal.api.cache;
+
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLRUCache;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps a copy of the column values of every entity loaded from the database so that
+ * updates can be narrowed down to the columns that actually changed.
+ *
+ * <p>Fields are identified by their ordinal in {@link RepositoryInformation#getFields()}
+ * and changes are reported as a bitmask, which adapters use as the key of their cached
+ * partial update statements. Repositories with more than 64 fields, entities without a
+ * snapshot and fields of mutable types that cannot be compared safely always report a
+ * {@link #FULL_UPDATE}. Collections and maps of immutable elements are copied, so they are
+ * compared like any other value. Entities without relationships whose fields are all compared
+ * can be rebuilt from their snapshot, see {@link #restore(Object)}.
+ *
+ * @param <ID> the type of the entity identifier
+ * @param <T> the type of the entity
+ */
+@SuppressWarnings("unused")
+public class EntitySnapshotCache<ID, T> {
+    /**
+     * Mask returned when every column must be written.
+     */
+    public static final long FULL_UPDATE = -1L;
+
+    private final RepositoryInformation information;
+    private final FieldData<?>[] fields;
+    private final boolean[] comparable;
+    private final boolean supported;
+    private final boolean restorable;
+    private final Map<ID, Object[]> snapshots;
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    public EntitySnapshotCache(RepositoryInformation information, int maxSize) {
+        this.information = information;
+        this.fields = information.getFields().toArray(new FieldData<?>[0]);
+        this.comparable = new boolean[fields.length];
+        boolean restorable = true;
+        for (int i = 0; i < fields.length; i++) {
+            comparable[i] = isComparable(fields[i]);
+            // Relationships only keep the related key, the entity cannot be rebuilt from it
+            if (!comparable[i] || fields[i].oneToOne() != null || fields[i].manyToOne() != null) restorable = false;
+        }
+        this.supported = fields.length <= Long.SIZE;
+        this.restorable = supported && restorable;
+        this.snapshots = new ConcurrentLRUCache<>(maxSize);
+    }
+
+    /**
+     * Records the current state of an entity, usually right after it was read from or written to the database.
+     *
+     * @param id the entity identifier
+     * @param entity the entity to snapshot
+     */
+    public void capture(ID id, T entity) {
+        if (!supported || id == null || entity == null) return;
+
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (comparable[i]) values[i] = copyValue(fields[i], fields[i].getValue(entity));
+        }
+        snapshots.put(id, values);
+        statistics.recordPut();
+    }
+
+    /**
+     * Computes which fields of the entity differ from its last snapshot.
+     *
+     * @param id the entity identifier
+     * @param entity the entity about to be written
+     * @return a bitmask of changed field ordinals, {@code 0} if nothing changed or {@link #FULL_UPDATE}
+     */
+    public long dirtyMask(ID id, T entity) {
+        if (!supported || id == null) return FULL_UPDATE;
+
+        Object[] snapshot = snapshots.get(id);
+        if (snapshot == null) {
+            statistics.recordMiss(0);
+            return FULL_UPDATE;
+        }
+        statistics.recordHit();
+
+        long mask = 0L;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].primary()) continue;
+            if (!comparable[i] || !Objects.deepEquals(snapshot[i], copyValue(fields[i], fields[i].getValue(entity)))) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the value a field had when the entity was last captured, such as the elements of a collection
+     * before they were changed.
+     *
+     * @param id the entity identifier
+     * @param ordinal the ordinal of the field
+     * @return the captured value, {@code null} if there is no snapshot or the field is not compared
+     */
+    public Object snapshotValue(ID id, int ordinal) {
+        if (!supported || id == null) return null;
+        Object[] snapshot = snapshots.get(id);
+        return snapshot == null ? null : snapshot[ordinal];
+    }
+
+    /**
+     * Rebuilds the entity as it was last captured. The result is a private copy, nothing is shared with
+     * the instance that was captured or with any cached instance.
+     *
+     * @param id the entity identifier
+     * @return the captured state, {@code null} if there is no snapshot or the entity cannot be rebuilt from one
+     */
+    @SuppressWarnings("unchecked")
+    public T restore(ID id) {
+        if (!restorable || id == null) return null;
+        Object[] snapshot = snapshots.get(id);
+        if (snapshot == null) return null;
+
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object value = copyValue(fields[i], snapshot[i]);
+            if (value != null && !fields[i].type().isPrimitive() && !fields[i].type().isInstance(value)) return null;
+            values[i] = value;
+        }
+
+        try {
+            if (information.isRecord()) return (T) information.getRecordConstructor().newInstance(values);
+
+            T copy = (T) information.newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                if (values[i] != null) fields[i].setValue(copy, values[i]);
+            }
+            return copy;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the fields in ordinal order, matching the bits of {@link #dirtyMask(Object, Object)}.
+     */
+    public FieldData<?>[] getFields() {
+        return fields;
+    }
+
+    public static boolean isDirty(long mask, int ordinal) {
+        return (mask & (1L << ordinal)) != 0;
+    }
+
+    public void remove(ID id) {
+        if (snapshots.remove(id) != null) statistics.recordEviction();
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private static Object copyValue(FieldData<?> field, Object value) {
+        if (value == null) return null;
+        if (field.oneToOne() != null || field.manyToOne() != null) {
+            RepositoryInformation related = RepositoryMetadata.getMetadata(field.type());
+            FieldData<?> relatedKey = related == null ? null : related.getPrimaryKey();
+            return relatedKey == null ? value : relatedKey.getValue(value);
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        if (value instanceof Set<?> set) return new LinkedHashSet<>(set);
+        if (value instanceof Collection<?> collection) return new ArrayList<>(collection);
+        if (value instanceof Map<?, ?> map) return new LinkedHashMap<>(map);
+        return value;
+    }
+
+    private static boolean isComparable(FieldData<?> field) {
+        if (field.oneToMany() != null) return false;
+        if (field.oneToOne() != null || field.manyToOne() != null) return true;
+
+        Class<?> type = field.type();
+        if (type.isArray()) return isImmutable(type.getComponentType());
+        if (Collection.class.isAssignableFrom(type)) return field.elementType() != null && isImmutable(field.elementType());
+        if (Map.class.isAssignableFrom(type)) {
+            return field.mapKeyType() != null && isImmutable(field.mapKeyType())
+                && field.mapValueType() != null && isImmutable(field.mapValueType());
+        }
+        return isImmutable(type);
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive()
+            || type.isEnum()
+            || type.isRecord()
+            || type == String.class
+            || Number.class.isAssignableFrom(type) && (type.getName().startsWith("java.lang.") || type == BigDecimal.class || type == BigInteger.class)
+            || type == Boolean.class
+            || type == Character.class
+            || type == UUID.class
+            || TemporalAccessor.class.isAssignableFrom(type) && type.getName().startsWith("java.time.");
+    }
+}
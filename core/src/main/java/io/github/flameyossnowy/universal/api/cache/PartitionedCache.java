@@ -4,136 +4,324 @@ import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmTyp
 import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLFRUCache;
 import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLFUCache;
 import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLRUCache;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Partitioned cache that reduces contention in multi-threaded environments.
  * Distributes entries across multiple partitions based on key hash.
  * Use this when you need to scale your cache beyond the number of available JVM threads.
- * 
+ * <p>
+ * The partition count is rounded up to a power of two, and key hashes are spread before picking a partition,
+ * so sequential ids and hashes that only differ in their high bits are distributed evenly.
+ * <p>
+ * Contention tracking is off by default, it makes every operation write a counter shared by all threads
+ * of a partition, which is the very contention this cache exists to avoid. Enable it while tuning the
+ * partition count and leave it off in production.
+ *
  * @param <K> the key type
  * @param <V> the value type
  */
 @SuppressWarnings("unused")
 public class PartitionedCache<K, V> implements SessionCache<K, V> {
-    private final Map<K, V>[] partitions;
-    private final int partitionCount;
+    private final Partition<K, V>[] partitions;
+    private final int mask;
     private final CacheStatistics statistics = new CacheStatistics();
-    
-    @SuppressWarnings("unchecked")
+    private final boolean trackContention;
+
     public PartitionedCache(int partitionCount, int sizePerPartition, CacheAlgorithmType type) {
-        this.partitionCount = partitionCount;
-        this.partitions = new Map[partitionCount];
-        
-        for (int i = 0; i < partitionCount; i++) {
-            partitions[i] = switch (type) {
+        this(partitionCount, sizePerPartition, type, false);
+    }
+
+    /**
+     * @param trackContention whether to record contended operations and peak concurrency per partition
+     */
+    @SuppressWarnings("unchecked")
+    public PartitionedCache(int partitionCount, int sizePerPartition, CacheAlgorithmType type, boolean trackContention) {
+        if (partitionCount <= 0) throw new IllegalArgumentException("Partition count must be positive");
+        if (partitionCount > 1 << 30) throw new IllegalArgumentException("Partition count must be at most 2^30");
+
+        int count = partitionCount == 1 ? 1 : Integer.highestOneBit(partitionCount - 1) << 1;
+        this.mask = count - 1;
+        this.trackContention = trackContention;
+        this.partitions = new Partition[count];
+
+        for (int i = 0; i < count; i++) {
+            Map<K, V> map = switch (type) {
                 case LEAST_RECENTLY_USED -> new ConcurrentLRUCache<>(sizePerPartition);
                 case LEAST_FREQUENTLY_USED -> new ConcurrentLFUCache<>(sizePerPartition);
                 case LEAST_FREQ_AND_RECENTLY_USED -> new ConcurrentLFRUCache<>(sizePerPartition);
                 case NONE -> new ConcurrentHashMap<>(sizePerPartition);
             };
+            partitions[i] = trackContention ? new TrackedPartition<>(map) : new Partition<>(map);
         }
     }
-    
+
     /**
      * Gets the partition for a given key.
      */
-    private Map<K, V> getPartition(K key) {
-        int hash = key == null ? 0 : key.hashCode();
-        // Use power-of-2 partitionCount for faster masking than modulo
-        int index = hash & (partitionCount - 1);
-        return partitions[index];
+    private Partition<K, V> getPartition(K key) {
+        return partitions[spread(key == null ? 0 : key.hashCode()) & mask];
     }
 
+    /**
+     * Mixes every bit of the hash into the low bits (the murmur3 finalizer), the partitions themselves
+     * index by the low bits of the original hash, so the partition must not be picked by them alone.
+     */
+    static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
 
     @Override
     public Map<K, V> getInternalCache() {
-        return Arrays.stream(partitions).flatMap((map) -> map.entrySet().stream()).collect(()-> new ConcurrentHashMap<>(), (map, entry) -> map.put(entry.getKey(), entry.getValue()), ConcurrentHashMap::putAll);
+        Map<K, V> snapshot = new ConcurrentHashMap<>(size());
+        for (Partition<K, V> partition : partitions) snapshot.putAll(partition.map);
+        return snapshot;
     }
 
     /**
      * Gets a value from the cache.
-     * 
+     *
      * @param key the key
      * @return the value, or null if not found
      */
     public V get(K key) {
-        V value = getPartition(key).get(key);
+        Partition<K, V> partition = getPartition(key);
+        partition.enter();
+        V value;
+        try {
+            value = partition.map.get(key);
+        } finally {
+            partition.exit();
+        }
+
         if (value != null) {
             statistics.recordHit();
+            partition.statistics.recordHit();
         } else {
             statistics.recordMiss(0);
+            partition.statistics.recordMiss(0);
         }
         return value;
     }
-    
+
     /**
      * Puts a value into the cache.
-     * 
+     *
      * @param key the key
      * @param value the value
      */
     public V put(K key, V value) {
-        if (value != null) {
-            statistics.recordPut();
-            return getPartition(key).put(key, value);
+        if (value == null) return remove(key);
+
+        Partition<K, V> partition = getPartition(key);
+        statistics.recordPut();
+        partition.statistics.recordPut();
+
+        partition.enter();
+        try {
+            return partition.map.put(key, value);
+        } finally {
+            partition.exit();
         }
-        return remove(key);
     }
-    
+
     /**
      * Removes a value from the cache.
-     * 
+     *
      * @param key the key
      * @return the removed value, or null if not found
      */
     public V remove(K key) {
-        V removed = getPartition(key).remove(key);
+        Partition<K, V> partition = getPartition(key);
+        V removed;
+        partition.enter();
+        try {
+            removed = partition.map.remove(key);
+        } finally {
+            partition.exit();
+        }
+
         if (removed != null) {
             statistics.recordEviction();
+            partition.statistics.recordEviction();
         }
         return removed;
     }
-    
+
     /**
      * Clears all partitions.
      */
     public void clear() {
-        int totalSize = 0;
-        for (Map<K, V> partition : partitions) {
-            totalSize += partition.size();
-            partition.clear();
-        }
-        for (int i = 0; i < totalSize; i++) {
-            statistics.recordEviction();
+        long totalSize = 0;
+        for (Partition<K, V> partition : partitions) {
+            int size = partition.map.size();
+            totalSize += size;
+            partition.map.clear();
+            partition.statistics.recordEvictions(size);
         }
+        statistics.recordEvictions(totalSize);
     }
-    
+
     /**
      * Gets the total size across all partitions.
      */
     public int size() {
         int total = 0;
-        for (Map<K, V> partition : partitions) {
-            total += partition.size();
+        for (Partition<K, V> partition : partitions) {
+            total += partition.map.size();
         }
         return total;
     }
-    
+
+    /**
+     * Gets the amount of partitions, the requested count rounded up to a power of two.
+     */
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Whether contended operations and peak concurrency are recorded, see {@link #getPartitionMetrics()}.
+     */
+    public boolean isTrackingContention() {
+        return trackContention;
+    }
+
     /**
      * Gets cache statistics.
      */
     public CacheStatistics getStatistics() {
         return statistics;
     }
-    
+
     /**
      * Gets cache metrics snapshot.
      */
     public CacheMetrics getMetrics() {
         return statistics.getMetrics();
     }
+
+    /**
+     * Gets a snapshot of the metrics of every partition, indexed by partition.
+     * Uneven sizes or operation counts mean the keys are not spread evenly, a high contention rate means
+     * more partitions would help. Contention and peak concurrency stay at zero unless the cache was created
+     * with contention tracking.
+     */
+    public @NotNull List<PartitionMetrics> getPartitionMetrics() {
+        List<PartitionMetrics> metrics = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            Partition<K, V> partition = partitions[i];
+            long operations = partition.operations.sum();
+            metrics.add(new PartitionMetrics(
+                    i,
+                    partition.map.size(),
+                    partition.statistics.getMetrics(),
+                    operations,
+                    partition.contended(),
+                    operations == 0 || !trackContention ? 0 : (int) Math.max(1, partition.peakConcurrency())
+            ));
+        }
+        return metrics;
+    }
+
+    /**
+     * A snapshot of the metrics of one partition.
+     *
+     * @param partition the index of the partition
+     * @param size the amount of entries in the partition
+     * @param cache the hit, miss, put and eviction metrics of the partition
+     * @param operations the amount of gets, puts and removes run on the partition
+     * @param contendedOperations the amount of operations that started while another thread was in the partition
+     * @param peakConcurrency the largest amount of threads seen in the partition at once
+     */
+    public record PartitionMetrics(
+            int partition,
+            int size,
+            CacheMetrics cache,
+            long operations,
+            long contendedOperations,
+            int peakConcurrency) {
+        /**
+         * Gets the share of operations that found another thread in the partition, from 0.0 to 1.0.
+         */
+        public double contentionRate() {
+            return operations == 0 ? 0.0 : (double) contendedOperations / operations;
+        }
+    }
+
+    private static class Partition<K, V> {
+        final Map<K, V> map;
+        final CacheStatistics statistics = new CacheStatistics();
+
+        // Striped, so counting operations does not make the threads of a partition contend
+        final LongAdder operations = new LongAdder();
+
+        Partition(Map<K, V> map) {
+            this.map = map;
+        }
+
+        void enter() {
+            operations.increment();
+        }
+
+        void exit() {
+        }
+
+        long contended() {
+            return 0;
+        }
+
+        long peakConcurrency() {
+            return 0;
+        }
+    }
+
+    private static final class TrackedPartition<K, V> extends Partition<K, V> {
+        // Knowing how many threads are inside needs one shared counter, hence opt-in
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder contended = new LongAdder();
+        final LongAccumulator peakConcurrency = new LongAccumulator(Long::max, 0);
+
+        TrackedPartition(Map<K, V> map) {
+            super(map);
+        }
+
+        @Override
+        void enter() {
+            int concurrent = inFlight.incrementAndGet();
+            operations.increment();
+            if (concurrent > 1) {
+                contended.increment();
+                peakConcurrency.accumulate(concurrent);
+            }
+        }
+
+        @Override
+        void exit() {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        long contended() {
+            return contended.sum();
+        }
+
+        @Override
+        long peakConcurrency() {
+            return peakConcurrency.get();
+        }
+    }
 }
@@ -0,0 +1,346 @@
+package io.github.flameyossnowy.universal.api.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bounded cache of resolved relationships, keyed by the ordinal of the relationship field and the id the
+ * relationship was resolved for.
+ * <p>
+ * Entries are spread over lock-striped segments, each an open addressing table that evicts with the CLOCK
+ * algorithm once it is full. Lookups read optimistically and only take the segment lock when a write raced them.
+ * Integral ids ({@code int}, {@code long} and their smaller siblings) are stored unboxed, any other id is stored
+ * as an object next to its hash. Each field can be keyed by ids of its own class, such as a many-to-one field keyed
+ * by the id of the referenced entity.
+ */
+@SuppressWarnings("unused")
+public final class RelationshipCache {
+    public static final int DEFAULT_MAXIMUM_SIZE = 8192;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    // Whether each field ordinal is keyed by integral ids, and whether ordinals past them are
+    private final boolean[] integralKeys;
+    private final boolean integralIds;
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    /**
+     * @param idClass the class of the ids the relationships are resolved for
+     * @param maximumSize the maximum amount of entries, spread evenly over the segments
+     */
+    public RelationshipCache(@NotNull Class<?> idClass, int maximumSize) {
+        this(new Class<?>[0], idClass, maximumSize);
+    }
+
+    /**
+     * @param keyClasses the class of the ids each field ordinal is keyed by
+     * @param idClass the class of the ids of the ordinals past {@code keyClasses}
+     * @param maximumSize the maximum amount of entries, spread evenly over the segments
+     */
+    public RelationshipCache(@NotNull Class<?> @NotNull [] keyClasses, @NotNull Class<?> idClass, int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Maximum size must be positive");
+
+        this.integralKeys = new boolean[keyClasses.length];
+        for (int i = 0; i < keyClasses.length; i++) integralKeys[i] = isIntegral(keyClasses[i]);
+        this.integralIds = isIntegral(idClass);
+        int segmentSize = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    private static boolean isIntegral(Class<?> idClass) {
+        return idClass == Long.class || idClass == long.class
+                || idClass == Integer.class || idClass == int.class
+                || idClass == Short.class || idClass == short.class
+                || idClass == Byte.class || idClass == byte.class;
+    }
+
+    /**
+     * Gets the cached relationship, or null if it is not cached.
+     */
+    public @Nullable Object get(int ordinal, @NotNull Object id) {
+        boolean integral = isIntegralKey(ordinal, id);
+        long key = key(integral, id);
+        int hash = hash(ordinal, key);
+        Object value = segmentFor(hash).get(ordinal, key, integral ? null : id, hash);
+        if (value == null) statistics.recordMiss(0);
+        else statistics.recordHit();
+        return value;
+    }
+
+    /**
+     * Caches a relationship, evicting a rarely used one if the segment is full.
+     */
+    public void put(int ordinal, @NotNull Object id, @NotNull Object value) {
+        boolean integral = isIntegralKey(ordinal, id);
+        long key = key(integral, id);
+        int hash = hash(ordinal, key);
+        if (segmentFor(hash).put(ordinal, key, integral ? null : id, hash, value)) statistics.recordEviction();
+        statistics.recordPut();
+    }
+
+    /**
+     * Removes the cached relationship of a field for the given id.
+     */
+    public void remove(int ordinal, @NotNull Object id) {
+        boolean integral = isIntegralKey(ordinal, id);
+        long key = key(integral, id);
+        int hash = hash(ordinal, key);
+        segmentFor(hash).remove(ordinal, key, integral ? null : id, hash);
+    }
+
+    /**
+     * Removes every cached relationship of a field.
+     */
+    public void removeOrdinal(int ordinal) {
+        for (Segment segment : segments) segment.removeOrdinal(ordinal);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private boolean isIntegralKey(int ordinal, Object id) {
+        boolean integral = ordinal >= 0 && ordinal < integralKeys.length ? integralKeys[ordinal] : integralIds;
+        // An id of another class than the field is keyed by is stored as an object instead of failing the cast
+        return integral && (id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte);
+    }
+
+    private static long key(boolean integral, Object id) {
+        return integral ? ((Number) id).longValue() : id.hashCode();
+    }
+
+    private static int hash(int ordinal, long key) {
+        // murmur3 finalizer, so neighbouring ids do not cluster in the open addressing tables
+        long h = key * 31 + ordinal;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private Segment segmentFor(int hash) {
+        // The low bits index the table of the segment, the high bits pick the segment
+        return segments[hash >>> 28];
+    }
+
+    private static final class Table {
+        final int mask;
+        final int[] hashes;
+        final int[] ordinals;
+        final long[] keys;
+        // Allocated with the first object id, only integral ids are stored until then
+        Object @Nullable [] ids;
+        final Object[] values;
+        final boolean[] referenced;
+
+        Table(int capacity) {
+            this.mask = capacity - 1;
+            this.hashes = new int[capacity];
+            this.ordinals = new int[capacity];
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.referenced = new boolean[capacity];
+        }
+
+        int indexOf(int ordinal, long key, Object id, int hash) {
+            Object[] values = this.values;
+            Object[] ids = this.ids;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                if (values[i] == null) return -1;
+                if (hashes[i] == hash && ordinals[i] == ordinal && keys[i] == key
+                        && Objects.equals(ids == null ? null : ids[i], id)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        private final int maximumSize;
+
+        // Allocated on the first put, so handlers that never resolve a relationship stay small
+        private volatile Table table;
+        private int size;
+        private int hand;
+
+        Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        Object get(int ordinal, long key, Object id, int hash) {
+            long stamp = tryOptimisticRead();
+            Object value = find(ordinal, key, id, hash);
+            if (validate(stamp)) return value;
+
+            stamp = readLock();
+            try {
+                return find(ordinal, key, id, hash);
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        private Object find(int ordinal, long key, Object id, int hash) {
+            Table table = this.table;
+            if (table == null) return null;
+
+            int index = table.indexOf(ordinal, key, id, hash);
+            if (index < 0) return null;
+
+            // A racy write, at worst it marks the wrong slot as recently used
+            table.referenced[index] = true;
+            return table.values[index];
+        }
+
+        boolean put(int ordinal, long key, Object id, int hash, Object value) {
+            long stamp = writeLock();
+            try {
+                Table table = this.table;
+                if (table == null) {
+                    table = new Table(Integer.highestOneBit(Math.max(2, maximumSize) * 2 - 1) << 1);
+                    this.table = table;
+                }
+                if (id != null && table.ids == null) table.ids = new Object[table.mask + 1];
+
+                int index = table.indexOf(ordinal, key, id, hash);
+                if (index >= 0) {
+                    table.values[index] = value;
+                    table.referenced[index] = true;
+                    return false;
+                }
+
+                boolean evicted = false;
+                if (size >= maximumSize) {
+                    evict(table);
+                    evicted = true;
+                }
+
+                int mask = table.mask;
+                int i = hash & mask;
+                while (table.values[i] != null) i = (i + 1) & mask;
+
+                table.hashes[i] = hash;
+                table.ordinals[i] = ordinal;
+                table.keys[i] = key;
+                if (table.ids != null) table.ids[i] = id;
+                table.referenced[i] = false;
+                table.values[i] = value;
+                size++;
+                return evicted;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void remove(int ordinal, long key, Object id, int hash) {
+            long stamp = writeLock();
+            try {
+                Table table = this.table;
+                if (table == null) return;
+
+                int index = table.indexOf(ordinal, key, id, hash);
+                if (index >= 0) delete(table, index);
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void removeOrdinal(int ordinal) {
+            long stamp = writeLock();
+            try {
+                Table table = this.table;
+                if (table == null) return;
+
+                for (int i = 0; i <= table.mask; ) {
+                    // Deleting shifts a later entry into this slot, so look at it again
+                    if (table.values[i] != null && table.ordinals[i] == ordinal) delete(table, i);
+                    else i++;
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = writeLock();
+            try {
+                Table table = this.table;
+                if (table == null) return;
+
+                Arrays.fill(table.values, null);
+                if (table.ids != null) Arrays.fill(table.ids, null);
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = readLock();
+            try {
+                return size;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        private void evict(Table table) {
+            int mask = table.mask;
+            while (true) {
+                int i = hand;
+                hand = (i + 1) & mask;
+                if (table.values[i] == null) continue;
+
+                if (table.referenced[i]) {
+                    table.referenced[i] = false;
+                    continue;
+                }
+
+                delete(table, i);
+                return;
+            }
+        }
+
+        private void delete(Table table, int index) {
+            // Backward shift deletion keeps probe sequences intact without tombstones
+            int mask = table.mask;
+            int hole = index;
+            for (int j = (hole + 1) & mask; table.values[j] != null; j = (j + 1) & mask) {
+                int home = table.hashes[j] & mask;
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    table.hashes[hole] = table.hashes[j];
+                    table.ordinals[hole] = table.ordinals[j];
+                    table.keys[hole] = table.keys[j];
+                    if (table.ids != null) table.ids[hole] = table.ids[j];
+                    table.referenced[hole] = table.referenced[j];
+                    table.values[hole] = table.values[j];
+                    hole = j;
+                }
+            }
+
+            table.values[hole] = null;
+            if (table.ids != null) table.ids[hole] = null;
+            size--;
+        }
+    }
+}
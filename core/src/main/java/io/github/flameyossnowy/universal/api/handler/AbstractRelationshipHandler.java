@@ -4,6 +4,7 @@ import io.github.flameyossnowy.universal.api.RepositoryAdapter;
 import io.github.flameyossnowy.universal.api.RepositoryRegistry;
 import io.github.flameyossnowy.universal.api.annotations.ExternalRepository;
 import io.github.flameyossnowy.universal.api.cache.LazyArrayList;
+import io.github.flameyossnowy.universal.api.cache.RelationshipCache;
 import io.github.flameyossnowy.universal.api.options.Query;
 import io.github.flameyossnowy.universal.api.options.SelectQuery;
 import io.github.flameyossnowy.universal.api.reflect.*;
@@ -29,22 +30,59 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
 
     private static final Map<String, String> nameCache = new ConcurrentHashMap<>(16);
 
-    // Relationship cache: "EntityType:ID:fieldName" -> cached result
-    private final Map<String, Object> relationshipCache = new ConcurrentHashMap<>(64);
+    // Related type -> handlers caching relationships to it, weakly held so closed repositories are not retained
+    private static final Map<Class<?>, Set<AbstractRelationshipHandler<?, ?, ?>>> handlersByRelatedType = new ConcurrentHashMap<>(16);
+
+    // Relationship cache: (field ordinal, id) -> cached result, many-to-one fields are keyed by the referenced id
+    private final RelationshipCache relationshipCache;
+    private final FieldData<?>[] relationshipFields;
+    private final Map<FieldData<?>, Integer> ordinals = new IdentityHashMap<>(8);
 
     protected AbstractRelationshipHandler(RepositoryInformation repositoryInformation,
                                           Class<ID> idClass,
                                           TypeResolverRegistry resolverRegistry) {
+        this(repositoryInformation, idClass, resolverRegistry, RelationshipCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    protected AbstractRelationshipHandler(RepositoryInformation repositoryInformation,
+                                          Class<ID> idClass,
+                                          TypeResolverRegistry resolverRegistry,
+                                          int maximumCacheSize) {
         this.repositoryInformation = repositoryInformation;
         this.idClass = idClass;
         this.resolverRegistry = resolverRegistry;
+        List<FieldData<?>> fields = new ArrayList<>(8);
+        List<Class<?>> keyClasses = new ArrayList<>(8);
+        for (FieldData<?> field : repositoryInformation.getFields()) {
+            Class<?> relatedType;
+            if (field.oneToMany() != null) relatedType = field.oneToMany().mappedBy();
+            else if (field.oneToOne() != null || field.manyToOne() != null) relatedType = field.type();
+            else continue;
+
+            ordinals.put(field, fields.size());
+            fields.add(field);
+            keyClasses.add(field.manyToOne() != null ? referencedIdClass(field) : idClass);
+            handlersByRelatedType
+                .computeIfAbsent(relatedType, k -> Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>())))
+                .add(this);
+        }
+        this.relationshipFields = fields.toArray(new FieldData<?>[0]);
+        this.relationshipCache = new RelationshipCache(keyClasses.toArray(new Class<?>[0]), idClass, maximumCacheSize);
+    }
+
+    private Class<?> referencedIdClass(@NotNull FieldData<?> field) {
+        RepositoryInformation referenced = getMetadata(field.type());
+        FieldData<?> primaryKey = referenced == null ? null : referenced.getPrimaryKey();
+        return primaryKey == null ? Object.class : primaryKey.type();
     }
 
     @Override
-    public @Nullable Object handleManyToOneRelationship(ID primaryKeyValue, @NotNull FieldData<?> field) {
+    public @Nullable Object handleManyToOneRelationship(@Nullable Object foreignKey, @NotNull FieldData<?> field) {
+        if (foreignKey == null) return null;
+
         RepositoryInformation parentInfo = Objects.requireNonNull(getMetadata(field.type()), "Unknown repository for type " + field.type());
-        String cacheKey = buildCacheKey(field, primaryKeyValue);
-        Object cached = relationshipCache.get(cacheKey);
+        int ordinal = ordinalOf(field);
+        Object cached = getCached(ordinal, foreignKey);
         if (cached != null) return cached == NULL_MARKER ? null : cached;
 
         RepositoryAdapter<Object, Object, ?> adapter = resolveAdapter(field, parentInfo);
@@ -55,20 +93,20 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
         if (primaryKey == null) throw new IllegalStateException("Missing primary key for " + parentInfo.getType());
 
         SelectQuery query = Query.select()
-                .where(primaryKey.name()).eq(primaryKeyValue)
+                .where(primaryKey.name()).eq(foreignKey)
                 .limit(1)
                 .build();
 
         List<Object> result = adapter.find(query);
         Object value = result.isEmpty() ? null : result.getFirst();
-        relationshipCache.put(cacheKey, value == null ? NULL_MARKER : value);
+        putCached(ordinal, foreignKey, value == null ? NULL_MARKER : value);
         return value;
     }
 
     @Override
     public @Nullable Object handleOneToOneRelationship(ID primaryKeyValue, @NotNull FieldData<?> field) {
-        String cacheKey = buildCacheKey(field, primaryKeyValue);
-        Object cached = relationshipCache.get(cacheKey);
+        int ordinal = ordinalOf(field);
+        Object cached = getCached(ordinal, primaryKeyValue);
         if (cached != null) return cached == NULL_MARKER ? null : cached;
 
         // The field type is the "target" side (e.g. Warp for Faction.warp)
@@ -84,14 +122,14 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
         if (link == null) {
             Logging.error("No OneToOne back-reference from " + targetInfo.getRepositoryName() +
                     " to " + repositoryInformation.getRepositoryName() + " for field " + field.name());
-            relationshipCache.put(cacheKey, NULL_MARKER);
+            putCached(ordinal, primaryKeyValue, NULL_MARKER);
             return null;
         }
 
         RepositoryAdapter<Object, Object, ?> adapter = resolveAdapter(field, targetInfo);
         if (adapter == null) {
             Logging.error("Missing adapter for type: " + targetType.getName());
-            relationshipCache.put(cacheKey, NULL_MARKER);
+            putCached(ordinal, primaryKeyValue, NULL_MARKER);
             return null;
         }
 
@@ -100,16 +138,15 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
             primaryKeyValue,
             link,
             adapter,
-            cacheKey,
-            () -> relationshipCache.put(cacheKey, NULL_MARKER) // Cache setter
+            result -> putCached(ordinal, primaryKeyValue, result == null ? NULL_MARKER : result) // Cache setter
         );
     }
 
     @Override
     public List<Object> handleOneToManyRelationship(FieldData<?> field, ID primaryKeyValue) {
         // Check cache first
-        String cacheKey = buildCacheKey(field, primaryKeyValue);
-        Object cached = relationshipCache.get(cacheKey);
+        int ordinal = ordinalOf(field);
+        Object cached = getCached(ordinal, primaryKeyValue);
         if (cached != null) {
             return (List<Object>) cached;
         }
@@ -123,14 +160,14 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
         if (adapter == null)
             throw new IllegalStateException("Missing adapter for " + relatedRepoInfo.getType());
 
-        if (!field.oneToMany().lazy()) return getResult(primaryKeyValue, adapter, relationName, cacheKey);
-        return new LazyArrayList<>(() -> getResult(primaryKeyValue, adapter, relationName, cacheKey));
+        if (!field.oneToMany().lazy()) return getResult(primaryKeyValue, adapter, relationName, ordinal);
+        return new LazyArrayList<>(() -> getResult(primaryKeyValue, adapter, relationName, ordinal));
     }
 
-    private List<Object> getResult(ID primaryKeyValue, @NotNull RepositoryAdapter<Object, Object, ?> adapter, String relationName, String cacheKey) {
+    private List<Object> getResult(ID primaryKeyValue, @NotNull RepositoryAdapter<Object, Object, ?> adapter, String relationName, int ordinal) {
         List<Object> result = adapter.find(Query.select().where(relationName).eq(primaryKeyValue).build());
         List<Object> immutable = result == null ? Collections.emptyList() : List.copyOf(result);
-        relationshipCache.put(cacheKey, immutable);
+        putCached(ordinal, primaryKeyValue, immutable);
         return immutable;
     }
 
@@ -173,11 +210,27 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
     private static final Object NULL_MARKER = new Object();
 
     /**
-     * Builds a cache key for relationship caching.
+     * Gets the ordinal of a relationship field in the relationship cache, or -1 if the field is not cached.
      */
-    @NotNull
-    private String buildCacheKey(@NotNull FieldData<?> field, Object id) {
-        return repositoryInformation.getType().getSimpleName() + ":" + id + ":" + field.name();
+    private int ordinalOf(@NotNull FieldData<?> field) {
+        Integer ordinal = ordinals.get(field);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    @Nullable
+    private Object getCached(int ordinal, Object id) {
+        return ordinal < 0 || id == null ? null : relationshipCache.get(ordinal, id);
+    }
+
+    private void putCached(int ordinal, Object id, @NotNull Object value) {
+        if (ordinal >= 0 && id != null) relationshipCache.put(ordinal, id, value);
+    }
+
+    /**
+     * Gets the relationship cache, mostly to inspect its statistics.
+     */
+    public RelationshipCache getRelationshipCache() {
+        return relationshipCache;
     }
 
     /**
@@ -230,11 +283,9 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
             }
         }
 
+        int ordinal = ordinalOf(field);
         for (ID id : parentIds) {
-            relationshipCache.put(
-                buildCacheKey(field, id),
-                mapped.getOrDefault(id, NULL_MARKER)
-            );
+            putCached(ordinal, id, mapped.getOrDefault(id, NULL_MARKER));
         }
     }
 
@@ -258,11 +309,9 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
             grouped.computeIfAbsent(parentId, k -> new ArrayList<>()).add(child);
         }
 
+        int ordinal = ordinalOf(field);
         for (ID id : parentIds) {
-            relationshipCache.put(
-                buildCacheKey(field, id),
-                List.copyOf(grouped.getOrDefault(id, List.of()))
-            );
+            putCached(ordinal, id, List.copyOf(grouped.getOrDefault(id, List.of())));
         }
     }
 
@@ -295,9 +344,68 @@ public abstract class AbstractRelationshipHandler<T, ID, R> implements Relations
 
     @Override
     public void invalidateRelationshipsForId(@NotNull ID id) {
-        String prefix = repositoryInformation.getType().getSimpleName() + ":" + id + ":";
+        // Many-to-one entries are keyed by the id of the referenced entity, not by the id of this one. A changed
+        // reference is read again from the row, so it is looked up under the new id
+        for (int ordinal = 0; ordinal < relationshipFields.length; ordinal++) {
+            if (relationshipFields[ordinal].manyToOne() == null) relationshipCache.remove(ordinal, id);
+        }
+    }
+
+    @Override
+    public void invalidateRelated(@Nullable T entity, @Nullable ID id) {
+        if (id != null) invalidateRelationshipsForId(id);
+
+        Set<AbstractRelationshipHandler<?, ?, ?>> handlers = handlersByRelatedType.get(repositoryInformation.getType());
+        if (handlers == null) return;
+
+        AbstractRelationshipHandler<?, ?, ?>[] snapshot;
+        synchronized (handlers) {
+            snapshot = handlers.toArray(new AbstractRelationshipHandler<?, ?, ?>[0]);
+        }
+
+        for (AbstractRelationshipHandler<?, ?, ?> handler : snapshot) {
+            handler.evictRelated(repositoryInformation, entity, id);
+        }
+    }
+
+    /**
+     * Evicts the cached relationships of this repository that hold or point at a changed entity of another
+     * (or the same) repository.
+     */
+    private void evictRelated(@NotNull RepositoryInformation changedInfo, @Nullable Object entity, @Nullable Object id) {
+        Class<?> changedType = changedInfo.getType();
+        for (int ordinal = 0; ordinal < relationshipFields.length; ordinal++) {
+            FieldData<?> field = relationshipFields[ordinal];
+            if (field.manyToOne() != null) {
+                // Keyed by the id of the referenced entity, which is the changed one
+                if (field.type() != changedType) continue;
+                if (id != null) relationshipCache.remove(ordinal, id);
+                else relationshipCache.removeOrdinal(ordinal);
+            } else if (field.oneToOne() != null) {
+                if (field.type() != changedType) continue;
+                OneToOneField link = getOneToOneField(changedInfo, repositoryInformation);
+                evictOwner(ordinal, link == null ? null : changedInfo.getField(link.name()), entity);
+            } else if (field.oneToMany() != null) {
+                if (field.oneToMany().mappedBy() != changedType) continue;
+                evictOwner(ordinal, changedInfo.getField(getRelationName(changedInfo, repositoryInformation.getType())), entity);
+            }
+        }
+    }
+
+    /**
+     * Evicts the entry of the owner the changed entity references, or the whole field if the owner is unknown.
+     */
+    private void evictOwner(int ordinal, @Nullable FieldData<?> reference, @Nullable Object entity) {
+        Object owner = reference == null || entity == null ? null : reference.getValue(entity);
+        if (owner == null) {
+            relationshipCache.removeOrdinal(ordinal);
+            return;
+        }
 
-        relationshipCache.keySet().removeIf(key -> key.startsWith(prefix));
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        Object ownerId = primaryKey != null && repositoryInformation.getType().isInstance(owner) ? primaryKey.getValue(owner) : owner;
+        if (ownerId == null) relationshipCache.removeOrdinal(ordinal);
+        else relationshipCache.remove(ordinal, ownerId);
     }
 
     @Override
@@ -16,6 +16,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class OneToOneLazyProxy {
@@ -29,18 +30,17 @@ public class OneToOneLazyProxy {
             ID primaryKeyValue,
             @NotNull OneToOneField link,
             @NotNull RepositoryAdapter<Object, Object, ?> adapter,
-            String cacheKey,
-            Runnable cacheSetter
+            Consumer<Object> cacheSetter
     ) {
         if (field.oneToOne().lazy()) {
             // Create lazy proxy
             return createLazyProxy(
                     field.type(),
-                    () -> fetchOneToOneResult(primaryKeyValue, field, link, adapter, cacheKey, cacheSetter)
+                    () -> fetchOneToOneResult(primaryKeyValue, field, link, adapter, cacheSetter)
             );
         } else {
             // Eagerly fetch
-            return fetchOneToOneResult(primaryKeyValue, field, link, adapter, cacheKey, cacheSetter);
+            return fetchOneToOneResult(primaryKeyValue, field, link, adapter, cacheSetter);
         }
     }
 
@@ -77,8 +77,7 @@ public class OneToOneLazyProxy {
             @NotNull FieldData<?> field,
             @NotNull OneToOneField link,
             @NotNull RepositoryAdapter<Object, Object, ?> adapter,
-            String cacheKey,
-            Runnable cacheSetter
+            Consumer<Object> cacheSetter
     ) {
         try {
             SelectQuery query = Query.select()
@@ -91,7 +90,7 @@ public class OneToOneLazyProxy {
 
             // Update cache
             if (cacheSetter != null) {
-                cacheSetter.run();
+                cacheSetter.accept(result);
             }
 
             return result;
@@ -1,6 +1,7 @@
 package io.github.flameyossnowy.universal.api.handler;
 
 import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Set;
@@ -10,7 +11,14 @@ import java.util.Set;
  * Defines abstract relationship accessors that any backend can implement.
  */
 public interface RelationshipHandler<T, ID> {
-    Object handleManyToOneRelationship(ID primaryKeyValue, FieldData<?> field);
+    /**
+     * Resolves the entity a many-to-one field references.
+     *
+     * @param foreignKey the id of the referenced entity, as stored with the referencing one
+     * @param field the many-to-one field
+     * @return the referenced entity, or null if there is none
+     */
+    Object handleManyToOneRelationship(Object foreignKey, FieldData<?> field);
 
     Object handleOneToOneRelationship(ID primaryKeyValue, FieldData<?> field);
 
@@ -20,5 +28,16 @@ public interface RelationshipHandler<T, ID> {
 
     void invalidateRelationshipsForId(ID id);
 
+    /**
+     * Invalidates the cached relationships of a changed entity, along with the cached relationships of any
+     * repository that holds or points at it.
+     *
+     * @param entity the changed entity, or null if only its id is known
+     * @param id the id of the changed entity, or null if it has none yet
+     */
+    default void invalidateRelated(@Nullable T entity, @Nullable ID id) {
+        if (id != null) invalidateRelationshipsForId(id);
+    }
+
     void clear();
 }
@@ -0,0 +1,357 @@
+package io.github.flameyossnowy.universal.api.listener;
+
+import io.github.flameyossnowy.universal.api.annotations.enums.OverflowPolicy;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A bounded buffer of audit and lifecycle events, drained in batches by a dedicated virtual thread.
+ * <p>
+ * Listeners are wrapped through {@link #wrap(AuditLogger)} and {@link #wrap(EntityLifecycleListener)},
+ * after which every callback is queued instead of running on the writing thread. Events of one
+ * pipeline are dispatched in the order they were submitted, including those that run on the
+ * writing thread because the buffer is full or the pipeline is closed.
+ *
+ * @see io.github.flameyossnowy.universal.api.annotations.AsyncEvents
+ */
+@SuppressWarnings("unused")
+public class EventPipeline implements AutoCloseable {
+    private final String name;
+    private final BlockingQueue<Runnable> buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread drainer;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong synchronous = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final LongAccumulator peakDepth = new LongAccumulator(Math::max, 0);
+
+    // Submits hold the read lock from the running check to the offer, so close cannot slip in between
+    private final ReentrantReadWriteLock state = new ReentrantReadWriteLock();
+    // Held while events are taken from the buffer and dispatched, which keeps them in order across threads
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final Condition notEmpty = dispatchLock.newCondition();
+
+    private volatile boolean running = true;
+    private volatile boolean idle;
+
+    public EventPipeline(String name, int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive");
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+
+        this.name = name;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.drainer = Thread.ofVirtual().name("universal-events-" + name).start(this::drain);
+    }
+
+    /**
+     * Submits an event, applying the overflow policy if the buffer is full.
+     *
+     * @param event the callback to dispatch
+     */
+    public void submit(@NotNull Runnable event) {
+        submitted.incrementAndGet();
+        while (true) {
+            state.readLock().lock();
+            try {
+                if (running) {
+                    // Blocking waits in short steps, so a close is never held up by a full buffer
+                    boolean offered = overflowPolicy == OverflowPolicy.BLOCK
+                        ? buffer.offer(event, 10, TimeUnit.MILLISECONDS)
+                        : buffer.offer(event);
+                    if (offered) {
+                        peakDepth.accumulate(buffer.size());
+                        if (idle) signal();
+                        return;
+                    }
+                    if (overflowPolicy == OverflowPolicy.BLOCK) continue;
+                    if (overflowPolicy == OverflowPolicy.DROP) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                state.readLock().unlock();
+            }
+
+            // Closed, full with the synchronous policy or interrupted while blocking
+            runSynchronously(event);
+            return;
+        }
+    }
+
+    private void drain() {
+        List<Runnable> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            dispatchLock.lock();
+            try {
+                // Events are only taken under the lock, a synchronous dispatch never overtakes a taken batch
+                while (running && buffer.isEmpty()) {
+                    idle = true;
+                    try {
+                        notEmpty.await(100, TimeUnit.MILLISECONDS);
+                    } finally {
+                        idle = false;
+                    }
+                }
+
+                buffer.drainTo(batch, batchSize);
+                if (batch.isEmpty()) continue;
+                for (Runnable event : batch) {
+                    dispatch(event);
+                }
+                batches.incrementAndGet();
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+    }
+
+    private void signal() {
+        dispatchLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void dispatch(Runnable event) {
+        try {
+            event.run();
+            dispatched.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            Logging.error("Event listener of pipeline " + name + " threw an exception", e);
+        }
+    }
+
+    /**
+     * Runs an event on the calling thread after every event still waiting in the buffer, so it does not
+     * overtake events submitted before it.
+     */
+    private void runSynchronously(Runnable event) {
+        dispatchLock.lock();
+        try {
+            Runnable pending;
+            while ((pending = buffer.poll()) != null) {
+                synchronous.incrementAndGet();
+                dispatch(pending);
+            }
+            synchronous.incrementAndGet();
+            dispatch(event);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Wraps an audit logger so that all of its callbacks go through this pipeline.
+     */
+    public <T> @Nullable AuditLogger<T> wrap(@Nullable AuditLogger<T> delegate) {
+        if (delegate == null) return null;
+        return new AuditLogger<>() {
+            @Override
+            public void onInsert(T entity) {
+                submit(() -> delegate.onInsert(entity));
+            }
+
+            @Override
+            public void onInsert(Collection<T> entities) {
+                // Copy, callers are free to reuse the collection once the write returned
+                List<T> copy = new ArrayList<>(entities);
+                submit(() -> delegate.onInsert(copy));
+            }
+
+            @Override
+            public void onUpdate(T newEntity, T oldEntity) {
+                submit(() -> delegate.onUpdate(newEntity, oldEntity));
+            }
+
+            @Override
+            public void onDelete(T entity) {
+                submit(() -> delegate.onDelete(entity));
+            }
+        };
+    }
+
+    /**
+     * Wraps a lifecycle listener so that its post-operation callbacks go through this pipeline.
+     * Pre-operation callbacks still run on the writing thread.
+     */
+    public <T> @Nullable EntityLifecycleListener<T> wrap(@Nullable EntityLifecycleListener<T> delegate) {
+        if (delegate == null) return null;
+        return new EntityLifecycleListener<>() {
+            @Override
+            public void onPreInsert(@Nullable T entity) {
+                delegate.onPreInsert(entity);
+            }
+
+            @Override
+            public void onPostInsert(@Nullable T entity) {
+                submit(() -> delegate.onPostInsert(entity));
+            }
+
+            @Override
+            public void onPreUpdate(@Nullable T entity) {
+                delegate.onPreUpdate(entity);
+            }
+
+            @Override
+            public void onPostUpdate(@Nullable T entity) {
+                submit(() -> delegate.onPostUpdate(entity));
+            }
+
+            @Override
+            public void onPreDelete(@Nullable T entity) {
+                delegate.onPreDelete(entity);
+            }
+
+            @Override
+            public void onPostDelete(@Nullable T entity) {
+                submit(() -> delegate.onPostDelete(entity));
+            }
+        };
+    }
+
+    /**
+     * Gets the amount of events currently waiting to be dispatched.
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets a snapshot of the pipeline metrics.
+     */
+    public EventPipelineMetrics getMetrics() {
+        long batchCount = batches.get();
+        long dispatchedCount = dispatched.get();
+        return new EventPipelineMetrics(
+                buffer.size(),
+                (int) peakDepth.get(),
+                capacity,
+                submitted.get(),
+                dispatchedCount,
+                dropped.get(),
+                synchronous.get(),
+                failed.get(),
+                batchCount == 0 ? 0 : (double) dispatchedCount / batchCount
+        );
+    }
+
+    /**
+     * Waits until every event submitted so far has been dispatched, or the timeout elapsed.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all events were dispatched
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (submitted.get() - dropped.get() - dispatched.get() - failed.get() > 0) {
+            if (System.nanoTime() >= deadline) return false;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting asynchronous events and waits for the pending ones to be dispatched.
+     * Events submitted afterwards run synchronously.
+     */
+    @Override
+    public void close() {
+        // Waits for submits between their running check and their offer, later ones see the pipeline closed
+        state.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            state.writeLock().unlock();
+        }
+        signal();
+
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything the drainer left behind is dispatched here rather than lost
+        dispatchLock.lock();
+        try {
+            Runnable event;
+            while ((event = buffer.poll()) != null) {
+                synchronous.incrementAndGet();
+                dispatch(event);
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Metrics of an {@link EventPipeline}.
+     *
+     * @param queueDepth the amount of events waiting to be dispatched
+     * @param peakQueueDepth the highest observed queue depth
+     * @param capacity the maximum queue depth
+     * @param submitted the amount of events submitted
+     * @param dispatched the amount of events dispatched successfully
+     * @param dropped the amount of events dropped because the buffer was full
+     * @param synchronous the amount of events that ran on the writing thread
+     * @param failed the amount of events whose listener threw an exception
+     * @param averageBatchSize the average amount of events dispatched per drain
+     */
+    public record EventPipelineMetrics(
+            int queueDepth,
+            int peakQueueDepth,
+            int capacity,
+            long submitted,
+            long dispatched,
+            long dropped,
+            long synchronous,
+            long failed,
+            double averageBatchSize) {
+    }
+}
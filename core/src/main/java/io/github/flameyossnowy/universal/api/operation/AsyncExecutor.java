@@ -0,0 +1,145 @@
+package io.github.flameyossnowy.universal.api.operation;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor behind the {@code *Async} methods of a repository adapter.
+ * <p>
+ * Repository calls block on JDBC or HTTP, so they run on virtual threads by default instead of the common
+ * {@link java.util.concurrent.ForkJoinPool}, where they would starve parallel streams of the application.
+ * An optional concurrency limit, usually the size of the connection pool, makes extra calls wait for a permit
+ * instead of all competing for a connection at once.
+ */
+@SuppressWarnings("unused")
+public class AsyncExecutor implements Executor, AutoCloseable {
+    private static volatile AsyncExecutor common;
+
+    private final Executor delegate;
+    private final boolean owned;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    private AsyncExecutor(@NotNull Executor delegate, boolean owned, int maxConcurrency) {
+        this.delegate = delegate;
+        this.owned = owned;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task.
+     *
+     * @param maxConcurrency the maximum amount of tasks running at once, zero or less for no limit
+     * @return the executor
+     */
+    public static @NotNull AsyncExecutor virtualThreads(int maxConcurrency) {
+        return new AsyncExecutor(Executors.newVirtualThreadPerTaskExecutor(), true, maxConcurrency);
+    }
+
+    /**
+     * Limits the concurrency of an existing executor, which is not shut down when this executor is closed.
+     *
+     * @param delegate the executor running the tasks
+     * @param maxConcurrency the maximum amount of tasks running at once, zero or less for no limit
+     * @return the executor
+     */
+    public static @NotNull AsyncExecutor wrap(@NotNull Executor delegate, int maxConcurrency) {
+        if (delegate instanceof AsyncExecutor asyncExecutor && asyncExecutor.maxConcurrency == maxConcurrency) return asyncExecutor;
+        return new AsyncExecutor(delegate, false, maxConcurrency);
+    }
+
+    /**
+     * Gets the unlimited virtual thread executor used by adapters that do not configure their own.
+     */
+    public static @NotNull AsyncExecutor common() {
+        AsyncExecutor executor = common;
+        if (executor == null) {
+            synchronized (AsyncExecutor.class) {
+                executor = common;
+                if (executor == null) common = executor = virtualThreads(0);
+            }
+        }
+        return executor;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        submitted.incrementAndGet();
+        if (permits == null) {
+            delegate.execute(() -> run(command));
+            return;
+        }
+
+        // Waiting for the permit happens on the task thread, which is cheap for virtual threads
+        delegate.execute(() -> {
+            boolean acquired = false;
+            try {
+                permits.acquire();
+                acquired = true;
+            } catch (InterruptedException e) {
+                // Still run the command with the interrupt flag set, so the future behind it completes instead of hanging
+                Thread.currentThread().interrupt();
+            }
+            try {
+                run(command);
+            } finally {
+                if (acquired) permits.release();
+            }
+        });
+    }
+
+    private void run(Runnable command) {
+        try {
+            command.run();
+        } finally {
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the maximum amount of tasks running at once, or zero or less if unlimited.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the amount of tasks currently running.
+     */
+    public int getActiveCount() {
+        return permits == null ? (int) getPendingCount() : maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Gets the approximate amount of tasks waiting for a permit.
+     */
+    public int getQueuedCount() {
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    /**
+     * Gets the amount of tasks submitted but not completed yet.
+     */
+    public long getPendingCount() {
+        return submitted.get() - completed.get();
+    }
+
+    /**
+     * Shuts down the underlying executor if it was created by this class, running tasks are allowed to finish.
+     */
+    @Override
+    public void close() {
+        if (owned && this != common && delegate instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+}
@@ -46,7 +46,7 @@ public interface Operation<R, C> {
      */
     @NotNull
     default CompletableFuture<TransactionResult<R>> executeAsync(@NotNull OperationContext<C> context) {
-        return CompletableFuture.supplyAsync(() -> execute(context));
+        return CompletableFuture.supplyAsync(() -> execute(context), context.executor().getAsyncExecutor());
     }
 
     /**
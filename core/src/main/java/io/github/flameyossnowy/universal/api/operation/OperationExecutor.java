@@ -3,6 +3,8 @@ package io.github.flameyossnowy.universal.api.operation;
 import io.github.flameyossnowy.universal.api.cache.TransactionResult;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.Executor;
+
 /**
  * Interface for executing operations on a specific repository backend.
  * <p>
@@ -102,4 +104,14 @@ public interface OperationExecutor<C> {
     <R> TransactionResult<R> executeRemote(
             @NotNull Operation<R, C> operation,
             @NotNull OperationContext<C> context);
+
+    /**
+     * Gets the executor running {@link Operation#executeAsync(OperationContext)}.
+     *
+     * @return The executor for asynchronous operations
+     */
+    @NotNull
+    default Executor getAsyncExecutor() {
+        return AsyncExecutor.common();
+    }
 }
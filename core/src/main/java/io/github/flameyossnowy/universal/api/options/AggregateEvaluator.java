@@ -0,0 +1,173 @@
+package io.github.flameyossnowy.universal.api.options;
+
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates an {@link AggregateQuery} over a stream of entities, for adapters without server-side aggregation.
+ * Only one accumulator per group and aggregation is kept in memory, not the entities.
+ * <p>
+ * The stream must already be filtered by the filters of the query, such as a stream of
+ * {@link AggregateQuery#toSelectQuery()}. The results have the same shape and types as server-side aggregations.
+ */
+public final class AggregateEvaluator {
+    private AggregateEvaluator() {}
+
+    public static @NotNull List<Map<String, Object>> evaluate(@NotNull AggregateQuery query, @NotNull RepositoryInformation information, @NotNull Stream<?> entities) {
+        List<FieldData<?>> groupFields = new ArrayList<>(query.groupBy().size());
+        for (String name : query.groupBy()) groupFields.add(requireField(information, name));
+
+        List<Aggregation> aggregations = query.aggregations();
+        FieldData<?>[] aggregatedFields = new FieldData<?>[aggregations.size()];
+        for (int i = 0; i < aggregatedFields.length; i++) {
+            String field = aggregations.get(i).field();
+            if (field != null) aggregatedFields[i] = requireField(information, field);
+        }
+
+        Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<>();
+        entities.forEachOrdered(entity -> {
+            List<Object> key = new ArrayList<>(groupFields.size());
+            for (FieldData<?> field : groupFields) key.add(field.getValue(entity));
+
+            Accumulator[] accumulators = groups.computeIfAbsent(key, k -> newAccumulators(aggregations, aggregatedFields));
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].add(aggregatedFields[i] == null ? entity : aggregatedFields[i].getValue(entity));
+            }
+        });
+
+        // Like SQL, an aggregation without groups yields one row even if nothing matched
+        if (groups.isEmpty() && groupFields.isEmpty()) groups.put(List.of(), newAccumulators(aggregations, aggregatedFields));
+
+        List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+        for (Map.Entry<List<Object>, Accumulator[]> group : groups.entrySet()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < groupFields.size(); i++) row.put(query.groupBy().get(i), group.getKey().get(i));
+            for (int i = 0; i < aggregations.size(); i++) row.put(aggregations.get(i).alias(), group.getValue()[i].result());
+
+            if (matchesAll(row, query.having())) rows.add(row);
+        }
+
+        if (!query.sortOptions().isEmpty()) rows.sort(comparator(query.sortOptions()));
+        if (query.limit() >= 0 && rows.size() > query.limit()) return new ArrayList<>(rows.subList(0, query.limit()));
+        return rows;
+    }
+
+    private static @NotNull FieldData<?> requireField(@NotNull RepositoryInformation information, String name) {
+        FieldData<?> field = information.getField(name);
+        if (field == null) throw new IllegalArgumentException("Unknown field " + name + " in " + information.getRepositoryName());
+        return field;
+    }
+
+    private static Accumulator @NotNull [] newAccumulators(List<Aggregation> aggregations, FieldData<?>[] fields) {
+        Accumulator[] accumulators = new Accumulator[aggregations.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator(aggregations.get(i).function(), fields[i] == null ? null : fields[i].type());
+        }
+        return accumulators;
+    }
+
+    private static boolean matchesAll(Map<String, Object> row, List<SelectOption> conditions) {
+        for (SelectOption condition : conditions) {
+            if (!matches(row.get(condition.option()), condition.operator(), condition.value())) return false;
+        }
+        return true;
+    }
+
+    private static boolean matches(@Nullable Object value, String operator, @Nullable Object expected) {
+        if ("IN".equalsIgnoreCase(operator)) {
+            if (!(expected instanceof Collection<?> values)) return false;
+            for (Object candidate : values) {
+                if (compare(value, candidate) == 0) return true;
+            }
+            return false;
+        }
+        if (value == null || expected == null) return false;
+
+        int comparison = compare(value, expected);
+        return switch (operator) {
+            case "=" -> comparison == 0;
+            case "!=" -> comparison != 0;
+            case ">" -> comparison > 0;
+            case ">=" -> comparison >= 0;
+            case "<" -> comparison < 0;
+            case "<=" -> comparison <= 0;
+            default -> throw new IllegalArgumentException("Unsupported having operation: " + operator);
+        };
+    }
+
+    private static @NotNull Comparator<Map<String, Object>> comparator(List<SortOption> sortOptions) {
+        Comparator<Map<String, Object>> comparator = null;
+        for (SortOption option : sortOptions) {
+            Comparator<Map<String, Object>> next = (a, b) -> compare(a.get(option.field()), b.get(option.field()));
+            if (option.order() == SortOrder.DESCENDING) next = next.reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    /**
+     * Compares numbers by value regardless of their type, nulls first.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compare(@Nullable Object a, @Nullable Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        if (a instanceof Number x && b instanceof Number y && a.getClass() != b.getClass()) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof Comparable comparable) return comparable.compareTo(b);
+        return a.equals(b) ? 0 : a.toString().compareTo(b.toString());
+    }
+
+    private static final class Accumulator {
+        private final AggregateFunction function;
+        private final boolean integral;
+
+        private long count;
+        private long longSum;
+        private double doubleSum;
+        private Object extreme;
+        private Set<Object> distinct;
+
+        Accumulator(AggregateFunction function, @Nullable Class<?> fieldType) {
+            this.function = function;
+            this.integral = Aggregation.isIntegral(fieldType);
+            if (function == AggregateFunction.COUNT_DISTINCT) this.distinct = new HashSet<>();
+        }
+
+        void add(@Nullable Object value) {
+            if (value == null) return;
+
+            switch (function) {
+                case COUNT -> count++;
+                case COUNT_DISTINCT -> distinct.add(value);
+                case SUM, AVG -> {
+                    Number number = (Number) value;
+                    count++;
+                    if (integral) longSum += number.longValue();
+                    else doubleSum += number.doubleValue();
+                }
+                case MIN -> {
+                    if (extreme == null || compare(value, extreme) < 0) extreme = value;
+                }
+                case MAX -> {
+                    if (extreme == null || compare(value, extreme) > 0) extreme = value;
+                }
+            }
+        }
+
+        @Nullable Object result() {
+            return switch (function) {
+                case COUNT -> count;
+                case COUNT_DISTINCT -> (long) distinct.size();
+                case SUM -> count == 0 ? null : integral ? (Object) longSum : (Object) doubleSum;
+                case AVG -> count == 0 ? null : (integral ? (double) longSum : doubleSum) / count;
+                case MIN, MAX -> extreme;
+            };
+        }
+    }
+}
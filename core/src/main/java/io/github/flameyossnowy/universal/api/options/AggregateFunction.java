@@ -0,0 +1,36 @@
+package io.github.flameyossnowy.universal.api.options;
+
+/**
+ * The function of an {@link Aggregation}.
+ */
+public enum AggregateFunction {
+    /**
+     * The amount of rows, or of rows where the field is not null. Always a {@link Long}.
+     */
+    COUNT,
+
+    /**
+     * The amount of distinct values of the field which are not null. Always a {@link Long}.
+     */
+    COUNT_DISTINCT,
+
+    /**
+     * The sum of the field, a {@link Long} for integral fields and a {@link Double} otherwise.
+     */
+    SUM,
+
+    /**
+     * The average of the field, always a {@link Double}.
+     */
+    AVG,
+
+    /**
+     * The smallest value of the field, of the field type.
+     */
+    MIN,
+
+    /**
+     * The largest value of the field, of the field type.
+     */
+    MAX
+}
@@ -0,0 +1,212 @@
+package io.github.flameyossnowy.universal.api.options;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Immutable description of an aggregation, computed by the database instead of loading every entity.
+ *
+ * <p>Rows matching the filters are grouped by the group-by fields, and every group is reduced to one result row
+ * holding the group-by fields followed by the aggregations under their alias. Without group-by fields, all matching
+ * rows form one group, which yields one row even if nothing matched. Having conditions, sort options and the limit
+ * apply to the result rows and refer to group-by fields or aliases.</p>
+ *
+ * <pre>{@code
+ * Query.aggregate()
+ *   .where("level").gte(10)
+ *   .groupBy("country")
+ *   .count("players")
+ *   .avg("balance", "averageBalance")
+ *   .having("players").gt(100)
+ *   .orderBy("players", SortOrder.DESCENDING)
+ *   .limit(10)
+ *   .build();
+ * }</pre>
+ *
+ * @param groupBy The fields to group by.
+ * @param aggregations The aggregated columns.
+ * @param filters The conditions rows must match before grouping.
+ * @param having The conditions result rows must match.
+ * @param sortOptions The order of the result rows.
+ * @param limit The maximum amount of result rows, or -1.
+ */
+@SuppressWarnings("unused")
+public record AggregateQuery(
+    List<String> groupBy,
+    List<Aggregation> aggregations,
+    List<SelectOption> filters,
+    List<SelectOption> having,
+    List<SortOption> sortOptions,
+    int limit
+) implements Query {
+    /**
+     * @return the names of the result columns, the group-by fields followed by the aliases
+     */
+    public @NotNull List<String> columns() {
+        List<String> columns = new ArrayList<>(groupBy.size() + aggregations.size());
+        columns.addAll(groupBy);
+        for (Aggregation aggregation : aggregations) columns.add(aggregation.alias());
+        return columns;
+    }
+
+    /**
+     * @return a select query of the rows this aggregation reads, for adapters aggregating in memory
+     */
+    public @NotNull SelectQuery toSelectQuery() {
+        return Query.select().where(filters).build();
+    }
+
+    /**
+     * Fluent builder for {@link AggregateQuery}.
+     */
+    public static class AggregateQueryBuilder {
+        private final List<String> groupBy = new ArrayList<>(2);
+        private final List<Aggregation> aggregations = new ArrayList<>(2);
+        private final List<SelectOption> filters = new ArrayList<>(2);
+        private final List<SelectOption> having = new ArrayList<>(1);
+        private final List<SortOption> sortOptions = new ArrayList<>(1);
+        private int limit = -1;
+
+        /**
+         * Begins a condition rows must match before they are grouped.
+         */
+        public Condition where(String field) {
+            return new Condition(this, filters, field);
+        }
+
+        /**
+         * Begins a condition result rows must match, on a group-by field or an alias.
+         */
+        public Condition having(String column) {
+            return new Condition(this, having, column);
+        }
+
+        public AggregateQueryBuilder groupBy(String... fields) {
+            Collections.addAll(groupBy, fields);
+            return this;
+        }
+
+        /**
+         * Selects the distinct combinations of the fields, the same as grouping by them without aggregations.
+         */
+        public AggregateQueryBuilder distinct(String... fields) {
+            return groupBy(fields);
+        }
+
+        /**
+         * Counts the rows of every group.
+         */
+        public AggregateQueryBuilder count(String alias) {
+            return aggregate(new Aggregation(AggregateFunction.COUNT, null, alias));
+        }
+
+        /**
+         * Counts the rows of every group where the field is not null.
+         */
+        public AggregateQueryBuilder count(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.COUNT, field, alias));
+        }
+
+        public AggregateQueryBuilder countDistinct(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.COUNT_DISTINCT, field, alias));
+        }
+
+        public AggregateQueryBuilder sum(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.SUM, field, alias));
+        }
+
+        public AggregateQueryBuilder avg(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.AVG, field, alias));
+        }
+
+        public AggregateQueryBuilder min(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.MIN, field, alias));
+        }
+
+        public AggregateQueryBuilder max(String field, String alias) {
+            return aggregate(new Aggregation(AggregateFunction.MAX, field, alias));
+        }
+
+        public AggregateQueryBuilder aggregate(Aggregation aggregation) {
+            aggregations.add(aggregation);
+            return this;
+        }
+
+        public AggregateQueryBuilder orderBy(String column, SortOrder direction) {
+            sortOptions.add(new SortOption(column, direction));
+            return this;
+        }
+
+        public AggregateQueryBuilder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        @Contract(" -> new")
+        public @NotNull AggregateQuery build() {
+            if (groupBy.isEmpty() && aggregations.isEmpty()) {
+                throw new IllegalStateException("An aggregate query needs a group-by field or an aggregation");
+            }
+
+            Set<String> columns = new HashSet<>(groupBy);
+            for (Aggregation aggregation : aggregations) {
+                if (!columns.add(aggregation.alias())) {
+                    throw new IllegalStateException("Duplicate result column: " + aggregation.alias());
+                }
+            }
+            for (SelectOption condition : having) {
+                if (!columns.contains(condition.option())) {
+                    throw new IllegalStateException("Having condition on unknown column: " + condition.option());
+                }
+            }
+            for (SortOption sortOption : sortOptions) {
+                if (!columns.contains(sortOption.field())) {
+                    throw new IllegalStateException("Sorting by unknown column: " + sortOption.field());
+                }
+            }
+
+            return new AggregateQuery(
+                List.copyOf(groupBy),
+                List.copyOf(aggregations),
+                new ArrayList<>(filters),
+                new ArrayList<>(having),
+                List.copyOf(sortOptions),
+                limit
+            );
+        }
+
+        /**
+         * Column-scoped operator builder of where and having conditions.
+         */
+        public static class Condition {
+            private final AggregateQueryBuilder builder;
+            private final List<SelectOption> target;
+            private final String column;
+
+            @Contract(pure = true)
+            Condition(AggregateQueryBuilder builder, List<SelectOption> target, String column) {
+                this.builder = builder;
+                this.target = target;
+                this.column = column;
+            }
+
+            private AggregateQueryBuilder add(String operator, Object value) {
+                target.add(new SelectOption(column, operator, value));
+                return builder;
+            }
+
+            public AggregateQueryBuilder eq(Object value)  { return add("=", value); }
+            public AggregateQueryBuilder ne(Object value)  { return add("!=", value); }
+            public AggregateQueryBuilder gt(Object value)  { return add(">", value); }
+            public AggregateQueryBuilder gte(Object value) { return add(">=", value); }
+            public AggregateQueryBuilder lt(Object value)  { return add("<", value); }
+            public AggregateQueryBuilder lte(Object value) { return add("<=", value); }
+
+            public AggregateQueryBuilder in(Collection<?> values) {
+                return add("IN", values);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.flameyossnowy.universal.api.options;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+
+/**
+ * An aggregated column of an {@link AggregateQuery}.
+ *
+ * @param function The aggregate function.
+ * @param field The aggregated field, or null to count rows.
+ * @param alias The name of the column in the results.
+ */
+public record Aggregation(AggregateFunction function, @Nullable String field, String alias) {
+    public Aggregation {
+        if (field == null && function != AggregateFunction.COUNT) {
+            throw new IllegalArgumentException(function + " needs a field");
+        }
+    }
+
+    /**
+     * Converts a value returned by a database to the type documented by the function,
+     * so results do not depend on the numeric types of the driver.
+     *
+     * @param value the value returned by the database
+     * @param fieldType the type of the aggregated field, or null when counting rows
+     * @return the converted value
+     */
+    @Contract("null, _ -> null")
+    public @Nullable Object normalize(@Nullable Object value, @Nullable Class<?> fieldType) {
+        if (!(value instanceof Number number)) return value;
+
+        return switch (function) {
+            case COUNT, COUNT_DISTINCT -> number.longValue();
+            case AVG -> number.doubleValue();
+            case SUM -> isIntegral(fieldType) ? (Object) number.longValue() : (Object) number.doubleValue();
+            case MIN, MAX -> value;
+        };
+    }
+
+    static boolean isIntegral(@Nullable Class<?> type) {
+        return type == int.class || type == Integer.class || type == long.class || type == Long.class
+            || type == short.class || type == Short.class || type == byte.class || type == Byte.class
+            || type == BigInteger.class;
+    }
+}
@@ -4,7 +4,7 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
-public sealed interface Query permits DeleteQuery, SelectQuery, UpdateQuery {
+public sealed interface Query permits AggregateQuery, DeleteQuery, SelectQuery, UpdateQuery {
     /**
      * Create a new select query builder with the given columns.
      *
@@ -16,6 +16,17 @@ public sealed interface Query permits DeleteQuery, SelectQuery, UpdateQuery {
         return new SelectQuery.SelectQueryBuilder(columns);
     }
 
+    /**
+     * Create a new aggregate query builder, for counts, sums, averages, extremes and distinct values
+     * computed by the database.
+     *
+     * @return a new aggregate query builder
+     */
+    @Contract(" -> new")
+    static AggregateQuery.@NotNull AggregateQueryBuilder aggregate() {
+        return new AggregateQuery.AggregateQueryBuilder();
+    }
+
 
     /**
      * Create a new delete query builder.
@@ -0,0 +1,20 @@
+package io.github.flameyossnowy.universal.api.options;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Execution settings of a select query, which do not change its results.
+ * Backends ignore the hints they do not support, and unset hints fall back to the defaults of the repository.
+ *
+ * @param readPreference the members of a replicated deployment the query may read from
+ * @param batchSize the amount of rows fetched per round trip, or 0 for the default, such as {@code @FetchPageSize}
+ * @param maxTimeMillis the time the query may run on the server before it is aborted, or 0 for no limit
+ * @param index the name of the index the query should use, or null to let the database choose
+ */
+public record QueryHints(ReadPreferenceMode readPreference, int batchSize, long maxTimeMillis, @Nullable String index) {
+    public static final QueryHints NONE = new QueryHints(ReadPreferenceMode.DEFAULT, 0, 0, null);
+
+    public boolean isEmpty() {
+        return this.equals(NONE);
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.flameyossnowy.universal.api.options;
+
+/**
+ * The members of a replicated deployment a query may read from, for backends with replicas.
+ * Reads from secondaries may return data which is slightly behind the primary.
+ */
+public enum ReadPreferenceMode {
+    /** The default of the repository. */
+    DEFAULT,
+    PRIMARY,
+    PRIMARY_PREFERRED,
+    SECONDARY,
+    SECONDARY_PREFERRED,
+    /** The member with the lowest latency, primary or secondary. */
+    NEAREST
+}
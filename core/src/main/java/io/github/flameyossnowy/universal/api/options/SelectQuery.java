@@ -3,7 +3,9 @@ package io.github.flameyossnowy.universal.api.options;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Immutable query description used by repository adapters.
@@ -22,8 +24,12 @@ public record SelectQuery(
     List<SortOption> sortOptions,
     int limit,
     String joinTable,
-    Set<String> prefetch
+    Set<String> prefetch,
+    QueryHints hints
 ) implements Query {
+    public SelectQuery {
+        if (hints == null) hints = QueryHints.NONE;
+    }
 
     /**
      * Fluent builder for {@link SelectQuery}.
@@ -42,6 +48,11 @@ public record SelectQuery(
         private int limit = -1;
         private String joinTable;
 
+        private ReadPreferenceMode readPreference = ReadPreferenceMode.DEFAULT;
+        private int batchSize;
+        private long maxTimeMillis;
+        private String index;
+
         public SelectQueryBuilder(String... columns) {
             this.columns = List.of(columns);
         }
@@ -174,14 +185,48 @@ public record SelectQuery(
             return this;
         }
 
+        /**
+         * Sets the members of a replicated deployment this query may read from, such as secondaries for reporting scans.
+         */
+        public SelectQueryBuilder readPreference(ReadPreferenceMode readPreference) {
+            this.readPreference = readPreference;
+            return this;
+        }
+
+        /**
+         * Sets the amount of rows fetched per round trip, overriding the {@code @FetchPageSize} of the repository.
+         */
+        public SelectQueryBuilder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the time this query may run on the server before it is aborted.
+         */
+        public SelectQueryBuilder maxTime(Duration maxTime) {
+            this.maxTimeMillis = maxTime.toMillis();
+            return this;
+        }
+
+        /**
+         * Sets the name of the index this query should use.
+         */
+        public SelectQueryBuilder hint(String index) {
+            this.index = index;
+            return this;
+        }
+
         public SelectQuery build() {
+            QueryHints hints = new QueryHints(readPreference, batchSize, maxTimeMillis, index);
             return new SelectQuery(
                 new ArrayList<>(columns),
                 new ArrayList<>(filters),
                 new ArrayList<>(sortOptions),
                 limit,
                 joinTable,
-                new HashSet<>(prefetch)
+                new HashSet<>(prefetch),
+                hints.isEmpty() ? QueryHints.NONE : hints
             );
         }
 
@@ -196,6 +241,11 @@ public record SelectQuery(
          * malformed filter construction.</p>
          */
         public static class QueryField {
+            /**
+             * The field of {@link #elemMatch(Consumer)} conditions on the element itself.
+             */
+            public static final String ELEMENT = "";
+
             private final SelectQueryBuilder builder;
             private final String field;
 
@@ -225,6 +275,49 @@ public record SelectQuery(
                 return add("LIKE", pattern);
             }
 
+            /**
+             * Matches collections containing the value.
+             *
+             * <p>Backends storing collections natively, such as MongoDB, match it against any element of the array.
+             * On such a field {@link #in(Collection)} matches if any element is one of the values.</p>
+             */
+            public SelectQueryBuilder contains(Object value) {
+                return add("CONTAINS", value);
+            }
+
+            /**
+             * Matches collections containing every one of the values.
+             */
+            public SelectQueryBuilder containsAll(Collection<?> values) {
+                return add("ALL", values);
+            }
+
+            /**
+             * Matches collections with exactly the given amount of elements.
+             */
+            public SelectQueryBuilder size(int size) {
+                return add("SIZE", size);
+            }
+
+            /**
+             * Matches collections with at least one element satisfying every condition, rather than
+             * each condition being satisfied by a different element. Conditions on the element itself,
+             * rather than one of its fields, use {@link #ELEMENT} as their field.
+             *
+             * <pre>{@code
+             * Query.select()
+             *   .where("scores").elemMatch(e -> e
+             *       .where(QueryField.ELEMENT).gte(80)
+             *       .where(QueryField.ELEMENT).lt(90))
+             *   .build();
+             * }</pre>
+             */
+            public SelectQueryBuilder elemMatch(Consumer<SelectQueryBuilder> conditions) {
+                SelectQueryBuilder element = new SelectQueryBuilder();
+                conditions.accept(element);
+                return add("ELEM_MATCH", List.copyOf(element.filters));
+            }
+
             /**
              * Logical operators are intentionally explicit and low-level.
              * Most backends should interpret these conservatively.
@@ -1,22 +1,79 @@
 package io.github.flameyossnowy.universal.api.options;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Updates every entity matching the filters.
+ *
+ * @param updates the values assigned to fields
+ * @param filters the conditions entities must match
+ * @param pushes the values appended to collection fields
+ * @param pulls the values removed from collection fields, every occurrence of them is removed
+ */
 @SuppressWarnings("unused")
-public record UpdateQuery(Map<String, Object> updates, List<SelectOption> filters) implements Query {
+public record UpdateQuery(
+    Map<String, Object> updates,
+    List<SelectOption> filters,
+    Map<String, List<Object>> pushes,
+    Map<String, List<Object>> pulls
+) implements Query {
+    public UpdateQuery {
+        if (pushes == null) pushes = Map.of();
+        if (pulls == null) pulls = Map.of();
+    }
+
+    public UpdateQuery(Map<String, Object> updates, List<SelectOption> filters) {
+        this(updates, filters, Map.of(), Map.of());
+    }
+
+    /**
+     * Checks whether this query adds or removes elements of collection fields, which backends storing collections
+     * natively can do without rewriting the whole collection.
+     */
+    public boolean hasArrayUpdates() {
+        return !pushes.isEmpty() || !pulls.isEmpty();
+    }
+
     public static class UpdateQueryBuilder {
         private final Map<String, Object> updates = new HashMap<>(3);
         private final List<SelectOption> conditions = new ArrayList<>(3);
+        private final Map<String, List<Object>> pushes = new HashMap<>(2);
+        private final Map<String, List<Object>> pulls = new HashMap<>(2);
 
         public UpdateQueryBuilder set(String field, Object value) {
             updates.put(field, value);
             return this;
         }
 
+        /**
+         * Appends the values to a collection field.
+         *
+         * @param field the collection field
+         * @param values the values to append, in order
+         * @return the updated UpdateQueryBuilder instance
+         */
+        public UpdateQueryBuilder push(String field, Object... values) {
+            pushes.computeIfAbsent(field, k -> new ArrayList<>(values.length)).addAll(Arrays.asList(values));
+            return this;
+        }
+
+        /**
+         * Removes every occurrence of the values from a collection field.
+         *
+         * @param field the collection field
+         * @param values the values to remove
+         * @return the updated UpdateQueryBuilder instance
+         */
+        public UpdateQueryBuilder pull(String field, Object... values) {
+            pulls.computeIfAbsent(field, k -> new ArrayList<>(values.length)).addAll(Arrays.asList(values));
+            return this;
+        }
+
         /**
          * Adds a condition to the query based on the specified key, operator, and value.
          *
@@ -56,7 +113,7 @@ public record UpdateQuery(Map<String, Object> updates, List<SelectOption> filter
         }
 
         public UpdateQuery build() {
-            return new UpdateQuery(updates, conditions);
+            return new UpdateQuery(updates, conditions, pushes, pulls);
         }
     }
 }
\ No newline at end of file
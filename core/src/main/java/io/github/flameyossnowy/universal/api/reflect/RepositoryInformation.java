@@ -6,6 +6,7 @@ import io.github.flameyossnowy.universal.api.exceptions.RepositoryException;
 import io.github.flameyossnowy.universal.api.exceptions.handler.ExceptionHandler;
 import io.github.flameyossnowy.universal.api.listener.AuditLogger;
 import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
 
 import me.sunlan.fastreflection.FastConstructor;
 
@@ -21,6 +22,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class RepositoryInformation {
     private final String tableName;
     private boolean hasRelationships;
+    private Sequence sequence;
+    private CoalescedLookups coalescedLookups;
+    private ParallelScan parallelScan;
     private final List<FieldData<?>> primaryKeys = new ArrayList<>();
     private final Constraint[] constraints;
     private final Index[] indexes;
@@ -29,6 +33,7 @@ public class RepositoryInformation {
     private final AuditLogger<?> auditLogger;
     private final EntityLifecycleListener<?> entityLifecycleListener;
     private final ExceptionHandler<?, ?, ?> exceptionHandler;
+    private final AsyncEvents asyncEvents;
 
     private final int fetchPageSize;
 
@@ -54,7 +59,8 @@ public class RepositoryInformation {
                                  AuditLogger<?> auditLogger,
                                  EntityLifecycleListener<?> entityLifecycleListener,
                                  ExceptionHandler<?, ?, ?> exceptionHandler,
-                                 GlobalCacheable globalCacheable) {
+                                 GlobalCacheable globalCacheable,
+                                 @Nullable AsyncEvents asyncEvents) {
         this.constraints = constraints;
         this.entityClass = entityClass;
         this.globalCacheable = globalCacheable;
@@ -72,6 +78,7 @@ public class RepositoryInformation {
         this.auditLogger = auditLogger;
         this.entityLifecycleListener = entityLifecycleListener;
         this.exceptionHandler = exceptionHandler;
+        this.asyncEvents = asyncEvents;
 
         this.isRecord = entityClass.isRecord();
 
@@ -160,6 +167,47 @@ public class RepositoryInformation {
         this.hasRelationships = hasRelationships;
     }
 
+    /**
+     * Gets the sequence the primary key is generated from, or null if it is not client-generated.
+     */
+    public @Nullable Sequence getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Sequence sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the lookup coalescing settings, or null if {@code findById} calls are not batched.
+     */
+    public @Nullable CoalescedLookups getCoalescedLookups() {
+        return coalescedLookups;
+    }
+
+    public void setCoalescedLookups(CoalescedLookups coalescedLookups) {
+        this.coalescedLookups = coalescedLookups;
+    }
+
+    /**
+     * Gets the parallel scan settings, or null if scans are read sequentially.
+     */
+    public @Nullable ParallelScan getParallelScan() {
+        return parallelScan;
+    }
+
+    public void setParallelScan(ParallelScan parallelScan) {
+        this.parallelScan = parallelScan;
+    }
+
+    /**
+     * Gets the name of the sequence the primary key is generated from, defaults to the repository name.
+     */
+    public @Nullable String getSequenceName() {
+        if (sequence == null) return null;
+        return sequence.name().isEmpty() ? tableName : sequence.name();
+    }
+
     public FieldData<?> getField(String name) {
         return fieldDataMap.get(name);
     }
@@ -221,6 +269,16 @@ public class RepositoryInformation {
         return exceptionHandler;
     }
 
+    /**
+     * Creates a pipeline to dispatch the listeners of this repository, if it is annotated with {@link AsyncEvents}
+     * and has any. The metadata is shared by every adapter of the entity, so each adapter creates a pipeline of its
+     * own and closes it with itself.
+     */
+    public @Nullable EventPipeline createEventPipeline() {
+        if (asyncEvents == null || (auditLogger == null && entityLifecycleListener == null)) return null;
+        return new EventPipeline(tableName, asyncEvents.bufferSize(), asyncEvents.batchSize(), asyncEvents.overflow());
+    }
+
     public void addPrimaryKey(FieldData<?> fieldData) {
         primaryKeys.add(fieldData);
     }
@@ -3,6 +3,8 @@ package io.github.flameyossnowy.universal.api.reflect;
 import io.github.flameyossnowy.universal.api.annotations.*;
 import io.github.flameyossnowy.universal.api.defvalues.DefaultTypeProvider;
 import io.github.flameyossnowy.universal.api.exceptions.ConstructorThrewException;
+import io.github.flameyossnowy.universal.api.listener.AuditLogger;
+import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
 
 import io.github.flameyossnowy.universal.api.resolver.ResolveWith;
 import me.sunlan.fastreflection.FastField;
@@ -68,6 +70,7 @@ public class RepositoryMetadata {
         RepositoryAuditLogger repositoryAuditLogger = entityClass.getAnnotation(RepositoryAuditLogger.class);
         RepositoryExceptionHandler repositoryExceptionHandler = entityClass.getAnnotation(RepositoryExceptionHandler.class);
         RepositoryEventLifecycleListener repositoryEventLifecycleListener = entityClass.getAnnotation(RepositoryEventLifecycleListener.class);
+        AsyncEvents asyncEvents = entityClass.getAnnotation(AsyncEvents.class);
 
         Set<String> indexedFields = Arrays.stream(indexes).map(Index::fields).flatMap(Arrays::stream).collect(Collectors.toUnmodifiableSet());
 
@@ -81,9 +84,12 @@ public class RepositoryMetadata {
                 entityClass, tableName, constraints,
                 indexes, cacheable, fetchPageSize, data,
                 oneToManyCache, manyToOneCache, oneToOneCache, repositoryAuditLogger,
-                repositoryEventLifecycleListener, repositoryExceptionHandler, globalCacheable
+                repositoryEventLifecycleListener, repositoryExceptionHandler, globalCacheable, asyncEvents
         );
 
+        information.setCoalescedLookups(entityClass.getAnnotation(CoalescedLookups.class));
+        information.setParallelScan(entityClass.getAnnotation(ParallelScan.class));
+
         if (recordComponents.length == 0) processFields(fields, information, tableName, data);
 
         if (recordComponents.length > 0) processRecordComponents(recordComponents, information, tableName, data);
@@ -153,17 +159,22 @@ public class RepositoryMetadata {
             RepositoryAuditLogger repositoryAuditLogger,
             RepositoryEventLifecycleListener repositoryEventLifecycleListener,
             RepositoryExceptionHandler repositoryExceptionHandler,
-            GlobalCacheable globalCacheable) {
+            GlobalCacheable globalCacheable,
+            AsyncEvents asyncEvents) {
         try {
+            AuditLogger<?> auditLogger = repositoryAuditLogger == null ? null : repositoryAuditLogger.value().getDeclaredConstructor().newInstance();
+            EntityLifecycleListener<?> lifecycleListener = repositoryEventLifecycleListener == null ? null : repositoryEventLifecycleListener.value().getDeclaredConstructor().newInstance();
+
             return new RepositoryInformation(
                     tableName, constraints, indexes, cacheable, entityClass,
                     fetchPageSize == null ? -1 : fetchPageSize.value(), data, oneToManyCache, manyToOneCache, oneToOneCache,
 
-                    repositoryAuditLogger == null ? null : repositoryAuditLogger.value().getDeclaredConstructor().newInstance(),
-                    repositoryEventLifecycleListener == null ? null : repositoryEventLifecycleListener.value().getDeclaredConstructor().newInstance(),
+                    auditLogger,
+                    lifecycleListener,
                     repositoryExceptionHandler == null ? null : repositoryExceptionHandler.value().getDeclaredConstructor().newInstance(),
 
-                    globalCacheable
+                    globalCacheable,
+                    asyncEvents
             );
         } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
             throw new RuntimeException(e);
@@ -197,6 +208,7 @@ public class RepositoryMetadata {
 
         boolean id = field.isAnnotationPresent(Id.class);
         boolean autoIncrement = isAutoIncrement(field.getType(), field.getAnnotation(AutoIncrement.class), id);
+        processSequence(information, field.getType(), field.getAnnotation(Sequence.class), id, autoIncrement);
         return new FieldData<>(
                 information,
                 name == null ? fieldName : name.value(),
@@ -251,6 +263,44 @@ public class RepositoryMetadata {
         return true;
     }
 
+    private static void processSequence(
+        @NotNull RepositoryInformation information,
+        Class<?> type,
+        @Nullable Sequence sequence,
+        boolean id,
+        boolean autoIncrement
+    ) {
+        if (sequence == null) {
+            return;
+        }
+
+        if (!id) {
+            throw new IllegalArgumentException(
+                "@Sequence is only allowed on @Id fields"
+            );
+        }
+
+        if (autoIncrement) {
+            throw new IllegalArgumentException(
+                "@Sequence cannot be combined with @AutoIncrement"
+            );
+        }
+
+        if (!NUMERIC_ID_TYPES.contains(type)) {
+            throw new IllegalArgumentException(
+                "Sequence requires numeric type, found: " + type.getName()
+            );
+        }
+
+        if (sequence.allocationSize() <= 0) {
+            throw new IllegalArgumentException(
+                "Sequence allocation size must be positive, found: " + sequence.allocationSize()
+            );
+        }
+
+        information.setSequence(sequence);
+    }
+
     private static <T> FieldData<T> createFieldDataFromRecordComponent(@NotNull RepositoryInformation information, RecordComponent recordComponent, String tableName, String fieldName) {
         Named name = recordComponent.getAnnotation(Named.class);
         DefaultValue defaultValue = recordComponent.getAnnotation(DefaultValue.class);
@@ -270,6 +320,7 @@ public class RepositoryMetadata {
                 recordComponent.getAnnotation(AutoIncrement.class),
                 id
         );
+        processSequence(information, recordComponent.getType(), recordComponent.getAnnotation(Sequence.class), id, autoIncrement);
 
         return new FieldData<>(
                 information, name == null ? fieldName : name.value(), fieldName, tableName, recordComponent,
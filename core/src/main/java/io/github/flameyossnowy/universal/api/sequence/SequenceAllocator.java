@@ -0,0 +1,147 @@
+package io.github.flameyossnowy.universal.api.sequence;
+
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out ids from blocks reserved through a {@link SequenceSource}.
+ * <p>
+ * Only one thread refills the block at a time, every other thread keeps taking ids from memory,
+ * so the database is hit once per {@code allocationSize} ids. The allocator is shared by every
+ * thread of a repository, uniqueness across nodes is guaranteed by the source.
+ *
+ * @see io.github.flameyossnowy.universal.api.annotations.Sequence
+ */
+@SuppressWarnings("unused")
+public class SequenceAllocator {
+    private final String name;
+    private final int allocationSize;
+    private final SequenceSource source;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // next id to hand out and the first id outside the current block
+    private long next;
+    private long limit;
+
+    private long reservations;
+
+    public SequenceAllocator(@NotNull String name, int allocationSize, @NotNull SequenceSource source) {
+        if (allocationSize <= 0) throw new IllegalArgumentException("Allocation size must be positive");
+        this.name = name;
+        this.allocationSize = allocationSize;
+        this.source = source;
+    }
+
+    /**
+     * Gets the next id, reserving a new block if the current one is used up.
+     *
+     * @return the next id of the sequence
+     */
+    public long next() {
+        lock.lock();
+        try {
+            if (next >= limit) reserve();
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserve() {
+        try {
+            long start = source.reserve(name, allocationSize);
+            this.next = start;
+            this.limit = start + allocationSize;
+            this.reservations++;
+            Logging.deepInfo(() -> "Reserved ids [" + start + ", " + (start + allocationSize) + ") of sequence " + name);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to reserve ids of sequence " + name, e);
+        }
+    }
+
+    /**
+     * Converts the next id to the type of the primary key.
+     *
+     * @param idType {@code Long} or {@code Integer}
+     * @return the next id as the given type
+     */
+    @SuppressWarnings("unchecked")
+    public <ID> ID next(@NotNull Class<ID> idType) {
+        long id = next();
+        if (idType == Long.class || idType == long.class) return (ID) Long.valueOf(id);
+        if (idType == Integer.class || idType == int.class) return (ID) Integer.valueOf(Math.toIntExact(id));
+        throw new IllegalArgumentException("Sequence " + name + " cannot generate ids of type " + idType.getName());
+    }
+
+    /**
+     * Gives an entity without an id the next id of the sequence, ids that were set manually are kept.
+     * <p>
+     * Records cannot be changed, so a record without an id is copied with the id instead.
+     *
+     * @param information the repository of the entity
+     * @param entity the entity about to be inserted
+     * @return the entity to insert, which is a copy for records that got an id
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T assign(@NotNull RepositoryInformation information, @NotNull T entity) {
+        FieldData<?> primaryKey = information.getPrimaryKey();
+        if (primaryKey == null || primaryKey.getValue(entity) != null) return entity;
+
+        Object id = next(primaryKey.type());
+        if (!information.isRecord()) {
+            primaryKey.setValue(entity, id);
+            return entity;
+        }
+
+        Object[] values = new Object[information.getFields().size()];
+        int index = 0;
+        for (FieldData<?> field : information.getFields()) {
+            values[index++] = field.primary() ? id : field.getValue(entity);
+        }
+        try {
+            return (T) information.getRecordConstructor().newInstance(values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to copy " + information.getType().getName() + " with id " + id + " of sequence " + name, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    /**
+     * Gets the amount of blocks reserved so far, which is the amount of round trips made.
+     */
+    public long getReservations() {
+        lock.lock();
+        try {
+            return reservations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The store that ids are reserved from, implemented by every adapter supporting {@link io.github.flameyossnowy.universal.api.annotations.Sequence}.
+     */
+    @FunctionalInterface
+    public interface SequenceSource {
+        /**
+         * Atomically reserves a block of ids.
+         *
+         * @param name the name of the sequence
+         * @param size the amount of ids to reserve
+         * @return the first id of the block, the block spans {@code [start, start + size)}
+         * @throws Exception if the reservation failed
+         */
+        long reserve(String name, int size) throws Exception;
+    }
+}
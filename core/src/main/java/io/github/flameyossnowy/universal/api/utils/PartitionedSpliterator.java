@@ -0,0 +1,183 @@
+package io.github.flameyossnowy.universal.api.utils;
+
+import io.github.flameyossnowy.universal.api.CloseableIterator;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A spliterator over a scan split into partitions, where every partition is read by its own virtual thread.
+ * <p>
+ * Until iteration starts, {@link #trySplit()} hands half of the partitions to a new spliterator, so every worker
+ * of a parallel stream drains its own group of partitions. Once a spliterator starts, it opens all of its
+ * partitions at once and merges their elements in arrival order, so the partitions are read concurrently
+ * even when the stream is consumed sequentially.
+ * <p>
+ * Closing any spliterator of a scan stops the readers of every partition and closes their iterators.
+ *
+ * @param <T> the element type
+ */
+@SuppressWarnings("unused")
+public final class PartitionedSpliterator<T> implements Spliterator<T>, AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final Object END = new Object();
+
+    /**
+     * A part of a scan, opened on the thread that reads it.
+     */
+    @FunctionalInterface
+    public interface Partition<T> {
+        CloseableIterator<T> open() throws Exception;
+    }
+
+    private List<Partition<T>> partitions;
+    private final Scan scan;
+    private final int bufferSize;
+
+    private BlockingQueue<Object> queue;
+    private int running;
+
+    private PartitionedSpliterator(List<Partition<T>> partitions, Scan scan, int bufferSize) {
+        this.partitions = partitions;
+        this.scan = scan;
+        this.bufferSize = bufferSize;
+    }
+
+    public PartitionedSpliterator(@NotNull List<Partition<T>> partitions, int bufferSize) {
+        this(List.copyOf(partitions), new Scan(), bufferSize);
+        if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size must be positive");
+    }
+
+    /**
+     * Creates a stream over the partitions that stops reading them when it is closed.
+     */
+    @Contract("_ -> new")
+    public static <T> @NotNull Stream<T> stream(@NotNull List<Partition<T>> partitions) {
+        PartitionedSpliterator<T> spliterator = new PartitionedSpliterator<>(partitions, DEFAULT_BUFFER_SIZE);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Checks whether a query can be split into partitions, which is not the case if it sorts or limits its results.
+     */
+    public static boolean canSplit(@Nullable SelectQuery query) {
+        return query == null || (query.sortOptions().isEmpty() && query.limit() == -1);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        start();
+        while (running > 0) {
+            Object next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new CancellationException("Interrupted while waiting for a partition");
+            }
+
+            if (next == END) {
+                running--;
+                continue;
+            }
+
+            if (next instanceof Failure failure) {
+                close();
+                if (failure.cause instanceof RuntimeException runtimeException) throw runtimeException;
+                throw new RuntimeException("Failed to read partition", failure.cause);
+            }
+
+            //noinspection unchecked
+            action.accept((T) next);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public @Nullable Spliterator<T> trySplit() {
+        if (queue != null || partitions.size() < 2) return null;
+
+        int middle = partitions.size() / 2;
+        List<Partition<T>> split = new ArrayList<>(partitions.subList(middle, partitions.size()));
+        partitions = new ArrayList<>(partitions.subList(0, middle));
+        return new PartitionedSpliterator<>(split, scan, bufferSize);
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+
+    /**
+     * Stops reading every partition of the scan.
+     */
+    @Override
+    public void close() {
+        scan.closed = true;
+        for (Thread reader : scan.readers) reader.interrupt();
+    }
+
+    private void start() {
+        if (queue != null) return;
+
+        queue = new ArrayBlockingQueue<>(bufferSize);
+        running = partitions.size();
+        for (int i = 0; i < partitions.size(); i++) {
+            Partition<T> partition = partitions.get(i);
+            Thread reader = Thread.ofVirtual().name("universal-scan-partition-" + i).unstarted(() -> read(partition, queue));
+            scan.readers.add(reader);
+            reader.start();
+        }
+    }
+
+    private void read(Partition<T> partition, BlockingQueue<Object> queue) {
+        try (CloseableIterator<T> iterator = partition.open()) {
+            while (!scan.closed && iterator.hasNext()) queue.put(iterator.next());
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            if (!scan.closed) Logging.error("Failed to read partition: " + e.getMessage());
+            try {
+                queue.put(new Failure(e));
+            } catch (InterruptedException ignored) {
+                return;
+            }
+        } finally {
+            scan.readers.remove(Thread.currentThread());
+        }
+
+        try {
+            queue.put(END);
+        } catch (InterruptedException ignored) {
+            // The scan was closed, nobody waits for the end
+        }
+    }
+
+    private record Failure(Throwable cause) {}
+
+    private static final class Scan {
+        final Set<Thread> readers = ConcurrentHashMap.newKeySet();
+        volatile boolean closed;
+    }
+}
@@ -0,0 +1,82 @@
+import io.github.flameyossnowy.universal.api.operation.AsyncExecutor;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncExecutorTest {
+
+    @Test
+    void concurrencyIsLimited() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try (AsyncExecutor executor = AsyncExecutor.virtualThreads(2)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+            assertTrue(peak.get() <= 2, "Ran " + peak.get() + " tasks at once");
+            awaitDrained(executor);
+        }
+    }
+
+    @Test
+    void interruptedPermitWaitStillCompletesTheFuture() throws Exception {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        Executor threadPerTask = task -> {
+            Thread thread = new Thread(task);
+            threads.add(thread);
+            thread.start();
+        };
+
+        AsyncExecutor executor = AsyncExecutor.wrap(threadPerTask, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor);
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> Thread.currentThread().isInterrupted(), executor);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (executor.getQueuedCount() == 0) {
+            assertTrue(System.nanoTime() < deadline, "Task never waited for a permit");
+            Thread.sleep(1);
+        }
+
+        threads.get(1).interrupt();
+        assertTrue(waiting.get(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        awaitDrained(executor);
+    }
+
+    // A task counts as completed just after the command completing its future returns
+    private static void awaitDrained(AsyncExecutor executor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((executor.getPendingCount() != 0 || executor.getActiveCount() != 0) && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(0, executor.getPendingCount());
+        assertEquals(0, executor.getActiveCount());
+    }
+}
@@ -0,0 +1,193 @@
+import io.github.flameyossnowy.universal.api.RepositoryAdapter;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.cache.DefaultSession;
+import io.github.flameyossnowy.universal.api.cache.DefaultSessionCache;
+import io.github.flameyossnowy.universal.api.cache.SessionOption;
+import io.github.flameyossnowy.universal.api.cache.TransactionResult;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchWriteTest {
+    final List<String> calls = new ArrayList<>();
+    final Set<String> failing = new HashSet<>();
+    final FakeTransaction transaction = new FakeTransaction();
+
+    RepositoryAdapter<Item, String, Object> adapter;
+    DefaultSessionCache<String, Item> cache;
+
+    @BeforeEach
+    void setup() {
+        adapter = adapter();
+        cache = new DefaultSessionCache<>();
+    }
+
+    /**
+     * An adapter recording every write, the batch methods it does not implement run their default implementation.
+     */
+    @SuppressWarnings("unchecked")
+    RepositoryAdapter<Item, String, Object> adapter() {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            switch (name) {
+                case "getRepositoryInformation":
+                    return RepositoryMetadata.getMetadata(Item.class);
+                case "beginTransaction":
+                    return transaction;
+                case "findById":
+                    return new Item((String) args[0]);
+                case "insertAll", "insert", "delete", "deleteAll", "updateAll":
+                    if (name.equals("deleteAll") || (name.equals("updateAll") && args[0] instanceof Collection<?>)) {
+                        if (!failing.contains(name)) return InvocationHandler.invokeDefault(proxy, method, args);
+                    }
+                    String call = name + describe(args[0]);
+                    calls.add(call);
+                    return failing.contains(name) ? TransactionResult.failure(new IllegalStateException(call)) : TransactionResult.success(true);
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        };
+        return (RepositoryAdapter<Item, String, Object>) Proxy.newProxyInstance(
+            RepositoryAdapter.class.getClassLoader(), new Class<?>[] { RepositoryAdapter.class }, handler);
+    }
+
+    static String describe(Object argument) {
+        if (argument instanceof Collection<?> items) {
+            List<String> ids = new ArrayList<>();
+            for (Object item : items) ids.add(((Item) item).id);
+            return ids.toString();
+        }
+        return "(" + ((Item) argument).id + ")";
+    }
+
+    DefaultSession<String, Item, Object> session(SessionOption... options) {
+        EnumSet<SessionOption> set = EnumSet.noneOf(SessionOption.class);
+        set.addAll(List.of(options));
+        return new DefaultSession<>(adapter, cache, 1, set);
+    }
+
+    @Test
+    void defaultBatchWritesFallBackToSingleWrites() {
+        Item a = new Item("a");
+        Item b = new Item("b");
+
+        assertTrue(adapter.updateAll(List.of(a, b), transaction).isSuccess());
+        assertTrue(adapter.deleteAll(List.of(a, b), transaction).isSuccess());
+
+        assertEquals(List.of("updateAll(a)", "updateAll(b)", "delete(a)", "delete(b)"), calls);
+    }
+
+    @Test
+    void defaultBatchWriteStopsAtTheFirstFailure() {
+        failing.add("delete");
+
+        TransactionResult<Boolean> result = adapter.deleteAll(List.of(new Item("a"), new Item("b")), transaction);
+
+        assertTrue(result.isError());
+        assertEquals(List.of("delete(a)"), calls);
+    }
+
+    @Test
+    void bufferedWritesAreSentOnCommitInBatches() {
+        DefaultSession<String, Item, Object> session = session(SessionOption.BUFFERED_WRITE);
+        Item a = new Item("a");
+        Item b = new Item("b");
+        Item c = new Item("c");
+
+        session.insert(a);
+        session.insert(b);
+        session.update(a);
+        session.update(c);
+        session.delete(b);
+        assertTrue(calls.isEmpty(), "buffered writes ran before the commit: " + calls);
+
+        assertTrue(session.commit().isSuccess());
+
+        assertEquals(List.of("insertAll[a, b]", "updateAll(a)", "updateAll(c)", "delete(b)"), calls);
+        assertEquals(1, transaction.commits);
+        assertSame(a, cache.get("a"));
+        assertSame(c, cache.get("c"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void failedBatchRollsTheSessionBack() {
+        failing.add("updateAll");
+        DefaultSession<String, Item, Object> session = session(SessionOption.BUFFERED_WRITE);
+        Item a = new Item("a");
+
+        session.insert(a);
+        session.update(a);
+        session.delete(a);
+
+        assertTrue(session.commit().isError());
+        assertEquals(List.of("insertAll[a]", "updateAll[a]"), calls);
+        assertEquals(0, transaction.commits);
+        assertEquals(1, transaction.rollbacks);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void unbufferedWritesOnlyCacheSuccessfulWrites() {
+        DefaultSession<String, Item, Object> session = session();
+        Item a = new Item("a");
+        Item b = new Item("b");
+
+        session.insert(a);
+        failing.add("insert");
+        session.insert(b);
+
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertTrue(session.commit().isError());
+    }
+
+    static final class FakeTransaction implements TransactionContext<Object> {
+        int commits;
+        int rollbacks;
+
+        @Override
+        public Object connection() {
+            return this;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public TransactionResult<Boolean> commit() {
+            commits++;
+            return TransactionResult.success(true);
+        }
+
+        @Override
+        public void rollback() {
+            rollbacks++;
+        }
+    }
+
+    @Repository(name = "items")
+    public static class Item {
+        @Id
+        public String id;
+
+        public Item() {}
+
+        public Item(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import io.github.flameyossnowy.universal.api.annotations.enums.OverflowPolicy;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventPipelineTest {
+
+    @Test
+    void eventsAreDispatchedInOrder() {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        try (EventPipeline pipeline = new EventPipeline("order", 64, 8, OverflowPolicy.BLOCK)) {
+            for (int i = 0; i < 100; i++) {
+                int value = i;
+                pipeline.submit(() -> seen.add(value));
+            }
+            assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(100, seen.size());
+        for (int i = 0; i < 100; i++) assertEquals(i, (int) seen.get(i));
+    }
+
+    @Test
+    void peakDepthSeesConcurrentSubmits() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (EventPipeline pipeline = new EventPipeline("peak", 128, 1, OverflowPolicy.BLOCK)) {
+            // Keeps the drainer busy, so every following event stays queued
+            pipeline.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            Thread[] submitters = new Thread[5];
+            for (int i = 0; i < submitters.length; i++) {
+                submitters[i] = new Thread(() -> {
+                    for (int j = 0; j < 10; j++) pipeline.submit(() -> {});
+                });
+                submitters[i].start();
+            }
+            for (Thread submitter : submitters) submitter.join();
+
+            assertEquals(50, pipeline.getMetrics().peakQueueDepth());
+            release.countDown();
+            assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+            assertEquals(50, pipeline.getMetrics().peakQueueDepth());
+        }
+    }
+
+    @Test
+    void closeDispatchesPendingEventsAndRunsLaterOnesSynchronously() {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        EventPipeline pipeline = new EventPipeline("close", 64, 8, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 10; i++) pipeline.submit(() -> seen.add("queued"));
+        pipeline.close();
+        assertEquals(10, seen.size());
+
+        Thread caller = Thread.currentThread();
+        pipeline.submit(() -> seen.add(Thread.currentThread() == caller ? "caller" : "drainer"));
+        assertEquals("caller", seen.get(10));
+        assertEquals(1, pipeline.getMetrics().synchronous());
+    }
+
+    @Test
+    void droppedEventsAreCounted() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (EventPipeline pipeline = new EventPipeline("drop", 2, 1, OverflowPolicy.DROP)) {
+            pipeline.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 5; i++) pipeline.submit(() -> {});
+            assertEquals(3, pipeline.getMetrics().dropped());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void eventsSubmittedWhileClosingAreNotLost() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            AtomicInteger seen = new AtomicInteger();
+            EventPipeline pipeline = new EventPipeline("race", 16, 4, OverflowPolicy.BLOCK);
+            CountDownLatch go = new CountDownLatch(1);
+            Thread[] submitters = new Thread[4];
+            for (int i = 0; i < submitters.length; i++) {
+                submitters[i] = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int j = 0; j < 200; j++) pipeline.submit(seen::incrementAndGet);
+                });
+                submitters[i].start();
+            }
+
+            go.countDown();
+            pipeline.close();
+            for (Thread submitter : submitters) submitter.join();
+
+            assertEquals(800, seen.get());
+        }
+    }
+
+    @Test
+    void synchronousOverflowRunsAfterQueuedEvents() throws Exception {
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (EventPipeline pipeline = new EventPipeline("overflow", 2, 1, OverflowPolicy.SYNCHRONOUS)) {
+            pipeline.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            pipeline.submit(() -> seen.add(1));
+            pipeline.submit(() -> seen.add(2));
+            // The buffer is full, this one runs on the caller once the queued ones are done
+            Thread overflow = new Thread(() -> pipeline.submit(() -> seen.add(3)));
+            overflow.start();
+
+            release.countDown();
+            overflow.join();
+            assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 2, 3), seen);
+        }
+    }
+}
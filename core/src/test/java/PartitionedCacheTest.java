@@ -0,0 +1,110 @@
+import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmType;
+import io.github.flameyossnowy.universal.api.cache.PartitionedCache;
+import io.github.flameyossnowy.universal.api.cache.PartitionedCache.PartitionMetrics;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedCacheTest {
+
+    @Test
+    void partitionCountIsRoundedToAPowerOfTwo() {
+        assertEquals(1, new PartitionedCache<>(1, 16, CacheAlgorithmType.NONE).getPartitionCount());
+        assertEquals(8, new PartitionedCache<>(5, 16, CacheAlgorithmType.NONE).getPartitionCount());
+        assertEquals(16, new PartitionedCache<>(16, 16, CacheAlgorithmType.NONE).getPartitionCount());
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedCache<>(0, 16, CacheAlgorithmType.NONE));
+    }
+
+    @Test
+    void getPutAndRemoveAreRecorded() {
+        PartitionedCache<Long, String> cache = new PartitionedCache<>(4, 64, CacheAlgorithmType.LEAST_RECENTLY_USED);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(3L));
+        assertEquals("two", cache.remove(2L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.size());
+
+        assertEquals(1, cache.getStatistics().getHits());
+        assertEquals(2, cache.getStatistics().getMisses());
+        assertEquals(1, cache.getStatistics().getEvictions());
+
+        long operations = 0;
+        for (PartitionMetrics metrics : cache.getPartitionMetrics()) operations += metrics.operations();
+        assertEquals(6, operations);
+    }
+
+    @Test
+    void sequentialIdsAreSpreadEvenly() {
+        PartitionedCache<Long, Long> cache = new PartitionedCache<>(8, 1024, CacheAlgorithmType.NONE);
+        for (long id = 0; id < 8_000; id++) cache.put(id * 8, id);
+
+        for (PartitionMetrics metrics : cache.getPartitionMetrics()) {
+            assertTrue(metrics.size() > 750 && metrics.size() < 1250, "partition " + metrics.partition() + " holds " + metrics.size());
+        }
+    }
+
+    @Test
+    void contentionIsNotTrackedByDefault() throws Exception {
+        PartitionedCache<Long, Long> cache = new PartitionedCache<>(1, 1024, CacheAlgorithmType.NONE);
+        assertFalse(cache.isTrackingContention());
+        hammer(cache, 50_000);
+
+        PartitionMetrics metrics = cache.getPartitionMetrics().get(0);
+        assertEquals(4 * 50_000, metrics.operations());
+        assertEquals(0, metrics.contendedOperations());
+        assertEquals(0, metrics.peakConcurrency());
+        assertEquals(0.0, metrics.contentionRate());
+    }
+
+    @Test
+    void trackedContentionIsRecorded() throws Exception {
+        PartitionedCache<Long, Long> cache = new PartitionedCache<>(1, 1024, CacheAlgorithmType.NONE, true);
+        assertTrue(cache.isTrackingContention());
+
+        cache.get(1L);
+        assertEquals(1, cache.getPartitionMetrics().get(0).peakConcurrency());
+
+        // Threads only overlap when one is preempted inside the partition, so keep going until that happened
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        PartitionMetrics metrics;
+        do {
+            hammer(cache, 50_000);
+            metrics = cache.getPartitionMetrics().get(0);
+        } while (metrics.contendedOperations() == 0 && System.nanoTime() < deadline);
+
+        assertTrue(metrics.contendedOperations() > 0, "no contention was recorded");
+        assertTrue(metrics.contendedOperations() <= metrics.operations());
+        assertTrue(metrics.peakConcurrency() >= 2 && metrics.peakConcurrency() <= 4, "peak " + metrics.peakConcurrency());
+    }
+
+    private static void hammer(PartitionedCache<Long, Long> cache, int operationsPerThread) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operationsPerThread; i++) {
+                    long key = i & 255;
+                    if ((i & 7) == 0) cache.put(key, key);
+                    else cache.get(key);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+    }
+}
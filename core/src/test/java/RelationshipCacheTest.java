@@ -0,0 +1,153 @@
+import io.github.flameyossnowy.universal.api.cache.RelationshipCache;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelationshipCacheTest {
+
+    @Test
+    void integralIdsAreCachedPerOrdinal() {
+        RelationshipCache cache = new RelationshipCache(Long.class, 1024);
+        for (long id = 0; id < 100; id++) {
+            cache.put(0, id, "zero-" + id);
+            cache.put(1, id, "one-" + id);
+        }
+
+        assertEquals(200, cache.size());
+        for (long id = 0; id < 100; id++) {
+            assertEquals("zero-" + id, cache.get(0, id));
+            assertEquals("one-" + id, cache.get(1, id));
+        }
+        assertNull(cache.get(2, 5L));
+        assertEquals(200, cache.getStatistics().getHits());
+        assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    void objectIdsWithEqualHashesAreKeptApart() {
+        RelationshipCache cache = new RelationshipCache(String.class, 1024);
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        cache.put(0, "Aa", "first");
+        cache.put(0, "BB", "second");
+
+        assertEquals("first", cache.get(0, "Aa"));
+        assertEquals("second", cache.get(0, "BB"));
+
+        cache.remove(0, "Aa");
+        assertNull(cache.get(0, "Aa"));
+        assertEquals("second", cache.get(0, "BB"));
+    }
+
+    @Test
+    void ordinalsAreKeyedByTheirOwnIdClass() {
+        RelationshipCache cache = new RelationshipCache(new Class<?>[] { Long.class, String.class }, String.class, 1024);
+
+        cache.put(0, 7L, "by long");
+        cache.put(1, "Aa", "first");
+        cache.put(1, "BB", "second");
+        // An id of another class than its ordinal is keyed by is kept apart instead of failing
+        cache.put(0, "7", "by string");
+
+        assertEquals("by long", cache.get(0, 7L));
+        assertEquals("by string", cache.get(0, "7"));
+        assertEquals("first", cache.get(1, "Aa"));
+        assertEquals("second", cache.get(1, "BB"));
+
+        cache.remove(0, 7L);
+        assertNull(cache.get(0, 7L));
+        assertEquals("by string", cache.get(0, "7"));
+    }
+
+    @Test
+    void sizeStaysWithinTheBound() {
+        RelationshipCache cache = new RelationshipCache(Long.class, 64);
+        for (long id = 0; id < 10_000; id++) {
+            cache.put(0, id, id);
+        }
+
+        assertTrue(cache.size() <= 64, "size " + cache.size());
+        assertTrue(cache.getStatistics().getEvictions() >= 10_000 - 64);
+    }
+
+    @Test
+    void recentlyUsedEntryIsKept() {
+        RelationshipCache cache = new RelationshipCache(Long.class, 64);
+        cache.put(0, -1L, "hot");
+        for (long id = 0; id < 10_000; id++) {
+            cache.put(0, id, id);
+            assertEquals("hot", cache.get(0, -1L), "evicted after " + id + " puts");
+        }
+    }
+
+    @Test
+    void removingAnOrdinalKeepsTheOthersReachable() {
+        RelationshipCache cache = new RelationshipCache(Long.class, 4096);
+        for (long id = 0; id < 500; id++) {
+            cache.put((int) (id % 3), id, id);
+        }
+
+        cache.removeOrdinal(1);
+
+        for (long id = 0; id < 500; id++) {
+            int ordinal = (int) (id % 3);
+            if (ordinal == 1) assertNull(cache.get(ordinal, id));
+            else assertEquals(id, cache.get(ordinal, id));
+        }
+    }
+
+    @Test
+    void clearEmptiesEverySegment() {
+        RelationshipCache cache = new RelationshipCache(Integer.class, 1024);
+        for (int id = 0; id < 300; id++) cache.put(0, id, id);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        for (int id = 0; id < 300; id++) assertNull(cache.get(0, id));
+    }
+
+    @Test
+    void concurrentReadsNeverSeeAnotherKeysValue() throws Exception {
+        RelationshipCache cache = new RelationshipCache(Long.class, 256);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        long id = random.nextLong(1024);
+                        switch (random.nextInt(4)) {
+                            case 0 -> cache.put(0, id, id);
+                            case 1 -> cache.remove(0, id);
+                            default -> {
+                                Object value = cache.get(0, id);
+                                if (value != null && (Long) value != id) throw new AssertionError(id + " returned " + value);
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertNull(failure.get());
+        assertTrue(cache.size() <= 256);
+    }
+}
@@ -8,6 +8,7 @@ import io.github.flameyossnowy.universal.api.IndexOptions;
 import io.github.flameyossnowy.universal.api.RepositoryAdapter;
 import io.github.flameyossnowy.universal.api.RepositoryRegistry;
 import io.github.flameyossnowy.universal.api.annotations.FileRepository;
+import io.github.flameyossnowy.universal.api.annotations.ParallelScan;
 import io.github.flameyossnowy.universal.api.annotations.enums.CompressionType;
 import io.github.flameyossnowy.universal.api.annotations.enums.FileFormat;
 import io.github.flameyossnowy.universal.api.annotations.enums.IndexType;
@@ -28,6 +29,7 @@ import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.api.utils.PartitionedSpliterator;
 import io.github.flameyossnowy.universal.microservices.file.indexes.IndexPathStrategies;
 import io.github.flameyossnowy.universal.microservices.file.indexes.IndexPathStrategy;
 import io.github.flameyossnowy.universal.microservices.file.indexes.SecondaryIndex;
@@ -37,6 +39,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.lang.invoke.MethodType;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -517,6 +520,13 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
 
     @Override
     public List<T> find(SelectQuery query) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && sharding && PartitionedSpliterator.canSplit(query)) {
+            try (Stream<T> stream = findPartitioned(query, parallelScan.partitions())) {
+                return stream.collect(Collectors.toCollection(ArrayList::new));
+            }
+        }
+
         try {
             // Fast path
             if (query == null) {
@@ -656,11 +666,21 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
                     yield false;
                 }
                 case "IN" -> {
+                    if (value instanceof Collection<?> elements && filterValue instanceof Collection<?> values) {
+                        yield elements.stream().anyMatch(values::contains);
+                    }
                     if (filterValue instanceof Collection) {
                         yield ((Collection<?>) filterValue).contains(value);
                     }
                     yield false;
                 }
+                case "CONTAINS" -> value instanceof Collection<?> elements && elements.contains(filterValue);
+                case "ALL" -> value instanceof Collection<?> elements
+                    && filterValue instanceof Collection<?> values
+                    && elements.containsAll(values);
+                case "SIZE" -> value instanceof Collection<?> elements
+                    && filterValue instanceof Number size
+                    && elements.size() == size.intValue();
                 default -> false;
             };
         } catch (Exception e) {
@@ -700,7 +720,10 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
 
     @Override
     public @NotNull CloseableIterator<T> findIterator(SelectQuery query) {
-        Stream<T> stream = findStream(query);
+        return closeableIterator(findStream(query));
+    }
+
+    private static <T> @NotNull CloseableIterator<T> closeableIterator(Stream<T> stream) {
         Iterator<T> iterator = stream.iterator();
 
         return new CloseableIterator<>() {
@@ -717,6 +740,39 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
 
     @Override
     public @NotNull Stream<T> findStream(SelectQuery query) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && sharding && PartitionedSpliterator.canSplit(query)) return findPartitioned(query, parallelScan.partitions());
+
+        return streamSequentially(query);
+    }
+
+    /**
+     * Splits the scan on the shards of the repository, every partition reads one or more whole shards.
+     * Unsharded repositories are read sequentially.
+     */
+    @Override
+    public @NotNull Stream<T> findPartitioned(@Nullable SelectQuery query, int partitions) {
+        if (!sharding || partitions < 2 || !PartitionedSpliterator.canSplit(query)) return streamSequentially(query);
+
+        int groups = Math.min(partitions, shardCount);
+        List<PartitionedSpliterator.Partition<T>> shardGroups = new ArrayList<>(groups);
+        for (int group = 0; group < groups; group++) {
+            List<Path> shards = new ArrayList<>(shardCount / groups + 1);
+            for (int shard = group; shard < shardCount; shard += groups) {
+                shards.add(basePath.resolve(String.valueOf(shard)));
+            }
+
+            shardGroups.add(() -> {
+                Stream<T> entities = readDirectories(shards.stream());
+                if (query != null && !query.filters().isEmpty()) entities = entities.filter(entity -> matchesAll(entity, query.filters()));
+                return closeableIterator(entities);
+            });
+        }
+
+        return PartitionedSpliterator.stream(shardGroups);
+    }
+
+    private @NotNull Stream<T> streamSequentially(SelectQuery query) {
         try {
             // Generate a Stream<Path> that lazily scans all shards
             Stream<T> entityStream = getFileStream();
@@ -753,9 +809,21 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
     }
 
     private @NotNull Stream<T> getFileStream() {
-        Stream<Path> fileStream = Stream.iterate(0, i -> i + 1)
+        return readDirectories(getEntityDirectories());
+    }
+
+    private @NotNull Stream<Path> getEntityFiles() {
+        return listEntityFiles(getEntityDirectories());
+    }
+
+    private @NotNull Stream<Path> getEntityDirectories() {
+        return Stream.iterate(0, i -> i + 1)
             .limit(sharding ? shardCount : 1)
-            .map(i -> sharding ? basePath.resolve(String.valueOf(i)) : basePath)
+            .map(i -> sharding ? basePath.resolve(String.valueOf(i)) : basePath);
+    }
+
+    private @NotNull Stream<Path> listEntityFiles(Stream<Path> directories) {
+        return directories
             .filter(Files::exists)
             .flatMap(path -> {
                 try {
@@ -766,9 +834,11 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
             })
             .filter(Files::isRegularFile)
             .filter(path -> path.getFileName().toString().endsWith(getFileExtension()));
+    }
 
+    private @NotNull Stream<T> readDirectories(Stream<Path> directories) {
         // Map paths to entities lazily
-        return fileStream.map(path -> {
+        return listEntityFiles(directories).map(path -> {
             try {
                 return readEntity(path);
             } catch (IOException e) {
@@ -777,6 +847,93 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
         });
     }
 
+    /**
+     * Counts entity files without reading them if there are no filters, and answers equality filters on the
+     * primary key or indexed fields from the file names and indexes. Other filters read every entity.
+     */
+    @Override
+    public long count(@NotNull SelectQuery query) {
+        try {
+            if (query.filters().isEmpty()) {
+                try (Stream<Path> files = getEntityFiles()) {
+                    return files.count();
+                }
+            }
+
+            Set<ID> ids = findIndexedIds(query.filters());
+            if (ids != null) return ids.size();
+
+            try (Stream<T> stream = getFileStream()) {
+                return stream.filter(entity -> matchesAll(entity, query.filters())).count();
+            }
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Failed to count entities", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean exists(@NotNull SelectQuery query) {
+        try {
+            if (query.filters().isEmpty()) {
+                try (Stream<Path> files = getEntityFiles()) {
+                    return files.findAny().isPresent();
+                }
+            }
+
+            Set<ID> ids = findIndexedIds(query.filters());
+            if (ids != null) return !ids.isEmpty();
+
+            try (Stream<T> stream = getFileStream()) {
+                return stream.anyMatch(entity -> matchesAll(entity, query.filters()));
+            }
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Failed to check entity existence", e.getCause());
+        }
+    }
+
+    /**
+     * Resolves the IDs matching the filters without reading entities, if every filter is an equality on the
+     * primary key or on an indexed field.
+     *
+     * @return the matching IDs, or null if a filter needs the entities to be read
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable Set<ID> findIndexedIds(@NotNull List<SelectOption> filters) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        Set<ID> result = null;
+
+        for (SelectOption filter : filters) {
+            if (!"=".equals(filter.operator()) || filter.value() == null) return null;
+
+            Set<ID> ids;
+            if (primaryKey != null && primaryKey.name().equals(filter.option()) && idType.isInstance(filter.value())) {
+                ID id = (ID) filter.value();
+                ids = Files.exists(getEntityPath(id)) ? Set.of(id) : Set.of();
+            } else {
+                SecondaryIndex<ID> index = indexes.get(filter.option());
+                if (index == null || !isIndexKey(filter.option(), filter.value())) return null;
+                ids = index.map().getOrDefault(filter.value(), Set.of());
+            }
+
+            if (result == null) {
+                result = new HashSet<>(ids);
+            } else {
+                result.retainAll(ids);
+            }
+            if (result.isEmpty()) return result;
+        }
+        return result;
+    }
+
+    /**
+     * Index keys are the field values themselves, so a value of another type, such as an {@code Integer} for a
+     * {@code long} field, would miss every key. Such filters are matched against the entities instead, as find does.
+     */
+    private boolean isIndexKey(@NotNull String fieldName, @NotNull Object value) {
+        FieldData<?> field = repositoryInformation.getField(fieldName);
+        return field != null && MethodType.methodType(field.type()).wrap().returnType().isInstance(value);
+    }
+
     @Override
     public @Nullable T first(SelectQuery query){
         List<T> results = find(query);
@@ -932,6 +1089,20 @@ public class FileRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, Fi
                 throw new RuntimeException("Failed to apply update on field: " + fieldName, e);
             }
         });
+        query.pushes().forEach((fieldName, values) -> collectionOf(entity, fieldName).addAll(values));
+        query.pulls().forEach((fieldName, values) -> collectionOf(entity, fieldName).removeIf(values::contains));
+    }
+
+    @SuppressWarnings("unchecked")
+    private @NotNull Collection<Object> collectionOf(T entity, String fieldName) {
+        var field = repositoryInformation.getField(fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown field: " + fieldName);
+        }
+        if (!(field.getValue(entity) instanceof Collection<?> collection)) {
+            throw new IllegalArgumentException("Field " + fieldName + " is not a collection");
+        }
+        return (Collection<Object>) collection;
     }
 
     @Override
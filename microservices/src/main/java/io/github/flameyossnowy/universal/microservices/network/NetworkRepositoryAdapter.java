@@ -5,11 +5,13 @@ import io.github.flameyossnowy.universal.api.CloseableIterator;
 import io.github.flameyossnowy.universal.api.IndexOptions;
 import io.github.flameyossnowy.universal.api.RepositoryAdapter;
 import io.github.flameyossnowy.universal.api.RepositoryRegistry;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
 import io.github.flameyossnowy.universal.api.annotations.NetworkRepository;
 import io.github.flameyossnowy.universal.api.annotations.RemoteEndpoint;
 import io.github.flameyossnowy.universal.api.annotations.builder.EndpointConfig;
 import io.github.flameyossnowy.universal.api.annotations.enums.AuthType;
 import io.github.flameyossnowy.universal.api.annotations.enums.NetworkProtocol;
+import io.github.flameyossnowy.universal.api.cache.BatchingLoader;
 import io.github.flameyossnowy.universal.api.cache.DatabaseSession;
 import io.github.flameyossnowy.universal.api.cache.SessionOption;
 import io.github.flameyossnowy.universal.api.cache.TransactionResult;
@@ -44,6 +46,7 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -75,6 +78,10 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
     private final EndpointConfig endpointConfig;
     private final RelationshipResolver<T, ID> relationshipResolver;
     
+    // Coalesces concurrent findById calls, see @CoalescedLookups
+    @Nullable
+    private final BatchingLoader<ID, T> idLoader;
+
     // Response cache
     private final Map<String, CompletableFuture<CachedResponse>> responseCache;
     private final boolean cacheEnabled;
@@ -126,6 +133,11 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
 
         this.responseCache = cacheEnabled ? new ConcurrentHashMap<>(3) : null;
 
+        CoalescedLookups coalescedLookups = repositoryInformation.getCoalescedLookups();
+        this.idLoader = coalescedLookups == null
+            ? null
+            : new BatchingLoader<>(repositoryInformation.getRepositoryName(), coalescedLookups.windowMicros(), TimeUnit.MICROSECONDS, coalescedLookups.maxBatchSize(), this::fetchAll);
+
         this.relationshipResolver = new RelationshipResolver<>(new MicroserviceRelationshipHandler<>(repositoryInformation, idType, resolverRegistry));
         RepositoryRegistry.register(this.repositoryInformation.getRepositoryName(), this);
     }
@@ -189,7 +201,9 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
                     remoteEndpoint.create(),
                     remoteEndpoint.update(),
                     remoteEndpoint.delete(),
-                    remoteEndpoint.updateMethod()
+                    remoteEndpoint.updateMethod(),
+                    remoteEndpoint.count(),
+                    remoteEndpoint.findAllById()
                 )
                 : EndpointConfig.defaults();
     }
@@ -321,7 +335,7 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
                 } catch (IOException | InterruptedException e) {
                     throw new RuntimeException(e);
                 }
-            });
+            }, getAsyncExecutor());
 
             responseCache.put(cacheKey, newFuture);
             return (R) newFuture.join().data;
@@ -350,7 +364,10 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
         HttpRequest request = createRequestBuilder(endpointConfig.findAll())
                 .GET()
                 .build();
+        return getEntities(request);
+    }
 
+    private List<T> getEntities(HttpRequest request) throws IOException, InterruptedException {
         HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
             List<T> entities = objectMapper.readValue(response.body(), objectMapper.getTypeFactory().constructCollectionType(List.class, entityType));
@@ -526,8 +543,72 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
         return find(null);
     }
 
+    /**
+     * Asks the count endpoint if one is configured, otherwise lists the matching entities.
+     */
+    @Override
+    public long count(@NotNull SelectQuery query) {
+        SelectQuery filtersOnly = Query.select().where(query.filters()).build();
+        if (endpointConfig.count().isEmpty()) return find(filtersOnly).size();
+
+        try {
+            HttpRequest request = createRequestBuilder(endpointConfig.count() + buildQueryString(filtersOnly))
+                    .GET()
+                    .build();
+            Long count = sendRequest(request, Long.class);
+            return count == null ? 0 : count;
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to count entities", e);
+        }
+    }
+
+    /**
+     * Sends a {@code HEAD} request to the find-by-ID endpoint if the only filter is an equality on the primary key.
+     * Other queries use the count endpoint if one is configured, or list at most one entity.
+     */
+    @Override
+    public boolean exists(@NotNull SelectQuery query) {
+        List<SelectOption> filters = query.filters();
+        var primaryKey = repositoryInformation.getPrimaryKey();
+        if (filters.size() == 1 && primaryKey != null
+                && primaryKey.name().equals(filters.get(0).option())
+                && "=".equals(filters.get(0).operator())
+                && filters.get(0).value() != null) {
+            return existsById(filters.get(0).value());
+        }
+
+        if (!endpointConfig.count().isEmpty()) return count(query) > 0;
+        return !find(Query.select().where(filters).limit(1).build()).isEmpty();
+    }
+
+    private boolean existsById(Object id) {
+        String endpoint = endpointConfig.findById().replace("{id}", id.toString());
+        HttpRequest request = createRequestBuilder(endpoint)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 404) return false;
+            if (response.statusCode() >= 200 && response.statusCode() < 300) return true;
+            throw new IOException("HTTP error " + response.statusCode());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to check existence of entity by ID: " + id, e);
+        }
+    }
+
     @Override
     public T findById(ID key) {
+        if (idLoader != null) return idLoader.load(key);
+        return fetch(key);
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(ID key) {
+        if (idLoader != null) return idLoader.loadAsync(key);
+        return RepositoryAdapter.super.findByIdAsync(key);
+    }
+
+    private T fetch(ID key) {
         try {
             return get(key);
         } catch (IOException | InterruptedException e) {
@@ -545,9 +626,47 @@ public class NetworkRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID,
             return Collections.singletonMap(keys.iterator().next(), findById(keys.iterator().next()));
         }
 
-        Map<ID, T> results = new HashMap<>();
+        return fetchAll(keys);
+    }
+
+    /**
+     * Loads the distinct ids with one request per {@value #DEFAULT_PAGE_SIZE} ids from the
+     * {@link EndpointConfig#findAllById()} endpoint. Without one, the endpoints only serve single ids,
+     * so those are requested concurrently instead of one after another.
+     */
+    private Map<ID, T> fetchAll(Collection<ID> keys) {
+        if (!endpointConfig.findAllById().isEmpty()) return fetchBatched(keys);
+
+        Map<ID, CompletableFuture<T>> futures = new LinkedHashMap<>(keys.size());
         for (ID key : keys) {
-            results.put(key, findById(key));
+            futures.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> fetch(k), getAsyncExecutor()));
+        }
+
+        Map<ID, T> results = new HashMap<>(futures.size());
+        for (Map.Entry<ID, CompletableFuture<T>> entry : futures.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().join());
+        }
+        return results;
+    }
+
+    private Map<ID, T> fetchBatched(Collection<ID> keys) {
+        List<ID> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<ID, T> results = new HashMap<>(distinct.size());
+        for (int from = 0; from < distinct.size(); from += DEFAULT_PAGE_SIZE) {
+            StringJoiner ids = new StringJoiner(",");
+            for (ID id : distinct.subList(from, Math.min(distinct.size(), from + DEFAULT_PAGE_SIZE))) {
+                ids.add(URLEncoder.encode(id.toString(), StandardCharsets.UTF_8));
+            }
+
+            HttpRequest request = createRequestBuilder(endpointConfig.findAllById().replace("{ids}", ids.toString()))
+                    .GET()
+                    .build();
+            try {
+                // Ids the service does not know are simply missing from the answer
+                for (T entity : getEntities(request)) results.put(extractId(entity), entity);
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException("Failed to find entities by ID: " + ids, e);
+            }
         }
         return results;
     }
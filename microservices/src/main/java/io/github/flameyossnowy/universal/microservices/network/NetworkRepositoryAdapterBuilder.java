@@ -76,7 +76,9 @@ public class NetworkRepositoryAdapterBuilder<T, ID> {
                     endpoint.create(),
                     endpoint.update(),
                     endpoint.delete(),
-                    endpoint.updateMethod()
+                    endpoint.updateMethod(),
+                    endpoint.count(),
+                    endpoint.findAllById()
             ));
         }
         
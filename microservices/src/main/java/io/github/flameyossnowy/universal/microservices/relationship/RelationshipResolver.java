@@ -3,7 +3,9 @@ package io.github.flameyossnowy.universal.microservices.relationship;
 import io.github.flameyossnowy.universal.api.handler.RelationshipHandler;
 import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Objects;
@@ -28,7 +30,7 @@ public class RelationshipResolver<T, ID> {
                 List<Object> result = handler.handleOneToManyRelationship(field, id);
                 field.setValue(entity, result);
             } else if (field.manyToOne() != null) {
-                Object result = handler.handleManyToOneRelationship(id, field);
+                Object result = handler.handleManyToOneRelationship(foreignKey(field, entity), field);
                 field.setValue(entity, result);
             } else if (field.oneToOne() != null) {
                 Object result = handler.handleOneToOneRelationship(id, field);
@@ -36,4 +38,12 @@ public class RelationshipResolver<T, ID> {
             }
         }
     }
-}
\ No newline at end of file
+
+    // The stored reference only carries the id of the referenced entity
+    private static @Nullable Object foreignKey(@NotNull FieldData<?> field, Object entity) {
+        Object reference = field.getValue(entity);
+        RepositoryInformation referenced = RepositoryMetadata.getMetadata(field.type());
+        if (reference == null || referenced == null || referenced.getPrimaryKey() == null) return null;
+        return referenced.getPrimaryKey().getValue(reference);
+    }
+}
@@ -1,5 +1,11 @@
+import io.github.flameyossnowy.universal.api.IndexOptions;
+import io.github.flameyossnowy.universal.api.annotations.FileRepository;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
 import io.github.flameyossnowy.universal.api.annotations.enums.CompressionType;
 import io.github.flameyossnowy.universal.api.annotations.enums.FileFormat;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
 import io.github.flameyossnowy.universal.microservices.file.FileRepositoryAdapter;
 import io.github.flameyossnowy.universal.microservices.file.indexes.IndexPathStrategies;
 import org.junit.jupiter.api.*;
@@ -84,4 +90,79 @@ class FileRepositoryAdapterTest {
 
         assertTrue(adapter.find().isEmpty());
     }
+
+    @Test
+    void countAndExistsWithoutFilters() {
+        assertEquals(0, adapter.count(Query.select().build()));
+        assertFalse(adapter.exists(Query.select().build()));
+
+        adapter.insert(new TestEntity("1", "A"));
+        adapter.insert(new TestEntity("2", "B"));
+
+        assertEquals(2, adapter.count(Query.select().build()));
+        assertTrue(adapter.exists(Query.select().build()));
+    }
+
+    @Test
+    void countByPrimaryKey() {
+        adapter.insert(new TestEntity("1", "A"));
+
+        assertEquals(1, adapter.count(Query.select().where("id").eq("1").build()));
+        assertEquals(0, adapter.count(Query.select().where("id").eq("2").build()));
+        assertFalse(adapter.exists(Query.select().where("id").eq("2").build()));
+    }
+
+    @Test
+    void countByIndexedField() {
+        FileRepositoryAdapter<Score, String> scores = scores();
+        scores.insert(new Score("1", 5));
+        scores.insert(new Score("2", 5));
+        scores.insert(new Score("3", 7));
+
+        assertEquals(2, scores.count(Query.select().where("points").eq(5L).build()));
+        assertEquals(1, scores.count(Query.select().where("points").eq(5L).where("id").eq("2").build()));
+        assertFalse(scores.exists(Query.select().where("points").eq(9L).build()));
+    }
+
+    @Test
+    void countByIndexedFieldWithAnotherValueTypeMatchesFind() {
+        FileRepositoryAdapter<Score, String> scores = scores();
+        scores.insert(new Score("1", 5));
+
+        // An Integer for the long field is matched against the entities, as find matches it
+        SelectQuery query = Query.select().where("points").eq(5).build();
+        assertEquals(scores.find(query).size(), scores.count(query));
+        assertEquals(!scores.find(query).isEmpty(), scores.exists(query));
+    }
+
+    FileRepositoryAdapter<Score, String> scores() {
+        FileRepositoryAdapter<Score, String> scores = new FileRepositoryAdapter<>(
+                Score.class,
+                String.class,
+                tempDir.resolve("scores"),
+                FileFormat.JSON,
+                false,
+                CompressionType.GZIP,
+                false,
+                0,
+            IndexPathStrategies.underBase());
+        scores.createRepository(true);
+        assertTrue(scores.createIndex(IndexOptions.builder(Score.class).indexName("points").field("points").build()).isSuccess());
+        return scores;
+    }
+
+    @Repository(name = "scores")
+    @FileRepository(path = "ignored-in-tests", format = FileFormat.JSON)
+    public static class Score {
+        @Id
+        public String id;
+        public long points;
+
+        public Score() {}
+
+        public Score(String id, long points) {
+            this.id = id;
+            this.points = points;
+        }
+    }
 }
@@ -1,15 +1,22 @@
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
 import io.github.flameyossnowy.universal.api.annotations.builder.EndpointConfig;
 import io.github.flameyossnowy.universal.api.annotations.enums.AuthType;
+import io.github.flameyossnowy.universal.api.annotations.enums.HttpMethod;
 import io.github.flameyossnowy.universal.api.annotations.enums.NetworkProtocol;
 import io.github.flameyossnowy.universal.api.cache.TransactionResult;
+import io.github.flameyossnowy.universal.api.options.Query;
 import io.github.flameyossnowy.universal.microservices.network.NetworkRepositoryAdapter;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,12 +38,14 @@ class NetworkRepositoryAdapterTest {
 
     @BeforeEach
     void setup() {
-        String baseUrl = server.url("/api").toString();
+        adapter = adapter(server, EndpointConfig.defaults());
+    }
 
-        adapter = new NetworkRepositoryAdapter<>(
+    static NetworkRepositoryAdapter<TestEntity, String> adapter(MockWebServer server, EndpointConfig endpoints) {
+        return new NetworkRepositoryAdapter<>(
                 TestEntity.class,
                 String.class,
-                baseUrl,
+                server.url("/api").toString(),
                 NetworkProtocol.REST,
                 AuthType.NONE,
                 null,
@@ -46,7 +55,7 @@ class NetworkRepositoryAdapterTest {
                 true,
                 5,
                 Map.of(),
-                EndpointConfig.defaults(),
+                endpoints,
                 new ObjectMapper()
         );
     }
@@ -121,4 +130,104 @@ class NetworkRepositoryAdapterTest {
         assertTrue(result.isSuccess());
         assertEquals("DELETE", server.takeRequest().getMethod());
     }
+
+    @Test
+    void existsByIdSendsHeadRequest() throws Exception {
+        try (MockWebServer own = new MockWebServer()) {
+            NetworkRepositoryAdapter<TestEntity, String> remote = adapter(own, EndpointConfig.defaults());
+            own.enqueue(new MockResponse().setResponseCode(200));
+            own.enqueue(new MockResponse().setResponseCode(404));
+
+            assertTrue(remote.exists(Query.select().where("id").eq("1").build()));
+            assertFalse(remote.exists(Query.select().where("id").eq("2").build()));
+
+            RecordedRequest found = own.takeRequest();
+            assertEquals("HEAD", found.getMethod());
+            assertEquals("/api/1", found.getPath());
+            assertEquals("/api/2", own.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    void countUsesCountEndpoint() throws Exception {
+        try (MockWebServer own = new MockWebServer()) {
+            EndpointConfig endpoints = new EndpointConfig("", "/{id}", "", "/{id}", "/{id}", HttpMethod.PUT, "/count");
+            NetworkRepositoryAdapter<TestEntity, String> remote = adapter(own, endpoints);
+            own.enqueue(new MockResponse().setResponseCode(200).setBody("3"));
+
+            assertEquals(3, remote.count(Query.select().where("name").eq("A").build()));
+
+            RecordedRequest request = own.takeRequest();
+            assertEquals("GET", request.getMethod());
+            assertEquals("/api/count?name=A", request.getPath());
+        }
+    }
+
+    @Test
+    void countWithoutCountEndpointListsEntities() throws Exception {
+        try (MockWebServer own = new MockWebServer()) {
+            NetworkRepositoryAdapter<TestEntity, String> remote = adapter(own, EndpointConfig.defaults());
+            own.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("""
+                    [{"id":"1","name":"A"},{"id":"2","name":"A"}]
+                """));
+
+            assertEquals(2, remote.count(Query.select().where("name").eq("A").build()));
+            assertEquals("/api?name=A", own.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    void findAllByIdSendsOneRequestForDistinctIds() throws Exception {
+        try (MockWebServer own = new MockWebServer()) {
+            EndpointConfig endpoints = new EndpointConfig("", "/{id}", "", "/{id}", "/{id}", HttpMethod.PUT, "", "/batch?ids={ids}");
+            NetworkRepositoryAdapter<TestEntity, String> remote = adapter(own, endpoints);
+            own.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("""
+                    [{"id":"1","name":"A"},{"id":"2","name":"B"},{"id":"3","name":"C"}]
+                """));
+
+            Map<String, TestEntity> found = remote.findAllById(List.of("1", "2", "3", "2"));
+
+            assertEquals(1, own.getRequestCount());
+            assertEquals("/api/batch?ids=1,2,3", own.takeRequest().getPath());
+            assertEquals(3, found.size());
+            assertEquals("B", found.get("2").getName());
+        }
+    }
+
+    @Test
+    void coalescedLookupsShareOneRequest() throws Exception {
+        try (MockWebServer own = new MockWebServer()) {
+            EndpointConfig endpoints = new EndpointConfig("", "/{id}", "", "/{id}", "/{id}", HttpMethod.PUT, "", "/batch?ids={ids}");
+            NetworkRepositoryAdapter<Coalesced, String> remote = new NetworkRepositoryAdapter<>(
+                    Coalesced.class, String.class, own.url("/api").toString(), NetworkProtocol.REST, AuthType.NONE,
+                    null, 1000, 1000, 1, false, 5, Map.of(), endpoints, new ObjectMapper());
+            own.enqueue(new MockResponse()
+                    .setResponseCode(200)
+                    .setBody("""
+                    [{"id":"1","name":"A"},{"id":"2","name":"B"},{"id":"3","name":"C"}]
+                """));
+
+            CompletableFuture<Coalesced> first = remote.findByIdAsync("1");
+            CompletableFuture<Coalesced> second = remote.findByIdAsync("2");
+            CompletableFuture<Coalesced> third = remote.findByIdAsync("3");
+
+            assertEquals("A", first.join().name);
+            assertEquals("B", second.join().name);
+            assertEquals("C", third.join().name);
+            assertEquals(1, own.getRequestCount());
+            assertEquals("/api/batch?ids=1,2,3", own.takeRequest().getPath());
+        }
+    }
+
+    @Repository(name = "coalesced")
+    @CoalescedLookups(windowMicros = 50_000)
+    public static class Coalesced {
+        @Id
+        public String id;
+        public String name;
+    }
 }
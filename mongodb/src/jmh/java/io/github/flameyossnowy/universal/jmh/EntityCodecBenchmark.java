@@ -0,0 +1,177 @@
+package io.github.flameyossnowy.universal.jmh;
+
+import com.mongodb.MongoClientSettings;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.mongodb.ObjectFactory;
+import io.github.flameyossnowy.universal.mongodb.codec.MongoTypeCodecProvider;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares converting an entity to and from BSON through the entity codec with converting it through an intermediate
+ * {@link Document}, the way the adapter did before. Run with {@code -prof gc} to compare the allocations as well.
+ */
+@SuppressWarnings("unused")
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class EntityCodecBenchmark {
+    private ObjectFactory<Player, UUID> objectFactory;
+    private Codec<Document> documentCodec;
+    private Codec<Player> entityCodec;
+
+    private Player player;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        RepositoryInformation information = RepositoryMetadata.getMetadata(Player.class);
+        TypeResolverRegistry typeResolverRegistry = new TypeResolverRegistry();
+        objectFactory = new ObjectFactory<>(information, typeResolverRegistry, Player.class, UUID.class);
+
+        CodecRegistry defaults = CodecRegistries.withUuidRepresentation(MongoClientSettings.getDefaultCodecRegistry(), UuidRepresentation.STANDARD);
+        CodecRegistry registry = CodecRegistries.fromRegistries(
+            CodecRegistries.fromProviders(MongoTypeCodecProvider.create(typeResolverRegistry, information, objectFactory)),
+            defaults
+        );
+
+        documentCodec = defaults.get(Document.class);
+        entityCodec = registry.get(Player.class);
+
+        player = new Player(UUID.randomUUID(), "FlameyosFlow", 42, 1_250_000L, 4.75, true, Instant.parse("2025-02-06T16:45:43.767Z"));
+        encoded = encodeWithEntityCodec();
+    }
+
+    @Benchmark
+    public byte[] encodeWithEntityCodec() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(256);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            entityCodec.encode(writer, player, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeThroughDocument() {
+        BasicOutputBuffer buffer = new BasicOutputBuffer(256);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            documentCodec.encode(writer, objectFactory.toDocument(player), EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public Player decodeWithEntityCodec() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded))) {
+            return entityCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Benchmark
+    public Player decodeThroughDocument() {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded))) {
+            return objectFactory.fromDocument(documentCodec.decode(reader, DecoderContext.builder().build()));
+        }
+    }
+
+    @Repository(name = "players")
+    public static class Player {
+        @Id
+        private UUID id;
+        private String name;
+        private int level;
+        private long balance;
+        private double rating;
+        private boolean online;
+        private Instant joined;
+
+        public Player(UUID id, String name, int level, long balance, double rating, boolean online, Instant joined) {
+            this.id = id;
+            this.name = name;
+            this.level = level;
+            this.balance = balance;
+            this.rating = rating;
+            this.online = online;
+            this.joined = joined;
+        }
+
+        public Player() {}
+
+        public UUID getId() {
+            return id;
+        }
+
+        public void setId(UUID id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public long getBalance() {
+            return balance;
+        }
+
+        public void setBalance(long balance) {
+            this.balance = balance;
+        }
+
+        public double getRating() {
+            return rating;
+        }
+
+        public void setRating(double rating) {
+            this.rating = rating;
+        }
+
+        public boolean isOnline() {
+            return online;
+        }
+
+        public void setOnline(boolean online) {
+            this.online = online;
+        }
+
+        public Instant getJoined() {
+            return joined;
+        }
+
+        public void setJoined(Instant joined) {
+            this.joined = joined;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.flameyossnowy.universal.mongodb;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import io.github.flameyossnowy.universal.api.cache.EntitySnapshotCache;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates repositories and builds the partial updates of entities, shared by the blocking and reactive adapters.
+ */
+final class EntityUpdates {
+    static final FindOneAndUpdateOptions RETURN_PREVIOUS = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE);
+
+    private static final Set<Class<?>> NUMBERS = Set.of(
+            Integer.class, Long.class, Float.class, Double.class,
+            Short.class, Byte.class, Character.class, int.class, long.class,
+            float.class, double.class, short.class, byte.class, char.class
+    );
+
+    private EntityUpdates() {}
+
+    /**
+     * Checks that the primary key, if the repository has one, can be stored as an {@code _id}.
+     *
+     * @throws IllegalArgumentException if the primary key is a number or auto-increment
+     */
+    static void checkPrimaryKey(@NotNull RepositoryInformation information) {
+        FieldData<?> primaryKey = information.getPrimaryKey();
+        // Sequences hand out numeric ids, which documents cannot use as their key
+        if (information.getSequence() != null)
+            throw new IllegalArgumentException("@Sequence is not supported by MongoDB, found on " + information.getRepositoryName());
+        if (primaryKey != null && (NUMBERS.contains(primaryKey.type()) || primaryKey.autoIncrement()))
+            throw new IllegalArgumentException("Primary key must not be of type number and/or must not be auto-increment");
+    }
+
+    /**
+     * The partial update of an entity. Collection deltas only give the intended result when the stored collections
+     * are still the ones the snapshot was taken from, so an update containing any is applied to the document only if
+     * they are, and the replacement is written otherwise.
+     *
+     * @param update the changed fields, with deltas for the collections that allow them
+     * @param guard the stored collections the deltas rely on, {@code null} if the update has no deltas
+     * @param replacement the changed fields, with every collection replaced as a whole
+     */
+    record Update(@NotNull Bson update, @Nullable Bson guard, @NotNull Bson replacement) {
+        /**
+         * Narrows the filter of the document to the stored collections the deltas rely on.
+         */
+        @NotNull Bson filter(@NotNull Bson document) {
+            return guard == null ? document : Filters.and(document, guard);
+        }
+
+        boolean guarded() {
+            return guard != null;
+        }
+    }
+
+    /**
+     * Builds an update containing only the fields that changed since the entity was loaded,
+     * or every stored field if no snapshot is available.
+     *
+     * @param doc the entity converted to a document
+     * @return the update, or {@code null} if nothing changed
+     */
+    static <T, ID> @Nullable Update create(@NotNull EntitySnapshotCache<ID, T> snapshots, ID id, T entity, @NotNull Document doc) {
+        long dirtyMask = snapshots.dirtyMask(id, entity);
+        FieldData<?>[] fields = snapshots.getFields();
+
+        List<Bson> updates = new ArrayList<>(fields.length);
+        List<Bson> replacements = new ArrayList<>(fields.length);
+        List<Bson> guards = new ArrayList<>(0);
+        for (int i = 0; i < fields.length; i++) {
+            FieldData<?> field = fields[i];
+            if (field.primary() || field.oneToMany() != null) continue;
+            if (field.oneToOne() != null && !field.oneToOne().mappedBy().isEmpty()) continue;
+            if (dirtyMask != EntitySnapshotCache.FULL_UPDATE && !EntitySnapshotCache.isDirty(dirtyMask, i)) continue;
+
+            String name = field.name();
+            Bson replacement = Updates.set(name, doc.get(name));
+            Object previous = snapshots.snapshotValue(id, i);
+            Bson delta = createDelta(name, previous, doc.get(name));
+
+            replacements.add(replacement);
+            if (delta == null) {
+                updates.add(replacement);
+            } else {
+                updates.add(delta);
+                guards.add(Filters.eq(name, asList((Collection<?>) previous)));
+            }
+        }
+        if (updates.isEmpty()) return null;
+
+        Bson replacement = Updates.combine(replacements);
+        if (guards.isEmpty()) return new Update(replacement, null, replacement);
+        return new Update(Updates.combine(updates), Filters.and(guards), replacement);
+    }
+
+    /**
+     * Builds the delta of a changed collection. Collections which only gained elements at their end are appended to
+     * with {@code $push}, and collections which only lost every occurrence of some values are pulled from with
+     * {@code $pullAll}, so their unchanged elements are not sent again.
+     *
+     * @param previous the value of the field when the entity was loaded, {@code null} if it is unknown
+     * @param stored the value of the field in the document of the entity
+     * @return the delta, or {@code null} if the field has to be replaced
+     */
+    static @Nullable Bson createDelta(@NotNull String name, @Nullable Object previous, @Nullable Object stored) {
+        if (!(previous instanceof Collection<?> before) || !(stored instanceof List<?> after)) return null;
+
+        List<?> old = asList(before);
+        if (after.size() > old.size() && after.subList(0, old.size()).equals(old)) {
+            return Updates.pushEach(name, new ArrayList<>(after.subList(old.size(), after.size())));
+        }
+
+        if (after.size() < old.size()) {
+            Set<Object> removed = new LinkedHashSet<>(old);
+            after.forEach(removed::remove);
+
+            List<Object> remaining = new ArrayList<>(after.size());
+            for (Object element : old) {
+                if (!removed.contains(element)) remaining.add(element);
+            }
+            if (remaining.equals(after)) return Updates.pullAll(name, new ArrayList<>(removed));
+        }
+        return null;
+    }
+
+    // Collections are stored as arrays in their iteration order
+    private static List<?> asList(Collection<?> collection) {
+        return collection instanceof List<?> list ? list : new ArrayList<>(collection);
+    }
+}
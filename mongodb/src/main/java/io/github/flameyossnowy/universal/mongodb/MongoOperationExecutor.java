@@ -7,6 +7,8 @@ import io.github.flameyossnowy.universal.api.operation.OperationContext;
 import io.github.flameyossnowy.universal.api.operation.OperationExecutor;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.Executor;
+
 /**
  * Operation executor for MongoDB repositories.
  *
@@ -75,4 +77,10 @@ public class MongoOperationExecutor<T, ID> implements OperationExecutor<ClientSe
             @NotNull OperationContext<ClientSession> context) {
         throw new UnsupportedOperationException("Remote operations not supported for MongoDB repositories");
     }
+
+    @Override
+    @NotNull
+    public Executor getAsyncExecutor() {
+        return adapter.getAsyncExecutor();
+    }
 }
@@ -1,6 +1,10 @@
 package io.github.flameyossnowy.universal.mongodb;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.*;
 import com.mongodb.client.model.*;
 import com.mongodb.client.result.DeleteResult;
@@ -9,6 +13,8 @@ import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import io.github.flameyossnowy.universal.api.*;
 import io.github.flameyossnowy.universal.api.IndexOptions;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
+import io.github.flameyossnowy.universal.api.annotations.ParallelScan;
 import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmType;
 import io.github.flameyossnowy.universal.api.annotations.enums.IndexType;
 import io.github.flameyossnowy.universal.api.cache.*;
@@ -17,6 +23,8 @@ import io.github.flameyossnowy.universal.api.exceptions.handler.DefaultException
 import io.github.flameyossnowy.universal.api.exceptions.handler.ExceptionHandler;
 import io.github.flameyossnowy.universal.api.listener.AuditLogger;
 import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+import io.github.flameyossnowy.universal.api.operation.AsyncExecutor;
 import io.github.flameyossnowy.universal.api.operation.OperationContext;
 import io.github.flameyossnowy.universal.api.operation.OperationExecutor;
 import io.github.flameyossnowy.universal.api.options.*;
@@ -26,20 +34,31 @@ import io.github.flameyossnowy.universal.api.reflect.*;
 import io.github.flameyossnowy.universal.api.resolver.ResolveWith;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
 import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.api.utils.PartitionedSpliterator;
 import io.github.flameyossnowy.universal.mongodb.annotations.MongoResolver;
+import io.github.flameyossnowy.universal.mongodb.changestream.ChangeStreamWatcher;
+import io.github.flameyossnowy.universal.mongodb.changestream.ResumeTokenStore;
+import io.github.flameyossnowy.universal.mongodb.codec.EmbeddedCodec;
 import io.github.flameyossnowy.universal.mongodb.codec.MongoTypeCodecProvider;
+import io.github.flameyossnowy.universal.mongodb.query.FilterTemplate;
 import io.github.flameyossnowy.universal.mongodb.query.MongoQueryValidator;
+import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLRUCache;
 import org.bson.*;
 import org.bson.codecs.*;
 import org.bson.codecs.configuration.*;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.jetbrains.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -51,8 +70,18 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     private final MongoClient client;
 
     private static final Document EMPTY = new Document();
+    private static final ReplaceOptions UPSERT = new ReplaceOptions().upsert(true);
+
+    // Used until the server reports its own limit, the default of every server since 3.6
+    private static final int DEFAULT_MAX_WRITE_BATCH_SIZE = 100_000;
+
+    // How long the change event of a write of this adapter is expected to take to arrive
+    private static final long OWN_WRITE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
 
     MongoCollection<Document> collection;
+
+    // The same collection, read and written through the entity codec instead of intermediate documents
+    MongoCollection<T> entities;
     private final ObjectFactory<T, ID> objectFactory;
     private final RepositoryInformation repositoryInformation;
     private final OperationContext<ClientSession> operationContext;
@@ -68,13 +97,35 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     @Nullable
     private final ReadThroughCache<ID, T> readThroughCache;
 
+    private final EntitySnapshotCache<ID, T> snapshots;
+
+    // Documents updated by this adapter while watching changes, their change events keep the snapshots in place
+    private final Map<ID, Long> ownWrites;
+
+    // Coalesces concurrent lookups that missed the L2 cache into one $in query
+    @Nullable
+    private final BatchingLoader<ID, T> idLoader;
+
+    // Runs the *Async methods, limited to the size of the driver connection pool by default
+    private AsyncExecutor asyncExecutor;
+    private final int maxConnections;
+
     private final Logger logger = LoggerFactory.getLogger(MongoRepositoryAdapter.class);
 
-    private static final Set<Class<?>> NUMBERS = Set.of(
-            Integer.class, Long.class, Float.class, Double.class,
-            Short.class, Byte.class, Character.class, int.class, long.class,
-            float.class, double.class, short.class, byte.class, char.class
-    );
+    private final MongoDatabase database;
+
+    // Read from the server on the first bulk write
+    private volatile int maxWriteBatchSize;
+    private boolean orderedBulkWrites = true;
+    private boolean lookupPrefetch;
+
+    // Defaults of every find, unless the query hints override them
+    private int batchSize;
+    private long maxTimeMillis;
+
+    // Evicts the cached entries of documents changed by other writers, if enabled
+    @Nullable
+    private ChangeStreamWatcher<T, ID> changeStreamWatcher;
 
     @Nullable
     private final AuditLogger<T> auditLogger;
@@ -82,6 +133,9 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     @Nullable
     private final EntityLifecycleListener<T> entityLifecycleListener;
 
+    @Nullable
+    private final EventPipeline eventPipeline;
+
     private final SessionCache<ID, T> globalCache;
     private long openSessions = 1;
 
@@ -112,9 +166,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         if (repositoryInformation == null)
             throw new IllegalArgumentException("Unable to find repository information for " + repo.getSimpleName());
 
-        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
-        if (primaryKey != null && (NUMBERS.contains(primaryKey.type()) || primaryKey.autoIncrement()))
-            throw new IllegalArgumentException("Primary key must not be of type number and/or must not be auto-increment");
+        EntityUpdates.checkPrimaryKey(repositoryInformation);
 
         this.idType = idType;
         this.elementType = repo;
@@ -128,6 +180,9 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         this.operationContext = new OperationContext<>(repositoryInformation, typeResolverRegistry, this.operationExecutor);
 
         RepositoryRegistry.register(this.repositoryInformation.getRepositoryName(), this);
+        // Before the object factory, which looks up the resolvers the fields declare
+        List<Codec<?>> codecs = new ArrayList<>(2);
+        List<IndexOptions> queued = initializeCodecs(clientBuilder, repositoryInformation, typeResolverRegistry, codecs);
         this.objectFactory = new ObjectFactory<>(this.repositoryInformation, typeResolverRegistry, repo, idType);
         if (cacheEnabled) {
             this.resultCache = resultCache;
@@ -138,12 +193,21 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             this.l2Cache = null;
             this.readThroughCache = null;
         }
-
-        List<Codec<?>> codecs = new ArrayList<>(2);
-        List<IndexOptions> queued = initializeCodecs(clientBuilder, repositoryInformation, typeResolverRegistry);
-
-        this.entityLifecycleListener = (EntityLifecycleListener<T>) repositoryInformation.getEntityLifecycleListener();
-        this.auditLogger = (AuditLogger<T>) repositoryInformation.getAuditLogger();
+        this.snapshots = new EntitySnapshotCache<>(repositoryInformation, cacheEnabled ? maxSize : 512);
+        this.ownWrites = new ConcurrentLRUCache<>(cacheEnabled ? maxSize : 512);
+        CoalescedLookups coalescedLookups = repositoryInformation.getCoalescedLookups();
+        this.idLoader = coalescedLookups == null
+            ? null
+            : new BatchingLoader<>(repositoryInformation.getRepositoryName(), coalescedLookups.windowMicros(), TimeUnit.MICROSECONDS, coalescedLookups.maxBatchSize(), this::loadAllFromDatabase);
+        this.maxConnections = getMaxConnections(clientBuilder);
+        this.asyncExecutor = AsyncExecutor.virtualThreads(maxConnections);
+
+        // The pipeline belongs to this adapter, other adapters of the entity keep theirs when this one is closed
+        this.eventPipeline = repositoryInformation.createEventPipeline();
+        EntityLifecycleListener<T> listener = (EntityLifecycleListener<T>) repositoryInformation.getEntityLifecycleListener();
+        AuditLogger<T> audit = (AuditLogger<T>) repositoryInformation.getAuditLogger();
+        this.entityLifecycleListener = eventPipeline == null ? listener : eventPipeline.wrap(listener);
+        this.auditLogger = eventPipeline == null ? audit : eventPipeline.wrap(audit);
 
         if (client == null) {
             CodecRegistry provider = getProvider(PojoCodecProvider.builder().automatic(true).build(), codecs, MongoClientSettings.getDefaultCodecRegistry());
@@ -153,8 +217,14 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             this.client = client;
         }
 
-        MongoDatabase database = this.client.getDatabase(dbName);
+        this.batchSize = repositoryInformation.getFetchPageSize();
+        this.database = this.client.getDatabase(dbName);
         this.collection = database.getCollection(repositoryInformation.getRepositoryName());
+        this.entities = collection.withDocumentClass(elementType).withCodecRegistry(entityRegistry(
+            MongoTypeCodecProvider.create(typeResolverRegistry, repositoryInformation, objectFactory),
+            codecs,
+            collection.getCodecRegistry()
+        ));
 
         if (client != null) {
             for (IndexOptions indexOptions : queued) {
@@ -173,17 +243,21 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             : new DefaultExceptionHandler<>();
     }
 
-    private static @NotNull List<IndexOptions> initializeCodecs(
-        MongoClientSettings.Builder clientBuilder,
+    /**
+     * Registers the type resolvers and codecs the fields of a repository declare, and queues its unique indexes
+     * if a client is built from the given settings.
+     * Resolvers are registered even without settings, the entity codec applies them to the values it reads and writes.
+     */
+    static @NotNull List<IndexOptions> initializeCodecs(
+        @Nullable MongoClientSettings.Builder clientBuilder,
         @NotNull RepositoryInformation repositoryInformation,
-        TypeResolverRegistry typeResolverRegistry
+        TypeResolverRegistry typeResolverRegistry,
+        List<Codec<?>> codecs
     ) {
-        if (clientBuilder == null) return List.of();
-        List<Codec<?>> codecs = new ArrayList<>(8);
         List<IndexOptions> queued = new ArrayList<>(8);
 
         for (FieldData<?> field : repositoryInformation.getFields()) {
-            if (field.unique()) {
+            if (clientBuilder != null && field.unique()) {
                 queued.add(IndexOptions.builder(repositoryInformation.getType())
                         .type(IndexType.UNIQUE)
                         .field(field)
@@ -211,28 +285,28 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             }
         }
 
-        // Create codec registry with our custom providers
-        CodecRegistry codecRegistry = CodecRegistries.fromRegistries(
-                fromProviders(
-                        MongoTypeCodecProvider.create(typeResolverRegistry, repositoryInformation),
-                        PojoCodecProvider.builder().automatic(true).build()
-                ),
-                MongoClientSettings.getDefaultCodecRegistry()
-        );
-
-        if (!codecs.isEmpty()) {
-            codecRegistry = CodecRegistries.fromRegistries(
-                    codecRegistry,
-                    CodecRegistries.fromCodecs(codecs)
-            );
+        if (clientBuilder != null) {
+            clientBuilder.codecRegistry(getProvider(PojoCodecProvider.builder().automatic(true).build(), codecs, MongoClientSettings.getDefaultCodecRegistry()));
         }
-
-        clientBuilder.codecRegistry(codecRegistry);
         return queued;
     }
 
-    private static @NotNull CodecRegistry getProvider(CodecProvider pojo, @NotNull List<Codec<?>> codecs, CodecRegistry registry) {
-        return codecs.isEmpty() ? fromProviders(registry, pojo) : fromProviders(registry, pojo, CodecRegistries.fromCodecs(codecs));
+    /**
+     * Builds the codec registry of a client, the codecs of the fields come first so they win over the defaults
+     * and over the automatic POJO codecs, which would otherwise claim every class.
+     */
+    static @NotNull CodecRegistry getProvider(CodecProvider pojo, @NotNull List<Codec<?>> codecs, CodecRegistry registry) {
+        return codecs.isEmpty() ? fromProviders(registry, pojo) : fromProviders(CodecRegistries.fromCodecs(codecs), registry, pojo);
+    }
+
+    /**
+     * Builds the codec registry of the entity collection, the entity codec first, then the codecs of the fields,
+     * then whatever the client uses.
+     */
+    static @NotNull CodecRegistry entityRegistry(CodecProvider entityCodecs, @NotNull List<Codec<?>> codecs, CodecRegistry clientRegistry) {
+        return codecs.isEmpty()
+            ? CodecRegistries.fromRegistries(fromProviders(entityCodecs), clientRegistry)
+            : CodecRegistries.fromRegistries(fromProviders(entityCodecs), CodecRegistries.fromCodecs(codecs), clientRegistry);
     }
 
     public static <T, ID> @NotNull MongoRepositoryAdapterBuilder<T, ID> builder(Class<T> repo, Class<ID> id) {
@@ -260,9 +334,25 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (cached != null) return cached;
         }
 
-        FindIterable<Document> iterable = process(query, collection.find(filterDoc), repositoryInformation.getFetchPageSize());
+        if (lookupPrefetch && !query.prefetch().isEmpty() && repositoryInformation.hasRelationships()) {
+            RelationshipLookups<T, ID> lookups = RelationshipLookups.plan(this, query.prefetch());
+            if (!lookups.isEmpty()) {
+                List<T> results = lookups.find(query, filterDoc);
+                if (resultCache != null) resultCache.insert(filterDoc, results, primaryKey::getValue);
+                return results;
+            }
+        }
+
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && PartitionedSpliterator.canSplit(query)) {
+            List<T> results = findAllPartitioned(query, parallelScan.partitions());
+            if (resultCache != null) resultCache.insert(filterDoc, results, primaryKey::getValue);
+            return results;
+        }
+
+        FindIterable<T> iterable = process(query, reading(entities, query).find(filterDoc));
         if (query.limit() == 1) {
-            T result = objectFactory.fromDocument(iterable.first());
+            T result = iterable.first();
             List<T> single = List.of(result);
             if (resultCache != null) {
                 resultCache.insert(filterDoc, single, primaryKey::getValue);
@@ -270,9 +360,9 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             return single;
         }
 
-        try (MongoCursor<Document> cursor = iterable.iterator()) {
+        try (MongoCursor<T> cursor = iterable.iterator()) {
             List<T> results = new ArrayList<>(cursor.available());
-            while (cursor.hasNext()) results.add(objectFactory.fromDocument(cursor.next()));
+            while (cursor.hasNext()) results.add(cursor.next());
             if (resultCache != null) {
                 resultCache.insert(filterDoc, results, primaryKey::getValue);
             }
@@ -280,6 +370,57 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         }
     }
 
+    @Override
+    public long count(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return 0;
+        }
+
+        Bson filter = createFilterBson(query.filters());
+        long cached = resultCache == null ? -1 : resultCache.fetchCount(filter);
+        if (cached >= 0) return cached;
+
+        CountOptions options = new CountOptions();
+        long maxTime = maxTimeMillis(query);
+        if (maxTime > 0) options.maxTime(maxTime, TimeUnit.MILLISECONDS);
+        if (query.hints().index() != null) options.hintString(query.hints().index());
+
+        long count = reading(collection, query).countDocuments(filter, options);
+        if (resultCache != null) resultCache.insertCount(filter, count);
+        return count;
+    }
+
+    /**
+     * Reads at most the {@code _id} of one matching document, unless the cached count or results already answer.
+     */
+    @Override
+    public boolean exists(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return false;
+        }
+
+        Bson filter = createFilterBson(query.filters());
+        if (resultCache != null) {
+            long count = resultCache.fetchCount(filter);
+            if (count >= 0) return count > 0;
+
+            List<T> cached = resultCache.fetch(filter);
+            if (cached != null) return !cached.isEmpty();
+        }
+
+        FindIterable<Document> iterable = reading(collection, query).find(filter).projection(Projections.include("_id")).limit(1);
+        long maxTime = maxTimeMillis(query);
+        if (maxTime > 0) iterable = iterable.maxTime(maxTime, TimeUnit.MILLISECONDS);
+        if (query.hints().index() != null) iterable = iterable.hintString(query.hints().index());
+        boolean exists = iterable.first() != null;
+        if (!exists && resultCache != null) resultCache.insertCount(filter, 0);
+        return exists;
+    }
+
     @Override
     public List<T> find() {
         FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
@@ -292,12 +433,16 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (cached != null) return cached;
         }
 
-        try (MongoCursor<Document> iterable = collection.find().iterator()) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null) {
+            List<T> results = findAllPartitioned(null, parallelScan.partitions());
+            if (resultCache != null) resultCache.insert(EMPTY, results, primaryKey::getValue);
+            return results;
+        }
+
+        try (MongoCursor<T> iterable = hinted(null, entities.find()).iterator()) {
             List<T> results = new ArrayList<>(iterable.available());
-            while (iterable.hasNext()) {
-                Document doc = iterable.next();
-                results.add(objectFactory.fromDocument(doc));
-            }
+            while (iterable.hasNext()) results.add(iterable.next());
 
             if (resultCache != null) resultCache.insert(EMPTY, results, primaryKey::getValue);
             return results;
@@ -360,25 +505,35 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         if (missing.isEmpty()) return result;
 
         String pk = "_id"; // MongoDB standard primary key field
-        FindIterable<Document> iterable = collection.find(in(pk, missing));
+        FindIterable<T> iterable = hinted(null, entities.find(in(pk, missing)));
 
-        try (MongoCursor<Document> cursor = iterable.iterator()) {
+        try (MongoCursor<T> cursor = iterable.iterator()) {
             while (cursor.hasNext()) {
-                T entity = objectFactory.fromDocument(cursor.next());
+                T entity = cursor.next();
                 ID id = primaryKey.getValue(entity);
                 result.put(id, entity);
                 globalCache.put(id, entity);
+                snapshots.capture(id, entity);
             }
         }
 
         return result;
     }
 
+    private List<T> findAllPartitioned(@Nullable SelectQuery query, int partitions) {
+        try (Stream<T> stream = findPartitioned(query, partitions)) {
+            return stream.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
     @Override
     public @NotNull CloseableIterator<T> findIterator(@NotNull SelectQuery query) {
         Bson filter = createFilterBson(query.filters());
-        FindIterable<Document> iterable = process(query, collection.find(filter), repositoryInformation.getFetchPageSize());
-        MongoCursor<Document> cursor = iterable.iterator();
+        return iterate(process(query, reading(entities, query).find(filter)));
+    }
+
+    private @NotNull CloseableIterator<T> iterate(@NotNull FindIterable<T> iterable) {
+        MongoCursor<T> cursor = iterable.iterator();
 
         return new CloseableIterator<>() {
             @Override
@@ -390,7 +545,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
 
             @Override
             public T next() {
-                return objectFactory.fromDocument(cursor.next());
+                return cursor.next();
             }
 
             @Override
@@ -402,6 +557,98 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
 
     @Override
     public @NotNull Stream<T> findStream(@NotNull SelectQuery query) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && PartitionedSpliterator.canSplit(query)) return findPartitioned(query, parallelScan.partitions());
+
+        return streamSequentially(query);
+    }
+
+    @Override
+    public @NotNull Stream<T> findPartitioned(@Nullable SelectQuery query, int partitions) {
+        SelectQuery selectQuery = query == null ? Query.select().build() : query;
+        if (partitions < 2 || !PartitionedSpliterator.canSplit(selectQuery)) return streamSequentially(selectQuery);
+
+        Bson filter = createFilterBson(selectQuery.filters());
+        List<Object> boundaries = splitIdRange(filter, partitions);
+        if (boundaries.isEmpty()) return streamSequentially(selectQuery);
+
+        // Open-ended first and last ranges also cover documents inserted outside the bounds while scanning
+        MongoCollection<T> source = reading(entities, selectQuery);
+        List<PartitionedSpliterator.Partition<T>> ranges = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0; i <= boundaries.size(); i++) {
+            List<Bson> conditions = new ArrayList<>(3);
+            conditions.add(filter);
+            if (i > 0) conditions.add(gte("_id", boundaries.get(i - 1)));
+            if (i < boundaries.size()) conditions.add(lt("_id", boundaries.get(i)));
+
+            Bson range = and(conditions);
+            ranges.add(() -> iterate(process(selectQuery, source.find(range))));
+        }
+
+        Logging.deepInfo(() -> "Scanning " + repositoryInformation.getRepositoryName() + " in " + ranges.size() + " _id ranges");
+        return PartitionedSpliterator.stream(ranges);
+    }
+
+    /**
+     * Splits the {@code _id}s matching the filter into ranges.
+     * Numeric ids are divided arithmetically and object ids by their timestamp, which only needs the smallest and
+     * largest id from the {@code _id} index. Other ids are split into buckets of equal size with {@code $bucketAuto}.
+     *
+     * @return the boundaries between the ranges, in ascending order
+     */
+    private @NotNull List<Object> splitIdRange(Bson filter, int partitions) {
+        Document first = collection.find(filter).projection(Projections.include("_id")).sort(Sorts.ascending("_id")).first();
+        Document last = collection.find(filter).projection(Projections.include("_id")).sort(Sorts.descending("_id")).first();
+        if (first == null || last == null) return List.of();
+
+        Object min = first.get("_id");
+        Object max = last.get("_id");
+        List<Object> boundaries = new ArrayList<>(partitions - 1);
+
+        if ((min instanceof Long || min instanceof Integer) && (max instanceof Long || max instanceof Integer)) {
+            long low = ((Number) min).longValue();
+            long span = ((Number) max).longValue() - low;
+            if (span <= 0) return List.of();
+
+            long previous = low;
+            for (int i = 1; i < partitions; i++) {
+                long boundary = low + span / partitions * i + span % partitions * i / partitions;
+                if (boundary > previous) boundaries.add(boundary);
+                previous = boundary;
+            }
+            return boundaries;
+        }
+
+        if (min instanceof ObjectId low && max instanceof ObjectId high) {
+            long span = (long) high.getTimestamp() - low.getTimestamp();
+            if (span <= 0) return List.of();
+
+            long previous = low.getTimestamp();
+            for (int i = 1; i < partitions; i++) {
+                long timestamp = low.getTimestamp() + span * i / partitions;
+                // The smallest object id of that second
+                if (timestamp > previous) boundaries.add(new ObjectId(String.format("%08x%016x", timestamp, 0L)));
+                previous = timestamp;
+            }
+            return boundaries;
+        }
+
+        List<Bson> pipeline = List.of(Aggregates.match(filter), Aggregates.bucketAuto("$_id", partitions));
+        boolean firstBucket = true;
+        for (Document bucket : collection.aggregate(pipeline).allowDiskUse(true)) {
+            // The first bucket starts at the smallest id, the ranges are open-ended there
+            if (firstBucket) {
+                firstBucket = false;
+                continue;
+            }
+
+            Document range = bucket.get("_id", Document.class);
+            if (range != null) boundaries.add(range.get("min"));
+        }
+        return boundaries;
+    }
+
+    private @NotNull Stream<T> streamSequentially(@NotNull SelectQuery query) {
         CloseableIterator<T> iterator = findIterator(query);
 
         // Convert iterator to stream and ensure close is called when stream ends
@@ -423,63 +670,199 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             throw new IllegalArgumentException("Primary key not found for " + repositoryInformation.getRepositoryName());
         }
 
+        if (idLoader != null) return idLoader.load(key);
+
         Document filter = new Document("_id", key);
-        Document doc = collection.find(filter).first();
+        T result = hinted(null, entities.find(filter)).first();
+        if (result != null) {
+            if (resultCache != null) resultCache.insert(filter, List.of(result), primaryKey::getValue);
+            snapshots.capture(key, result);
+        }
+        return result;
+    }
 
-        if (doc == null) {
-            return null;
+    private Map<ID, T> loadAllFromDatabase(Collection<ID> keys) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found for " + repositoryInformation.getRepositoryName());
         }
 
-        T result = objectFactory.fromDocument(doc);
-        if (result != null) {
-            if (resultCache != null) resultCache.insert(filter, List.of(result), primaryKey::getValue);
+        Map<ID, T> result = new HashMap<>(keys.size());
+        try (MongoCursor<T> cursor = hinted(null, entities.find(in("_id", keys))).iterator()) {
+            while (cursor.hasNext()) {
+                T entity = cursor.next();
+                ID id = primaryKey.getValue(entity);
+                result.put(id, entity);
+                snapshots.capture(id, entity);
+                // Every key of the batch is cached, not only the one whose lookup started it
+                if (l2Cache != null) l2Cache.put(id, entity);
+                if (readThroughCache != null) readThroughCache.put(id, entity);
+            }
         }
         return result;
     }
 
     @Override
-    public T first(SelectQuery query) {
-        return this.objectFactory.fromDocument(search(query).first());
+    public CompletableFuture<T> findByIdAsync(ID id) {
+        if (idLoader == null) return RepositoryAdapter.super.findByIdAsync(id);
+
+        T cached = l2Cache != null ? l2Cache.get(id) : null;
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        // The caller thread is not blocked while the batch is collected, the batch fills the caches and snapshots
+        return idLoader.loadAsync(id);
     }
 
-    private FindIterable<Document> search(SelectQuery query) {
-        return process(query, collection.find(createFilterBson(query.filters())), repositoryInformation.getFetchPageSize());
+    /**
+     * Runs the aggregate query as a {@code $match}, {@code $group}, {@code $project} pipeline, followed by a
+     * {@code $match} of the having conditions and the sort and limit stages.
+     */
+    @Override
+    public @NotNull List<Map<String, Object>> aggregate(@NotNull AggregateQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query.toSelectQuery());
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return List.of();
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (MongoCursor<Document> cursor = collection.aggregate(createAggregatePipeline(query)).allowDiskUse(true).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (String field : query.groupBy()) row.put(field, document.get(field));
+                for (Aggregation aggregation : query.aggregations()) {
+                    FieldData<?> field = aggregation.field() == null ? null : repositoryInformation.getField(aggregation.field());
+                    row.put(aggregation.alias(), aggregation.normalize(document.get(aggregation.alias()), field == null ? null : field.type()));
+                }
+                rows.add(row);
+            }
+        } catch (Exception e) {
+            this.exceptionHandler.handleRead(e, repositoryInformation, query.toSelectQuery(), this);
+            return List.of();
+        }
+
+        // $group yields no document without input, unlike the single row of an SQL aggregate without groups
+        if (rows.isEmpty() && query.groupBy().isEmpty()) {
+            try (Stream<T> empty = Stream.empty()) {
+                return AggregateEvaluator.evaluate(query, repositoryInformation, empty);
+            }
+        }
+        return rows;
     }
 
-    private static <T> FindIterable<T> process(@NotNull SelectQuery query, FindIterable<T> iterable, int pageSize) {
-        if (pageSize > 0) iterable = iterable.batchSize(pageSize);
-        if (query.limit() != -1) iterable = iterable.limit(query.limit());
+    static @NotNull List<Bson> createAggregatePipeline(@NotNull AggregateQuery query) {
+        List<Bson> pipeline = new ArrayList<>(6);
+        if (!query.filters().isEmpty()) pipeline.add(Aggregates.match(createFilterBson(query.filters())));
+
+        Object groupId = null;
+        if (query.groupBy().size() == 1) {
+            groupId = "$" + query.groupBy().get(0);
+        } else if (!query.groupBy().isEmpty()) {
+            Document compound = new Document();
+            for (String field : query.groupBy()) compound.append(field, "$" + field);
+            groupId = compound;
+        }
+
+        List<BsonField> accumulators = new ArrayList<>(query.aggregations().size());
+        Document projection = new Document("_id", 0);
+        for (String field : query.groupBy()) projection.append(field, query.groupBy().size() == 1 ? "$_id" : "$_id." + field);
+
+        for (Aggregation aggregation : query.aggregations()) {
+            String alias = aggregation.alias();
+            String field = "$" + aggregation.field();
+            switch (aggregation.function()) {
+                case COUNT -> accumulators.add(aggregation.field() == null
+                    ? Accumulators.sum(alias, 1)
+                    // Counts the documents where the field is present and not null
+                    : Accumulators.sum(alias, new Document("$cond", List.of(new Document("$eq", Arrays.asList(new Document("$ifNull", Arrays.asList(field, null)), null)), 0, 1))));
+                case COUNT_DISTINCT -> accumulators.add(Accumulators.addToSet(alias, field));
+                case SUM -> accumulators.add(Accumulators.sum(alias, field));
+                case AVG -> accumulators.add(Accumulators.avg(alias, field));
+                case MIN -> accumulators.add(Accumulators.min(alias, field));
+                case MAX -> accumulators.add(Accumulators.max(alias, field));
+            }
+
+            projection.append(alias, aggregation.function() != AggregateFunction.COUNT_DISTINCT
+                ? "$" + alias
+                : new Document("$size", new Document("$filter", new Document("input", "$" + alias).append("cond", new Document("$ne", Arrays.asList("$$this", null))))));
+        }
+
+        pipeline.add(Aggregates.group(groupId, accumulators));
+        pipeline.add(Aggregates.project(projection));
+        if (!query.having().isEmpty()) pipeline.add(Aggregates.match(createFilterBson(query.having())));
         if (!query.sortOptions().isEmpty()) {
             List<Bson> sorts = query.sortOptions().stream()
                     .map(o -> o.order() == SortOrder.ASCENDING ? Sorts.ascending(o.field()) : Sorts.descending(o.field()))
                     .toList();
-            iterable = iterable.sort(Sorts.orderBy(sorts));
+            pipeline.add(Aggregates.sort(Sorts.orderBy(sorts)));
         }
+        if (query.limit() != -1) pipeline.add(Aggregates.limit(query.limit()));
+        return pipeline;
+    }
+
+    @Override
+    public T first(SelectQuery query) {
+        return search(query).first();
+    }
+
+    private FindIterable<T> search(SelectQuery query) {
+        return process(query, reading(entities, query).find(createFilterBson(query.filters())));
+    }
+
+    private <C> FindIterable<C> process(@NotNull SelectQuery query, FindIterable<C> iterable) {
+        iterable = hinted(query, iterable);
+        if (query.limit() != -1) iterable = iterable.limit(query.limit());
+        if (!query.sortOptions().isEmpty()) iterable = iterable.sort(createSortBson(query.sortOptions()));
         return iterable;
     }
 
-    private static void processExpression(@NotNull List<Bson> filters, @NotNull SelectOption option, Object value) {
-        filters.add(switch (option.operator()) {
-            case "=" -> eq(option.option(), value);
-            case ">" -> gt(option.option(), value);
-            case "<" -> lt(option.option(), value);
-            case ">=" -> gte(option.option(), value);
-            case "<=" -> lte(option.option(), value);
-            default -> throw new IllegalArgumentException("Unsupported filter operation: " + option.operator());
-        });
+    // Reads without a query of their own still get the batch size and time limit of the repository
+    private <C> FindIterable<C> hinted(@Nullable SelectQuery query, FindIterable<C> iterable) {
+        int pageSize = query == null ? batchSize : batchSize(query);
+        if (pageSize > 0) iterable = iterable.batchSize(pageSize);
+        long maxTime = query == null ? maxTimeMillis : maxTimeMillis(query);
+        if (maxTime > 0) iterable = iterable.maxTime(maxTime, TimeUnit.MILLISECONDS);
+        if (query != null && query.hints().index() != null) iterable = iterable.hintString(query.hints().index());
+        return iterable;
     }
 
-    private static Bson createFilterBson(List<SelectOption> options) {
-        if (options.isEmpty()) {
-            return new BsonDocument();
-        }
+    int batchSize(@NotNull SelectQuery query) {
+        return query.hints().batchSize() > 0 ? query.hints().batchSize() : batchSize;
+    }
 
-        List<Bson> filters = new ArrayList<>(options.size());
-        for (SelectOption option : options) {
-            processExpression(filters, option, option.value());
-        }
+    long maxTimeMillis(@NotNull SelectQuery query) {
+        return query.hints().maxTimeMillis() > 0 ? query.hints().maxTimeMillis() : maxTimeMillis;
+    }
+
+    /**
+     * @return the collection reading from the members preferred by the query, or the collection itself
+     */
+    <C> @NotNull MongoCollection<C> reading(@NotNull MongoCollection<C> collection, @NotNull SelectQuery query) {
+        ReadPreference readPreference = toReadPreference(query.hints().readPreference());
+        return readPreference == null ? collection : collection.withReadPreference(readPreference);
+    }
+
+    static @Nullable ReadPreference toReadPreference(@NotNull ReadPreferenceMode mode) {
+        return switch (mode) {
+            case DEFAULT -> null;
+            case PRIMARY -> ReadPreference.primary();
+            case PRIMARY_PREFERRED -> ReadPreference.primaryPreferred();
+            case SECONDARY -> ReadPreference.secondary();
+            case SECONDARY_PREFERRED -> ReadPreference.secondaryPreferred();
+            case NEAREST -> ReadPreference.nearest();
+        };
+    }
+
+    static @NotNull Bson createSortBson(@NotNull List<SortOption> sortOptions) {
+        List<Bson> sorts = sortOptions.stream()
+                .map(o -> o.order() == SortOrder.ASCENDING ? Sorts.ascending(o.field()) : Sorts.descending(o.field()))
+                .toList();
+        return Sorts.orderBy(sorts);
+    }
 
-        return and(filters);
+    static Bson createFilterBson(List<SelectOption> options) {
+        return FilterTemplate.createFilter(options);
     }
 
     private void invalidate(Bson filters) {
@@ -501,9 +884,8 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (entityLifecycleListener != null) {
                 entityLifecycleListener.onPreInsert(value);
             }
-            if (repositoryInformation.getAuditLogger() != null)
-                ((AuditLogger<T>) repositoryInformation.getAuditLogger()).onInsert(value);
-            InsertOneResult result = collection.insertOne(tx.connection(), objectFactory.toDocument(value));
+            if (auditLogger != null) auditLogger.onInsert(value);
+            InsertOneResult result = entities.insertOne(tx.connection(), value);
             try {
                 ID id = repositoryInformation.getPrimaryKey().getValue(value);
                 if (resultCache != null) {
@@ -533,9 +915,8 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         }
 
         try {
-            if (repositoryInformation.getAuditLogger() != null)
-                ((AuditLogger<T>) repositoryInformation.getAuditLogger()).onInsert(value);
-            InsertOneResult result = collection.insertOne(objectFactory.toDocument(value));
+            if (auditLogger != null) auditLogger.onInsert(value);
+            InsertOneResult result = entities.insertOne(value);
             invalidate();
             try {
                 ID id = primaryKey.getValue(value);
@@ -557,10 +938,8 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     @Override
     public TransactionResult<Boolean> insertAll(Collection<T> values, @NotNull TransactionContext<ClientSession> tx) {
         try {
-            if (repositoryInformation.getAuditLogger() != null)
-                ((AuditLogger<T>) repositoryInformation.getAuditLogger()).onInsert(values);
-            List<Document> docs = values.stream().map(objectFactory::toDocument).toList();
-            InsertManyResult result = collection.insertMany(tx.connection(), docs);
+            if (auditLogger != null) auditLogger.onInsert(values);
+            InsertManyResult result = entities.insertMany(tx.connection(), List.copyOf(values));
             invalidate();
 
             return TransactionResult.success(result.wasAcknowledged());
@@ -572,8 +951,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     @Override
     public TransactionResult<Boolean> insertAll(Collection<T> values) {
         try {
-            List<Document> docs = values.stream().map(objectFactory::toDocument).toList();
-            InsertManyResult result = collection.insertMany(docs);
+            InsertManyResult result = entities.insertMany(List.copyOf(values));
             invalidate();
 
             return TransactionResult.success(result.wasAcknowledged());
@@ -582,6 +960,271 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         }
     }
 
+    @Override
+    public TransactionResult<Boolean> updateAll(@NotNull Collection<T> values, @NotNull TransactionContext<ClientSession> tx) {
+        return bulkUpdate(values, tx.connection());
+    }
+
+    @Override
+    public TransactionResult<Boolean> updateAll(@NotNull Collection<T> values) {
+        return bulkUpdate(values, null);
+    }
+
+    @Override
+    public TransactionResult<Boolean> deleteAll(@NotNull Collection<T> values, @NotNull TransactionContext<ClientSession> tx) {
+        return bulkDelete(idsOf(values), values, tx.connection());
+    }
+
+    @Override
+    public TransactionResult<Boolean> deleteAllById(@NotNull Collection<ID> ids, @NotNull TransactionContext<ClientSession> tx) {
+        return bulkDelete(List.copyOf(ids), null, tx.connection());
+    }
+
+    @Override
+    public TransactionResult<Boolean> deleteAllById(@NotNull Collection<ID> ids) {
+        return bulkDelete(List.copyOf(ids), null, null);
+    }
+
+    /**
+     * Replaces every entity by its ID in one bulk write, inserting the ones that do not exist yet.
+     * <p>
+     * Whether an entity was inserted or replaced is only known once the write completes,
+     * so the lifecycle listener and audit logger are not called.
+     */
+    @Override
+    public TransactionResult<Boolean> upsertAll(@NotNull Collection<T> values, @NotNull TransactionContext<ClientSession> tx) {
+        return bulkUpsert(values, tx.connection());
+    }
+
+    /**
+     * Replaces every entity by its ID in one bulk write, inserting the ones that do not exist yet.
+     * <p>
+     * Whether an entity was inserted or replaced is only known once the write completes,
+     * so the lifecycle listener and audit logger are not called.
+     */
+    @Override
+    public TransactionResult<Boolean> upsertAll(@NotNull Collection<T> values) {
+        return bulkUpsert(values, null);
+    }
+
+    private TransactionResult<Boolean> bulkUpdate(@NotNull Collection<T> values, @Nullable ClientSession session) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found for " + repositoryInformation.getRepositoryName());
+        }
+        if (values.isEmpty()) return TransactionResult.success(true);
+
+        try {
+            List<ID> ids = new ArrayList<>(values.size());
+            List<WriteModel<T>> writes = new ArrayList<>(values.size());
+            for (T entity : values) {
+                if (entityLifecycleListener != null) entityLifecycleListener.onPreUpdate(entity);
+
+                Document doc = objectFactory.toDocument(entity);
+                ID id = doc.get(primaryKey.name(), idType);
+                ids.add(id);
+
+                // Entities without changed fields since they were loaded are left out of the batch, and collections
+                // are replaced since a bulk write does not tell which guarded update missed its document
+                EntityUpdates.Update update = EntityUpdates.create(snapshots, id, entity, doc);
+                if (update != null) {
+                    writes.add(new UpdateOneModel<>(new Document("_id", id), update.replacement()));
+                    if (session == null) recordOwnWrite(id);
+                }
+            }
+
+            Map<ID, T> previous = auditLogger != null && !writes.isEmpty() ? findPrevious(ids, session) : Map.of();
+            BulkWriteCounts counts = bulkWrite(session, writes, ids);
+
+            int index = 0;
+            for (T entity : values) {
+                ID id = ids.get(index++);
+                if (id == null) continue;
+
+                if (globalCache != null) globalCache.put(id, entity);
+                // A caller's session can still abort, then the document no longer matches the entity
+                if (session == null) snapshots.capture(id, entity);
+                else snapshots.remove(id);
+                if (auditLogger != null) {
+                    T replaced = previous.get(id);
+                    if (replaced != null) auditLogger.onUpdate(entity, replaced);
+                }
+                if (entityLifecycleListener != null) entityLifecycleListener.onPostUpdate(entity);
+            }
+
+            Logging.deepInfo(() -> "Updated " + writes.size() + " of " + values.size() + " " + repositoryInformation.getRepositoryName() + " in bulk writes");
+            return TransactionResult.success(!counts.acknowledged() || counts.matched() == writes.size());
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+    }
+
+    private TransactionResult<Boolean> bulkDelete(@NotNull List<ID> ids, @Nullable Collection<T> values, @Nullable ClientSession session) {
+        if (ids.isEmpty()) return TransactionResult.success(true);
+
+        try {
+            if (values != null && entityLifecycleListener != null) {
+                for (T entity : values) entityLifecycleListener.onPreDelete(entity);
+            }
+
+            // Without the entities, the audit logger is given the documents as they were before the deletion
+            Collection<T> deleted = values;
+            if (auditLogger != null && deleted == null) deleted = findPrevious(ids, session).values();
+
+            List<WriteModel<T>> writes = new ArrayList<>(ids.size());
+            for (ID id : ids) writes.add(new DeleteOneModel<>(new Document("_id", id)));
+            BulkWriteCounts counts = bulkWrite(session, writes, ids);
+
+            if (auditLogger != null) {
+                for (T entity : deleted) auditLogger.onDelete(entity);
+            }
+            if (values != null && entityLifecycleListener != null) {
+                for (T entity : values) entityLifecycleListener.onPostDelete(entity);
+            }
+
+            Logging.deepInfo(() -> "Deleted " + ids.size() + " " + repositoryInformation.getRepositoryName() + " in bulk writes");
+            return TransactionResult.success(!counts.acknowledged() || counts.deleted() == ids.size());
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+    }
+
+    private TransactionResult<Boolean> bulkUpsert(@NotNull Collection<T> values, @Nullable ClientSession session) {
+        if (values.isEmpty()) return TransactionResult.success(true);
+
+        try {
+            List<ID> ids = idsOf(values);
+            List<WriteModel<T>> writes = new ArrayList<>(values.size());
+            int index = 0;
+            for (T entity : values) writes.add(new ReplaceOneModel<>(new Document("_id", ids.get(index++)), entity, UPSERT));
+            if (session == null) {
+                for (ID id : ids) recordOwnWrite(id);
+            }
+
+            BulkWriteCounts counts = bulkWrite(session, writes, ids);
+            // Inserted documents may match any cached query
+            invalidate();
+
+            index = 0;
+            for (T entity : values) {
+                ID id = ids.get(index++);
+                if (id == null) continue;
+                if (globalCache != null) globalCache.put(id, entity);
+                if (session == null) snapshots.capture(id, entity);
+                else snapshots.remove(id);
+            }
+
+            Logging.deepInfo(() -> "Upserted " + values.size() + " " + repositoryInformation.getRepositoryName() + " in bulk writes");
+            return TransactionResult.success(!counts.acknowledged() || counts.matched() + counts.upserted() == values.size());
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+    }
+
+    /**
+     * Runs the writes as bulk writes of at most {@code maxWriteBatchSize} operations each. The driver splits every
+     * bulk write further into messages below the maximum message size of the server.
+     * <p>
+     * Ordered bulk writes stop at the first failing write. Unordered ones attempt every write, including the chunks
+     * after a failing one, and throw the first failure at the end.
+     * The cached entries of the written IDs are evicted once all chunks complete, whether they failed or not.
+     */
+    private @NotNull BulkWriteCounts bulkWrite(@Nullable ClientSession session, @NotNull List<WriteModel<T>> writes, @NotNull List<ID> ids) {
+        BulkWriteOptions options = new BulkWriteOptions().ordered(orderedBulkWrites);
+        int chunkSize = getMaxWriteBatchSize();
+
+        boolean acknowledged = true;
+        int matched = 0;
+        int deleted = 0;
+        int upserted = 0;
+        MongoBulkWriteException failure = null;
+
+        try {
+            for (int start = 0; start < writes.size(); start += chunkSize) {
+                List<WriteModel<T>> chunk = writes.subList(start, Math.min(writes.size(), start + chunkSize));
+
+                BulkWriteResult result;
+                try {
+                    result = session == null ? entities.bulkWrite(chunk, options) : entities.bulkWrite(session, chunk, options);
+                } catch (MongoBulkWriteException e) {
+                    if (orderedBulkWrites) throw e;
+                    if (failure == null) failure = e;
+                    continue;
+                }
+
+                if (!result.wasAcknowledged()) {
+                    acknowledged = false;
+                    continue;
+                }
+                matched += result.getMatchedCount();
+                deleted += result.getDeletedCount();
+                upserted += result.getUpserts().size();
+            }
+        } finally {
+            for (ID id : ids) {
+                if (id == null) continue;
+                if (globalCache != null) globalCache.remove(id);
+                snapshots.remove(id);
+                if (resultCache != null) resultCache.invalidate(id);
+                if (l2Cache != null) l2Cache.invalidate(id);
+                if (readThroughCache != null) readThroughCache.invalidate(id);
+            }
+        }
+
+        if (failure != null) throw failure;
+        return new BulkWriteCounts(acknowledged, matched, deleted, upserted);
+    }
+
+    private record BulkWriteCounts(boolean acknowledged, int matched, int deleted, int upserted) {}
+
+    // Unacknowledged writes carry no counts, they are reported as successful once sent
+    private static boolean deleted(@NotNull DeleteResult result) {
+        return !result.wasAcknowledged() || result.getDeletedCount() > 0;
+    }
+
+    private static boolean modified(@NotNull UpdateResult result) {
+        return !result.wasAcknowledged() || result.getModifiedCount() > 0;
+    }
+
+    private int getMaxWriteBatchSize() {
+        int size = maxWriteBatchSize;
+        if (size > 0) return size;
+
+        try {
+            size = database.runCommand(new Document("hello", 1)).getInteger("maxWriteBatchSize", DEFAULT_MAX_WRITE_BATCH_SIZE);
+        } catch (Exception e) {
+            Logging.warn("Unable to read maxWriteBatchSize from the server, using " + DEFAULT_MAX_WRITE_BATCH_SIZE + ": " + e.getMessage());
+            size = DEFAULT_MAX_WRITE_BATCH_SIZE;
+        }
+        maxWriteBatchSize = size;
+        return size;
+    }
+
+    private @NotNull Map<ID, T> findPrevious(@NotNull List<ID> ids, @Nullable ClientSession session) {
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+        Bson filter = in("_id", ids);
+
+        Map<ID, T> previous = new HashMap<>(ids.size());
+        try (MongoCursor<T> cursor = (session == null ? entities.find(filter) : entities.find(session, filter)).iterator()) {
+            while (cursor.hasNext()) {
+                T entity = cursor.next();
+                previous.put(primaryKey.getValue(entity), entity);
+            }
+        }
+        return previous;
+    }
+
+    private @NotNull List<ID> idsOf(@NotNull Collection<T> values) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key not found for " + repositoryInformation.getRepositoryName());
+        }
+
+        List<ID> ids = new ArrayList<>(values.size());
+        for (T entity : values) ids.add(primaryKey.getValue(entity));
+        return ids;
+    }
+
     @Override
     public TransactionResult<Boolean> updateAll(@NotNull T entity, TransactionContext<ClientSession> tx) {
         FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
@@ -599,18 +1242,32 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             Document doc = objectFactory.toDocument(entity);
             ID id = doc.get(primaryKey.name(), idType);
 
-            Document replaced = collection.findOneAndUpdate(new Document(primaryKey.name(), id), doc);
+            EntityUpdates.Update update = EntityUpdates.create(snapshots, id, entity, doc);
+            if (update == null) {
+                Logging.deepInfo(() -> "No changed fields for " + repositoryInformation.getRepositoryName() + " id=" + id + ", skipping update.");
+                return TransactionResult.success(true);
+            }
+
+            // The returned document is the state before the update, so the audit logger needs no extra read
+            Document filter = new Document(primaryKey.name(), id);
+            T replaced = entities.findOneAndUpdate(tx.connection(), update.filter(filter), update.update(), EntityUpdates.RETURN_PREVIOUS);
+            // The stored collections changed since the snapshot, so they are replaced instead
+            if (replaced == null && update.guarded()) {
+                replaced = entities.findOneAndUpdate(tx.connection(), filter, update.replacement(), EntityUpdates.RETURN_PREVIOUS);
+            }
 
             if (id != null) {
                 globalCache.put(id, entity);
+                // The transaction can still roll back, then the document no longer matches the entity
+                snapshots.remove(id);
                 if (l2Cache != null) {
                     l2Cache.invalidate(id);
                 }
                 if (readThroughCache != null) {
                     readThroughCache.invalidate(id);
                 }
-                if (auditLogger != null) {
-                    auditLogger.onUpdate(entity, objectFactory.fromDocument(replaced));
+                if (auditLogger != null && replaced != null) {
+                    auditLogger.onUpdate(entity, replaced);
                 }
             }
 
@@ -637,12 +1294,25 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             Document doc = objectFactory.toDocument(entity);
             ID id = doc.get(primaryKey.name(), idType);
 
-            Document replaced = collection.findOneAndUpdate(new Document(primaryKey.name(), id), doc);
+            EntityUpdates.Update update = EntityUpdates.create(snapshots, id, entity, doc);
+            if (update == null) {
+                Logging.deepInfo(() -> "No changed fields for " + repositoryInformation.getRepositoryName() + " id=" + id + ", skipping update.");
+                return TransactionResult.success(true);
+            }
+
+            Document filter = new Document(primaryKey.name(), id);
+            recordOwnWrite(id);
+            T replaced = entities.findOneAndUpdate(update.filter(filter), update.update(), EntityUpdates.RETURN_PREVIOUS);
+            // The stored collections changed since the snapshot, so they are replaced instead
+            if (replaced == null && update.guarded()) {
+                replaced = entities.findOneAndUpdate(filter, update.replacement(), EntityUpdates.RETURN_PREVIOUS);
+            }
 
             if (id != null) {
                 globalCache.put(id, entity);
-                if (auditLogger != null) {
-                    auditLogger.onUpdate(entity, objectFactory.fromDocument(replaced));
+                snapshots.capture(id, entity);
+                if (auditLogger != null && replaced != null) {
+                    auditLogger.onUpdate(entity, replaced);
                 }
             }
 
@@ -669,6 +1339,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
                 entityLifecycleListener.onPreDelete(entity);
             }
             globalCache.remove(id);
+            snapshots.remove(id);
             if (l2Cache != null) {
                 l2Cache.invalidate(id);
             }
@@ -686,7 +1357,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (entityLifecycleListener != null) {
                 entityLifecycleListener.onPostDelete(entity);
             }
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -702,12 +1373,23 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         try {
             // Use "_id" for MongoDB standard
             Document filter = new Document("_id", value);
+            if (auditLogger != null) {
+                // findOneAndDelete hands back the removed document, sparing a findById for the audit logger
+                T deleted = entities.findOneAndDelete(transactionContext.connection(), filter);
+                if (globalCache != null) globalCache.remove(value);
+                snapshots.remove(value);
+                invalidate(filter);
+                if (deleted != null) auditLogger.onDelete(deleted);
+                return TransactionResult.success(deleted != null);
+            }
+
             DeleteResult result = collection.deleteOne(transactionContext.connection(), filter);
 
             if (globalCache != null) globalCache.remove(value);
+            snapshots.remove(value);
             invalidate(filter);
 
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -723,12 +1405,22 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         try {
             // Use "_id" for MongoDB standard
             Document filter = new Document("_id", value);
+            if (auditLogger != null) {
+                T deleted = entities.findOneAndDelete(filter);
+                if (globalCache != null) globalCache.remove(value);
+                snapshots.remove(value);
+                invalidate(filter);
+                if (deleted != null) auditLogger.onDelete(deleted);
+                return TransactionResult.success(deleted != null);
+            }
+
             DeleteResult result = collection.deleteOne(filter);
 
             if (globalCache != null) globalCache.remove(value);
+            snapshots.remove(value);
             invalidate(filter);
 
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -737,7 +1429,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
     @Override
     public TransactionResult<Boolean> updateAll(@NotNull UpdateQuery query, TransactionContext<ClientSession> tx) {
         try {
-            MongoUpdateResult mongoUpdateResult = getMongoUpdateResult(query);
+            MongoUpdateResult mongoUpdateResult = getMongoUpdateResult(query, objectFactory);
             List<Bson> conditions = mongoUpdateResult.conditions(), updates = mongoUpdateResult.updates();
             UpdateResult result = collection.updateMany(
                     tx.connection(),
@@ -745,7 +1437,8 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
                     Updates.combine(updates)
             );
             invalidate(createFilterBson(query.filters()));
-            return TransactionResult.success(result.getModifiedCount() > 0);
+            snapshots.clear();
+            return TransactionResult.success(modified(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -760,29 +1453,45 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         }
         
         try {
-            MongoUpdateResult mongoUpdateResult = getMongoUpdateResult(query);
+            MongoUpdateResult mongoUpdateResult = getMongoUpdateResult(query, objectFactory);
             UpdateResult result = collection.updateMany(
                     mongoUpdateResult.conditions().isEmpty()
                             ? new Document()
                             : and(mongoUpdateResult.conditions()),
                     Updates.combine(mongoUpdateResult.updates()));
             invalidate(createFilterBson(query.filters()));
-            return TransactionResult.success(result.getModifiedCount() > 0);
+            snapshots.clear();
+            return TransactionResult.success(modified(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
     }
 
-    private static MongoUpdateResult getMongoUpdateResult(@NotNull UpdateQuery query) {
+    static MongoUpdateResult getMongoUpdateResult(@NotNull UpdateQuery query, @NotNull ObjectFactory<?, ?> objectFactory) {
         List<Bson> conditions = new ArrayList<>(3), updates = new ArrayList<>(3);
         for (var f : query.filters())
             conditions.add(eq(f.option(), f.value()));
-        for (var e : query.updates().entrySet())
-            updates.add(Updates.set(e.getKey(), e.getValue()));
+        for (var e : query.updates().entrySet()) {
+            EmbeddedCodec embedded = objectFactory.getEmbeddedCodec(e.getKey());
+            updates.add(Updates.set(e.getKey(), embedded == null ? e.getValue() : embedded.toBson(e.getValue())));
+        }
+        for (var e : query.pushes().entrySet())
+            updates.add(Updates.pushEach(e.getKey(), toElements(objectFactory.getEmbeddedCodec(e.getKey()), e.getValue())));
+        for (var e : query.pulls().entrySet())
+            updates.add(Updates.pullAll(e.getKey(), toElements(objectFactory.getEmbeddedCodec(e.getKey()), e.getValue())));
         return new MongoUpdateResult(conditions, updates);
     }
 
-    private record MongoUpdateResult(List<Bson> conditions, List<Bson> updates) {
+    // Pushed and pulled values are stored as the elements the codec of the field writes, such as longs for a List<Long>
+    private static List<Object> toElements(@Nullable EmbeddedCodec embedded, List<Object> values) {
+        if (embedded == null || embedded.mode() == EmbeddedCodec.Mode.DOCUMENT) return values;
+
+        List<Object> elements = new ArrayList<>(values.size());
+        for (Object value : values) elements.add(embedded.convertElement(value));
+        return elements;
+    }
+
+    record MongoUpdateResult(List<Bson> conditions, List<Bson> updates) {
     }
 
     @Override
@@ -791,13 +1500,13 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (query == null || query.filters().isEmpty()) {
                 DeleteResult result = collection.deleteMany(tx.connection(), new Document());
                 invalidate();
-                return TransactionResult.success(result.getDeletedCount() > 0);
+                return TransactionResult.success(deleted(result));
             }
             List<Bson> filters = new ArrayList<>(3);
             for (var f : query.filters()) filters.add(eq(f.option(), f.value()));
             DeleteResult result = collection.deleteMany(tx.connection(), and(filters));
             invalidate(createFilterBson(query.filters()));
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -815,14 +1524,14 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (query.filters().isEmpty()) {
                 DeleteResult result = collection.deleteMany(new Document());
                 invalidate();
-                return TransactionResult.success(result.getDeletedCount() > 0);
+                return TransactionResult.success(deleted(result));
             }
 
             List<Bson> filters = new ArrayList<>(query.filters().size());
             for (var f : query.filters()) filters.add(eq(f.option(), f.value()));
             DeleteResult result = collection.deleteMany(and(filters));
             invalidate(createFilterBson(query.filters()));
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -847,6 +1556,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
 
             invalidate(filter);
             globalCache.remove(id);
+            snapshots.remove(id);
 
             if (auditLogger != null) {
                 auditLogger.onDelete(entity);
@@ -854,7 +1564,7 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
             if (entityLifecycleListener != null) {
                 entityLifecycleListener.onPostDelete(entity);
             }
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
@@ -903,11 +1613,11 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         Bson projection = Projections.include(pk);
 
         FindIterable<Document> iterable =
-            collection.find(filterDoc)
+            reading(collection, query).find(filterDoc)
                 .projection(projection);
 
         // Apply query modifiers
-        iterable = process(query, iterable, repositoryInformation.getFetchPageSize());
+        iterable = process(query, iterable);
 
         List<ID> ids = new ArrayList<>(8);
 
@@ -944,12 +1654,174 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
                 resultCache.clear();
             }
             globalCache.clear();
-            return TransactionResult.success(result.getDeletedCount() > 0);
+            snapshots.clear();
+            return TransactionResult.success(deleted(result));
         } catch (Exception e) {
             return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
         }
     }
 
+    @Override
+    public @NotNull Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Watches the change stream of the collection, so the caches of this adapter learn about writes made by other
+     * services and adapter instances as they happen, instead of serving stale entries until they expire.
+     * <p>
+     * Changed and deleted documents are evicted by {@code _id} from the second level, read-through, identity and
+     * result caches, inserted documents clear the result cache. With {@code refresh}, the second level and
+     * read-through caches are given the changed entity instead, at the cost of the server looking up the full document
+     * of every update. Changes made by this adapter are seen as well, which only evicts entries it already updated.
+     * The snapshots its own updates captured are kept, so later updates of the same entity stay incremental.
+     * <p>
+     * Needs a replica set or a sharded cluster. Calling it again replaces the running watcher.
+     *
+     * @param tokenStore the store of the resume token, a watcher resumes after the last change it handled
+     * @param refresh whether to refresh changed entities instead of evicting them
+     */
+    public void watchChanges(@NotNull ResumeTokenStore tokenStore, boolean refresh) {
+        if (changeStreamWatcher != null) changeStreamWatcher.close();
+
+        ChangeStreamWatcher<T, ID> watcher = new ChangeStreamWatcher<>(repositoryInformation.getRepositoryName(), entities, idType, tokenStore, refresh, new CacheInvalidator());
+        changeStreamWatcher = watcher;
+        watcher.start();
+    }
+
+    private void recordOwnWrite(@Nullable ID id) {
+        if (changeStreamWatcher != null && id != null) ownWrites.put(id, System.nanoTime());
+    }
+
+    private final class CacheInvalidator implements ChangeStreamWatcher.Listener<T, ID> {
+        @Override
+        public void onInsert(@NotNull ID id, @Nullable T entity) {
+            invalidate();
+        }
+
+        @Override
+        public void onChange(@NotNull ID id, @Nullable T entity) {
+            if (globalCache != null) globalCache.remove(id);
+            // Other writers may have changed any field, the snapshot of a write of this adapter is still accurate
+            if (!isOwnWrite(id, entity)) snapshots.remove(id);
+            if (resultCache != null) resultCache.invalidate(id);
+
+            if (entity != null) {
+                if (l2Cache != null) l2Cache.put(id, entity);
+                if (readThroughCache != null) readThroughCache.put(id, entity);
+                return;
+            }
+            if (l2Cache != null) l2Cache.invalidate(id);
+            if (readThroughCache != null) readThroughCache.invalidate(id);
+        }
+
+        private boolean isOwnWrite(@NotNull ID id, @Nullable T entity) {
+            Long written = ownWrites.remove(id);
+            // The looked up document shows whether the snapshot still matches, whoever wrote it
+            if (entity != null) return snapshots.dirtyMask(id, entity) == 0;
+            return written != null && System.nanoTime() - written < OWN_WRITE_WINDOW_NANOS;
+        }
+
+        @Override
+        public void onDelete(@NotNull ID id) {
+            if (globalCache != null) globalCache.remove(id);
+            snapshots.remove(id);
+            if (resultCache != null) resultCache.invalidate(id);
+            if (l2Cache != null) l2Cache.invalidate(id);
+            if (readThroughCache != null) readThroughCache.invalidate(id);
+        }
+
+        @Override
+        public void onReset() {
+            Logging.info(() -> "Clearing the caches of " + repositoryInformation.getRepositoryName() + " after a change stream reset");
+            if (globalCache != null) globalCache.clear();
+            snapshots.clear();
+            invalidate();
+            if (l2Cache != null) l2Cache.clear();
+            if (readThroughCache != null) readThroughCache.clear();
+        }
+    }
+
+    /**
+     * Sets whether bulk writes are ordered, stopping at the first failing write, or unordered,
+     * letting the server attempt every write in any order. Bulk writes are ordered by default.
+     *
+     * @param orderedBulkWrites whether bulk writes are ordered
+     */
+    public void setOrderedBulkWrites(boolean orderedBulkWrites) {
+        this.orderedBulkWrites = orderedBulkWrites;
+    }
+
+    /**
+     * Sets the members of a replicated deployment reads go to, unless a query sets its own read preference.
+     * Reading reporting scans from secondaries keeps them off the primary, at the cost of slightly stale data.
+     *
+     * @param readPreference the read preference of the repository
+     */
+    public void setReadPreference(@NotNull ReadPreference readPreference) {
+        this.collection = collection.withReadPreference(readPreference);
+        this.entities = entities.withReadPreference(readPreference);
+    }
+
+    /**
+     * Sets the acknowledgment writes wait for. A lower write concern, such as {@link WriteConcern#W1} or
+     * {@link WriteConcern#UNACKNOWLEDGED} for bulk ingest of data which may be lost, makes writes return sooner.
+     * Unacknowledged writes report success once they are sent, since the server returns no counts for them.
+     *
+     * @param writeConcern the write concern of the repository
+     */
+    public void setWriteConcern(@NotNull WriteConcern writeConcern) {
+        this.collection = collection.withWriteConcern(writeConcern);
+        this.entities = entities.withWriteConcern(writeConcern);
+    }
+
+    /**
+     * Sets the amount of documents fetched per round trip, unless a query sets its own batch size.
+     * Defaults to the {@code @FetchPageSize} of the repository.
+     *
+     * @param batchSize the batch size, or 0 for the default of the server
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the time a find may run on the server before it is aborted, unless a query sets its own.
+     *
+     * @param maxTime the maximum time, or zero for no limit
+     * @param unit the unit of the time
+     */
+    public void setMaxTime(long maxTime, @NotNull TimeUnit unit) {
+        this.maxTimeMillis = unit.toMillis(maxTime);
+    }
+
+    /**
+     * Sets whether queries prefetching relationships resolve them with {@code $lookup} stages in the same aggregation,
+     * instead of one query per parent. Only relationships to repositories on the same database are looked up.
+     *
+     * @param lookupPrefetch whether prefetched relationships are looked up
+     */
+    public void setLookupPrefetch(boolean lookupPrefetch) {
+        this.lookupPrefetch = lookupPrefetch;
+    }
+
+    /**
+     * Replaces the executor running the asynchronous methods of this adapter.
+     *
+     * @param executor the executor running the tasks, or null to start a virtual thread per task
+     * @param maxConcurrency the maximum amount of concurrent tasks, zero to use the connection pool size, negative for no limit
+     */
+    public void setAsyncExecutor(@Nullable Executor executor, int maxConcurrency) {
+        int limit = maxConcurrency == 0 ? maxConnections : maxConcurrency;
+        AsyncExecutor previous = this.asyncExecutor;
+        this.asyncExecutor = executor == null ? AsyncExecutor.virtualThreads(limit) : AsyncExecutor.wrap(executor, limit);
+        if (previous != null && previous != asyncExecutor) previous.close();
+    }
+
+    private static int getMaxConnections(@Nullable MongoClientSettings.Builder clientBuilder) {
+        return clientBuilder == null ? -1 : clientBuilder.build().getConnectionPoolSettings().getMaxSize();
+    }
+
     @Override
     public @NotNull Class<ID> getIdType() {
         return idType;
@@ -957,9 +1829,20 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
 
     @Override
     public void close() {
+        if (eventPipeline != null) eventPipeline.close();
+        if (changeStreamWatcher != null) changeStreamWatcher.close();
+        asyncExecutor.close();
         client.close();
         RepositoryRegistry.unregister(repositoryInformation.getRepositoryName());
         collection = null;
+        entities = null;
+    }
+
+    /**
+     * Gets the pipeline dispatching the listeners of this adapter, if the entity is annotated with {@link io.github.flameyossnowy.universal.api.annotations.AsyncEvents}.
+     */
+    public @Nullable EventPipeline getEventPipeline() {
+        return eventPipeline;
     }
 
     @Override
@@ -991,7 +1874,18 @@ public class MongoRepositoryAdapter<T, ID> implements RepositoryAdapter<T, ID, C
         return collection;
     }
 
+    /**
+     * Gets the collection of the repository, reading and writing entities through the entity codec.
+     */
+    public MongoCollection<T> getEntityCollection() {
+        return entities;
+    }
+
     public MongoClient getClient() {
         return client;
     }
+
+    ObjectFactory<T, ID> getObjectFactory() {
+        return objectFactory;
+    }
 }
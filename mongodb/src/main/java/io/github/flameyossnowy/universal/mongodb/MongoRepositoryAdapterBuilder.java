@@ -2,6 +2,8 @@ package io.github.flameyossnowy.universal.mongodb;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import io.github.flameyossnowy.universal.api.annotations.Cacheable;
 import io.github.flameyossnowy.universal.api.annotations.GlobalCacheable;
@@ -11,10 +13,14 @@ import io.github.flameyossnowy.universal.api.cache.DefaultSessionCache;
 import io.github.flameyossnowy.universal.api.cache.SessionCache;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.mongodb.changestream.ResumeTokenStore;
 import org.bson.conversions.Bson;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.LongFunction;
 
 @SuppressWarnings("unused")
@@ -27,6 +33,16 @@ public class MongoRepositoryAdapterBuilder<T, ID> {
     private LongFunction<SessionCache<ID, T>> sessionCacheSupplier = (id) -> new DefaultSessionCache<>();
     private CacheWarmer<T, ID> cacheWarmer;
     private MongoClient client;
+    private Executor asyncExecutor;
+    private int asyncConcurrency;
+    private boolean orderedBulkWrites = true;
+    private boolean lookupPrefetch;
+    private ReadPreference readPreference;
+    private WriteConcern writeConcern;
+    private int batchSize = -1;
+    private Duration maxTime;
+    private ResumeTokenStore resumeTokenStore;
+    private boolean refreshOnChange;
 
     MongoRepositoryAdapterBuilder(Class<T> repository, Class<ID> idType) {
         this.repository = repository;
@@ -116,6 +132,134 @@ public class MongoRepositoryAdapterBuilder<T, ID> {
         return this;
     }
 
+    /**
+     * Sets the executor running the asynchronous methods of the adapter, a virtual thread per task is started by default.
+     *
+     * @param asyncExecutor the executor running asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Sets how many asynchronous calls may run at once, further calls wait for a slot.
+     * Defaults to the maximum size of the driver connection pool, a negative value removes the limit.
+     *
+     * @param asyncConcurrency the maximum amount of concurrent asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withAsyncConcurrency(int asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets whether bulk writes, used by the batch update, delete and upsert methods and by buffered sessions,
+     * are ordered. Ordered bulk writes stop at the first failing write, unordered ones let the server attempt
+     * every write in any order, which is faster. Bulk writes are ordered by default.
+     *
+     * @param orderedBulkWrites whether bulk writes are ordered
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withOrderedBulkWrites(boolean orderedBulkWrites) {
+        this.orderedBulkWrites = orderedBulkWrites;
+        return this;
+    }
+
+    /**
+     * Sets the members of a replicated deployment the repository reads from, such as
+     * {@link ReadPreference#secondaryPreferred()} to keep reporting scans off the primary.
+     * Queries can override it with {@code readPreference} on their builder.
+     *
+     * @param readPreference the read preference of the repository
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withReadPreference(ReadPreference readPreference) {
+        this.readPreference = Objects.requireNonNull(readPreference);
+        return this;
+    }
+
+    /**
+     * Sets the acknowledgment the writes of the repository wait for, such as {@link WriteConcern#W1} or
+     * {@link WriteConcern#UNACKNOWLEDGED} for fire-and-forget writes like metrics.
+     * Unacknowledged writes report success once they are sent, since the server returns no counts for them.
+     *
+     * @param writeConcern the write concern of the repository
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withWriteConcern(WriteConcern writeConcern) {
+        this.writeConcern = Objects.requireNonNull(writeConcern);
+        return this;
+    }
+
+    /**
+     * Sets the amount of documents fetched per round trip, instead of the {@code @FetchPageSize} of the repository.
+     * Queries can override it with {@code batchSize} on their builder.
+     *
+     * @param batchSize the batch size, or 0 for the default of the server
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the time a find may run on the server before it is aborted.
+     * Queries can override it with {@code maxTime} on their builder.
+     *
+     * @param maxTime the maximum time
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withMaxTime(Duration maxTime) {
+        this.maxTime = Objects.requireNonNull(maxTime);
+        return this;
+    }
+
+    /**
+     * Sets whether queries prefetching relationships resolve them with {@code $lookup} stages, reading parents and
+     * their related documents in one round trip. Relationships of an entity to its own type are resolved with
+     * {@code $graphLookup}, which reads the whole chain or tree at once. Only relationships to repositories on the
+     * same database are looked up, others are still loaded one query per parent.
+     *
+     * @param lookupPrefetch whether prefetched relationships are looked up
+     * @return The builder instance, for chaining method calls.
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withLookupPrefetch(boolean lookupPrefetch) {
+        this.lookupPrefetch = lookupPrefetch;
+        return this;
+    }
+
+    /**
+     * Evicts cached entries of documents changed by other writers as the changes happen, by watching the change stream
+     * of the collection. The resume token is kept in memory, so changes made while the application is stopped are not
+     * seen, which does not matter for caches that start empty.
+     *
+     * @return The builder instance, for chaining method calls.
+     * @see MongoRepositoryAdapter#watchChanges(ResumeTokenStore, boolean)
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withChangeStreamInvalidation() {
+        return withChangeStreamInvalidation(ResumeTokenStore.inMemory(), false);
+    }
+
+    /**
+     * Evicts or refreshes cached entries of documents changed by other writers as the changes happen, by watching the
+     * change stream of the collection. Needs a replica set or a sharded cluster.
+     *
+     * @param tokenStore the store of the resume token, such as {@link ResumeTokenStore#collection}
+     *                   to resume after the last handled change when the application restarts
+     * @param refresh whether to refresh changed entities in the caches instead of evicting them
+     * @return The builder instance, for chaining method calls.
+     * @see MongoRepositoryAdapter#watchChanges(ResumeTokenStore, boolean)
+     */
+    public MongoRepositoryAdapterBuilder<T, ID> withChangeStreamInvalidation(ResumeTokenStore tokenStore, boolean refresh) {
+        this.resumeTokenStore = Objects.requireNonNull(tokenStore);
+        this.refreshOnChange = refresh;
+        return this;
+    }
+
     /**
      * Builds the {@link MongoRepositoryAdapter} instance.
      *
@@ -145,10 +289,10 @@ public class MongoRepositoryAdapterBuilder<T, ID> {
         }
 
         if (cacheable == null) {
-            return new MongoRepositoryAdapter<>(
+            return configure(new MongoRepositoryAdapter<>(
                 this.credentialsBuilder, database, repository,
                 idType, null, sessionCacheSupplier, cacheWarmer,
-                client, resultCache, false, 0, null);
+                client, resultCache, false, 0, null));
         }
 
 
@@ -160,11 +304,11 @@ public class MongoRepositoryAdapterBuilder<T, ID> {
 
             if (cacheableClass == SessionCache.class) {
                 try {
-                    return new MongoRepositoryAdapter<>(
+                    return configure(new MongoRepositoryAdapter<>(
                         this.credentialsBuilder, database, repository,
                         idType, (SessionCache<ID, T>) cacheableClass.getDeclaredConstructor().newInstance(), sessionCacheSupplier,
                         cacheWarmer, client, resultCache, true, maxSize, cacheable.algorithm()
-                    );
+                    ));
                 } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
                          NoSuchMethodException e) {
                     throw new RuntimeException(e);
@@ -172,15 +316,27 @@ public class MongoRepositoryAdapterBuilder<T, ID> {
             }
         }
 
-        return new MongoRepositoryAdapter<>(
+        return configure(new MongoRepositoryAdapter<>(
                 this.credentialsBuilder, database, repository, idType,
                 null, sessionCacheSupplier, cacheWarmer,
                 client, resultCache, true, maxSize, cacheable.algorithm()
-        );
+        ));
     }
 
     public MongoRepositoryAdapterBuilder<T, ID> setDatabase(final String database) {
         this.database = database;
         return this;
     }
-}
\ No newline at end of file
+
+    private MongoRepositoryAdapter<T, ID> configure(MongoRepositoryAdapter<T, ID> adapter) {
+        if (asyncExecutor != null || asyncConcurrency != 0) adapter.setAsyncExecutor(asyncExecutor, asyncConcurrency);
+        adapter.setOrderedBulkWrites(orderedBulkWrites);
+        adapter.setLookupPrefetch(lookupPrefetch);
+        if (readPreference != null) adapter.setReadPreference(readPreference);
+        if (writeConcern != null) adapter.setWriteConcern(writeConcern);
+        if (batchSize >= 0) adapter.setBatchSize(batchSize);
+        if (maxTime != null) adapter.setMaxTime(maxTime.toMillis(), TimeUnit.MILLISECONDS);
+        if (resumeTokenStore != null) adapter.watchChanges(resumeTokenStore, refreshOnChange);
+        return adapter;
+    }
+}
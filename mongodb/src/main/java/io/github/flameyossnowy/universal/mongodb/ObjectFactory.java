@@ -1,5 +1,6 @@
 package io.github.flameyossnowy.universal.mongodb;
 
+import com.mongodb.MongoClientSettings;
 import io.github.flameyossnowy.universal.api.RepositoryRegistry;
 import io.github.flameyossnowy.universal.api.annotations.OneToOne;
 import io.github.flameyossnowy.universal.api.exceptions.ConstructorThrewException;
@@ -8,15 +9,20 @@ import io.github.flameyossnowy.universal.api.options.SelectQuery;
 import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
-import io.github.flameyossnowy.universal.mongodb.codec.MongoTypeCodec;
+import io.github.flameyossnowy.universal.mongodb.annotations.MongoResolver;
+import io.github.flameyossnowy.universal.mongodb.codec.EmbeddedCodec;
+import io.github.flameyossnowy.universal.mongodb.params.MongoDatabaseParameters;
 import io.github.flameyossnowy.universal.mongodb.result.MongoDatabaseResult;
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecConfigurationException;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.RecordComponent;
 import java.util.*;
@@ -29,6 +35,8 @@ public class ObjectFactory<T, ID> {
     private final TypeResolverRegistry typeResolverRegistry;
     private final boolean isRecord;
     private final RecordComponent[] recordComponents;
+    private final Map<String, EmbeddedCodec> embeddedCodecs;
+    private final Map<String, TypeResolver<Object>> typeResolvers;
 
     // Thread-local loading context to prevent infinite recursion
     private static final ThreadLocal<Set<LoadingKey>> LOADING_CONTEXT =
@@ -48,6 +56,29 @@ public class ObjectFactory<T, ID> {
         this.isRecord = repoInfo.isRecord();
         this.recordComponents = isRecord ? repoInfo.getRecordComponents() : null;
 
+        // Collections, maps and primitive arrays are embedded, unless a type resolver stores them its own way
+        this.embeddedCodecs = new HashMap<>();
+        for (FieldData<?> field : repoInfo.getFields()) {
+            if (field.oneToOne() != null || field.oneToMany() != null || field.manyToOne() != null) continue;
+            if (typeResolverRegistry != null && typeResolverRegistry.hasResolver(field.type())) continue;
+
+            EmbeddedCodec codec = EmbeddedCodec.of(field);
+            if (codec != null) embeddedCodecs.put(field.name(), codec);
+        }
+
+        // Values of a type the driver has no codec for, or with a resolver of their own, are stored the way their resolver stores them
+        this.typeResolvers = new HashMap<>();
+        for (FieldData<?> field : repoInfo.getFields()) {
+            if (typeResolverRegistry == null) break;
+            if (field.oneToOne() != null || field.oneToMany() != null || field.manyToOne() != null) continue;
+            if (field.getAnnotation(MongoResolver.class) != null) continue;
+
+            TypeResolver<Object> resolver = (TypeResolver<Object>) typeResolverRegistry.resolve(field.type());
+            if (resolver != null && (field.resolveWith() != null || !hasDefaultCodec(field.type()))) {
+                typeResolvers.put(field.name(), resolver);
+            }
+        }
+
         if (isRecord) {
             for (FieldData<?> field : repoInfo.getFields()) {
                 if (field.oneToOne() != null || field.oneToMany() != null || field.manyToOne() != null) {
@@ -68,12 +99,27 @@ public class ObjectFactory<T, ID> {
             // Skip OneToMany - they don't get stored in the parent document
             if (field.oneToMany() != null) continue;
 
-            MongoTypeCodec.setCurrentFieldName(field.name());
-            try {
-                Object value;
+            Object value;
+
+            // For ManyToOne, store the ID value in the field name itself
+            if (field.manyToOne() != null) {
+                Object relatedEntity = field.getValue(entity);
+                if (relatedEntity != null) {
+                    RepositoryInformation relatedInfo = RepositoryMetadata.getMetadata(field.type());
+                    if (relatedInfo != null && relatedInfo.getPrimaryKey() != null) {
+                        // Store the ID value using the field name directly
+                        Object foreignKeyValue = relatedInfo.getPrimaryKey().getValue(relatedEntity);
+                        doc.put(field.name(), foreignKeyValue);
+                    }
+                }
+                continue;
+            }
 
-                // For ManyToOne, store the ID value in the field name itself
-                if (field.manyToOne() != null) {
+            // For OneToOne owning side, store the ID value in the field name itself
+            if (field.oneToOne() != null) {
+                OneToOne oneToOne = field.oneToOne();
+                // Only owning side (has join column, no mappedBy) stores the FK
+                if (oneToOne.mappedBy().isEmpty()) {
                     Object relatedEntity = field.getValue(entity);
                     if (relatedEntity != null) {
                         RepositoryInformation relatedInfo = RepositoryMetadata.getMetadata(field.type());
@@ -83,47 +129,63 @@ public class ObjectFactory<T, ID> {
                             doc.put(field.name(), foreignKeyValue);
                         }
                     }
-                    continue;
-                }
-
-                // For OneToOne owning side, store the ID value in the field name itself
-                if (field.oneToOne() != null) {
-                    OneToOne oneToOne = field.oneToOne();
-                    // Only owning side (has join column, no mappedBy) stores the FK
-                    if (oneToOne.mappedBy().isEmpty()) {
-                        Object relatedEntity = field.getValue(entity);
-                        if (relatedEntity != null) {
-                            RepositoryInformation relatedInfo = RepositoryMetadata.getMetadata(field.type());
-                            if (relatedInfo != null && relatedInfo.getPrimaryKey() != null) {
-                                // Store the ID value using the field name directly
-                                Object foreignKeyValue = relatedInfo.getPrimaryKey().getValue(relatedEntity);
-                                doc.put(field.name(), foreignKeyValue);
-                            }
-                        }
-                    }
-                    // Inverse side (has mappedBy) doesn't store anything
-                    continue;
                 }
+                // Inverse side (has mappedBy) doesn't store anything
+                continue;
+            }
 
-                value = field.getValue(entity);
+            value = field.getValue(entity);
+            EmbeddedCodec embedded = embeddedCodecs.get(field.name());
+            value = embedded != null ? embedded.toBson(value) : toResolvedValue(field, value);
 
-                // Store primary key as "_id" in MongoDB for proper indexing
-                if (field.primary()) {
-                    doc.put("_id", value);
-                    if (!field.name().equals("_id")) {
-                        doc.put(field.name(), value);
-                    }
-                } else {
+            // Store primary key as "_id" in MongoDB for proper indexing
+            if (field.primary()) {
+                doc.put("_id", value);
+                if (!field.name().equals("_id")) {
                     doc.put(field.name(), value);
                 }
-            } finally {
-                MongoTypeCodec.setCurrentFieldName(null);
+            } else {
+                doc.put(field.name(), value);
             }
         }
 
         return doc;
     }
 
+    /**
+     * Returns the type resolver a field is stored through, for the types the driver has no codec for
+     * and the fields declaring a resolver of their own.
+     *
+     * @return the resolver, or {@code null} if the value is stored as is
+     */
+    public @Nullable TypeResolver<Object> getTypeResolver(String fieldName) {
+        return typeResolvers.get(fieldName);
+    }
+
+    /**
+     * Converts a field value to the value its type resolver stores, under the name of the field.
+     *
+     * @return the stored value, or the value itself if the field has no resolver
+     */
+    public @Nullable Object toResolvedValue(@NotNull FieldData<?> field, @Nullable Object value) {
+        TypeResolver<Object> resolver = typeResolvers.get(field.name());
+        if (resolver == null || value == null) return value;
+
+        MongoDatabaseParameters parameters = new MongoDatabaseParameters();
+        resolver.insert(parameters, field.name(), value);
+        return parameters.get(field.name(), Object.class);
+    }
+
+    private static boolean hasDefaultCodec(@NotNull Class<?> type) {
+        if (type.isPrimitive()) return true;
+        try {
+            MongoClientSettings.getDefaultCodecRegistry().get(type);
+            return true;
+        } catch (CodecConfigurationException e) {
+            return false;
+        }
+    }
+
     @Nullable
     public T fromDocument(@Nullable Document doc) {
         if (doc == null) {
@@ -134,7 +196,22 @@ public class ObjectFactory<T, ID> {
             return fromDocumentRecord(doc);
         }
 
-        return fromDocumentClass(doc);
+        return fromDocumentClass(doc, Map.of());
+    }
+
+    /**
+     * Converts a document to an entity, with relationships which were already resolved, such as by a
+     * {@code $lookup} stage. Resolved relationships are not loaded through their repositories, a null value
+     * leaves the field unset so it can be assigned by the caller.
+     *
+     * @param resolved the values of resolved relationship fields, by field name
+     */
+    public @NotNull T fromDocument(@NotNull Document doc, @NotNull Map<String, Object> resolved) {
+        if (isRecord) {
+            return fromDocumentRecord(doc);
+        }
+
+        return fromDocumentClass(doc, resolved);
     }
 
     private @NotNull T fromDocumentRecord(@NotNull Document doc) {
@@ -145,18 +222,14 @@ public class ObjectFactory<T, ID> {
             RecordComponent rc = recordComponents[index];
             String fieldName = rc.getName();
 
-            MongoTypeCodec.setCurrentFieldName(fieldName);
-            try {
-                Object value = doc.get(fieldName);
-                if (value == null && isPrimaryKeyField(fieldName)) {
-                    value = doc.get("_id");
-                }
-
-                FieldData<?> field = repoInfo.getField(fieldName);
-                args[index] = field != null ? coerceValue(field, doc, value) : value;
-            } finally {
-                MongoTypeCodec.setCurrentFieldName(null);
+            Object value = doc.get(fieldName);
+            if (value == null && isPrimaryKeyField(fieldName)) {
+                value = doc.get("_id");
             }
+
+            FieldData<?> field = repoInfo.getField(fieldName);
+            args[index] = field != null ? coerceValue(field, doc, fromEmbedded(fieldName, value)) : value;
+            if (args[index] == null) args[index] = missingValue(rc.getType());
         }
 
         try {
@@ -168,7 +241,14 @@ public class ObjectFactory<T, ID> {
         }
     }
 
-    private @NotNull T fromDocumentClass(@NotNull Document doc) {
+    /**
+     * Gets the value of a field missing from a document, the default of primitives (0, false) or null.
+     */
+    public static @Nullable Object missingValue(@NotNull Class<?> type) {
+        return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+    }
+
+    private @NotNull T fromDocumentClass(@NotNull Document doc, @NotNull Map<String, Object> resolved) {
         T entity = (T) repoInfo.newInstance();
         ID entityId = null;
 
@@ -183,7 +263,7 @@ public class ObjectFactory<T, ID> {
                 value = doc.get("_id");
             }
 
-            value = coerceValue(field, doc, value);
+            value = coerceValue(field, doc, fromEmbedded(field.name(), value));
 
             if (field.primary()) {
                 entityId = (ID) value;
@@ -200,7 +280,10 @@ public class ObjectFactory<T, ID> {
 
         try {
             for (FieldData<?> field : repoInfo.getFields()) {
-                if (field.manyToOne() != null) {
+                if (resolved.containsKey(field.name())) {
+                    Object value = resolved.get(field.name());
+                    if (value != null) field.setValue(entity, value);
+                } else if (field.manyToOne() != null) {
                     loadManyToOne(field, entity, doc, loadingContext);
                 } else if (field.oneToOne() != null) {
                     loadOneToOne(field, entity, doc, entityId, loadingContext);
@@ -220,6 +303,29 @@ public class ObjectFactory<T, ID> {
         return entity;
     }
 
+    /**
+     * Returns the codec storing a collection, map or primitive array field natively.
+     *
+     * @return the codec, or {@code null} if the field is not embedded
+     */
+    public @Nullable EmbeddedCodec getEmbeddedCodec(String fieldName) {
+        return embeddedCodecs.get(fieldName);
+    }
+
+    private @Nullable Object fromEmbedded(String fieldName, @Nullable Object value) {
+        EmbeddedCodec embedded = embeddedCodecs.get(fieldName);
+        return embedded == null ? value : embedded.fromBson(value);
+    }
+
+    /**
+     * Converts a value read from BSON to the type of its field, through the type resolvers if needed.
+     */
+    @Contract("_, null -> null")
+    public @Nullable Object coerceValue(@NotNull FieldData<?> field, @Nullable Object value) {
+        if (value == null || field.type().isInstance(value)) return value;
+        return coerceValue(field, new Document(field.name(), value), value);
+    }
+
     @Contract("_, _, null -> null")
     private @Nullable Object coerceValue(@NotNull FieldData<?> field, @NotNull Document doc, @Nullable Object value) {
         if (value == null) return null;
@@ -272,6 +378,11 @@ public class ObjectFactory<T, ID> {
             if (targetType == Byte.class) return n.byteValue();
         }
 
+        TypeResolver<Object> resolver = typeResolvers.get(field.name());
+        if (resolver != null) {
+            return resolver.resolve(new MongoDatabaseResult(doc), field.name());
+        }
+
         if (typeResolverRegistry != null && typeResolverRegistry.hasResolver(targetType)) {
             return typeResolverRegistry.resolve(targetType).resolve(new MongoDatabaseResult(doc), field.name());
         }
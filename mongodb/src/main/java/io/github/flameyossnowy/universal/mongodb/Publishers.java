@@ -0,0 +1,105 @@
+package io.github.flameyossnowy.universal.mongodb;
+
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bridges the publishers of the reactive streams driver to futures, without blocking a thread while waiting.
+ * A cancelled future cancels its subscription, which closes the server cursor.
+ */
+final class Publishers {
+    private Publishers() {}
+
+    /**
+     * Requests the first item of the publisher and cancels the rest.
+     *
+     * @return a future completing with the first item, or null if the publisher completed empty
+     */
+    static <T> @NotNull CompletableFuture<T> first(@NotNull Publisher<T> publisher) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        publisher.subscribe(new FutureSubscriber<>(future, 1) {
+            @Override
+            public void onNext(T item) {
+                subscription.cancel();
+                future.complete(item);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Requests every item of the publisher. The driver still fetches them in batches of the configured batch size.
+     *
+     * @return a future completing with every item, in the order they were published
+     */
+    static <T> @NotNull CompletableFuture<List<T>> collect(@NotNull Publisher<T> publisher) {
+        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        publisher.subscribe(new FutureSubscriber<>(future, Long.MAX_VALUE) {
+            // Signals are serial, the list needs no synchronization
+            private final List<T> items = new ArrayList<>();
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(items);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return a publisher completing right away without items
+     */
+    static <T> @NotNull Publisher<T> empty() {
+        return subscriber -> {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onComplete();
+        };
+    }
+
+    private abstract static class FutureSubscriber<T, R> implements Subscriber<T> {
+        private final CompletableFuture<R> future;
+        private final long demand;
+        protected Subscription subscription;
+
+        FutureSubscriber(CompletableFuture<R> future, long demand) {
+            this.future = future;
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) subscription.cancel();
+            });
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+}
@@ -0,0 +1,677 @@
+package io.github.flameyossnowy.universal.mongodb;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.*;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.github.flameyossnowy.universal.api.IndexOptions;
+import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmType;
+import io.github.flameyossnowy.universal.api.annotations.enums.IndexType;
+import io.github.flameyossnowy.universal.api.cache.DefaultResultCache;
+import io.github.flameyossnowy.universal.api.cache.EntitySnapshotCache;
+import io.github.flameyossnowy.universal.api.cache.SecondLevelCache;
+import io.github.flameyossnowy.universal.api.cache.TransactionResult;
+import io.github.flameyossnowy.universal.api.exceptions.RepositoryException;
+import io.github.flameyossnowy.universal.api.listener.AuditLogger;
+import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+import io.github.flameyossnowy.universal.api.options.*;
+import io.github.flameyossnowy.universal.api.options.validator.QueryValidator;
+import io.github.flameyossnowy.universal.api.options.validator.ValidationEstimation;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.mongodb.codec.MongoTypeCodecProvider;
+import io.github.flameyossnowy.universal.mongodb.query.MongoQueryValidator;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.reactivestreams.FlowAdapters;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+
+import static com.mongodb.client.model.Filters.*;
+
+/**
+ * A MongoDB repository adapter built on the reactive streams driver. No thread is blocked while a query or a write
+ * is in flight, so the amount of concurrent operations is bound by the connection pool and the server rather than
+ * by the amount of threads.
+ * <p>
+ * Queries return a {@link Flow.Publisher} which fetches the results in batches as they are requested, or a
+ * {@link CompletionStage} of all results. Writes return a {@link CompletionStage} of their {@link TransactionResult}.
+ * Entities are read and written through the same codec as {@link MongoRepositoryAdapter}, and the result cache,
+ * second level cache and dirty field tracking work the same. Relationships are resolved by blocking lookups, so
+ * repositories declaring them are rejected and should use {@link MongoRepositoryAdapter}.
+ * <p>
+ * Stages complete on the threads of the driver. Lifecycle listeners and audit loggers are called there as well,
+ * blocking work in them or in dependent stages should be moved to another executor with the {@code *Async} methods
+ * of {@link CompletionStage}.
+ *
+ * @param <T> the entity type
+ * @param <ID> the id type
+ */
+@SuppressWarnings({ "unused", "unchecked" })
+public class ReactiveMongoRepositoryAdapter<T, ID> implements AutoCloseable {
+    private static final Document EMPTY = new Document();
+
+    private final MongoClient client;
+    private final MongoCollection<T> entities;
+
+    private final ObjectFactory<T, ID> objectFactory;
+    private final RepositoryInformation repositoryInformation;
+    private final TypeResolverRegistry typeResolverRegistry = new TypeResolverRegistry();
+    private final QueryValidator queryValidator;
+    private final Class<T> elementType;
+    private final Class<ID> idType;
+
+    @Nullable
+    private final DefaultResultCache<Bson, T, ID> resultCache;
+
+    @Nullable
+    private final SecondLevelCache<ID, T> l2Cache;
+
+    private final EntitySnapshotCache<ID, T> snapshots;
+
+    // Concurrent lookups of the same id share one query
+    private final Map<ID, CompletableFuture<T>> pendingLookups = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final AuditLogger<T> auditLogger;
+
+    @Nullable
+    private final EntityLifecycleListener<T> entityLifecycleListener;
+
+    @Nullable
+    private final EventPipeline eventPipeline;
+
+    private boolean orderedBulkWrites = true;
+
+    ReactiveMongoRepositoryAdapter(
+        @Nullable MongoClientSettings.Builder clientBuilder,
+        String dbName,
+        Class<T> repo,
+        Class<ID> idType,
+        @Nullable MongoClient client,
+        @Nullable DefaultResultCache<Bson, T, ID> resultCache,
+        boolean cacheEnabled,
+        int maxSize,
+        CacheAlgorithmType type) {
+        this.repositoryInformation = RepositoryMetadata.getMetadata(repo);
+        if (repositoryInformation == null)
+            throw new IllegalArgumentException("Unable to find repository information for " + repo.getSimpleName());
+
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null)
+            throw new IllegalArgumentException("Primary key not found for " + repositoryInformation.getRepositoryName());
+        EntityUpdates.checkPrimaryKey(repositoryInformation);
+        // Relationships are resolved by blocking lookups, which must not run on the threads of the driver
+        if (repositoryInformation.hasRelationships())
+            throw new IllegalArgumentException("Relationships are not supported by the reactive adapter, " + repositoryInformation.getRepositoryName() + " declares relationships");
+
+        this.elementType = repo;
+        this.idType = idType;
+        this.queryValidator = new MongoQueryValidator(repositoryInformation);
+        // Before the object factory, which looks up the resolvers the fields declare
+        List<Codec<?>> codecs = new ArrayList<>(2);
+        List<IndexOptions> queued = MongoRepositoryAdapter.initializeCodecs(clientBuilder, repositoryInformation, typeResolverRegistry, codecs);
+        this.objectFactory = new ObjectFactory<>(repositoryInformation, typeResolverRegistry, repo, idType);
+
+        if (cacheEnabled) {
+            this.resultCache = resultCache;
+            this.l2Cache = new SecondLevelCache<>(maxSize, 300000, type);
+        } else {
+            this.resultCache = null;
+            this.l2Cache = null;
+        }
+        this.snapshots = new EntitySnapshotCache<>(repositoryInformation, cacheEnabled ? maxSize : 512);
+
+        // The pipeline belongs to this adapter, other adapters of the entity keep theirs when this one is closed
+        this.eventPipeline = repositoryInformation.createEventPipeline();
+        EntityLifecycleListener<T> listener = (EntityLifecycleListener<T>) repositoryInformation.getEntityLifecycleListener();
+        AuditLogger<T> audit = (AuditLogger<T>) repositoryInformation.getAuditLogger();
+        this.entityLifecycleListener = eventPipeline == null ? listener : eventPipeline.wrap(listener);
+        this.auditLogger = eventPipeline == null ? audit : eventPipeline.wrap(audit);
+
+        if (client == null) {
+            CodecRegistry provider = MongoRepositoryAdapter.getProvider(PojoCodecProvider.builder().automatic(true).build(), codecs, MongoClientSettings.getDefaultCodecRegistry());
+            this.client = MongoClients.create(Objects.requireNonNull(clientBuilder).codecRegistry(provider).uuidRepresentation(UuidRepresentation.STANDARD).build());
+        } else {
+            // Should only be used for testing
+            this.client = client;
+        }
+
+        MongoCollection<Document> collection = this.client.getDatabase(dbName).getCollection(repositoryInformation.getRepositoryName());
+        this.entities = collection.withDocumentClass(elementType).withCodecRegistry(MongoRepositoryAdapter.entityRegistry(
+            MongoTypeCodecProvider.create(typeResolverRegistry, repositoryInformation, objectFactory),
+            codecs,
+            collection.getCodecRegistry()
+        ));
+
+        for (IndexOptions indexOptions : queued) {
+            createIndex(indexOptions).whenComplete((result, error) -> {
+                if (error != null) Logging.error("Unable to create index " + indexOptions.indexName(), error);
+            });
+        }
+    }
+
+    public static <T, ID> @NotNull ReactiveMongoRepositoryAdapterBuilder<T, ID> builder(Class<T> repo, Class<ID> id) {
+        return new ReactiveMongoRepositoryAdapterBuilder<>(repo, id);
+    }
+
+    /**
+     * Streams the results of the query with back-pressure, the driver requests the next batch from the server only
+     * once the subscriber asked for more elements. Cancelling the subscription closes the server cursor.
+     * The results are not cached.
+     *
+     * @param query the query
+     * @return a cold publisher running the query for each subscriber
+     */
+    public Flow.@NotNull Publisher<T> findStream(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return FlowAdapters.toFlowPublisher(Publishers.empty());
+        }
+
+        return FlowAdapters.toFlowPublisher(search(query));
+    }
+
+    /**
+     * Streams every entity of the collection with back-pressure.
+     *
+     * @return a cold publisher running the query for each subscriber
+     * @see #findStream(SelectQuery)
+     */
+    public Flow.@NotNull Publisher<T> findStream() {
+        return FlowAdapters.toFlowPublisher(pageSize(entities.find()));
+    }
+
+    public @NotNull CompletionStage<List<T>> find(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        Bson filter = MongoRepositoryAdapter.createFilterBson(query.filters());
+        if (resultCache != null) {
+            List<T> cached = resultCache.fetch(filter);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+
+        return Publishers.collect(search(query)).thenApply(results -> cacheResults(filter, results));
+    }
+
+    public @NotNull CompletionStage<List<T>> find() {
+        if (resultCache != null) {
+            List<T> cached = resultCache.fetch(EMPTY);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+
+        return Publishers.collect(pageSize(entities.find())).thenApply(results -> cacheResults(EMPTY, results));
+    }
+
+    /**
+     * Counts the documents matching the filters of the query on the server. Sort options and the limit are ignored.
+     */
+    public @NotNull CompletionStage<Long> count(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        Bson filter = MongoRepositoryAdapter.createFilterBson(query.filters());
+        long cached = resultCache == null ? -1 : resultCache.fetchCount(filter);
+        if (cached >= 0) return CompletableFuture.completedFuture(cached);
+
+        return Publishers.first(entities.countDocuments(filter)).thenApply(count -> {
+            if (resultCache != null) resultCache.insertCount(filter, count);
+            return count;
+        });
+    }
+
+    /**
+     * Checks whether a document matches the filters of the query, reading at most the {@code _id} of one.
+     */
+    public @NotNull CompletionStage<Boolean> exists(@NotNull SelectQuery query) {
+        ValidationEstimation validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Query validation failed: " + validation.reason());
+            return CompletableFuture.completedFuture(false);
+        }
+
+        Bson filter = MongoRepositoryAdapter.createFilterBson(query.filters());
+        if (resultCache != null) {
+            long count = resultCache.fetchCount(filter);
+            if (count >= 0) return CompletableFuture.completedFuture(count > 0);
+        }
+
+        return Publishers.first(entities.find(filter, Document.class).projection(Projections.include("_id")).limit(1)).thenApply(document -> {
+            if (document == null && resultCache != null) resultCache.insertCount(filter, 0);
+            return document != null;
+        });
+    }
+
+    /**
+     * @return a stage completing with the first result of the query, or null if nothing matched
+     */
+    public @NotNull CompletionStage<T> first(@NotNull SelectQuery query) {
+        return Publishers.first(search(query).limit(1));
+    }
+
+    /**
+     * Finds an entity by its ID, from the second level cache if present.
+     * Concurrent lookups of an ID which is not cached share the same query.
+     *
+     * @return a stage completing with the entity, or null if it does not exist
+     */
+    public @NotNull CompletionStage<T> findById(@NotNull ID id) {
+        if (l2Cache != null) {
+            T cached = l2Cache.get(id);
+            if (cached != null) {
+                Logging.deepInfo(() -> "L2 cache hit for " + repositoryInformation.getRepositoryName() + " id=" + id);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<T> pending = pendingLookups.get(id);
+        if (pending != null) return pending;
+
+        CompletableFuture<T> lookup = new CompletableFuture<>();
+        pending = pendingLookups.putIfAbsent(id, lookup);
+        if (pending != null) return pending;
+
+        Publishers.first(entities.find(new Document("_id", id))).whenComplete((entity, error) -> {
+            pendingLookups.remove(id, lookup);
+            if (error != null) {
+                lookup.completeExceptionally(error);
+                return;
+            }
+
+            if (entity != null) {
+                snapshots.capture(id, entity);
+                if (l2Cache != null) l2Cache.put(id, entity);
+            }
+            lookup.complete(entity);
+        });
+        return lookup;
+    }
+
+    /**
+     * Finds the entities of every ID, reading the ones missing from the second level cache in one {@code $in} query.
+     *
+     * @return a stage completing with the found entities by their ID
+     */
+    public @NotNull CompletionStage<Map<ID, T>> findAllById(@NotNull Collection<ID> ids) {
+        if (ids.isEmpty()) return CompletableFuture.completedFuture(Map.of());
+
+        Map<ID, T> result = new HashMap<>(ids.size());
+        List<ID> missing = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            T cached = l2Cache != null ? l2Cache.get(id) : null;
+            if (cached != null) result.put(id, cached);
+            else missing.add(id);
+        }
+        if (missing.isEmpty()) return CompletableFuture.completedFuture(result);
+
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+        return Publishers.collect(pageSize(entities.find(in("_id", missing)))).thenApply(found -> {
+            for (T entity : found) {
+                ID id = primaryKey.getValue(entity);
+                result.put(id, entity);
+                snapshots.capture(id, entity);
+                if (l2Cache != null) l2Cache.put(id, entity);
+            }
+            return result;
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> insert(@NotNull T value) {
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+        try {
+            if (entityLifecycleListener != null) entityLifecycleListener.onPreInsert(value);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure("Insert", e));
+        }
+
+        return Publishers.first(entities.insertOne(value)).handle((result, error) -> {
+            if (error != null) return failure("Insert", error);
+
+            // The new entity may match any cached query
+            invalidate();
+            ID id = primaryKey.getValue(value);
+            if (l2Cache != null) l2Cache.invalidate(id);
+
+            if (auditLogger != null) auditLogger.onInsert(value);
+            if (entityLifecycleListener != null) entityLifecycleListener.onPostInsert(value);
+            return TransactionResult.success(result != null && result.wasAcknowledged());
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> insertAll(@NotNull Collection<T> values) {
+        if (values.isEmpty()) return CompletableFuture.completedFuture(TransactionResult.success(true));
+
+        return Publishers.first(entities.insertMany(List.copyOf(values))).handle((result, error) -> {
+            if (error != null) return failure("Insert", error);
+
+            invalidate();
+            if (auditLogger != null) auditLogger.onInsert(values);
+            return TransactionResult.success(result != null && result.wasAcknowledged());
+        });
+    }
+
+    /**
+     * Updates the fields of the entity which changed since it was loaded, or every field if it was not loaded by
+     * this adapter.
+     */
+    public @NotNull CompletionStage<TransactionResult<Boolean>> updateAll(@NotNull T entity) {
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+
+        ID id;
+        EntityUpdates.Update update;
+        try {
+            if (entityLifecycleListener != null) entityLifecycleListener.onPreUpdate(entity);
+            Document doc = objectFactory.toDocument(entity);
+            id = doc.get(primaryKey.name(), idType);
+            update = EntityUpdates.create(snapshots, id, entity, doc);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure("Update", e));
+        }
+
+        if (update == null) {
+            Logging.deepInfo(() -> "No changed fields for " + repositoryInformation.getRepositoryName() + " id=" + id + ", skipping update.");
+            return CompletableFuture.completedFuture(TransactionResult.success(true));
+        }
+
+        // The returned document is the state before the update, so the audit logger needs no extra read
+        Document filter = new Document("_id", id);
+        return Publishers.first(entities.findOneAndUpdate(update.filter(filter), update.update(), EntityUpdates.RETURN_PREVIOUS)).thenCompose(replaced -> {
+            // The stored collections changed since the snapshot, so they are replaced instead
+            if (replaced != null || !update.guarded()) return CompletableFuture.completedFuture(replaced);
+            return Publishers.first(entities.findOneAndUpdate(filter, update.replacement(), EntityUpdates.RETURN_PREVIOUS));
+        }).handle((replaced, error) -> {
+            evict(id);
+            if (error != null) return failure("Update", error);
+
+            snapshots.capture(id, entity);
+            if (auditLogger != null && replaced != null) auditLogger.onUpdate(entity, replaced);
+            if (entityLifecycleListener != null) entityLifecycleListener.onPostUpdate(entity);
+            return TransactionResult.success(replaced != null);
+        });
+    }
+
+    /**
+     * Updates the changed fields of every entity in one bulk write, entities without changed fields are left out.
+     */
+    public @NotNull CompletionStage<TransactionResult<Boolean>> updateAll(@NotNull Collection<T> values) {
+        if (values.isEmpty()) return CompletableFuture.completedFuture(TransactionResult.success(true));
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+
+        List<ID> ids = new ArrayList<>(values.size());
+        List<WriteModel<T>> writes = new ArrayList<>(values.size());
+        try {
+            for (T entity : values) {
+                if (entityLifecycleListener != null) entityLifecycleListener.onPreUpdate(entity);
+
+                Document doc = objectFactory.toDocument(entity);
+                ID id = doc.get(primaryKey.name(), idType);
+                ids.add(id);
+
+                // A bulk write does not tell which guarded update missed its document, so collections are replaced
+                EntityUpdates.Update update = EntityUpdates.create(snapshots, id, entity, doc);
+                if (update != null) writes.add(new UpdateOneModel<>(new Document("_id", id), update.replacement()));
+            }
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure("Update", e));
+        }
+        if (writes.isEmpty()) return CompletableFuture.completedFuture(TransactionResult.success(true));
+
+        return bulkWrite(writes, ids).thenApply(result -> {
+            if (result.isError()) return result;
+
+            int index = 0;
+            for (T entity : values) {
+                ID id = ids.get(index++);
+                if (id != null) snapshots.capture(id, entity);
+                if (entityLifecycleListener != null) entityLifecycleListener.onPostUpdate(entity);
+            }
+            return result;
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> updateAll(@NotNull UpdateQuery query) {
+        ValidationEstimation validation = queryValidator.validateUpdateQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Update query validation failed: " + validation.reason());
+        }
+
+        MongoRepositoryAdapter.MongoUpdateResult update = MongoRepositoryAdapter.getMongoUpdateResult(query, objectFactory);
+        Bson filter = update.conditions().isEmpty() ? new Document() : and(update.conditions());
+        return Publishers.first(entities.updateMany(filter, Updates.combine(update.updates()))).handle((result, error) -> {
+            if (error != null) return failure("Update", error);
+
+            invalidate(MongoRepositoryAdapter.createFilterBson(query.filters()));
+            snapshots.clear();
+            if (l2Cache != null) l2Cache.clear();
+            return TransactionResult.success(result != null && result.getModifiedCount() > 0);
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> delete(@NotNull T entity) {
+        FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+        ID id = primaryKey.getValue(entity);
+        try {
+            if (entityLifecycleListener != null) entityLifecycleListener.onPreDelete(entity);
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure("Delete", e));
+        }
+
+        return Publishers.first(entities.deleteOne(new Document("_id", id))).handle((result, error) -> {
+            evict(id);
+            if (error != null) return failure("Delete", error);
+
+            if (auditLogger != null) auditLogger.onDelete(entity);
+            if (entityLifecycleListener != null) entityLifecycleListener.onPostDelete(entity);
+            return TransactionResult.success(result != null && result.getDeletedCount() > 0);
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> deleteById(@NotNull ID id) {
+        Document filter = new Document("_id", id);
+        if (auditLogger != null) {
+            // findOneAndDelete hands back the removed document, sparing a lookup for the audit logger
+            return Publishers.first(entities.findOneAndDelete(filter)).handle((deleted, error) -> {
+                evict(id);
+                if (error != null) return failure("Delete", error);
+
+                if (deleted != null) auditLogger.onDelete(deleted);
+                return TransactionResult.success(deleted != null);
+            });
+        }
+
+        return Publishers.first(entities.deleteOne(filter)).handle((result, error) -> {
+            evict(id);
+            if (error != null) return failure("Delete", error);
+            return TransactionResult.success(result != null && result.getDeletedCount() > 0);
+        });
+    }
+
+    /**
+     * Deletes every entity by its ID in one bulk write.
+     */
+    public @NotNull CompletionStage<TransactionResult<Boolean>> deleteAllById(@NotNull Collection<ID> ids) {
+        if (ids.isEmpty()) return CompletableFuture.completedFuture(TransactionResult.success(true));
+
+        List<WriteModel<T>> writes = new ArrayList<>(ids.size());
+        for (ID id : ids) writes.add(new DeleteOneModel<>(new Document("_id", id)));
+        return bulkWrite(writes, List.copyOf(ids));
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> delete(@NotNull DeleteQuery query) {
+        ValidationEstimation validation = queryValidator.validateDeleteQuery(query);
+        if (validation.isFail()) {
+            Logging.warn("Delete query validation failed: " + validation.reason());
+        }
+
+        List<Bson> filters = new ArrayList<>(query.filters().size());
+        for (var f : query.filters()) filters.add(eq(f.option(), f.value()));
+        Bson filter = filters.isEmpty() ? new Document() : and(filters);
+
+        return Publishers.first(entities.deleteMany(filter)).handle((result, error) -> {
+            if (error != null) return failure("Delete", error);
+
+            if (query.filters().isEmpty()) invalidate();
+            else invalidate(MongoRepositoryAdapter.createFilterBson(query.filters()));
+            snapshots.clear();
+            if (l2Cache != null) l2Cache.clear();
+            return TransactionResult.success(result != null && result.getDeletedCount() > 0);
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> clear() {
+        return Publishers.first(entities.deleteMany(new Document())).handle((result, error) -> {
+            invalidate();
+            snapshots.clear();
+            if (l2Cache != null) l2Cache.clear();
+            if (error != null) return failure("Delete", error);
+            return TransactionResult.success(result != null && result.wasAcknowledged());
+        });
+    }
+
+    public @NotNull CompletionStage<TransactionResult<Boolean>> createIndex(@NotNull IndexOptions index) {
+        if (index.fields().isEmpty()) {
+            throw new IllegalArgumentException("Cannot create an index without fields.");
+        }
+        Document indexDoc = new Document();
+        for (FieldData<?> field : index.fields()) indexDoc.put(field.name(), 1);
+
+        com.mongodb.client.model.IndexOptions options = new com.mongodb.client.model.IndexOptions().name(index.indexName()).unique(index.type() == IndexType.UNIQUE);
+        return Publishers.first(entities.createIndex(indexDoc, options)).handle((name, error) -> error != null ? failure("Create index", error) : TransactionResult.success(true));
+    }
+
+    private @NotNull CompletionStage<TransactionResult<Boolean>> bulkWrite(@NotNull List<WriteModel<T>> writes, @NotNull List<ID> ids) {
+        BulkWriteOptions options = new BulkWriteOptions().ordered(orderedBulkWrites);
+        // The driver splits the writes by the maxWriteBatchSize and maxMessageSize of the server
+        return Publishers.first(entities.bulkWrite(writes, options)).handle((result, error) -> {
+            for (ID id : ids) {
+                if (id != null) evict(id);
+            }
+            if (error != null) return failure("Bulk write", error);
+
+            Logging.deepInfo(() -> "Wrote " + writes.size() + " " + repositoryInformation.getRepositoryName() + " in a bulk write");
+            return TransactionResult.success(result == null || !result.wasAcknowledged() || countOf(result) == writes.size());
+        });
+    }
+
+    private static int countOf(@NotNull BulkWriteResult result) {
+        return result.getMatchedCount() + result.getDeletedCount() + result.getUpserts().size();
+    }
+
+    private FindPublisher<T> search(@NotNull SelectQuery query) {
+        FindPublisher<T> publisher = pageSize(entities.find(MongoRepositoryAdapter.createFilterBson(query.filters())));
+        if (query.limit() != -1) publisher = publisher.limit(query.limit());
+        if (!query.sortOptions().isEmpty()) {
+            List<Bson> sorts = query.sortOptions().stream()
+                    .map(o -> o.order() == SortOrder.ASCENDING ? Sorts.ascending(o.field()) : Sorts.descending(o.field()))
+                    .toList();
+            publisher = publisher.sort(Sorts.orderBy(sorts));
+        }
+        return publisher;
+    }
+
+    private FindPublisher<T> pageSize(FindPublisher<T> publisher) {
+        int pageSize = repositoryInformation.getFetchPageSize();
+        return pageSize > 0 ? publisher.batchSize(pageSize) : publisher;
+    }
+
+    private List<T> cacheResults(Bson filter, List<T> results) {
+        if (resultCache != null) {
+            FieldData<?> primaryKey = Objects.requireNonNull(repositoryInformation.getPrimaryKey());
+            resultCache.insert(filter, results, primaryKey::getValue);
+        }
+        return results;
+    }
+
+    private void evict(ID id) {
+        snapshots.remove(id);
+        if (resultCache != null) resultCache.invalidate(id);
+        if (l2Cache != null) l2Cache.invalidate(id);
+    }
+
+    private void invalidate(Bson filters) {
+        if (resultCache != null) resultCache.clear(filters);
+    }
+
+    private void invalidate() {
+        if (resultCache != null) resultCache.clear();
+    }
+
+    private @NotNull TransactionResult<Boolean> failure(String operation, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        String message = operation + " exception in repository [" + repositoryInformation.getRepositoryName() + "] with adapter [" + getClass().getSimpleName() + "]: " + cause.getMessage();
+        Logging.error(message, cause);
+        return TransactionResult.failure(new RepositoryException(message, cause));
+    }
+
+    /**
+     * Sets whether bulk writes are ordered, ordered bulk writes stop at the first failing write.
+     *
+     * @param orderedBulkWrites whether bulk writes are ordered
+     */
+    public void setOrderedBulkWrites(boolean orderedBulkWrites) {
+        this.orderedBulkWrites = orderedBulkWrites;
+    }
+
+    @Override
+    public void close() {
+        if (eventPipeline != null) eventPipeline.close();
+        client.close();
+    }
+
+    /**
+     * Gets the pipeline dispatching the listeners of this adapter, if the entity is annotated with {@link io.github.flameyossnowy.universal.api.annotations.AsyncEvents}.
+     */
+    public @Nullable EventPipeline getEventPipeline() {
+        return eventPipeline;
+    }
+
+    public @NotNull RepositoryInformation getRepositoryInformation() {
+        return repositoryInformation;
+    }
+
+    public @NotNull TypeResolverRegistry getTypeResolverRegistry() {
+        return typeResolverRegistry;
+    }
+
+    public @NotNull Class<T> getElementType() {
+        return elementType;
+    }
+
+    public @NotNull Class<ID> getIdType() {
+        return idType;
+    }
+
+    public MongoCollection<T> getEntityCollection() {
+        return entities;
+    }
+
+    public MongoClient getClient() {
+        return client;
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.flameyossnowy.universal.mongodb;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.cache.DefaultResultCache;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import org.bson.conversions.Bson;
+
+import java.util.Objects;
+
+@SuppressWarnings("unused")
+public class ReactiveMongoRepositoryAdapterBuilder<T, ID> {
+    private MongoClientSettings.Builder credentialsBuilder;
+    private final Class<T> repository;
+    private final Class<ID> idType;
+    private String database;
+
+    private MongoClient client;
+    private boolean orderedBulkWrites = true;
+
+    ReactiveMongoRepositoryAdapterBuilder(Class<T> repository, Class<ID> idType) {
+        this.repository = repository;
+        this.idType = idType;
+    }
+
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> withClient(MongoClient client) {
+        this.client = client;
+        return this;
+    }
+
+    /**
+     * Sets the MongoDB connection settings using the provided MongoClientSettings.
+     *
+     * @param credentials A MongoClientSettings instance that defines the
+     *                    connection settings for the MongoClient.
+     * @return The builder instance, for chaining method calls.
+     */
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> withCredentials(MongoClientSettings credentials) {
+        this.credentialsBuilder = MongoClientSettings.builder(credentials);
+        return this;
+    }
+
+    /**
+     * Sets the connection string for the MongoClientSettings.
+     *
+     * @param string A ConnectionString instance that defines the connection
+     *               string for the MongoClient.
+     * @return The builder instance, for chaining method calls.
+     */
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> withConnectionString(ConnectionString string) {
+        getCredentialsBuilder().applyConnectionString(string);
+        return this;
+    }
+
+    /**
+     * Sets the connection string for the MongoClientSettings.
+     *
+     * @param string A string that defines the connection string for the MongoClient.
+     * @return The builder instance, for chaining method calls.
+     */
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> withConnectionString(String string) {
+        getCredentialsBuilder().applyConnectionString(new ConnectionString(string));
+        return this;
+    }
+
+    private MongoClientSettings.Builder getCredentialsBuilder() {
+        if (credentialsBuilder == null) credentialsBuilder = MongoClientSettings.builder();
+        return credentialsBuilder;
+    }
+
+    /**
+     * Sets whether bulk writes are ordered. Ordered bulk writes stop at the first failing write, unordered ones let
+     * the server attempt every write in any order, which is faster. Bulk writes are ordered by default.
+     *
+     * @param orderedBulkWrites whether bulk writes are ordered
+     * @return The builder instance, for chaining method calls.
+     */
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> withOrderedBulkWrites(boolean orderedBulkWrites) {
+        this.orderedBulkWrites = orderedBulkWrites;
+        return this;
+    }
+
+    public ReactiveMongoRepositoryAdapterBuilder<T, ID> setDatabase(final String database) {
+        this.database = database;
+        return this;
+    }
+
+    /**
+     * Builds the {@link ReactiveMongoRepositoryAdapter} instance, with the result and second level caches enabled
+     * if the repository is annotated with {@link Cacheable}.
+     *
+     * @return a new instance of the {@link ReactiveMongoRepositoryAdapter}
+     */
+    public ReactiveMongoRepositoryAdapter<T, ID> build() {
+        if (this.credentialsBuilder == null && this.client == null) throw new IllegalArgumentException("Credentials cannot be null");
+        RepositoryInformation information = Objects.requireNonNull(RepositoryMetadata.getMetadata(this.repository));
+
+        Cacheable cacheable = information.getCacheable();
+        ReactiveMongoRepositoryAdapter<T, ID> adapter;
+        if (cacheable == null) {
+            adapter = new ReactiveMongoRepositoryAdapter<>(
+                this.credentialsBuilder, database, repository, idType,
+                client, null, false, 0, null);
+        } else {
+            DefaultResultCache<Bson, T, ID> resultCache = new DefaultResultCache<>(cacheable.maxCacheSize(), cacheable.algorithm());
+            adapter = new ReactiveMongoRepositoryAdapter<>(
+                this.credentialsBuilder, database, repository, idType,
+                client, resultCache, true, cacheable.maxCacheSize(), cacheable.algorithm());
+        }
+
+        adapter.setOrderedBulkWrites(orderedBulkWrites);
+        return adapter;
+    }
+}
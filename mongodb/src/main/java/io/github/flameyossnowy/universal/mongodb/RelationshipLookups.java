@@ -0,0 +1,280 @@
+package io.github.flameyossnowy.universal.mongodb;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import io.github.flameyossnowy.universal.api.RepositoryAdapter;
+import io.github.flameyossnowy.universal.api.RepositoryRegistry;
+import io.github.flameyossnowy.universal.api.annotations.OneToOne;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the prefetched relationships of a query with {@code $lookup} stages, so parents and their related
+ * documents are read in one aggregation instead of one query per parent.
+ * <p>
+ * A relationship is looked up if the repository of the related entity is a {@link MongoRepositoryAdapter} on the
+ * same database. Relationships of an entity to its own type use {@code $graphLookup}, which reads the whole chain of
+ * many-to-one references or the whole tree of one-to-many children in the same stage. Other relationships, and the
+ * relationships of the related entities, are still loaded through their repositories.
+ * <p>
+ * Looked up documents are embedded in their parent while the aggregation runs, so a parent with its related
+ * documents must fit in the 16 MB limit of a document.
+ *
+ * @param <T> the entity type
+ * @param <ID> the id type
+ */
+@SuppressWarnings("unchecked")
+final class RelationshipLookups<T, ID> {
+    private static final String ID_FIELD = "_id";
+    private static final String PREFIX = "__lookup_";
+
+    private final MongoRepositoryAdapter<T, ID> adapter;
+    private final List<Lookup> lookups;
+
+    private RelationshipLookups(MongoRepositoryAdapter<T, ID> adapter, List<Lookup> lookups) {
+        this.adapter = adapter;
+        this.lookups = lookups;
+    }
+
+    /**
+     * Plans the lookups of the prefetched fields which can be looked up. Unknown fields and fields which are not
+     * relationships are ignored.
+     */
+    static <T, ID> @NotNull RelationshipLookups<T, ID> plan(@NotNull MongoRepositoryAdapter<T, ID> adapter, @NotNull Set<String> fields) {
+        RepositoryInformation information = adapter.getRepositoryInformation();
+        String database = adapter.getCollection().getNamespace().getDatabaseName();
+
+        List<Lookup> lookups = new ArrayList<>(fields.size());
+        for (String name : fields) {
+            FieldData<?> field = information.getField(name);
+            if (field == null) continue;
+
+            Lookup lookup = createLookup(information, field, database);
+            if (lookup != null) lookups.add(lookup);
+        }
+        return new RelationshipLookups<>(adapter, lookups);
+    }
+
+    private static @Nullable Lookup createLookup(RepositoryInformation information, @NotNull FieldData<?> field, String database) {
+        Kind kind;
+        Class<?> targetType;
+        FieldData<?> inverse = null;
+
+        if (field.manyToOne() != null) {
+            kind = Kind.REFERENCE;
+            targetType = field.type();
+        } else if (field.oneToOne() != null) {
+            OneToOne oneToOne = field.oneToOne();
+            targetType = field.type();
+            if (oneToOne.mappedBy().isEmpty()) {
+                kind = Kind.REFERENCE;
+            } else {
+                kind = Kind.INVERSE;
+                RepositoryInformation targetInformation = targetInformation(targetType);
+                inverse = targetInformation == null ? null : targetInformation.getField(oneToOne.mappedBy());
+                if (inverse == null) return null;
+            }
+        } else if (field.oneToMany() != null) {
+            kind = Kind.CHILDREN;
+            targetType = field.oneToMany().mappedBy();
+            RepositoryInformation targetInformation = targetInformation(targetType);
+            inverse = targetInformation == null ? null : targetInformation.getManyToOneFieldFor(information.getType());
+            if (inverse == null) return null;
+        } else {
+            return null;
+        }
+
+        RepositoryAdapter<?, ?, ?> target = RepositoryRegistry.get(targetType);
+        if (!(target instanceof MongoRepositoryAdapter<?, ?> mongoTarget)) return null;
+        if (!database.equals(mongoTarget.getCollection().getNamespace().getDatabaseName())) return null;
+
+        // Inverse one-to-one relationships to the own type have one level, they are looked up like any other
+        boolean recursive = targetType == information.getType() && kind != Kind.INVERSE;
+        return new Lookup(field, kind, mongoTarget, inverse, recursive);
+    }
+
+    private static @Nullable RepositoryInformation targetInformation(Class<?> type) {
+        RepositoryAdapter<?, ?, ?> target = RepositoryRegistry.get(type);
+        return target == null ? null : target.getRepositoryInformation();
+    }
+
+    boolean isEmpty() {
+        return lookups.isEmpty();
+    }
+
+    /**
+     * Runs the query as an aggregation matching, sorting and limiting the parents before looking up their relationships.
+     */
+    @NotNull List<T> find(@NotNull SelectQuery query, @NotNull Bson filter) {
+        List<Bson> pipeline = new ArrayList<>(3 + lookups.size());
+        pipeline.add(Aggregates.match(filter));
+        if (!query.sortOptions().isEmpty()) pipeline.add(Aggregates.sort(MongoRepositoryAdapter.createSortBson(query.sortOptions())));
+        if (query.limit() != -1) pipeline.add(Aggregates.limit(query.limit()));
+        for (Lookup lookup : lookups) pipeline.add(lookup.stage());
+
+        AggregateIterable<Document> iterable = adapter.reading(adapter.getCollection(), query).aggregate(pipeline).allowDiskUse(true);
+        int pageSize = adapter.batchSize(query);
+        if (pageSize > 0) iterable = iterable.batchSize(pageSize);
+        long maxTime = adapter.maxTimeMillis(query);
+        if (maxTime > 0) iterable = iterable.maxTime(maxTime, TimeUnit.MILLISECONDS);
+        if (query.hints().index() != null) iterable = iterable.hintString(query.hints().index());
+
+        List<T> results = new ArrayList<>(query.limit() > 0 ? query.limit() : 16);
+        try (MongoCursor<Document> cursor = iterable.iterator()) {
+            while (cursor.hasNext()) results.add(decode(cursor.next()));
+        }
+        return results;
+    }
+
+    private @NotNull T decode(@NotNull Document document) {
+        Map<String, Object> resolved = new HashMap<>(lookups.size());
+        List<Consumer<Object>> assignments = new ArrayList<>(lookups.size());
+
+        for (Lookup lookup : lookups) {
+            List<Document> related = document.getList(lookup.alias(), Document.class, List.of());
+            String name = lookup.field().name();
+            ObjectFactory<?, ?> factory = lookup.target().getObjectFactory();
+
+            switch (lookup.kind()) {
+                case REFERENCE -> {
+                    if (lookup.recursive()) {
+                        Map<Object, Object> chain = decodeChain(related, lookup.field(), factory);
+                        resolved.put(name, chain.get(document.get(name)));
+                    } else {
+                        resolved.put(name, related.isEmpty() ? null : factory.fromDocument(related.getFirst()));
+                    }
+                }
+                case INVERSE -> {
+                    resolved.put(name, null);
+                    if (related.isEmpty()) continue;
+
+                    FieldData<?> inverse = lookup.inverse();
+                    Object child = factory.fromDocument(related.getFirst(), nullValue(inverse.name()));
+                    assignments.add(parent -> {
+                        inverse.setValue(child, parent);
+                        lookup.field().setValue(parent, child);
+                    });
+                }
+                case CHILDREN -> {
+                    resolved.put(name, null);
+                    assignments.add(lookup.recursive()
+                        ? decodeTree(related, lookup, factory, document.get(ID_FIELD))
+                        : decodeChildren(related, lookup, factory));
+                }
+            }
+        }
+
+        T entity = adapter.getObjectFactory().fromDocument(document, resolved);
+        for (Consumer<Object> assignment : assignments) assignment.accept(entity);
+        return entity;
+    }
+
+    /**
+     * Decodes the documents of a chain of references to the own type, and links every entity to the one it references.
+     * The entities are created before they are linked, so cycles in the chain resolve as well.
+     *
+     * @return the entities by the id of their document
+     */
+    private static @NotNull Map<Object, Object> decodeChain(@NotNull List<Document> documents, @NotNull FieldData<?> field, ObjectFactory<?, ?> factory) {
+        Map<Object, Object> entities = new HashMap<>(documents.size());
+        Map<String, Object> unresolved = nullValue(field.name());
+        for (Document document : documents) entities.put(document.get(ID_FIELD), factory.fromDocument(document, unresolved));
+
+        for (Document document : documents) {
+            Object referenced = entities.get(document.get(field.name()));
+            if (referenced != null) field.setValue(entities.get(document.get(ID_FIELD)), referenced);
+        }
+        return entities;
+    }
+
+    private static @NotNull Consumer<Object> decodeChildren(@NotNull List<Document> documents, @NotNull Lookup lookup, ObjectFactory<?, ?> factory) {
+        FieldData<?> inverse = lookup.inverse();
+        Map<String, Object> unresolved = nullValue(inverse.name());
+
+        List<Object> children = new ArrayList<>(documents.size());
+        for (Document document : documents) children.add(factory.fromDocument(document, unresolved));
+
+        return parent -> {
+            for (Object child : children) inverse.setValue(child, parent);
+            lookup.field().setValue(parent, children);
+        };
+    }
+
+    /**
+     * Decodes every descendant of a parent of the own type, and assigns every entity of the tree its children.
+     */
+    private static @NotNull Consumer<Object> decodeTree(@NotNull List<Document> documents, @NotNull Lookup lookup, ObjectFactory<?, ?> factory, Object rootId) {
+        FieldData<?> field = lookup.field();
+        FieldData<?> inverse = lookup.inverse();
+
+        Map<String, Object> unresolved = new HashMap<>(2);
+        unresolved.put(field.name(), null);
+        unresolved.put(inverse.name(), null);
+
+        Map<Object, Object> entities = new HashMap<>(documents.size());
+        Map<Object, List<Object>> children = new HashMap<>(documents.size());
+        for (Document document : documents) {
+            Object child = factory.fromDocument(document, unresolved);
+            entities.put(document.get(ID_FIELD), child);
+            children.computeIfAbsent(document.get(inverse.name()), k -> new ArrayList<>()).add(child);
+        }
+
+        return root -> {
+            entities.put(rootId, root);
+            entities.forEach((id, parent) -> {
+                List<Object> list = children.getOrDefault(id, new ArrayList<>());
+                for (Object child : list) inverse.setValue(child, parent);
+                field.setValue(parent, list);
+            });
+        };
+    }
+
+    private static @NotNull Map<String, Object> nullValue(String name) {
+        Map<String, Object> map = new HashMap<>(1);
+        map.put(name, null);
+        return map;
+    }
+
+    private enum Kind {
+        /** The document holds the id of the related document. */
+        REFERENCE,
+        /** The related document holds the id of the document, at most one relates to it. */
+        INVERSE,
+        /** Related documents hold the id of the document. */
+        CHILDREN
+    }
+
+    /**
+     * @param inverse the field of the related entity referencing this one, for inverse and children lookups
+     * @param recursive whether the relationship is to the own type and is looked up with {@code $graphLookup}
+     */
+    private record Lookup(FieldData<?> field, Kind kind, MongoRepositoryAdapter<?, ?> target, FieldData<?> inverse, boolean recursive) {
+        String alias() {
+            return PREFIX + field.name();
+        }
+
+        Bson stage() {
+            String from = target.getCollection().getNamespace().getCollectionName();
+            String name = field.name();
+            return switch (kind) {
+                case REFERENCE -> recursive
+                    ? Aggregates.graphLookup(from, "$" + name, name, ID_FIELD, alias())
+                    : Aggregates.lookup(from, name, ID_FIELD, alias());
+                case INVERSE -> Aggregates.lookup(from, ID_FIELD, inverse.name(), alias());
+                case CHILDREN -> recursive
+                    ? Aggregates.graphLookup(from, "$" + ID_FIELD, ID_FIELD, inverse.name(), alias())
+                    : Aggregates.lookup(from, ID_FIELD, inverse.name(), alias());
+            };
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package io.github.flameyossnowy.universal.mongodb.changestream;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonReader;
+import org.bson.BsonValue;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the change stream of a collection on a virtual thread and reports every change to a listener,
+ * so caches learn about writes made by other services and other adapter instances.
+ * <p>
+ * The resume token is saved to a {@link ResumeTokenStore} at most once per second and when the watcher is closed.
+ * A restarted watcher resumes after the last saved change. If the server no longer has that change in its oplog,
+ * the listener is reset and watching continues from the current time.
+ * <p>
+ * A change that fails to be decoded or handled {@value #MAX_CHANGE_ATTEMPTS} times in a row is logged and skipped,
+ * the cached entity it touched is evicted, or every entry if not even its id can be decoded.
+ * <p>
+ * Change streams need a replica set or a sharded cluster. On a standalone server the watcher logs an error and stops.
+ *
+ * @param <T> the entity type
+ * @param <ID> the id type
+ */
+@SuppressWarnings("unused")
+public final class ChangeStreamWatcher<T, ID> implements AutoCloseable {
+    private static final long SAVE_INTERVAL_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int MAX_CHANGE_ATTEMPTS = 3;
+
+    // Server error codes
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int NOT_A_REPLICA_SET = 40573;
+
+    /**
+     * Receives the changes of the watched collection.
+     */
+    public interface Listener<T, ID> {
+        /**
+         * A document was inserted.
+         *
+         * @param entity the inserted entity
+         */
+        void onInsert(@NotNull ID id, @Nullable T entity);
+
+        /**
+         * A document was updated or replaced.
+         *
+         * @param entity the entity after the change, only looked up if the watcher refreshes entities
+         */
+        void onChange(@NotNull ID id, @Nullable T entity);
+
+        /**
+         * A document was deleted.
+         */
+        void onDelete(@NotNull ID id);
+
+        /**
+         * The collection was dropped or renamed, or changes were missed, so every cached entry may be stale.
+         */
+        void onReset();
+    }
+
+    private final String name;
+    private final MongoCollection<T> collection;
+    private final Codec<ID> idCodec;
+    private final ResumeTokenStore tokenStore;
+    private final boolean refresh;
+    private final Listener<T, ID> listener;
+
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private @Nullable BsonDocument token;
+    private boolean tokenSaved = true;
+    private long lastSave;
+
+    // The token the failing change follows and how often it failed
+    private @Nullable BsonDocument failedAfter;
+    private int failures;
+
+    /**
+     * @param name the name the resume token is stored under, the repository name
+     * @param collection the watched collection, decoding documents as entities
+     * @param idType the type of the {@code _id}s, decoded with the codec registry of the collection
+     * @param tokenStore the store of the resume token
+     * @param refresh whether to look up the full document of updates, so they can be refreshed instead of evicted
+     * @param listener the listener receiving the changes
+     */
+    public ChangeStreamWatcher(
+        @NotNull String name,
+        @NotNull MongoCollection<T> collection,
+        @NotNull Class<ID> idType,
+        @NotNull ResumeTokenStore tokenStore,
+        boolean refresh,
+        @NotNull Listener<T, ID> listener
+    ) {
+        this.name = name;
+        this.collection = collection;
+        this.idCodec = collection.getCodecRegistry().get(idType);
+        this.tokenStore = tokenStore;
+        this.refresh = refresh;
+        this.listener = listener;
+        this.thread = Thread.ofVirtual().name("universal-change-stream-" + name).unstarted(this::run);
+    }
+
+    /**
+     * Starts watching on a new virtual thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching and saves the resume token of the last handled change.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            // The cursor waits at most a second for new changes, the watcher notices the close by then
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveToken(true);
+    }
+
+    public boolean isRunning() {
+        return thread.isAlive() && !closed;
+    }
+
+    private void run() {
+        try {
+            token = tokenStore.load(name);
+        } catch (Exception e) {
+            Logging.warn("Unable to load the resume token of " + name + ", watching from now on: " + e.getMessage());
+        }
+
+        long backoff = 500;
+        while (!closed) {
+            try {
+                if (failures >= MAX_CHANGE_ATTEMPTS) skipFailedChange();
+                watch();
+                backoff = 500;
+            } catch (MongoException e) {
+                if (closed) return;
+
+                switch (e.getCode()) {
+                    case NOT_A_REPLICA_SET -> {
+                        Logging.error("Change streams need a replica set, caches of " + name + " are not invalidated by other writers", e);
+                        return;
+                    }
+                    case CHANGE_STREAM_HISTORY_LOST, CHANGE_STREAM_FATAL_ERROR -> {
+                        Logging.warn("Unable to resume the change stream of " + name + ", changes were missed: " + e.getMessage());
+                        token = null;
+                        listener.onReset();
+                    }
+                    default -> Logging.warn("Change stream of " + name + " failed, reconnecting in " + backoff + "ms: " + e.getMessage());
+                }
+
+                if (!sleep(backoff)) return;
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (RuntimeException e) {
+                if (closed) return;
+
+                // Without a token the stream reopens at the current time, past the failed change anyway
+                if (token != null && token.equals(failedAfter)) {
+                    failures++;
+                } else {
+                    failedAfter = token;
+                    failures = 1;
+                }
+                if (token != null && failures >= MAX_CHANGE_ATTEMPTS) {
+                    Logging.error("Failed to handle a change of " + name + " " + failures + " times, skipping it", e);
+                    continue;
+                }
+                Logging.error("Failed to handle a change of " + name + ", reconnecting", e);
+                if (!sleep(backoff)) return;
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void watch() {
+        ChangeStreamIterable<T> stream = collection.watch()
+            .fullDocument(refresh ? FullDocument.UPDATE_LOOKUP : FullDocument.DEFAULT)
+            .maxAwaitTime(1, TimeUnit.SECONDS);
+        // startAfter, unlike resumeAfter, also resumes after an invalidate event
+        if (token != null) stream = stream.startAfter(token);
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = stream.cursor()) {
+            while (!closed) {
+                ChangeStreamDocument<T> change = cursor.tryNext();
+                if (change != null) {
+                    handle(change);
+                    if (change.getOperationType() == OperationType.INVALIDATE) {
+                        // The server closed the stream, it is opened again after the invalidate event
+                        token = change.getResumeToken();
+                        tokenSaved = false;
+                        return;
+                    }
+                }
+
+                // Also advanced by empty batches, so a quiet collection does not resume far behind
+                BsonDocument resumeToken = cursor.getResumeToken();
+                if (resumeToken != null && !resumeToken.equals(token)) {
+                    token = resumeToken;
+                    tokenSaved = false;
+                }
+                saveToken(false);
+            }
+        }
+    }
+
+    /**
+     * Reads the change following the token without decoding its document, moves the token past it
+     * and evicts what it touched.
+     */
+    private void skipFailedChange() {
+        ChangeStreamIterable<BsonDocument> stream = collection.watch(BsonDocument.class)
+            .maxAwaitTime(1, TimeUnit.SECONDS)
+            .startAfter(token);
+
+        ChangeStreamDocument<BsonDocument> change = null;
+        try (MongoChangeStreamCursor<ChangeStreamDocument<BsonDocument>> cursor = stream.cursor()) {
+            // The change is already in the oplog, the bound only guards against it being gone
+            for (int i = 0; i < 10 && change == null && !closed; i++) change = cursor.tryNext();
+        }
+        failures = 0;
+        if (change == null) return;
+
+        token = change.getResumeToken();
+        tokenSaved = false;
+        saveToken(true);
+
+        ID id;
+        try {
+            id = decodeId(change.getDocumentKey());
+        } catch (RuntimeException e) {
+            id = null;
+        }
+        if (id != null) {
+            listener.onChange(id, null);
+        } else {
+            listener.onReset();
+        }
+    }
+
+    private void handle(@NotNull ChangeStreamDocument<T> change) {
+        switch (change.getOperationType()) {
+            case INSERT -> {
+                ID id = decodeId(change.getDocumentKey());
+                if (id != null) listener.onInsert(id, change.getFullDocument());
+            }
+            case UPDATE, REPLACE -> {
+                ID id = decodeId(change.getDocumentKey());
+                if (id != null) listener.onChange(id, change.getFullDocument());
+            }
+            case DELETE -> {
+                ID id = decodeId(change.getDocumentKey());
+                if (id != null) listener.onDelete(id);
+            }
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> listener.onReset();
+            default -> {
+                // Index and other schema changes do not affect cached entities
+            }
+        }
+    }
+
+    private @Nullable ID decodeId(@Nullable BsonDocument documentKey) {
+        if (documentKey == null) return null;
+        BsonValue id = documentKey.get("_id");
+        if (id == null) return null;
+
+        try (BsonReader reader = new BsonDocumentReader(new BsonDocument("_id", id))) {
+            reader.readStartDocument();
+            reader.readName();
+            return idCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    private void saveToken(boolean force) {
+        BsonDocument current = token;
+        if (tokenSaved || current == null) return;
+
+        long now = System.currentTimeMillis();
+        if (!force && now - lastSave < SAVE_INTERVAL_MILLIS) return;
+
+        try {
+            tokenStore.save(name, current);
+            tokenSaved = true;
+            lastSave = now;
+        } catch (Exception e) {
+            Logging.warn("Unable to save the resume token of " + name + ": " + e.getMessage());
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return !closed;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.flameyossnowy.universal.mongodb.changestream;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the resume token of every change stream watcher, so a watcher continues after the last change it
+ * handled instead of missing the changes made while it was stopped.
+ */
+@SuppressWarnings("unused")
+public interface ResumeTokenStore {
+    /**
+     * Loads the last saved token of a watcher.
+     *
+     * @param name the name of the watcher, the repository name
+     * @return the token, or null to start watching from now on
+     */
+    @Nullable BsonDocument load(@NotNull String name);
+
+    /**
+     * Saves the token of a watcher, replacing the previous one.
+     *
+     * @param name the name of the watcher, the repository name
+     * @param token the resume token of the last handled change
+     */
+    void save(@NotNull String name, @NotNull BsonDocument token);
+
+    /**
+     * Creates a store keeping the tokens in memory, which survive the watcher reconnecting but not the application restarting.
+     */
+    @Contract(" -> new")
+    static @NotNull ResumeTokenStore inMemory() {
+        Map<String, BsonDocument> tokens = new ConcurrentHashMap<>();
+        return new ResumeTokenStore() {
+            @Override
+            public @Nullable BsonDocument load(@NotNull String name) {
+                return tokens.get(name);
+            }
+
+            @Override
+            public void save(@NotNull String name, @NotNull BsonDocument token) {
+                tokens.put(name, token);
+            }
+        };
+    }
+
+    /**
+     * Creates a store keeping the tokens in a collection, one document per watcher with the watcher name as {@code _id}.
+     *
+     * @param collection the collection storing the tokens
+     */
+    @Contract("_ -> new")
+    static @NotNull ResumeTokenStore collection(@NotNull MongoCollection<BsonDocument> collection) {
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        return new ResumeTokenStore() {
+            @Override
+            public @Nullable BsonDocument load(@NotNull String name) {
+                BsonDocument stored = collection.find(new BsonDocument("_id", new BsonString(name))).first();
+                return stored == null || !stored.isDocument("token") ? null : stored.getDocument("token");
+            }
+
+            @Override
+            public void save(@NotNull String name, @NotNull BsonDocument token) {
+                BsonDocument id = new BsonDocument("_id", new BsonString(name));
+                collection.replaceOne(id, id.clone().append("token", token), upsert);
+            }
+        };
+    }
+}
@@ -0,0 +1,465 @@
+package io.github.flameyossnowy.universal.mongodb.codec;
+
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Stores a collection, map or primitive array field natively, instead of leaving it to whatever the registry does
+ * with its class: collections and primitive arrays as BSON arrays, maps as embedded documents. The element types are
+ * resolved once per field, so every element is read straight as its type rather than converting the field afterwards.
+ * <p>
+ * Sets are stored as arrays in their iteration order. Map keys are stored as strings, enum keys by their name, and
+ * converted back to the key type when read. Byte arrays are not embedded, they are stored as binary.
+ * <p>
+ * Codecs hold no state of a codec registry, the element codecs are resolved by the caller, so a codec can be shared by
+ * the {@link io.github.flameyossnowy.universal.mongodb.ObjectFactory} and every {@link EntityCodec} of a repository.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public final class EmbeddedCodec {
+    /**
+     * How a field is embedded in its document.
+     */
+    public enum Mode {
+        /** A collection stored as an array of its elements. */
+        ARRAY,
+        /** A map stored as an embedded document. */
+        DOCUMENT,
+        /** A primitive array stored as an array of numbers or booleans. */
+        PRIMITIVE_ARRAY
+    }
+
+    /**
+     * Writes an element with the codec the registry has for its class, or a null.
+     */
+    @FunctionalInterface
+    public interface ElementWriter {
+        void write(BsonWriter writer, @Nullable Object value, EncoderContext encoderContext);
+    }
+
+    /**
+     * Reads a non-null element, as the {@link #elementType()} of the codec.
+     */
+    @FunctionalInterface
+    public interface ElementReader {
+        Object read(BsonReader reader, DecoderContext decoderContext);
+    }
+
+    private final Mode mode;
+    private final Class<?> type;
+    private final Class<?> elementType;
+    private final @Nullable Class<?> keyType;
+    private final Supplier<Object> factory;
+
+    private EmbeddedCodec(Mode mode, Class<?> type, Class<?> elementType, @Nullable Class<?> keyType, Supplier<Object> factory) {
+        this.mode = mode;
+        this.type = type;
+        this.elementType = elementType;
+        this.keyType = keyType;
+        this.factory = factory;
+    }
+
+    /**
+     * Creates the codec of a field, if it is a collection or map with known element types, or a primitive array.
+     *
+     * @return the codec, or {@code null} if the field is not embedded
+     */
+    public static @Nullable EmbeddedCodec of(@NotNull FieldData<?> field) {
+        Class<?> type = field.type();
+
+        if (type.isArray()) {
+            Class<?> component = type.getComponentType();
+            if (!component.isPrimitive() || component == byte.class || component == char.class) return null;
+            return new EmbeddedCodec(Mode.PRIMITIVE_ARRAY, type, component, null, null);
+        }
+
+        if (Collection.class.isAssignableFrom(type)) {
+            Class<?> element = field.elementType();
+            if (element == null) return null;
+            Supplier<Object> factory = collectionFactory(type, element);
+            return factory == null ? null : new EmbeddedCodec(Mode.ARRAY, type, element, null, factory);
+        }
+
+        if (Map.class.isAssignableFrom(type)) {
+            Class<?> key = field.mapKeyType();
+            Class<?> value = field.mapValueType();
+            if (key == null || value == null || !isKeyType(key)) return null;
+            Supplier<Object> factory = mapFactory(type, key);
+            return factory == null ? null : new EmbeddedCodec(Mode.DOCUMENT, type, value, key, factory);
+        }
+
+        return null;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return the type of the elements, map values or array components
+     */
+    public Class<?> elementType() {
+        return elementType;
+    }
+
+    /**
+     * Checks whether a value of a BSON type was written by this codec, values of other types were stored by an older
+     * version or another client and are read as they are.
+     */
+    public boolean accepts(BsonType bsonType) {
+        return mode == Mode.DOCUMENT ? bsonType == BsonType.DOCUMENT : bsonType == BsonType.ARRAY;
+    }
+
+    /**
+     * Converts a field value to the value stored in a {@link Document}: a list, or a document with string keys.
+     */
+    @Contract("null -> null")
+    public @Nullable Object toBson(@Nullable Object value) {
+        if (value == null) return null;
+
+        return switch (mode) {
+            case ARRAY -> value instanceof List<?> ? value : new ArrayList<>((Collection<?>) value);
+            case DOCUMENT -> {
+                if (keyType == String.class) yield value;
+                Map<?, ?> map = (Map<?, ?>) value;
+                Document document = new Document();
+                for (Map.Entry<?, ?> entry : map.entrySet()) document.put(keyName(entry.getKey()), entry.getValue());
+                yield document;
+            }
+            case PRIMITIVE_ARRAY -> {
+                int length = Array.getLength(value);
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) list.add(Array.get(value, i));
+                yield list;
+            }
+        };
+    }
+
+    /**
+     * Converts a value read into a {@link Document} back to the type of the field, converting every element to the
+     * element type. Values which are not an array or document are returned as they are.
+     */
+    @Contract("null -> null")
+    public @Nullable Object fromBson(@Nullable Object value) {
+        if (value == null) return null;
+
+        return switch (mode) {
+            case ARRAY -> {
+                if (!(value instanceof Collection<?> elements)) yield value;
+                Collection<Object> collection = (Collection<Object>) factory.get();
+                for (Object element : elements) collection.add(convert(element, elementType));
+                yield collection;
+            }
+            case DOCUMENT -> {
+                if (!(value instanceof Map<?, ?> entries)) yield value;
+                Map<Object, Object> map = (Map<Object, Object>) factory.get();
+                for (Map.Entry<?, ?> entry : entries.entrySet()) {
+                    map.put(parseKey(String.valueOf(entry.getKey())), convert(entry.getValue(), elementType));
+                }
+                yield map;
+            }
+            case PRIMITIVE_ARRAY -> {
+                if (!(value instanceof List<?> elements)) yield value;
+                Object array = Array.newInstance(elementType, elements.size());
+                for (int i = 0; i < elements.size(); i++) {
+                    Object element = convert(elements.get(i), elementType);
+                    if (element != null) Array.set(array, i, element);
+                }
+                yield array;
+            }
+        };
+    }
+
+    /**
+     * Converts an element read by its BSON type to the element type.
+     */
+    public @Nullable Object convertElement(@Nullable Object element) {
+        return convert(element, elementType);
+    }
+
+    /**
+     * Writes a field value straight to BSON, primitive arrays as typed numbers without boxing them.
+     */
+    public void encode(@NotNull BsonWriter writer, @NotNull Object value, EncoderContext encoderContext, ElementWriter elements) {
+        switch (mode) {
+            case ARRAY -> {
+                writer.writeStartArray();
+                for (Object element : (Collection<?>) value) elements.write(writer, element, encoderContext);
+                writer.writeEndArray();
+            }
+            case DOCUMENT -> {
+                writer.writeStartDocument();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    writer.writeName(keyName(entry.getKey()));
+                    elements.write(writer, entry.getValue(), encoderContext);
+                }
+                writer.writeEndDocument();
+            }
+            case PRIMITIVE_ARRAY -> writePrimitiveArray(writer, value);
+        }
+    }
+
+    /**
+     * Reads a field value straight from BSON, which must be of a type this codec {@link #accepts(BsonType) accepts}.
+     */
+    public @NotNull Object decode(@NotNull BsonReader reader, DecoderContext decoderContext, ElementReader elements) {
+        switch (mode) {
+            case ARRAY -> {
+                Collection<Object> collection = (Collection<Object>) factory.get();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    collection.add(readElement(reader, decoderContext, elements));
+                }
+                reader.readEndArray();
+                return collection;
+            }
+            case DOCUMENT -> {
+                Map<Object, Object> map = (Map<Object, Object>) factory.get();
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    Object key = parseKey(reader.readName());
+                    map.put(key, readElement(reader, decoderContext, elements));
+                }
+                reader.readEndDocument();
+                return map;
+            }
+            default -> {
+                return readPrimitiveArray(reader);
+            }
+        }
+    }
+
+    private static @Nullable Object readElement(@NotNull BsonReader reader, DecoderContext decoderContext, ElementReader elements) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return elements.read(reader, decoderContext);
+    }
+
+    private void writePrimitiveArray(@NotNull BsonWriter writer, @NotNull Object value) {
+        writer.writeStartArray();
+        switch (value) {
+            case int[] array -> { for (int element : array) writer.writeInt32(element); }
+            case long[] array -> { for (long element : array) writer.writeInt64(element); }
+            case double[] array -> { for (double element : array) writer.writeDouble(element); }
+            case float[] array -> { for (float element : array) writer.writeDouble(element); }
+            case short[] array -> { for (short element : array) writer.writeInt32(element); }
+            case boolean[] array -> { for (boolean element : array) writer.writeBoolean(element); }
+            default -> throw new IllegalArgumentException("Not a primitive array: " + value.getClass().getName());
+        }
+        writer.writeEndArray();
+    }
+
+    /**
+     * Reads the elements into a buffer of their bits, floating point elements as their raw long bits, and copies it
+     * into an array of the component type once its length is known.
+     */
+    private @NotNull Object readPrimitiveArray(@NotNull BsonReader reader) {
+        boolean floating = elementType == double.class || elementType == float.class;
+        long[] buffer = new long[16];
+        int size = 0;
+
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+            buffer[size++] = floating ? Double.doubleToRawLongBits(readDouble(reader)) : readLong(reader);
+        }
+        reader.readEndArray();
+
+        if (elementType == long.class) return Arrays.copyOf(buffer, size);
+        if (elementType == int.class) {
+            int[] array = new int[size];
+            for (int i = 0; i < size; i++) array[i] = (int) buffer[i];
+            return array;
+        }
+        if (elementType == double.class) {
+            double[] array = new double[size];
+            for (int i = 0; i < size; i++) array[i] = Double.longBitsToDouble(buffer[i]);
+            return array;
+        }
+        if (elementType == float.class) {
+            float[] array = new float[size];
+            for (int i = 0; i < size; i++) array[i] = (float) Double.longBitsToDouble(buffer[i]);
+            return array;
+        }
+        if (elementType == short.class) {
+            short[] array = new short[size];
+            for (int i = 0; i < size; i++) array[i] = (short) buffer[i];
+            return array;
+        }
+        boolean[] array = new boolean[size];
+        for (int i = 0; i < size; i++) array[i] = buffer[i] != 0;
+        return array;
+    }
+
+    private static long readLong(@NotNull BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            case BOOLEAN -> reader.readBoolean() ? 1L : 0L;
+            case NULL -> {
+                reader.readNull();
+                yield 0L;
+            }
+            default -> throw new BsonInvalidOperationException("Cannot read " + reader.getCurrentBsonType() + " as a number");
+        };
+    }
+
+    private static double readDouble(@NotNull BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case DOUBLE -> reader.readDouble();
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DECIMAL128 -> reader.readDecimal128().doubleValue();
+            case NULL -> {
+                reader.readNull();
+                yield 0D;
+            }
+            default -> throw new BsonInvalidOperationException("Cannot read " + reader.getCurrentBsonType() + " as a number");
+        };
+    }
+
+    private static @NotNull String keyName(@Nullable Object key) {
+        return key instanceof Enum<?> constant ? constant.name() : String.valueOf(key);
+    }
+
+    private @NotNull Object parseKey(@NotNull String name) {
+        if (keyType == String.class) return name;
+        if (keyType.isEnum()) return Enum.valueOf((Class<? extends Enum>) keyType, name);
+        if (keyType == Integer.class) return Integer.valueOf(name);
+        if (keyType == Long.class) return Long.valueOf(name);
+        if (keyType == Double.class) return Double.valueOf(name);
+        if (keyType == Short.class) return Short.valueOf(name);
+        if (keyType == Boolean.class) return Boolean.valueOf(name);
+        if (keyType == Character.class) return name.charAt(0);
+        return UUID.fromString(name);
+    }
+
+    private static boolean isKeyType(Class<?> type) {
+        return type == String.class
+            || type.isEnum()
+            || type == Integer.class
+            || type == Long.class
+            || type == Double.class
+            || type == Short.class
+            || type == Boolean.class
+            || type == Character.class
+            || type == UUID.class;
+    }
+
+    /**
+     * Converts a value read by its BSON type, which differs from the element type for numbers narrower than the BSON
+     * ones, enums stored by name and dates.
+     */
+    private static @Nullable Object convert(@Nullable Object value, @NotNull Class<?> target) {
+        if (value == null || target.isInstance(value)) return value;
+
+        Class<?> boxed = boxed(target);
+        if (boxed.isInstance(value)) return value;
+
+        if (value instanceof Number number) {
+            if (boxed == Integer.class) return number.intValue();
+            if (boxed == Long.class) return number.longValue();
+            if (boxed == Double.class) return number.doubleValue();
+            if (boxed == Float.class) return number.floatValue();
+            if (boxed == Short.class) return number.shortValue();
+            if (boxed == Byte.class) return number.byteValue();
+            if (boxed == BigDecimal.class) return new BigDecimal(number.toString());
+        }
+        if (value instanceof Decimal128 decimal && boxed == BigDecimal.class) return decimal.bigDecimalValue();
+        if (value instanceof String string) {
+            if (target.isEnum()) return Enum.valueOf((Class<? extends Enum>) target, string);
+            if (boxed == Character.class && string.length() == 1) return string.charAt(0);
+            if (target == UUID.class) return UUID.fromString(string);
+        }
+        if (value instanceof Date date) {
+            if (target == Instant.class) return date.toInstant();
+            if (target == LocalDateTime.class) return LocalDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC);
+            if (target == LocalDate.class) return LocalDate.ofInstant(date.toInstant(), ZoneOffset.UTC);
+        }
+        return value;
+    }
+
+    private static @Nullable Supplier<Object> collectionFactory(@NotNull Class<?> type, Class<?> element) {
+        if (type == EnumSet.class && element.isEnum()) return () -> EnumSet.noneOf((Class<? extends Enum>) element);
+        if (isConcrete(type)) return constructorOf(type);
+
+        if (type.isAssignableFrom(ArrayList.class)) return ArrayList::new;
+        if (type.isAssignableFrom(LinkedHashSet.class)) return LinkedHashSet::new;
+        if (type.isAssignableFrom(TreeSet.class)) return TreeSet::new;
+        if (type.isAssignableFrom(ArrayDeque.class)) return ArrayDeque::new;
+        return null;
+    }
+
+    private static @Nullable Supplier<Object> mapFactory(@NotNull Class<?> type, Class<?> key) {
+        if (type == EnumMap.class && key.isEnum()) return () -> new EnumMap<>((Class<? extends Enum>) key);
+        if (isConcrete(type)) return constructorOf(type);
+
+        if (type.isAssignableFrom(LinkedHashMap.class)) return LinkedHashMap::new;
+        if (type.isAssignableFrom(TreeMap.class)) return TreeMap::new;
+        return null;
+    }
+
+    private static boolean isConcrete(@NotNull Class<?> type) {
+        return !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+    }
+
+    private static @Nullable Supplier<Object> constructorOf(@NotNull Class<?> type) {
+        Constructor<?> constructor;
+        try {
+            constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+        } catch (NoSuchMethodException | RuntimeException e) {
+            return null;
+        }
+
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Failed to instantiate " + type.getName(), e);
+            }
+        };
+    }
+
+    private static Class<?> boxed(@NotNull Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedCodec[" + mode + ' ' + type.getName() + ']';
+    }
+}
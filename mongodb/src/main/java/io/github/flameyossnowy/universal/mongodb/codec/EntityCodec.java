@@ -0,0 +1,324 @@
+package io.github.flameyossnowy.universal.mongodb.codec;
+
+import io.github.flameyossnowy.universal.api.exceptions.ConstructorThrewException;
+import io.github.flameyossnowy.universal.api.reflect.FieldData;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.mongodb.ObjectFactory;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.BsonTypeClassMap;
+import org.bson.codecs.BsonTypeCodecMap;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes and decodes an entity straight between its fields and BSON, without building an intermediate {@link Document}.
+ * <p>
+ * Documents written by this codec are identical to the ones written through {@link ObjectFactory#toDocument(Object)}:
+ * the primary key is stored as {@code _id} and under its own name, and every value is encoded with the codec
+ * the registry has for its class. Values are decoded with the codec for the type of their field, fields without one
+ * are read like a {@link Document} would read them and converted by the {@link ObjectFactory}.
+ * Collections, maps and primitive arrays are written and read element by element through their {@link EmbeddedCodec}.
+ * <p>
+ * Fields stored through a type resolver ({@link ObjectFactory#getTypeResolver(String)}) never reach the registry
+ * with their own type: the resolver is called with the name of the field, and the value it stores is written
+ * and read back like any other.
+ * <p>
+ * Entities with relationships are loaded through their related repositories, so they are still converted through a
+ * {@link Document}, as are entities without a primary key, whose {@code _id} is generated by the driver.
+ *
+ * @param <T> the entity type
+ */
+@SuppressWarnings({ "unused", "unchecked" })
+public final class EntityCodec<T> implements Codec<T> {
+    private static final String ID = "_id";
+
+    private final Class<T> type;
+    private final RepositoryInformation information;
+    private final ObjectFactory<T, ?> objectFactory;
+    private final CodecRegistry registry;
+
+    private final boolean direct;
+    private final boolean isRecord;
+
+    private final FieldData<?>[] fields;
+    // The values of record components missing from a document, primitives can't take null
+    private final Object @Nullable [] missing;
+    private final Map<String, Integer> slots;
+    private final int primarySlot;
+
+    // Resolved on first use, so entity types referencing each other do not resolve each other's codecs recursively
+    private final Codec<Object>[] decoders;
+    private final boolean[] generic;
+    private final boolean[] resolved;
+    private final EmbeddedCodec[] embedded;
+    private final EmbeddedCodec.ElementReader[] elementReaders;
+    private final Codec<Object>[] elementDecoders;
+    private final boolean[] genericElements;
+    private volatile BsonTypeCodecMap bsonTypeCodecs;
+    private volatile Codec<Document> documentCodec;
+
+    public EntityCodec(
+        @NotNull Class<T> type,
+        @NotNull RepositoryInformation information,
+        @NotNull ObjectFactory<T, ?> objectFactory,
+        @NotNull CodecRegistry registry
+    ) {
+        this.type = type;
+        this.information = information;
+        this.objectFactory = objectFactory;
+        this.registry = registry;
+        this.isRecord = information.isRecord();
+        this.direct = supports(information);
+
+        if (isRecord) {
+            RecordComponent[] components = information.getRecordComponents();
+            this.fields = new FieldData<?>[components.length];
+            this.missing = new Object[components.length];
+            for (int i = 0; i < components.length; i++) {
+                fields[i] = information.getField(components[i].getName());
+                missing[i] = ObjectFactory.missingValue(components[i].getType());
+            }
+        } else {
+            this.fields = information.getFields().toArray(new FieldData<?>[0]);
+            this.missing = null;
+        }
+
+        this.slots = new HashMap<>(fields.length * 2);
+        int primary = -1;
+        for (int i = 0; i < fields.length; i++) {
+            FieldData<?> field = fields[i];
+            if (field == null) continue;
+            slots.put(field.name(), i);
+            if (field.primary()) primary = i;
+        }
+        this.primarySlot = primary;
+        if (primary != -1) slots.putIfAbsent(ID, primary);
+
+        this.decoders = new Codec[fields.length];
+        this.generic = new boolean[fields.length];
+
+        this.resolved = new boolean[fields.length];
+        this.embedded = new EmbeddedCodec[fields.length];
+        this.elementReaders = new EmbeddedCodec.ElementReader[fields.length];
+        this.elementDecoders = new Codec[fields.length];
+        this.genericElements = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == null) continue;
+            resolved[i] = objectFactory.getTypeResolver(fields[i].name()) != null;
+            embedded[i] = objectFactory.getEmbeddedCodec(fields[i].name());
+            int index = i;
+            if (embedded[i] != null) elementReaders[i] = (reader, context) -> readElement(reader, index, context);
+        }
+    }
+
+    /**
+     * Checks whether entities of a repository are converted straight from BSON, rather than through a {@link Document}.
+     */
+    public static boolean supports(@NotNull RepositoryInformation information) {
+        if (information.getPrimaryKey() == null) return false;
+        for (FieldData<?> field : information.getFields()) {
+            if (field.oneToOne() != null || field.oneToMany() != null || field.manyToOne() != null) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        if (!direct) {
+            encoderContext.encodeWithChildContext(documentCodec(), writer, objectFactory.toDocument(value));
+            return;
+        }
+
+        writer.writeStartDocument();
+
+        FieldData<?> primaryKey = fields[primarySlot];
+        Object id = objectFactory.toResolvedValue(primaryKey, primaryKey.getValue(value));
+        writer.writeName(ID);
+        writeValue(writer, id, encoderContext);
+        if (!primaryKey.name().equals(ID)) {
+            writer.writeName(primaryKey.name());
+            writeValue(writer, id, encoderContext);
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            FieldData<?> field = fields[i];
+            if (field == null || i == primarySlot) continue;
+
+            writer.writeName(field.name());
+            Object fieldValue = field.getValue(value);
+            if (embedded[i] != null && fieldValue != null) {
+                embedded[i].encode(writer, fieldValue, encoderContext, this::writeValue);
+            } else if (resolved[i]) {
+                writeValue(writer, objectFactory.toResolvedValue(field, fieldValue), encoderContext);
+            } else {
+                writeValue(writer, fieldValue, encoderContext);
+            }
+        }
+
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        if (!direct) return objectFactory.fromDocument(documentCodec().decode(reader, decoderContext));
+
+        Object[] values = new Object[fields.length];
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Integer slot = slots.get(reader.readName());
+            if (slot == null) {
+                reader.skipValue();
+                continue;
+            }
+
+            int index = slot;
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+
+            values[index] = readValue(reader, index, decoderContext);
+        }
+        reader.readEndDocument();
+
+        return isRecord ? newRecord(values) : newEntity(values);
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return type;
+    }
+
+    private @NotNull T newEntity(Object @NotNull [] values) {
+        T entity = (T) information.newInstance();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) fields[i].setValue(entity, values[i]);
+        }
+        return entity;
+    }
+
+    private @NotNull T newRecord(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) values[i] = missing[i];
+        }
+
+        try {
+            return (T) information.getRecordConstructor().newInstance(values);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Failed to instantiate record: " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new ConstructorThrewException("Record constructor threw exception: " + e.getMessage());
+        }
+    }
+
+    private void writeValue(BsonWriter writer, @Nullable Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+
+        Codec<Object> codec = (Codec<Object>) registry.get(value.getClass());
+        encoderContext.encodeWithChildContext(codec, writer, value);
+    }
+
+    private @Nullable Object readValue(BsonReader reader, int index, DecoderContext decoderContext) {
+        FieldData<?> field = fields[index];
+
+        // Read as stored, the resolver of the field turns it back into the field type
+        if (resolved[index]) return objectFactory.coerceValue(field, readGeneric(reader, decoderContext));
+
+        EmbeddedCodec codec = embedded[index];
+        if (codec != null) {
+            if (codec.accepts(reader.getCurrentBsonType())) return codec.decode(reader, decoderContext, elementReaders[index]);
+            return objectFactory.coerceValue(field, codec.fromBson(readGeneric(reader, decoderContext)));
+        }
+
+        if (!generic[index]) {
+            Codec<Object> decoder = decoders[index];
+            if (decoder == null) {
+                try {
+                    decoder = (Codec<Object>) registry.get(boxed(field.type()));
+                    decoders[index] = decoder;
+                } catch (CodecConfigurationException e) {
+                    generic[index] = true;
+                }
+            }
+            if (decoder != null) return decoderContext.decodeWithChildContext(decoder, reader);
+        }
+
+        return objectFactory.coerceValue(field, readGeneric(reader, decoderContext));
+    }
+
+    /**
+     * Reads an element of an embedded field with the codec for the element type, or by its BSON type if there is none.
+     */
+    private @Nullable Object readElement(BsonReader reader, int index, DecoderContext decoderContext) {
+        if (!genericElements[index]) {
+            Codec<Object> decoder = elementDecoders[index];
+            if (decoder == null) {
+                try {
+                    decoder = (Codec<Object>) registry.get(boxed(embedded[index].elementType()));
+                    elementDecoders[index] = decoder;
+                } catch (CodecConfigurationException e) {
+                    genericElements[index] = true;
+                }
+            }
+            if (decoder != null) return decoderContext.decodeWithChildContext(decoder, reader);
+        }
+
+        return embedded[index].convertElement(readGeneric(reader, decoderContext));
+    }
+
+    /**
+     * Reads a value the way {@link Document} reads it, by its BSON type.
+     */
+    private @Nullable Object readGeneric(@NotNull BsonReader reader, DecoderContext decoderContext) {
+        BsonType bsonType = reader.getCurrentBsonType();
+        if (bsonType == BsonType.BINARY && reader.peekBinarySize() == 16 && BsonBinarySubType.isUuid(reader.peekBinarySubType())) {
+            try {
+                return decoderContext.decodeWithChildContext(registry.get(UUID.class), reader);
+            } catch (CodecConfigurationException ignored) {
+                // No UUID codec, read it as binary
+            }
+        }
+
+        BsonTypeCodecMap codecs = bsonTypeCodecs;
+        if (codecs == null) bsonTypeCodecs = codecs = new BsonTypeCodecMap(new BsonTypeClassMap(), registry);
+        return decoderContext.decodeWithChildContext(codecs.get(bsonType), reader);
+    }
+
+    private Codec<Document> documentCodec() {
+        Codec<Document> codec = documentCodec;
+        if (codec == null) documentCodec = codec = registry.get(Document.class);
+        return codec;
+    }
+
+    private static Class<?> boxed(@NotNull Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return type;
+    }
+}
@@ -30,7 +30,7 @@ public record MongoTypeCodec<T>(Class<T> type, TypeResolverRegistry typeResolver
     
     /**
      * ThreadLocal to pass field context from ObjectFactory to the codec.
-     * This allows accurate thread-safe field name tracking even when multiple fields share the same type.
+     * Entity codecs do not use it, they call the type resolvers with the field name themselves.
      */
     private static final ThreadLocal<String> CURRENT_FIELD_NAME = new ThreadLocal<>();
     
@@ -88,7 +88,7 @@ public record MongoTypeCodec<T>(Class<T> type, TypeResolverRegistry typeResolver
      * Finds the column name for the type being encoded/decoded.
      * <p>
      * Priority order:
-     * 1. ThreadLocal field name (set by ObjectFactory during serialization)
+     * 1. ThreadLocal field name (set by the caller around encoding and decoding)
      * 2. Single field of this type in the repository
      * 3. Type's simple name in lowercase as fallback
      * 
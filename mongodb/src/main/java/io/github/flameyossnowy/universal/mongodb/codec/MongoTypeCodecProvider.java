@@ -2,6 +2,7 @@ package io.github.flameyossnowy.universal.mongodb.codec;
 
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.mongodb.ObjectFactory;
 import org.bson.codecs.Codec;
 import org.bson.codecs.configuration.CodecProvider;
 import org.bson.codecs.configuration.CodecRegistry;
@@ -11,11 +12,24 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * A CodecProvider that provides codecs for types registered in TypeResolverRegistry.
+ * <p>
+ * If an object factory is given, it only provides the {@link EntityCodec} of the repository entity, the field values
+ * are left to the rest of the registry so they are stored the same way a {@link org.bson.Document} stores them,
+ * and the entity codec calls the type resolvers itself, with the name of the field, when reading and writing them.
  */
-public record MongoTypeCodecProvider(TypeResolverRegistry typeResolverRegistry, RepositoryInformation information) implements CodecProvider {
+public record MongoTypeCodecProvider(TypeResolverRegistry typeResolverRegistry, RepositoryInformation information,
+                                     @Nullable ObjectFactory<?, ?> objectFactory) implements CodecProvider {
+    public MongoTypeCodecProvider(TypeResolverRegistry typeResolverRegistry, RepositoryInformation information) {
+        this(typeResolverRegistry, information, null);
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public <T> @Nullable Codec<T> get(Class<T> clazz, CodecRegistry registry) {
-        if (typeResolverRegistry.hasResolver(clazz)) {
+        if (objectFactory != null && clazz == information.getType()) {
+            return new EntityCodec<>(clazz, information, (ObjectFactory<T, ?>) objectFactory, registry);
+        }
+        if (objectFactory == null && typeResolverRegistry.hasResolver(clazz)) {
             return new MongoTypeCodec<>(clazz, typeResolverRegistry, information);
         }
         return null;
@@ -31,4 +45,16 @@ public record MongoTypeCodecProvider(TypeResolverRegistry typeResolverRegistry,
     public static @NotNull MongoTypeCodecProvider create(TypeResolverRegistry typeResolverRegistry, RepositoryInformation information) {
         return new MongoTypeCodecProvider(typeResolverRegistry, information);
     }
+
+    /**
+     * Create a new instance that also provides the entity codec of the repository.
+     *
+     * @param typeResolverRegistry the type resolver registry to use
+     * @param objectFactory the object factory of the repository, used for the types the entity codec does not convert directly
+     * @return a new instance
+     */
+    @Contract("_, _, _ -> new")
+    public static @NotNull MongoTypeCodecProvider create(TypeResolverRegistry typeResolverRegistry, RepositoryInformation information, ObjectFactory<?, ?> objectFactory) {
+        return new MongoTypeCodecProvider(typeResolverRegistry, information, objectFactory);
+    }
 }
@@ -0,0 +1,159 @@
+package io.github.flameyossnowy.universal.mongodb.query;
+
+import io.github.flameyossnowy.universal.api.options.SelectOption;
+import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLRUCache;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A filter compiled once per query shape, the fields and operators of its conditions, which only takes the values.
+ * <p>
+ * Binding writes the conditions straight into a {@link Document}, instead of building a {@code Filters} object per
+ * condition and an {@code and} of them which are rendered again when the query is sent. The documents match the same
+ * documents as the equivalent {@code Filters}, equality conditions use the short {@code {field: value}} form.
+ * Bound filters are plain documents, so equal queries produce equal filters, which the result cache relies on.
+ * <p>
+ * Collections are stored as arrays, so equality and {@code IN} conditions on them match any element.
+ * {@code CONTAINS} is the explicit form of the former, {@code ALL}, {@code SIZE} and {@code ELEM_MATCH} map to
+ * {@code $all}, {@code $size} and {@code $elemMatch}. The conditions of an {@code ELEM_MATCH} are part of the shape,
+ * with an empty field for conditions on the element itself.
+ */
+@SuppressWarnings("unchecked")
+public final class FilterTemplate {
+    private static final Bson EMPTY = new BsonDocument();
+    private static final Map<String, FilterTemplate> TEMPLATES = new ConcurrentLRUCache<>(512);
+
+    private final String[] fields;
+    private final String[] operators;
+
+    private FilterTemplate(String[] fields, String[] operators) {
+        this.fields = fields;
+        this.operators = operators;
+    }
+
+    /**
+     * Builds the filter of the conditions, through the template of their shape.
+     */
+    public static @NotNull Bson createFilter(@NotNull List<SelectOption> options) {
+        if (options.isEmpty()) return EMPTY;
+        return of(options).bind(options);
+    }
+
+    /**
+     * @return the template of the shape of the conditions, compiled on first use
+     */
+    public static @NotNull FilterTemplate of(@NotNull List<SelectOption> options) {
+        return TEMPLATES.computeIfAbsent(shapeOf(options), shape -> compile(options));
+    }
+
+    /**
+     * Describes the fields and operators of the conditions, without their values.
+     */
+    public static @NotNull String shapeOf(@NotNull List<SelectOption> options) {
+        if (options.size() == 1) {
+            SelectOption option = options.getFirst();
+            if (!isElementMatch(option)) return option.option() + ' ' + option.operator();
+        }
+
+        StringBuilder shape = new StringBuilder(options.size() * 16);
+        appendShape(shape, options);
+        return shape.toString();
+    }
+
+    private static void appendShape(StringBuilder shape, @NotNull List<SelectOption> options) {
+        for (SelectOption option : options) {
+            shape.append(option.option()).append(' ').append(option.operator());
+            if (isElementMatch(option)) {
+                shape.append('[');
+                appendShape(shape, (List<SelectOption>) option.value());
+                shape.append(']');
+            }
+            shape.append(';');
+        }
+    }
+
+    private static boolean isElementMatch(@NotNull SelectOption option) {
+        return "ELEM_MATCH".equals(option.operator()) && option.value() instanceof List<?>;
+    }
+
+    private static @NotNull FilterTemplate compile(@NotNull List<SelectOption> options) {
+        String[] fields = new String[options.size()];
+        String[] operators = new String[options.size()];
+        for (int i = 0; i < fields.length; i++) {
+            SelectOption option = options.get(i);
+            fields[i] = option.option();
+            operators[i] = operatorOf(option.operator());
+        }
+        return new FilterTemplate(fields, operators);
+    }
+
+    /**
+     * @return the query operator of a filter operation, {@code null} for equality
+     */
+    private static String operatorOf(@NotNull String operation) {
+        return switch (operation) {
+            case "=", "CONTAINS" -> null;
+            case "!=" -> "$ne";
+            case "IN" -> "$in";
+            case ">" -> "$gt";
+            case "<" -> "$lt";
+            case ">=" -> "$gte";
+            case "<=" -> "$lte";
+            case "ALL" -> "$all";
+            case "SIZE" -> "$size";
+            case "ELEM_MATCH" -> "$elemMatch";
+            default -> throw new IllegalArgumentException("Unsupported filter operation: " + operation);
+        };
+    }
+
+    /**
+     * Binds the values of the conditions, which must have the shape of this template, in the same order.
+     */
+    public @NotNull Bson bind(@NotNull List<SelectOption> options) {
+        if (fields.length == 1) return condition(0, options.getFirst().value());
+
+        List<Document> conditions = new ArrayList<>(fields.length);
+        for (int i = 0; i < fields.length; i++) conditions.add(condition(i, options.get(i).value()));
+        return new Document("$and", conditions);
+    }
+
+    private @NotNull Document condition(int index, Object value) {
+        String operator = operators[index];
+        if (operator == null) return new Document(fields[index], value);
+        return new Document(fields[index], new Document(operator, operand(operator, value)));
+    }
+
+    private static Object operand(@NotNull String operator, Object value) {
+        return "$elemMatch".equals(operator) && value instanceof List<?> conditions
+            ? elementFilter((List<SelectOption>) conditions)
+            : value;
+    }
+
+    /**
+     * Builds the filter an element must match, the conditions on the same field are merged so they apply to the
+     * same element.
+     */
+    private static @NotNull Document elementFilter(@NotNull List<SelectOption> conditions) {
+        Document filter = new Document();
+        for (SelectOption condition : conditions) {
+            String operation = condition.operator();
+            String operator = "=".equals(operation) || "CONTAINS".equals(operation) ? "$eq" : operatorOf(operation);
+            Object value = operand(operator, condition.value());
+
+            if (condition.option().isEmpty()) {
+                filter.append(operator, value);
+            } else {
+                Object existing = filter.get(condition.option());
+                Document operators = existing instanceof Document document ? document : new Document();
+                filter.append(condition.option(), operators.append(operator, value));
+            }
+        }
+        return filter;
+    }
+}
@@ -9,13 +9,15 @@ import io.github.flameyossnowy.universal.api.options.validator.ValidationEstimat
 import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.velocis.cache.algorithms.ConcurrentLRUCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -26,18 +28,55 @@ import java.util.regex.Pattern;
  * - Operators must be valid MongoDB operators
  * - Collection scan warnings for unindexed queries
  * - Document size limits
+ * <p>
+ * Select queries are validated once per shape, their filter fields and operators, sort options and columns.
+ * Later queries of the same shape reuse the result, and only their limit and regex values are checked again.
  */
-public record MongoQueryValidator(RepositoryInformation repositoryInformation) implements QueryValidator {
+public final class MongoQueryValidator implements QueryValidator {
 
     private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024; // 16MB
     private static final Pattern INVALID_FIELD_PATTERN = Pattern.compile(".*\\..*|^\\$.*");
 
-    private static final Set<String> VALID_REGEXES = new HashSet<>(2);
-    private static final Set<String> INVALID_REGEXES = new HashSet<>(2);
+    private static final Set<String> VALID_REGEXES = ConcurrentHashMap.newKeySet(2);
+    private static final Set<String> INVALID_REGEXES = ConcurrentHashMap.newKeySet(2);
+
+    private final RepositoryInformation repositoryInformation;
+    private final Map<String, ValidationEstimation> selectShapes = new ConcurrentLRUCache<>(256);
+
+    public MongoQueryValidator(RepositoryInformation repositoryInformation) {
+        this.repositoryInformation = repositoryInformation;
+    }
+
+    public RepositoryInformation repositoryInformation() {
+        return repositoryInformation;
+    }
 
     @Override
     public ValidationEstimation validateSelectQuery(SelectQuery query) {
-        int limit = query.limit();
+        ValidationEstimation limitValidation = validateLimit(query.limit());
+        if (limitValidation != null) return limitValidation;
+
+        ValidationEstimation validation = selectShapes.computeIfAbsent(shapeOf(query), shape -> validateSelectShape(query));
+        if (validation.isFail()) return validation;
+
+        // Regex values are not part of the shape
+        for (SelectOption filter : query.filters()) {
+            var regexValidation = validateRegex(filter, filter.operator(), String.valueOf(filter.value()));
+            if (regexValidation != null) return regexValidation;
+        }
+        return validation;
+    }
+
+    private static @NotNull String shapeOf(@NotNull SelectQuery query) {
+        StringBuilder shape = new StringBuilder(FilterTemplate.shapeOf(query.filters()));
+        shape.append('|');
+        for (var sortOption : query.sortOptions()) shape.append(sortOption.field()).append(';');
+        shape.append('|');
+        for (String column : query.columns()) shape.append(column).append(';');
+        return shape.toString();
+    }
+
+    private static @Nullable ValidationEstimation validateLimit(int limit) {
         // Validate limit
         if (limit < 0 && limit != -1) {
             return ValidationEstimation.fail("Limit must be greater than 0");
@@ -50,7 +89,10 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
                 "Consider using pagination or reducing the limit."
             );
         }
+        return null;
+    }
 
+    private @NotNull ValidationEstimation validateSelectShape(@NotNull SelectQuery query) {
         // Validate filters
         List<SelectOption> filters = query.filters();
         for (SelectOption filter : filters) {
@@ -64,7 +106,7 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
             if (isInvalidMongoOperator(operator)) {
                 return ValidationEstimation.fail(
                     "Operator '" + operator + "' is not a valid MongoDB operator. " +
-                    "Valid operators: =, !=, <, <=, >, >=, IN, NOT IN, REGEX, EXISTS, TYPE, SIZE, ALL, ELEM_MATCH"
+                    "Valid operators: =, !=, <, <=, >, >=, IN, NOT IN, REGEX, EXISTS, TYPE, CONTAINS, SIZE, ALL, ELEM_MATCH"
                 );
             }
 
@@ -77,10 +119,6 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
                     "Consider adding an index on this field."
                 );
             }
-
-            var value = filter.value().toString();
-            var regexValidation = validateRegex(filter, operator, value);
-            if (regexValidation != null) return regexValidation;
         }
 
         // Validate sort options
@@ -161,10 +199,14 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
         List<SelectOption> conditions = query.filters();
 
         // Validate update fields
-        if (updates.isEmpty()) {
+        if (updates.isEmpty() && !query.hasArrayUpdates()) {
             return ValidationEstimation.fail("UPDATE must specify at least one field to update");
         }
 
+        ValidationEstimation arrayUpdates = validateArrayUpdates(query.pushes());
+        if (arrayUpdates == null) arrayUpdates = validateArrayUpdates(query.pulls());
+        if (arrayUpdates != null) return arrayUpdates;
+
         for (Map.Entry<String, Object> entry : updates.entrySet()) {
             String fieldName = entry.getKey();
             Object value = entry.getValue();
@@ -246,6 +288,19 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
         return ValidationEstimation.PASS;
     }
 
+    private @Nullable ValidationEstimation validateArrayUpdates(@NotNull Map<String, List<Object>> arrayUpdates) {
+        for (String fieldName : arrayUpdates.keySet()) {
+            FieldData<?> field = repositoryInformation.getField(fieldName);
+            if (field == null) {
+                return ValidationEstimation.fail("Update field '" + fieldName + "' does not exist in schema");
+            }
+            if (!Collection.class.isAssignableFrom(field.type())) {
+                return ValidationEstimation.fail("Cannot push to or pull from '" + fieldName + "', it is not a collection");
+            }
+        }
+        return null;
+    }
+
     private @Nullable ValidationEstimation validateSortOptions(SelectQuery query) {
         if (query.sortOptions().isEmpty()) {
             return null;
@@ -300,7 +355,7 @@ public record MongoQueryValidator(RepositoryInformation repositoryInformation) i
             // Comparison operators
             case "=", "EQ", "!=", "NE", "<", "LT", "<=", "LTE", ">", "GT", ">=", "GTE" -> false;
             // Array operators
-            case "IN", "NOT IN", "NIN", "ALL", "SIZE", "ELEM_MATCH" -> false;
+            case "IN", "NOT IN", "NIN", "CONTAINS", "ALL", "SIZE", "ELEM_MATCH" -> false;
             // Element operators
             case "EXISTS", "TYPE" -> false;
             // Evaluation operators
@@ -0,0 +1,306 @@
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import io.github.flameyossnowy.universal.mongodb.changestream.ChangeStreamWatcher;
+import io.github.flameyossnowy.universal.mongodb.changestream.ResumeTokenStore;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ChangeStreamInvalidationTest {
+    static final String NAME = "stream_stock";
+
+    final List<BsonDocument> updates = new CopyOnWriteArrayList<>();
+
+    MongoClient client;
+    MongoCollection<Document> raw;
+    MongoRepositoryAdapter<Stock, UUID> adapter;
+    ChangeStreamWatcher<Document, UUID> watcher;
+
+    @AfterEach
+    void teardown() {
+        if (watcher != null) watcher.close();
+        if (adapter != null) adapter.close();
+        if (client != null) client.close();
+    }
+
+    /**
+     * Connects to the server and skips the test unless it is a replica set, change streams need one.
+     */
+    void connect() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if ("findAndModify".equals(event.getCommandName())) updates.add(event.getCommand().getDocument("update"));
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder(MongoTestSupport.settings()).addCommandListener(listener).build());
+        Document hello = client.getDatabase("admin").runCommand(new Document("hello", 1));
+        assumeTrue(hello.containsKey("setName") || "isdbgrid".equals(hello.getString("msg")), "change streams need a replica set");
+
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection(NAME);
+        raw.deleteMany(new Document());
+    }
+
+    MongoRepositoryAdapter<Stock, UUID> adapter(ResumeTokenStore store, boolean refresh) {
+        adapter = MongoRepositoryAdapter
+            .builder(Stock.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .withChangeStreamInvalidation(store, refresh)
+            .build();
+        // Changes are only seen once the stream is open, which is when the first token is saved
+        awaitTrue(() -> store.load(NAME) != null, "the change stream was not opened");
+        return adapter;
+    }
+
+    static void awaitTrue(BooleanSupplier condition, String message) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail(message);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(message);
+            }
+        }
+    }
+
+    @Test
+    void inMemoryStoreKeepsTheLastTokenOfEveryWatcher() {
+        ResumeTokenStore store = ResumeTokenStore.inMemory();
+        BsonDocument first = new BsonDocument("_data", new BsonString("first"));
+        BsonDocument second = new BsonDocument("_data", new BsonString("second"));
+
+        assertNull(store.load("a"));
+        store.save("a", first);
+        store.save("b", first);
+        store.save("a", second);
+
+        assertEquals(second, store.load("a"));
+        assertEquals(first, store.load("b"));
+        assertNull(ResumeTokenStore.inMemory().load("a"));
+    }
+
+    @Test
+    void collectionStoreReplacesTheStoredToken() {
+        client = MongoTestSupport.client();
+        MongoCollection<BsonDocument> tokens = client.getDatabase(MongoTestSupport.DATABASE).getCollection("stream_tokens", BsonDocument.class);
+        tokens.deleteMany(new BsonDocument());
+        ResumeTokenStore store = ResumeTokenStore.collection(tokens);
+        BsonDocument token = new BsonDocument("_data", new BsonString("826"));
+
+        assertNull(store.load(NAME));
+        store.save(NAME, new BsonDocument("_data", new BsonString("825")));
+        store.save(NAME, token);
+
+        assertEquals(token, store.load(NAME));
+        assertEquals(1, tokens.countDocuments());
+    }
+
+    @Test
+    void externalUpdateEvictsTheCachedEntity() {
+        connect();
+        MongoRepositoryAdapter<Stock, UUID> stock = adapter(ResumeTokenStore.inMemory(), false);
+        UUID id = UUID.randomUUID();
+        assertTrue(stock.insert(new Stock(id, "bolt", 1)).isSuccess());
+        assertEquals(1, stock.findById(id).quantity);
+
+        raw.updateOne(Filters.eq("_id", id), Updates.set("quantity", 2));
+
+        awaitTrue(() -> stock.findById(id).quantity == 2, "the cached entity was not evicted");
+    }
+
+    @Test
+    void externalUpdateRefreshesTheCachedEntity() {
+        connect();
+        MongoRepositoryAdapter<Stock, UUID> stock = adapter(ResumeTokenStore.inMemory(), true);
+        UUID id = UUID.randomUUID();
+        assertTrue(stock.insert(new Stock(id, "nut", 1)).isSuccess());
+        assertEquals(1, stock.findById(id).quantity);
+
+        raw.updateOne(Filters.eq("_id", id), Updates.set("name", "washer"));
+
+        awaitTrue(() -> "washer".equals(stock.findById(id).name), "the cached entity was not refreshed");
+        assertEquals(1, stock.findById(id).quantity);
+    }
+
+    @Test
+    void ownUpdateKeepsTheSnapshot() {
+        connect();
+        MongoRepositoryAdapter<Stock, UUID> stock = adapter(ResumeTokenStore.inMemory(), false);
+        Stock updated = new Stock(UUID.randomUUID(), "rivet", 1);
+        Stock other = new Stock(UUID.randomUUID(), "pin", 1);
+        assertTrue(stock.insert(updated).isSuccess());
+        assertTrue(stock.insert(other).isSuccess());
+        Stock loaded = stock.findById(updated.id);
+        assertNotNull(stock.findById(other.id));
+
+        loaded.quantity = 2;
+        assertTrue(stock.updateAll(loaded).isSuccess());
+        // Events arrive in order, so the event of the update was handled once the later one was
+        raw.updateOne(Filters.eq("_id", other.id), Updates.set("quantity", 2));
+        awaitTrue(() -> stock.findById(other.id).quantity == 2, "the cached entity was not evicted");
+
+        updates.clear();
+        loaded.quantity = 3;
+        assertTrue(stock.updateAll(loaded).isSuccess());
+
+        assertEquals(1, updates.size());
+        BsonDocument set = updates.get(0).getDocument("$set");
+        assertTrue(set.containsKey("quantity"), set.toJson());
+        assertFalse(set.containsKey("name"), set.toJson());
+    }
+
+    @Test
+    void externalDeleteEvictsTheCachedEntity() {
+        connect();
+        MongoRepositoryAdapter<Stock, UUID> stock = adapter(ResumeTokenStore.inMemory(), false);
+        UUID id = UUID.randomUUID();
+        assertTrue(stock.insert(new Stock(id, "screw", 1)).isSuccess());
+        assertNotNull(stock.findById(id));
+
+        raw.deleteOne(Filters.eq("_id", id));
+
+        awaitTrue(() -> stock.findById(id) == null, "the deleted entity is still cached");
+    }
+
+    @Test
+    void restartedWatcherResumesAfterTheSavedToken() throws Exception {
+        connect();
+        ResumeTokenStore store = ResumeTokenStore.inMemory();
+        RecordingListener listener = new RecordingListener();
+
+        watcher = new ChangeStreamWatcher<>(NAME, raw, UUID.class, store, false, listener);
+        watcher.start();
+        awaitTrue(() -> store.load(NAME) != null, "the change stream was not opened");
+
+        UUID first = UUID.randomUUID();
+        raw.insertOne(new Document("_id", first));
+        assertEquals("insert " + first, listener.events.poll(10, TimeUnit.SECONDS));
+        watcher.close();
+        assertFalse(watcher.isRunning());
+
+        // Made while no watcher runs, the restarted watcher still sees them
+        UUID second = UUID.randomUUID();
+        raw.updateOne(Filters.eq("_id", first), Updates.set("touched", true));
+        raw.insertOne(new Document("_id", second));
+        raw.deleteOne(Filters.eq("_id", first));
+
+        watcher = new ChangeStreamWatcher<>(NAME, raw, UUID.class, store, false, listener);
+        watcher.start();
+
+        assertEquals("change " + first, listener.events.poll(10, TimeUnit.SECONDS));
+        assertEquals("insert " + second, listener.events.poll(10, TimeUnit.SECONDS));
+        assertEquals("delete " + first, listener.events.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void droppedCollectionResetsTheListener() throws Exception {
+        connect();
+        RecordingListener listener = new RecordingListener();
+        ResumeTokenStore store = ResumeTokenStore.inMemory();
+
+        watcher = new ChangeStreamWatcher<>(NAME, raw, UUID.class, store, false, listener);
+        watcher.start();
+        awaitTrue(() -> store.load(NAME) != null, "the change stream was not opened");
+
+        raw.drop();
+
+        String event;
+        do {
+            event = listener.events.poll(10, TimeUnit.SECONDS);
+        } while (event != null && !event.equals("reset"));
+        assertEquals("reset", event);
+    }
+
+    @Test
+    void changeThatKeepsFailingIsSkipped() throws Exception {
+        connect();
+        ResumeTokenStore store = ResumeTokenStore.inMemory();
+        UUID poison = UUID.randomUUID();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onInsert(UUID id, Document entity) {
+                if (poison.equals(id)) throw new IllegalStateException("cannot handle " + id);
+                super.onInsert(id, entity);
+            }
+        };
+
+        watcher = new ChangeStreamWatcher<>(NAME, raw, UUID.class, store, false, listener);
+        watcher.start();
+        awaitTrue(() -> store.load(NAME) != null, "the change stream was not opened");
+
+        UUID next = UUID.randomUUID();
+        raw.insertOne(new Document("_id", poison));
+        raw.insertOne(new Document("_id", next));
+
+        // Evicted instead of handled, then watching goes on with the following change
+        assertEquals("change " + poison, listener.events.poll(15, TimeUnit.SECONDS));
+        assertEquals("insert " + next, listener.events.poll(10, TimeUnit.SECONDS));
+        assertTrue(watcher.isRunning());
+    }
+
+    static class RecordingListener implements ChangeStreamWatcher.Listener<Document, UUID> {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onInsert(UUID id, Document entity) {
+            events.add("insert " + id);
+        }
+
+        @Override
+        public void onChange(UUID id, Document entity) {
+            events.add("change " + id);
+        }
+
+        @Override
+        public void onDelete(UUID id) {
+            events.add("delete " + id);
+        }
+
+        @Override
+        public void onReset() {
+            events.add("reset");
+        }
+    }
+
+    @Repository(name = NAME)
+    @Cacheable
+    public static class Stock {
+        @Id
+        public UUID id;
+        public String name;
+        public int quantity;
+
+        public Stock() {}
+
+        public Stock(UUID id, String name, int quantity) {
+            this.id = id;
+            this.name = name;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescedLookupsTest {
+    MongoClient client;
+    MongoRepositoryAdapter<Profile, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        client = MongoTestSupport.client();
+        client.getDatabase(MongoTestSupport.DATABASE).getCollection("coalesced_profiles").deleteMany(new Document());
+        adapter = MongoRepositoryAdapter
+            .builder(Profile.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+    }
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+    }
+
+    @Test
+    void batchedLookupsFillTheSecondLevelCache() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        adapter.insert(new Profile(first, "first"));
+        adapter.insert(new Profile(second, "second"));
+
+        CompletableFuture<Profile> a = adapter.findByIdAsync(first);
+        CompletableFuture<Profile> b = adapter.findByIdAsync(second);
+        Profile loadedA = a.get(10, TimeUnit.SECONDS);
+        Profile loadedB = b.get(10, TimeUnit.SECONDS);
+        assertEquals("first", loadedA.name);
+        assertEquals("second", loadedB.name);
+
+        // Changed behind the adapter's back, the cached entities must be served
+        client.getDatabase(MongoTestSupport.DATABASE).getCollection("coalesced_profiles")
+            .updateMany(Filters.empty(), Updates.set("name", "changed"));
+
+        assertSame(loadedA, adapter.findById(first));
+        assertSame(loadedB, adapter.findById(second));
+    }
+
+    @Repository(name = "coalesced_profiles")
+    @Cacheable
+    @CoalescedLookups(windowMicros = 50_000)
+    public static class Profile {
+        @Id
+        public UUID id;
+        public String name;
+
+        public Profile() {}
+
+        public Profile(UUID id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
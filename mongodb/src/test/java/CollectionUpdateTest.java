@@ -0,0 +1,143 @@
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionUpdateTest {
+    final List<BsonDocument> updates = new CopyOnWriteArrayList<>();
+
+    MongoClient client;
+    MongoCollection<Document> raw;
+    MongoRepositoryAdapter<Basket, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if ("findAndModify".equals(event.getCommandName())) updates.add(event.getCommand().getDocument("update"));
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder(MongoTestSupport.settings()).addCommandListener(listener).build());
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection("collection_baskets");
+        raw.deleteMany(new Document());
+
+        adapter = MongoRepositoryAdapter
+            .builder(Basket.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+    }
+
+    @AfterEach
+    void teardown() {
+        if (client != null) client.close();
+    }
+
+    Basket loaded(String... items) {
+        Basket basket = new Basket(UUID.randomUUID(), items);
+        assertTrue(adapter.insert(basket).isSuccess());
+        Basket loaded = adapter.findById(basket.id);
+        updates.clear();
+        return loaded;
+    }
+
+    List<Object> stored(UUID id, String field) {
+        return raw.find(Filters.eq("_id", id)).first().getList(field, Object.class);
+    }
+
+    @Test
+    void appendedElementsArePushed() {
+        Basket basket = loaded("a", "b");
+        basket.items.add("c");
+
+        assertTrue(adapter.updateAll(basket).isSuccess());
+
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).containsKey("$push"), updates.get(0).toJson());
+        assertEquals(List.of("a", "b", "c"), stored(basket.id, "items"));
+    }
+
+    @Test
+    void removedElementsArePulled() {
+        Basket basket = loaded("a", "b", "a", "c");
+        basket.items.removeIf("a"::equals);
+
+        assertTrue(adapter.updateAll(basket).isSuccess());
+
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).containsKey("$pullAll"), updates.get(0).toJson());
+        assertEquals(List.of("b", "c"), stored(basket.id, "items"));
+    }
+
+    @Test
+    void collectionsChangedByAnotherWriterAreReplaced() {
+        Basket basket = loaded("a", "b");
+        raw.updateOne(Filters.eq("_id", basket.id), Updates.push("items", "x"));
+        basket.items.add("c");
+
+        assertTrue(adapter.updateAll(basket).isSuccess());
+
+        // The delta missed the document, so the collection was written as a whole
+        assertEquals(2, updates.size());
+        assertTrue(updates.get(1).containsKey("$set"), updates.get(1).toJson());
+        assertEquals(List.of("a", "b", "c"), stored(basket.id, "items"));
+    }
+
+    @Test
+    void pulledCollectionsChangedByAnotherWriterAreReplaced() {
+        Basket basket = loaded("a", "b");
+        raw.updateOne(Filters.eq("_id", basket.id), Updates.push("items", "x"));
+        basket.items.remove("a");
+
+        assertTrue(adapter.updateAll(basket).isSuccess());
+        assertEquals(List.of("b"), stored(basket.id, "items"));
+    }
+
+    @Test
+    void queryPushesAreStoredAsTheElementType() {
+        Basket basket = loaded("a");
+
+        assertTrue(adapter.updateAll(Query.update().push("counts", 3, 4).where("id", basket.id).build()).isSuccess());
+        List<Object> counts = stored(basket.id, "counts");
+        assertEquals(List.of(3L, 4L), counts);
+        assertInstanceOf(Long.class, counts.get(0));
+
+        assertTrue(adapter.updateAll(Query.update().pull("counts", 3).where("id", basket.id).build()).isSuccess());
+        assertEquals(List.of(4L), stored(basket.id, "counts"));
+    }
+
+    @Repository(name = "collection_baskets")
+    public static class Basket {
+        @Id
+        public UUID id;
+        public List<String> items;
+        public List<Long> counts;
+
+        public Basket() {}
+
+        public Basket(UUID id, String... items) {
+            this.id = id;
+            this.items = new ArrayList<>(List.of(items));
+            this.counts = new ArrayList<>();
+        }
+    }
+}
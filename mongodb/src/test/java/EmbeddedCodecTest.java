@@ -0,0 +1,140 @@
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import io.github.flameyossnowy.universal.mongodb.ObjectFactory;
+import io.github.flameyossnowy.universal.mongodb.codec.EmbeddedCodec;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stores collection, map and primitive array fields through the codecs of the adapter, the client is never connected.
+ */
+class EmbeddedCodecTest {
+    MongoRepositoryAdapter<Inventory, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        adapter = MongoRepositoryAdapter
+            .builder(Inventory.class, UUID.class)
+            .withCredentials(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString("mongodb://localhost:27017"))
+                .uuidRepresentation(UuidRepresentation.STANDARD)
+                .build())
+            .setDatabase("universal_test")
+            .build();
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    static Inventory inventory() {
+        Inventory inventory = new Inventory();
+        inventory.id = UUID.randomUUID();
+        inventory.tags = new ArrayList<>(List.of("a", "b"));
+        inventory.counts = new ArrayList<>(List.of(1L, 2L));
+        inventory.levels = new ArrayList<>(List.of(Level.HIGH, Level.LOW));
+        inventory.owners = new LinkedHashSet<>(List.of(UUID.randomUUID(), UUID.randomUUID()));
+        inventory.weights = new EnumMap<>(Map.of(Level.LOW, 1, Level.HIGH, 5));
+        inventory.scores = new int[] { 3, 1, 2 };
+        return inventory;
+    }
+
+    static void assertSameValues(Inventory expected, Inventory actual) {
+        assertEquals(expected.id, actual.id);
+        assertEquals(expected.tags, actual.tags);
+        assertEquals(expected.counts, actual.counts);
+        assertEquals(expected.levels, actual.levels);
+        assertEquals(expected.owners, actual.owners);
+        assertEquals(expected.weights, actual.weights);
+        assertArrayEquals(expected.scores, actual.scores);
+    }
+
+    @Test
+    void entityCodecRoundTrip() {
+        Codec<Inventory> codec = adapter.getEntityCollection().getCodecRegistry().get(Inventory.class);
+        Inventory inventory = inventory();
+
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), inventory, EncoderContext.builder().build());
+
+        BsonArray counts = document.getArray("counts");
+        assertEquals(BsonType.INT64, counts.get(0).getBsonType());
+        assertEquals("HIGH", document.getArray("levels").get(0).asString().getValue());
+        assertEquals(BsonType.BINARY, document.getArray("owners").get(0).getBsonType());
+        assertEquals(5, document.getDocument("weights").getInt32("HIGH").getValue());
+        assertEquals(BsonType.INT32, document.getArray("scores").get(0).getBsonType());
+
+        Inventory decoded = codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+        assertSameValues(inventory, decoded);
+    }
+
+    @Test
+    void documentRoundTrip() {
+        ObjectFactory<Inventory, UUID> factory = new ObjectFactory<>(
+            RepositoryMetadata.getMetadata(Inventory.class), adapter.getTypeResolverRegistry(), Inventory.class, UUID.class);
+        Inventory inventory = inventory();
+
+        Document document = factory.toDocument(inventory);
+        assertEquals(List.of("a", "b"), document.get("tags"));
+        assertEquals(List.of(3, 1, 2), document.get("scores"));
+
+        assertSameValues(inventory, factory.fromDocument(document));
+    }
+
+    @Test
+    void elementsAreConvertedToTheElementType() {
+        RepositoryInformation information = RepositoryMetadata.getMetadata(Inventory.class);
+        EmbeddedCodec counts = EmbeddedCodec.of(information.getField("counts"));
+        EmbeddedCodec levels = EmbeddedCodec.of(information.getField("levels"));
+        EmbeddedCodec scores = EmbeddedCodec.of(information.getField("scores"));
+
+        assertEquals(EmbeddedCodec.Mode.ARRAY, counts.mode());
+        assertEquals(2L, counts.convertElement(2));
+        assertEquals(Level.HIGH, levels.convertElement("HIGH"));
+        assertEquals(EmbeddedCodec.Mode.PRIMITIVE_ARRAY, scores.mode());
+        assertEquals(3, scores.convertElement(3L));
+    }
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    @Repository(name = "embedded_inventories")
+    public static class Inventory {
+        @Id
+        public UUID id;
+        public List<String> tags;
+        public List<Long> counts;
+        public List<Level> levels;
+        public Set<UUID> owners;
+        public Map<Level, Integer> weights;
+        public int[] scores;
+
+        public Inventory() {}
+    }
+}
@@ -0,0 +1,260 @@
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.params.DatabaseParameters;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.api.resolver.ResolveWith;
+import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
+import io.github.flameyossnowy.universal.api.result.DatabaseResult;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import io.github.flameyossnowy.universal.mongodb.ObjectFactory;
+import io.github.flameyossnowy.universal.mongodb.annotations.MongoResolver;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonNull;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Encodes and decodes entities through the codec registry of the adapter, the client is never connected.
+ */
+class EntityCodecTest {
+    MongoRepositoryAdapter<?, UUID> adapter;
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+    }
+
+    static MongoClientSettings settings() {
+        return MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString("mongodb://localhost:27017"))
+            .uuidRepresentation(UuidRepresentation.STANDARD)
+            .build();
+    }
+
+    <T> MongoRepositoryAdapter<T, UUID> adapter(Class<T> type) {
+        MongoRepositoryAdapter<T, UUID> created = MongoRepositoryAdapter
+            .builder(type, UUID.class)
+            .withCredentials(settings())
+            .setDatabase("universal_test")
+            .build();
+        adapter = created;
+        return created;
+    }
+
+    static <T> BsonDocument encode(Codec<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, EncoderContext.builder().build());
+        return document;
+    }
+
+    static <T> T decode(Codec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    static Contact contact() throws Exception {
+        Contact contact = new Contact();
+        contact.id = UUID.randomUUID();
+        contact.name = "Alice";
+        contact.homepage = new URI("https://example.com/alice").toURL();
+        contact.temperature = new Temperature(21.5);
+        contact.tags = List.of("a", "b");
+        return contact;
+    }
+
+    @Test
+    void resolverFieldsAreWrittenThroughTheirResolver() throws Exception {
+        MongoRepositoryAdapter<Contact, UUID> contacts = adapter(Contact.class);
+        Codec<Contact> codec = contacts.getEntityCollection().getCodecRegistry().get(Contact.class);
+        Contact contact = contact();
+
+        BsonDocument document = encode(codec, contact);
+        assertEquals("https://example.com/alice", document.getString("homepage").getValue());
+        assertEquals("21.5C", document.getString("temperature").getValue());
+        assertEquals(BsonType.BINARY, document.get("_id").getBsonType());
+        assertEquals(2, document.getArray("tags").size());
+
+        Contact decoded = decode(codec, document);
+        assertEquals(contact.id, decoded.id);
+        assertEquals("Alice", decoded.name);
+        assertEquals(contact.homepage, decoded.homepage);
+        assertEquals(21.5, decoded.temperature.celsius);
+        assertEquals(List.of("a", "b"), decoded.tags);
+    }
+
+    @Test
+    void declaredResolversAreRegisteredWithAnExplicitClient() throws Exception {
+        try (MongoClient client = MongoClients.create(settings())) {
+            MongoRepositoryAdapter<Contact, UUID> contacts = MongoRepositoryAdapter
+                .builder(Contact.class, UUID.class)
+                .withClient(client)
+                .setDatabase("universal_test")
+                .build();
+            adapter = contacts;
+            assertTrue(contacts.getTypeResolverRegistry().hasResolver(Temperature.class));
+
+            Codec<Contact> codec = contacts.getEntityCollection().getCodecRegistry().get(Contact.class);
+            assertEquals("21.5C", encode(codec, contact()).getString("temperature").getValue());
+        }
+    }
+
+    @Test
+    void documentPathStoresTheSameValues() throws Exception {
+        MongoRepositoryAdapter<Contact, UUID> contacts = adapter(Contact.class);
+        ObjectFactory<Contact, UUID> factory = new ObjectFactory<>(
+            RepositoryMetadata.getMetadata(Contact.class), contacts.getTypeResolverRegistry(), Contact.class, UUID.class);
+        Contact contact = contact();
+
+        Document document = factory.toDocument(contact);
+        assertEquals("https://example.com/alice", document.get("homepage"));
+        assertEquals("21.5C", document.get("temperature"));
+
+        Contact decoded = factory.fromDocument(document);
+        assertEquals(contact.homepage, decoded.homepage);
+        assertEquals(21.5, decoded.temperature.celsius);
+    }
+
+    @Test
+    void fieldCodecsWinOverTheAutomaticPojoCodec() {
+        MongoRepositoryAdapter<Shipment, UUID> shipments = adapter(Shipment.class);
+        assertInstanceOf(WeightCodec.class, shipments.getCollection().getCodecRegistry().get(Weight.class));
+        assertInstanceOf(WeightCodec.class, shipments.getEntityCollection().getCodecRegistry().get(Weight.class));
+
+        Shipment shipment = new Shipment();
+        shipment.id = UUID.randomUUID();
+        shipment.weight = new Weight(1250);
+
+        Codec<Shipment> codec = shipments.getEntityCollection().getCodecRegistry().get(Shipment.class);
+        BsonDocument document = encode(codec, shipment);
+        assertEquals(1250, document.getInt64("weight").getValue());
+        assertEquals(1250, decode(codec, document).weight.grams);
+    }
+
+    @Test
+    void missingPrimitiveComponentsOfRecordsTakeTheirDefault() {
+        MongoRepositoryAdapter<Counter, UUID> counters = adapter(Counter.class);
+        Codec<Counter> codec = counters.getEntityCollection().getCodecRegistry().get(Counter.class);
+        UUID id = UUID.randomUUID();
+        BsonDocument document = encode(codec, new Counter(id, 3, true, "x"));
+        document.remove("hits");
+        document.put("active", new BsonNull());
+
+        Counter decoded = decode(codec, document);
+        assertEquals(id, decoded.id());
+        assertEquals(0, decoded.hits());
+        assertFalse(decoded.active());
+        assertEquals("x", decoded.label());
+
+        ObjectFactory<Counter, UUID> factory = new ObjectFactory<>(
+            RepositoryMetadata.getMetadata(Counter.class), counters.getTypeResolverRegistry(), Counter.class, UUID.class);
+        Counter fromDocument = factory.fromDocument(new Document("_id", id));
+        assertEquals(0, fromDocument.hits());
+        assertFalse(fromDocument.active());
+    }
+
+    @Repository(name = "counters")
+    public record Counter(@Id UUID id, int hits, boolean active, String label) {}
+
+    @Repository(name = "codec_contacts")
+    public static class Contact {
+        @Id
+        public UUID id;
+        public String name;
+        public URL homepage;
+
+        @ResolveWith(TemperatureResolver.class)
+        public Temperature temperature;
+
+        public List<String> tags;
+
+        public Contact() {}
+    }
+
+    public static class Temperature {
+        final double celsius;
+
+        public Temperature(double celsius) {
+            this.celsius = celsius;
+        }
+    }
+
+    public static class TemperatureResolver implements TypeResolver<Temperature> {
+        @Override
+        public Class<Temperature> getType() {
+            return Temperature.class;
+        }
+
+        @Override
+        public Class<?> getDatabaseType() {
+            return String.class;
+        }
+
+        @Override
+        public Temperature resolve(DatabaseResult result, String columnName) {
+            String value = result.get(columnName, String.class);
+            return value == null ? null : new Temperature(Double.parseDouble(value.substring(0, value.length() - 1)));
+        }
+
+        @Override
+        public void insert(DatabaseParameters parameters, String index, Temperature value) {
+            parameters.set(index, value.celsius + "C", String.class);
+        }
+    }
+
+    @Repository(name = "codec_shipments")
+    public static class Shipment {
+        @Id
+        public UUID id;
+
+        @MongoResolver(WeightCodec.class)
+        public Weight weight;
+
+        public Shipment() {}
+    }
+
+    public static class Weight {
+        public long grams;
+
+        public Weight() {}
+
+        public Weight(long grams) {
+            this.grams = grams;
+        }
+    }
+
+    public static class WeightCodec implements Codec<Weight> {
+        @Override
+        public Weight decode(BsonReader reader, DecoderContext decoderContext) {
+            return new Weight(reader.readInt64());
+        }
+
+        @Override
+        public void encode(BsonWriter writer, Weight value, EncoderContext encoderContext) {
+            writer.writeInt64(value.grams);
+        }
+
+        @Override
+        public Class<Weight> getEncoderClass() {
+            return Weight.class;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import io.github.flameyossnowy.universal.api.options.SelectOption;
+import io.github.flameyossnowy.universal.mongodb.query.FilterTemplate;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the compiled filters with the filters the driver builds, no server is needed.
+ */
+class FilterTemplateTest {
+
+    static BsonDocument render(Bson filter) {
+        return filter.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    @Test
+    void conditionsMatchTheFiltersOfTheDriver() {
+        assertEquals(render(Filters.eq("name", "a")), render(FilterTemplate.createFilter(List.of(new SelectOption("name", "=", "a")))));
+        assertEquals(render(Filters.ne("name", "a")), render(FilterTemplate.createFilter(List.of(new SelectOption("name", "!=", "a")))));
+        assertEquals(render(Filters.gt("age", 3)), render(FilterTemplate.createFilter(List.of(new SelectOption("age", ">", 3)))));
+        assertEquals(render(Filters.lte("age", 3)), render(FilterTemplate.createFilter(List.of(new SelectOption("age", "<=", 3)))));
+        assertEquals(render(Filters.in("age", List.of(1, 2))), render(FilterTemplate.createFilter(List.of(new SelectOption("age", "IN", List.of(1, 2))))));
+        assertEquals(render(Filters.size("tags", 2)), render(FilterTemplate.createFilter(List.of(new SelectOption("tags", "SIZE", 2)))));
+        assertEquals(render(Filters.all("tags", List.of("a", "b"))), render(FilterTemplate.createFilter(List.of(new SelectOption("tags", "ALL", List.of("a", "b"))))));
+    }
+
+    @Test
+    void multipleConditionsAreCombinedWithAnd() {
+        Bson filter = FilterTemplate.createFilter(List.of(new SelectOption("name", "=", "a"), new SelectOption("age", ">=", 18)));
+
+        assertEquals(render(Filters.and(Filters.eq("name", "a"), Filters.gte("age", 18))), render(filter));
+    }
+
+    @Test
+    void noConditionsMatchEveryDocument() {
+        assertTrue(render(FilterTemplate.createFilter(List.of())).isEmpty());
+    }
+
+    @Test
+    void queriesOfTheSameShapeShareTheirTemplate() {
+        List<SelectOption> first = List.of(new SelectOption("name", "=", "a"), new SelectOption("age", ">", 1));
+        List<SelectOption> second = List.of(new SelectOption("name", "=", "b"), new SelectOption("age", ">", 2));
+        List<SelectOption> other = List.of(new SelectOption("name", "=", "b"), new SelectOption("age", "<", 2));
+
+        assertEquals(FilterTemplate.shapeOf(first), FilterTemplate.shapeOf(second));
+        assertSame(FilterTemplate.of(first), FilterTemplate.of(second));
+        assertNotEquals(FilterTemplate.shapeOf(first), FilterTemplate.shapeOf(other));
+        assertNotSame(FilterTemplate.of(first), FilterTemplate.of(other));
+
+        // Only the values differ, and they are bound per query
+        assertEquals(render(Filters.and(Filters.eq("name", "b"), Filters.gt("age", 2))), render(FilterTemplate.of(first).bind(second)));
+    }
+
+    @Test
+    void equalQueriesProduceEqualFilters() {
+        // The result cache is keyed by the filters
+        Bson first = FilterTemplate.createFilter(List.of(new SelectOption("name", "=", "a"), new SelectOption("age", ">", 1)));
+        Bson second = FilterTemplate.createFilter(List.of(new SelectOption("name", "=", "a"), new SelectOption("age", ">", 1)));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    void elementConditionsOnTheSameFieldApplyToTheSameElement() {
+        List<SelectOption> element = List.of(new SelectOption("score", ">=", 5), new SelectOption("score", "<", 10), new SelectOption("kind", "=", "x"));
+        Bson filter = FilterTemplate.createFilter(List.of(new SelectOption("results", "ELEM_MATCH", element)));
+
+        BsonDocument expected = BsonDocument.parse("{results: {$elemMatch: {score: {$gte: 5, $lt: 10}, kind: {$eq: 'x'}}}}");
+        assertEquals(expected, render(filter));
+    }
+
+    @Test
+    void elementConditionsArePartOfTheShape() {
+        List<SelectOption> low = List.of(new SelectOption("results", "ELEM_MATCH", List.of(new SelectOption("score", ">", 1))));
+        List<SelectOption> high = List.of(new SelectOption("results", "ELEM_MATCH", List.of(new SelectOption("score", "<", 1))));
+
+        assertNotEquals(FilterTemplate.shapeOf(low), FilterTemplate.shapeOf(high));
+    }
+
+    @Test
+    void unsupportedOperationsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FilterTemplate.createFilter(List.of(new SelectOption("name", "LIKE", "a%"))));
+    }
+}
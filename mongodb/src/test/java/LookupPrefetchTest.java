@@ -0,0 +1,236 @@
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.ManyToOne;
+import io.github.flameyossnowy.universal.api.annotations.OneToMany;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SortOrder;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupPrefetchTest {
+    final Map<String, AtomicInteger> commands = new ConcurrentHashMap<>();
+
+    MongoClient client;
+    MongoRepositoryAdapter<Squad, UUID> squads;
+    MongoRepositoryAdapter<Member, UUID> members;
+    MongoRepositoryAdapter<Node, UUID> nodes;
+
+    @BeforeEach
+    void setup() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                commands.computeIfAbsent(event.getCommandName(), name -> new AtomicInteger()).incrementAndGet();
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder(MongoTestSupport.settings()).addCommandListener(listener).build());
+
+        MongoDatabase database = client.getDatabase(MongoTestSupport.DATABASE);
+        for (String name : List.of("lookup_squads", "lookup_members", "lookup_nodes")) database.getCollection(name).deleteMany(new Document());
+
+        squads = adapter(Squad.class);
+        members = adapter(Member.class);
+        nodes = adapter(Node.class);
+    }
+
+    @AfterEach
+    void teardown() {
+        if (client != null) client.close();
+    }
+
+    <T> MongoRepositoryAdapter<T, UUID> adapter(Class<T> type) {
+        return MongoRepositoryAdapter
+            .builder(type, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .withLookupPrefetch(true)
+            .build();
+    }
+
+    int sent(String command) {
+        AtomicInteger count = commands.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    Squad squad(String name, int size) {
+        Squad squad = new Squad(UUID.randomUUID(), name);
+        assertTrue(squads.insert(squad).isSuccess());
+        for (int i = 0; i < size; i++) assertTrue(members.insert(new Member(UUID.randomUUID(), name + "-" + i, squad)).isSuccess());
+        return squad;
+    }
+
+    @Test
+    void childrenAreReadInOneAggregation() {
+        squad("alpha", 3);
+        squad("bravo", 2);
+        commands.clear();
+
+        List<Squad> found = squads.find(Query.select().orderBy("name", SortOrder.ASCENDING).prefetch("members").build());
+
+        assertEquals(1, sent("aggregate"));
+        assertEquals(0, sent("find"));
+        assertEquals(2, found.size());
+        assertEquals(3, found.get(0).members.size());
+        assertEquals(2, found.get(1).members.size());
+        for (Squad squad : found) {
+            for (Member member : squad.members) assertSame(squad, member.squad);
+        }
+    }
+
+    @Test
+    void sortAndLimitApplyToTheParents() {
+        squad("alpha", 1);
+        squad("bravo", 4);
+
+        List<Squad> found = squads.find(Query.select().orderBy("name", SortOrder.DESCENDING).limit(1).prefetch("members").build());
+
+        assertEquals(1, found.size());
+        assertEquals("bravo", found.get(0).name);
+        assertEquals(4, found.get(0).members.size());
+    }
+
+    @Test
+    void referencesAreLookedUp() {
+        Squad squad = squad("alpha", 2);
+        commands.clear();
+
+        List<Member> found = members.find(Query.select().prefetch("squad").build());
+
+        assertEquals(1, sent("aggregate"));
+        assertEquals(2, found.size());
+        for (Member member : found) {
+            assertNotNull(member.squad);
+            assertEquals(squad.id, member.squad.id);
+            assertEquals("alpha", member.squad.name);
+        }
+    }
+
+    @Test
+    void lookedUpRelationshipsMatchRepositoryLoading() {
+        squad("alpha", 3);
+        squad("bravo", 0);
+
+        List<Squad> lookedUp = squads.find(Query.select().orderBy("name", SortOrder.ASCENDING).prefetch("members").build());
+        squads.setLookupPrefetch(false);
+        List<Squad> loaded = squads.find(Query.select().orderBy("name", SortOrder.ASCENDING).prefetch("members").build());
+
+        assertEquals(loaded.size(), lookedUp.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(names(loaded.get(i).members), names(lookedUp.get(i).members));
+        }
+    }
+
+    @Test
+    void childTreeOfTheOwnTypeIsReadInOneStage() {
+        Node root = new Node(UUID.randomUUID(), "root", null);
+        Node child = new Node(UUID.randomUUID(), "child", root);
+        Node grandchild = new Node(UUID.randomUUID(), "grandchild", child);
+        for (Node node : List.of(root, child, grandchild)) assertTrue(nodes.insert(node).isSuccess());
+        commands.clear();
+
+        List<Node> found = nodes.find(Query.select().where("id").eq(root.id).prefetch("children").build());
+
+        assertEquals(1, sent("aggregate"));
+        assertEquals(0, sent("find"));
+        assertEquals(1, found.size());
+        Node foundChild = found.get(0).children.get(0);
+        assertEquals("child", foundChild.name);
+        assertSame(found.get(0), foundChild.parent);
+        assertEquals("grandchild", foundChild.children.get(0).name);
+        assertTrue(foundChild.children.get(0).children.isEmpty());
+    }
+
+    @Test
+    void referenceChainOfTheOwnTypeIsReadInOneStage() {
+        Node root = new Node(UUID.randomUUID(), "root", null);
+        Node child = new Node(UUID.randomUUID(), "child", root);
+        Node grandchild = new Node(UUID.randomUUID(), "grandchild", child);
+        for (Node node : List.of(root, child, grandchild)) assertTrue(nodes.insert(node).isSuccess());
+
+        List<Node> found = nodes.find(Query.select().where("id").eq(grandchild.id).prefetch("parent").build());
+
+        assertEquals(1, found.size());
+        assertEquals("child", found.get(0).parent.name);
+        assertEquals("root", found.get(0).parent.parent.name);
+        assertNull(found.get(0).parent.parent.parent);
+    }
+
+    static List<String> names(List<Member> members) {
+        List<String> names = new ArrayList<>();
+        if (members != null) for (Member member : members) names.add(member.name);
+        names.sort(null);
+        return names;
+    }
+
+    @Repository(name = "lookup_squads")
+    public static class Squad {
+        @Id
+        public UUID id;
+        public String name;
+
+        @OneToMany(mappedBy = Member.class)
+        public List<Member> members;
+
+        public Squad() {}
+
+        public Squad(UUID id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Repository(name = "lookup_members")
+    public static class Member {
+        @Id
+        public UUID id;
+        public String name;
+
+        @ManyToOne(join = "squad")
+        public Squad squad;
+
+        public Member() {}
+
+        public Member(UUID id, String name, Squad squad) {
+            this.id = id;
+            this.name = name;
+            this.squad = squad;
+        }
+    }
+
+    @Repository(name = "lookup_nodes")
+    public static class Node {
+        @Id
+        public UUID id;
+        public String name;
+
+        @ManyToOne(join = "parent")
+        public Node parent;
+
+        @OneToMany(mappedBy = Node.class)
+        public List<Node> children;
+
+        public Node() {}
+
+        public Node(UUID id, String name, Node parent) {
+            this.id = id;
+            this.name = name;
+            this.parent = parent;
+        }
+    }
+}
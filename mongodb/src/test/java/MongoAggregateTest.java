@@ -0,0 +1,113 @@
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.github.flameyossnowy.universal.api.RepositoryAdapter;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryExceptionHandler;
+import io.github.flameyossnowy.universal.api.exceptions.handler.DefaultExceptionHandler;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import io.github.flameyossnowy.universal.api.options.SortOrder;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoAggregateTest {
+    MongoRepositoryAdapter<Reading, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        RecordingExceptionHandler.reads.clear();
+    }
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+    }
+
+    @Test
+    void failuresGoThroughTheReadHandler() {
+        MongoClient client = MongoClients.create(MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString("mongodb://localhost:27017"))
+            .uuidRepresentation(UuidRepresentation.STANDARD)
+            .build());
+        adapter = MongoRepositoryAdapter
+            .builder(Reading.class, UUID.class)
+            .withClient(client)
+            .setDatabase("universal_test")
+            .build();
+        // A closed client fails every operation without connecting
+        client.close();
+
+        List<Map<String, Object>> rows = adapter.aggregate(Query.aggregate().groupBy("grade").count("readings").build());
+
+        assertTrue(rows.isEmpty());
+        assertEquals(1, RecordingExceptionHandler.reads.size());
+    }
+
+    @Test
+    void groupsAreAggregatedByTheServer() {
+        MongoClient client = MongoTestSupport.client();
+        client.getDatabase(MongoTestSupport.DATABASE).getCollection("aggregate_readings").deleteMany(new Document());
+        adapter = MongoRepositoryAdapter
+            .builder(Reading.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+        adapter.insert(new Reading(UUID.randomUUID(), "A", 10));
+        adapter.insert(new Reading(UUID.randomUUID(), "A", 20));
+        adapter.insert(new Reading(UUID.randomUUID(), "B", 5));
+
+        List<Map<String, Object>> rows = adapter.aggregate(Query.aggregate()
+            .groupBy("grade")
+            .count("readings")
+            .sum("amount", "total")
+            .orderBy("grade", SortOrder.ASCENDING)
+            .build());
+
+        assertEquals(2, rows.size());
+        assertEquals("A", rows.get(0).get("grade"));
+        assertEquals(2L, ((Number) rows.get(0).get("readings")).longValue());
+        assertEquals(30L, ((Number) rows.get(0).get("total")).longValue());
+        assertTrue(RecordingExceptionHandler.reads.isEmpty());
+    }
+
+    public static class RecordingExceptionHandler extends DefaultExceptionHandler<Reading, UUID, ClientSession> {
+        static final List<Exception> reads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Reading> handleRead(Exception exception, RepositoryInformation information, SelectQuery query, RepositoryAdapter<Reading, UUID, ClientSession> adapter) {
+            reads.add(exception);
+            return super.handleRead(exception, information, query, adapter);
+        }
+    }
+
+    @Repository(name = "aggregate_readings")
+    @RepositoryExceptionHandler(RecordingExceptionHandler.class)
+    public static class Reading {
+        @Id
+        public UUID id;
+        public String grade;
+        public int amount;
+
+        public Reading() {}
+
+        public Reading(UUID id, String grade, int amount) {
+            this.id = id;
+            this.grade = grade;
+            this.amount = amount;
+        }
+    }
+}
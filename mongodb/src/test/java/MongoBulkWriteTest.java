@@ -0,0 +1,142 @@
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.cache.DatabaseSession;
+import io.github.flameyossnowy.universal.api.cache.SessionOption;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoBulkWriteTest {
+    MongoClient client;
+    MongoCollection<Document> raw;
+    MongoRepositoryAdapter<Stock, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        client = MongoTestSupport.client();
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection("bulk_stock");
+        raw.deleteMany(new Document());
+        adapter = MongoRepositoryAdapter
+            .builder(Stock.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+    }
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+    }
+
+    List<Stock> insert(int count) {
+        List<Stock> stock = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) stock.add(new Stock(UUID.randomUUID(), "item-" + i, i));
+        assertTrue(adapter.insertAll(stock).isSuccess());
+        return stock;
+    }
+
+    @Test
+    void updatesOnlySendTheChangedEntities() {
+        List<Stock> stock = insert(10);
+        for (int i = 0; i < 10; i += 2) stock.get(i).quantity = 100 + i;
+
+        assertTrue(adapter.updateAll(stock).expect());
+
+        for (int i = 0; i < 10; i++) {
+            Document stored = raw.find(Filters.eq("_id", stock.get(i).id)).first();
+            assertNotNull(stored);
+            assertEquals(i % 2 == 0 ? 100 + i : i, (int) stored.getInteger("quantity"));
+        }
+    }
+
+    @Test
+    void updatedEntitiesAreNotServedStaleFromTheCache() {
+        List<Stock> stock = insert(3);
+        Stock first = adapter.findById(stock.get(0).id);
+        assertNotNull(first);
+
+        Stock changed = new Stock(first.id, first.name, 42);
+        assertTrue(adapter.updateAll(List.of(changed)).expect());
+
+        assertEquals(42, adapter.findById(first.id).quantity);
+    }
+
+    @Test
+    void deletesByIdInOneBatch() {
+        List<Stock> stock = insert(5);
+
+        assertTrue(adapter.deleteAllById(List.of(stock.get(0).id, stock.get(1).id)).expect());
+        assertTrue(adapter.deleteAll(List.of(stock.get(2))).expect());
+
+        assertEquals(2, raw.countDocuments());
+        assertNull(adapter.findById(stock.get(0).id));
+        assertNotNull(adapter.findById(stock.get(3).id));
+    }
+
+    @Test
+    void upsertsInsertMissingAndReplaceExistingEntities() {
+        List<Stock> stock = insert(2);
+        Stock replaced = new Stock(stock.get(0).id, "replaced", 7);
+        Stock added = new Stock(UUID.randomUUID(), "added", 8);
+
+        assertTrue(adapter.upsertAll(List.of(replaced, added)).expect());
+
+        assertEquals(3, raw.countDocuments());
+        assertEquals("replaced", adapter.findById(replaced.id).name);
+        assertEquals(8, adapter.findById(added.id).quantity);
+    }
+
+    @Test
+    void unorderedBulkWritesApplyEveryWrite() {
+        adapter.setOrderedBulkWrites(false);
+        List<Stock> stock = insert(20);
+        for (Stock item : stock) item.quantity = -1;
+
+        assertTrue(adapter.updateAll(stock).expect());
+        assertEquals(20, raw.countDocuments(Filters.eq("quantity", -1)));
+    }
+
+    @Test
+    void bufferedSessionCommitsItsWritesInBatches() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        try (DatabaseSession<UUID, Stock, ?> session = adapter.createSession(EnumSet.of(SessionOption.BUFFERED_WRITE))) {
+            session.insert(new Stock(first, "first", 1));
+            session.insert(new Stock(second, "second", 2));
+            assertEquals(0, raw.countDocuments());
+
+            assertTrue(session.commit().isSuccess());
+        }
+
+        assertEquals(2, raw.countDocuments());
+        assertNotNull(raw.find(Filters.eq("_id", second)).first());
+    }
+
+    @Repository(name = "bulk_stock")
+    @Cacheable
+    public static class Stock {
+        @Id
+        public UUID id;
+        public String name;
+        public int quantity;
+
+        public Stock() {}
+
+        public Stock(UUID id, String name, int quantity) {
+            this.id = id;
+            this.name = name;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoPartialUpdateTest {
+    MongoClient client;
+    MongoCollection<Document> raw;
+    MongoRepositoryAdapter<Account, UUID> adapter;
+
+    @BeforeEach
+    void setup() {
+        client = MongoTestSupport.client();
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection("partial_accounts");
+        raw.deleteMany(new Document());
+        adapter = MongoRepositoryAdapter
+            .builder(Account.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+    }
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+    }
+
+    Account loaded() {
+        Account account = new Account(UUID.randomUUID(), "Alice", 10);
+        assertTrue(adapter.insert(account).isSuccess());
+        return adapter.findById(account.id);
+    }
+
+    String storedName(UUID id) {
+        return raw.find(Filters.eq("_id", id)).first().getString("name");
+    }
+
+    @Test
+    void updateIsWrittenAgainAfterRollback() {
+        Account account = loaded();
+        account.name = "Bob";
+
+        try (TransactionContext<ClientSession> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(account, transaction).isSuccess());
+            // Closed without a commit, so the transaction is aborted
+        }
+        assertEquals("Alice", storedName(account.id));
+
+        // The rolled back write must not count as the document's stored state
+        assertTrue(adapter.updateAll(account).isSuccess());
+        assertEquals("Bob", storedName(account.id));
+    }
+
+    @Test
+    void bulkUpdateIsWrittenAgainAfterRollback() {
+        Account account = loaded();
+        account.name = "Bob";
+
+        try (TransactionContext<ClientSession> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(List.of(account), transaction).isSuccess());
+        }
+        assertEquals("Alice", storedName(account.id));
+
+        assertTrue(adapter.updateAll(List.of(account)).isSuccess());
+        assertEquals("Bob", storedName(account.id));
+    }
+
+    @Test
+    void committedTransactionalUpdateIsKept() {
+        Account account = loaded();
+        account.balance = 20;
+
+        try (TransactionContext<ClientSession> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(account, transaction).isSuccess());
+            assertTrue(transaction.commit().isSuccess());
+        }
+        assertEquals(20, (int) raw.find(Filters.eq("_id", account.id)).first().getInteger("balance"));
+    }
+
+    @Repository(name = "partial_accounts")
+    public static class Account {
+        @Id
+        public UUID id;
+        public String name;
+        public int balance;
+
+        public Account() {}
+
+        public Account(UUID id, String name, int balance) {
+            this.id = id;
+            this.name = name;
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import com.mongodb.MongoClientSettings;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapterBuilder;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoQueryTuningTest {
+    final List<BsonDocument> finds = new CopyOnWriteArrayList<>();
+
+    MongoClient client;
+    MongoCollection<Document> raw;
+
+    @BeforeEach
+    void setup() {
+        CommandListener listener = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if ("find".equals(event.getCommandName())) finds.add(event.getCommand());
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder(MongoTestSupport.settings()).addCommandListener(listener).build());
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection("tuned_readings");
+        raw.deleteMany(new Document());
+    }
+
+    @AfterEach
+    void teardown() {
+        if (client != null) client.close();
+    }
+
+    MongoRepositoryAdapterBuilder<Reading, UUID> builder() {
+        return MongoRepositoryAdapter
+            .builder(Reading.class, UUID.class)
+            .withClient(client)
+            .setDatabase(MongoTestSupport.DATABASE);
+    }
+
+    @Test
+    void readsWithoutAQueryUseTheRepositoryDefaults() {
+        MongoRepositoryAdapter<Reading, UUID> adapter = builder()
+            .withBatchSize(7)
+            .withMaxTime(Duration.ofSeconds(5))
+            .build();
+        Reading reading = new Reading(UUID.randomUUID(), 1);
+        assertTrue(adapter.insert(reading).isSuccess());
+
+        finds.clear();
+        assertEquals(1, adapter.find().size());
+        assertNotNull(adapter.findById(reading.id));
+        assertEquals(1, adapter.findAllById(List.of(reading.id)).size());
+
+        assertEquals(3, finds.size());
+        for (BsonDocument find : finds) {
+            assertEquals(5_000, find.getNumber("maxTimeMS").longValue(), find.toJson());
+        }
+        assertEquals(7, finds.get(0).getNumber("batchSize").intValue());
+        assertEquals(7, finds.get(2).getNumber("batchSize").intValue());
+    }
+
+    @Test
+    void unacknowledgedDeletesAndUpdatesSucceed() {
+        MongoRepositoryAdapter<Reading, UUID> adapter = builder()
+            .withWriteConcern(WriteConcern.UNACKNOWLEDGED)
+            .build();
+        Reading reading = new Reading(UUID.randomUUID(), 1);
+        assertTrue(adapter.insert(reading).isSuccess());
+
+        assertTrue(adapter.updateAll(Query.update().set("value", 2).where("id", reading.id).build()).isSuccess());
+        assertTrue(adapter.deleteById(reading.id).isSuccess());
+        assertTrue(adapter.delete(Query.delete().where("value", 2).build()).isSuccess());
+        assertTrue(adapter.clear().isSuccess());
+    }
+
+    @Repository(name = "tuned_readings")
+    public static class Reading {
+        @Id
+        public UUID id;
+        public int value;
+
+        public Reading() {}
+
+        public Reading(UUID id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SelectOption;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import io.github.flameyossnowy.universal.api.options.SortOrder;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
+import io.github.flameyossnowy.universal.mongodb.query.MongoQueryValidator;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoQueryValidatorTest {
+    final MongoQueryValidator validator = new MongoQueryValidator(RepositoryMetadata.getMetadata(Person.class));
+
+    static SelectQuery query(SelectOption... filters) {
+        return Query.select().where(List.of(filters)).build();
+    }
+
+    @Test
+    void queriesOfAValidShapePass() {
+        assertFalse(validator.validateSelectQuery(query(new SelectOption("name", "=", "a"))).isFail());
+        // The second query has the memoized shape of the first
+        assertFalse(validator.validateSelectQuery(query(new SelectOption("name", "=", "b"))).isFail());
+    }
+
+    @Test
+    void unknownFieldsFailForEveryQueryOfTheShape() {
+        assertTrue(validator.validateSelectQuery(query(new SelectOption("missing", "=", 1))).isFail());
+        assertTrue(validator.validateSelectQuery(query(new SelectOption("missing", "=", 2))).isFail());
+    }
+
+    @Test
+    void sortFieldsAndColumnsArePartOfTheShape() {
+        SelectQuery sorted = Query.select().orderBy("name", SortOrder.ASCENDING).build();
+        SelectQuery unknownSort = Query.select().orderBy("missing", SortOrder.ASCENDING).build();
+
+        assertFalse(validator.validateSelectQuery(sorted).isFail());
+        assertTrue(validator.validateSelectQuery(unknownSort).isFail());
+    }
+
+    @Test
+    void limitIsCheckedForEveryQuery() {
+        SelectQuery valid = Query.select().where(List.of(new SelectOption("age", ">", 1))).limit(10).build();
+        SelectQuery invalid = Query.select().where(List.of(new SelectOption("age", ">", 1))).limit(-5).build();
+
+        assertFalse(validator.validateSelectQuery(valid).isFail());
+        assertTrue(validator.validateSelectQuery(invalid).isFail());
+        assertFalse(validator.validateSelectQuery(valid).isFail());
+    }
+
+    @Test
+    void regexValuesAreCheckedForEveryQuery() {
+        assertFalse(validator.validateSelectQuery(query(new SelectOption("name", "REGEX", "^a.*"))).isFail());
+        // Same shape, the value is not part of it
+        assertTrue(validator.validateSelectQuery(query(new SelectOption("name", "REGEX", "[unclosed"))).isFail());
+        assertFalse(validator.validateSelectQuery(query(new SelectOption("name", "REGEX", "b+"))).isFail());
+    }
+
+    @Repository(name = "validated_records")
+    public static class Person {
+        @Id
+        public UUID id;
+        public String name;
+        public int age;
+
+        public Person() {}
+    }
+}
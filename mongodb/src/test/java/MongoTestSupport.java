@@ -0,0 +1,29 @@
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.UuidRepresentation;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Connects the integration tests to the server in {@code MONGO_URI}, they are skipped when it is not set.
+ */
+final class MongoTestSupport {
+    static final String DATABASE = "universal_test";
+
+    private MongoTestSupport() {}
+
+    static MongoClientSettings settings() {
+        String uri = System.getenv("MONGO_URI");
+        assumeTrue(uri != null && !uri.isBlank(), "MONGO_URI is not set");
+        return MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(uri))
+            .uuidRepresentation(UuidRepresentation.STANDARD)
+            .build();
+    }
+
+    static MongoClient client() {
+        return MongoClients.create(settings());
+    }
+}
@@ -0,0 +1,182 @@
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.Sequence;
+import io.github.flameyossnowy.universal.mongodb.MongoRepositoryAdapter;
+import io.github.flameyossnowy.universal.mongodb.ReactiveMongoRepositoryAdapter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveMongoRepositoryAdapterTest {
+    ReactiveMongoRepositoryAdapter<Part, UUID> adapter;
+    MongoClient client;
+    MongoCollection<Document> raw;
+
+    @AfterEach
+    void teardown() {
+        if (adapter != null) adapter.close();
+        if (client != null) client.close();
+    }
+
+    // The client is never connected by the tests which only build an adapter
+    static MongoClientSettings unconnected() {
+        return MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString("mongodb://localhost:27017"))
+            .uuidRepresentation(UuidRepresentation.STANDARD)
+            .build();
+    }
+
+    void connect() {
+        MongoClientSettings settings = MongoTestSupport.settings();
+        client = MongoTestSupport.client();
+        raw = client.getDatabase(MongoTestSupport.DATABASE).getCollection("reactive_parts");
+        raw.deleteMany(new Document());
+        adapter = ReactiveMongoRepositoryAdapter
+            .builder(Part.class, UUID.class)
+            .withCredentials(settings)
+            .setDatabase(MongoTestSupport.DATABASE)
+            .build();
+    }
+
+    Part stored(UUID id) {
+        return adapter.findById(id).toCompletableFuture().join();
+    }
+
+    @Test
+    void repositoriesWithRelationshipsAreRejected() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> ReactiveMongoRepositoryAdapter
+            .builder(Main.TeamRel.class, UUID.class)
+            .withCredentials(unconnected())
+            .setDatabase("universal_test")
+            .build());
+        assertTrue(error.getMessage().contains("Relationships"), error.getMessage());
+    }
+
+    @Test
+    void numericPrimaryKeysAreRejectedByBothAdapters() {
+        assertThrows(IllegalArgumentException.class, () -> ReactiveMongoRepositoryAdapter
+            .builder(Counter.class, Long.class)
+            .withCredentials(unconnected())
+            .setDatabase("universal_test")
+            .build());
+        assertThrows(IllegalArgumentException.class, () -> MongoRepositoryAdapter
+            .builder(Counter.class, Long.class)
+            .withCredentials(unconnected())
+            .setDatabase("universal_test")
+            .build());
+    }
+
+    @Test
+    void sequencesAreRejectedByBothAdapters() {
+        IllegalArgumentException reactive = assertThrows(IllegalArgumentException.class, () -> ReactiveMongoRepositoryAdapter
+            .builder(Ticket.class, Long.class)
+            .withCredentials(unconnected())
+            .setDatabase("universal_test")
+            .build());
+        assertTrue(reactive.getMessage().contains("@Sequence"), reactive.getMessage());
+        IllegalArgumentException blocking = assertThrows(IllegalArgumentException.class, () -> MongoRepositoryAdapter
+            .builder(Ticket.class, Long.class)
+            .withCredentials(unconnected())
+            .setDatabase("universal_test")
+            .build());
+        assertTrue(blocking.getMessage().contains("@Sequence"), blocking.getMessage());
+    }
+
+    @Test
+    void updateOnlySetsTheChangedFields() {
+        connect();
+        UUID id = UUID.randomUUID();
+        assertTrue(adapter.insert(new Part(id, "gear", 1, List.of("a"))).toCompletableFuture().join().isSuccess());
+
+        Part part = stored(id);
+        part.name = "cog";
+        // Not in the update, so the concurrent change is kept
+        raw.updateOne(Filters.eq("_id", id), Updates.set("quantity", 5));
+
+        assertTrue(adapter.updateAll(part).toCompletableFuture().join().isSuccess());
+
+        Document document = raw.find(Filters.eq("_id", id)).first();
+        assertNotNull(document);
+        assertEquals("cog", document.getString("name"));
+        assertEquals(5, (int) document.getInteger("quantity"));
+    }
+
+    @Test
+    void unchangedEntityIsNotWritten() {
+        connect();
+        UUID id = UUID.randomUUID();
+        assertTrue(adapter.insert(new Part(id, "gear", 1, List.of("a"))).toCompletableFuture().join().isSuccess());
+
+        Part part = stored(id);
+        raw.updateOne(Filters.eq("_id", id), Updates.set("name", "changed elsewhere"));
+
+        assertTrue(adapter.updateAll(part).toCompletableFuture().join().isSuccess());
+        assertEquals("changed elsewhere", raw.find(Filters.eq("_id", id)).first().getString("name"));
+    }
+
+    @Test
+    void bulkUpdateWritesEveryChangedEntity() {
+        connect();
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) parts.add(new Part(UUID.randomUUID(), "part-" + i, i, List.of()));
+        assertTrue(adapter.insertAll(parts).toCompletableFuture().join().isSuccess());
+
+        List<Part> loaded = new ArrayList<>();
+        for (Part part : parts) loaded.add(stored(part.id));
+        loaded.get(1).tags = List.of("x", "y");
+        loaded.get(3).quantity = 30;
+
+        assertTrue(adapter.updateAll(loaded).toCompletableFuture().join().isSuccess());
+
+        assertEquals(List.of("x", "y"), raw.find(Filters.eq("_id", parts.get(1).id)).first().getList("tags", String.class));
+        assertEquals(30, (int) raw.find(Filters.eq("_id", parts.get(3).id)).first().getInteger("quantity"));
+        assertEquals(0, (int) raw.find(Filters.eq("_id", parts.get(0).id)).first().getInteger("quantity"));
+    }
+
+    @Repository(name = "reactive_parts")
+    public static class Part {
+        @Id
+        public UUID id;
+        public String name;
+        public int quantity;
+        public List<String> tags;
+
+        public Part() {}
+
+        public Part(UUID id, String name, int quantity, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.quantity = quantity;
+            this.tags = new ArrayList<>(tags);
+        }
+    }
+
+    @Repository(name = "reactive_counters")
+    public static class Counter {
+        @Id
+        public long id;
+
+        public Counter() {}
+    }
+
+    @Repository(name = "reactive_tickets")
+    public static class Ticket {
+        @Id
+        @Sequence
+        public Long id;
+
+        public Ticket() {}
+    }
+}
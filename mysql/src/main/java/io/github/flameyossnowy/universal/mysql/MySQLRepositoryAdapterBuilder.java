@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.LongFunction;
 
@@ -31,6 +32,8 @@ public class MySQLRepositoryAdapterBuilder<T, ID> {
 
     private LongFunction<SessionCache<ID, T>> sessionCacheSupplier = (id) -> new DefaultSessionCache<>();
     private CacheWarmer<T, ID> cacheWarmer;
+    private Executor asyncExecutor;
+    private int asyncConcurrency;
 
     public MySQLRepositoryAdapterBuilder(Class<T> repository, Class<ID> idClass) {
         this.repository = Objects.requireNonNull(repository, "Repository cannot be null");
@@ -67,6 +70,29 @@ public class MySQLRepositoryAdapterBuilder<T, ID> {
         return this;
     }
 
+    /**
+     * Sets the executor running the asynchronous methods of the adapter, a virtual thread per task is started by default.
+     *
+     * @param asyncExecutor the executor running asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public MySQLRepositoryAdapterBuilder<T, ID> withAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Sets how many asynchronous calls may run at once, further calls wait for a slot.
+     * Defaults to the size of the connection pool, a negative value removes the limit.
+     *
+     * @param asyncConcurrency the maximum amount of concurrent asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public MySQLRepositoryAdapterBuilder<T, ID> withAsyncConcurrency(int asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     public MySQLRepositoryAdapter<T, ID> build() {
         if (this.credentials == null) throw new IllegalArgumentException("Credentials cannot be null");
@@ -87,7 +113,7 @@ public class MySQLRepositoryAdapterBuilder<T, ID> {
 
         if (globalCacheable != null) {
             try {
-                return new MySQLRepositoryAdapter<>(
+                return configureAsync(new MySQLRepositoryAdapter<>(
                         this.connectionProvider != null ? this.connectionProvider.apply(credentials, this.optimizations) : new MySQLSimpleConnectionProvider(this.credentials, this.optimizations),
                         resultCache,
                         this.repository,
@@ -97,13 +123,13 @@ public class MySQLRepositoryAdapterBuilder<T, ID> {
                         cacheWarmer,
                         cacheEnabled,
                         maxSize
-                );
+                ));
             } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
                      NoSuchMethodException e) {
                 throw new RuntimeException(e);
             }
         }
-        return new MySQLRepositoryAdapter<>(
+        return configureAsync(new MySQLRepositoryAdapter<>(
                 this.connectionProvider != null
                 ? this.connectionProvider.apply(credentials, this.optimizations)
                 : new MySQLSimpleConnectionProvider(this.credentials, this.optimizations),
@@ -115,6 +141,11 @@ public class MySQLRepositoryAdapterBuilder<T, ID> {
                 cacheWarmer,
                 cacheEnabled,
                 maxSize
-        );
+        ));
+    }
+
+    private MySQLRepositoryAdapter<T, ID> configureAsync(MySQLRepositoryAdapter<T, ID> adapter) {
+        if (asyncExecutor != null || asyncConcurrency != 0) adapter.setAsyncExecutor(asyncExecutor, asyncConcurrency);
+        return adapter;
     }
 }
@@ -4,7 +4,9 @@ import com.mysql.cj.jdbc.MysqlDataSource;
 import io.github.flameyossnowy.universal.api.Optimizations;
 import io.github.flameyossnowy.universal.mysql.credentials.MySQLCredentials;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -14,8 +16,20 @@ import java.util.EnumSet;
 @SuppressWarnings("unused")
 public class MySQLSimpleConnectionProvider implements SQLConnectionProvider {
     protected final MysqlDataSource dataSource;
+    private final StatementCache statementCache;
 
     public MySQLSimpleConnectionProvider(final @NotNull MySQLCredentials credentials, final EnumSet<Optimizations> optimizations) {
+        this(credentials, optimizations, true);
+    }
+
+    /**
+     * @param ownsConnections whether the connections are the driver's own, only then are statements cached here,
+     *                        a pool has to see every statement through its proxy and relies on the driver's cache (cachePrepStmts)
+     */
+    protected MySQLSimpleConnectionProvider(final @NotNull MySQLCredentials credentials, final EnumSet<Optimizations> optimizations, boolean ownsConnections) {
+        this.statementCache = ownsConnections && optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)
+            ? new StatementCache(StatementCache.DEFAULT_SIZE)
+            : null;
         this.dataSource = new MysqlDataSource();
         dataSource.setPassword(credentials.getPassword());
         try {
@@ -34,7 +48,10 @@ public class MySQLSimpleConnectionProvider implements SQLConnectionProvider {
             dataSource.setUser(credentials.getUsername());
             dataSource.setDatabaseName(credentials.getDatabase());
             if (optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)) {
+                // Pooled connections are cached by the driver alone, the defaults (25 statements of up to 256 chars) are too small
                 dataSource.setCachePrepStmts(true);
+                dataSource.setPrepStmtCacheSize(250);
+                dataSource.setPrepStmtCacheSqlLimit(2048);
             }
             if (optimizations.contains(Optimizations.RECOMMENDED_SETTINGS)) {
                 dataSource.setCachePrepStmts(true);
@@ -64,12 +81,35 @@ public class MySQLSimpleConnectionProvider implements SQLConnectionProvider {
     }
 
     @Override
-    public void close() {
+    public Object getScopeKey() {
+        return dataSource.getUrl() + '@' + dataSource.getUser();
+    }
 
+    @Override
+    public void close() {
+        if (statementCache != null) statementCache.clear();
     }
 
+    @SuppressWarnings("SqlSourceToSinkFlow")
     @Override
     public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
-        return connection.prepareStatement(sql);
+        if (statementCache == null) {
+            return connection.prepareStatement(sql);
+        }
+        return statementCache.prepare(sql, connection);
+    }
+
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    @Override
+    public PreparedStatement prepareStatement(String sql, Connection connection, int autoGeneratedKeys) throws Exception {
+        if (statementCache == null) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return statementCache.prepare(sql, connection, autoGeneratedKeys);
+    }
+
+    @Override
+    public @Nullable StatementCache getStatementCache() {
+        return statementCache;
     }
 }
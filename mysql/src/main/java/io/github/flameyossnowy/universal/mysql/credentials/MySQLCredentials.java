@@ -2,6 +2,8 @@ package io.github.flameyossnowy.universal.mysql.credentials;
 
 import com.mysql.cj.jdbc.MysqlDataSource;
 
+import io.github.flameyossnowy.universal.sql.pool.AdaptivePoolSizing;
+
 import java.util.function.Consumer;
 
 @SuppressWarnings("unused")
@@ -16,6 +18,10 @@ public final class MySQLCredentials {
     private int minimumIdle = 2;
     private long idleTimeout = 30000;
     private long connectionTimeout = 30000;
+    private long maxLifetime = 1800000;
+    private long leakDetectionThreshold = 0;
+    private String poolName;
+    private AdaptivePoolSizing adaptivePoolSizing;
     private Consumer<MysqlDataSource> dataSourceConsumer = (dataSource) -> {};
 
     /**
@@ -72,6 +78,51 @@ public final class MySQLCredentials {
         return this;
     }
 
+    /**
+     * Sets the maximum lifetime of a connection in the pool, after which it is replaced.
+     * <p>Has no effects on non-pooled implementations</p>
+     * @param maxLifetime The maximum lifetime in milliseconds, or 0 for no limit.
+     * @return The current instance of MySQLCredentials for method chaining.
+     */
+    public MySQLCredentials setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+        return this;
+    }
+
+    /**
+     * Sets how long a connection may be out of the pool before a possible leak is logged.
+     * <p>Has no effects on non-pooled implementations</p>
+     * @param leakDetectionThreshold The threshold in milliseconds, or 0 to disable leak detection.
+     * @return The current instance of MySQLCredentials for method chaining.
+     */
+    public MySQLCredentials setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the name of the pool, as it appears in logs and metrics.
+     * <p>Has no effects on non-pooled implementations</p>
+     * @param poolName The name of the pool.
+     * @return The current instance of MySQLCredentials for method chaining.
+     */
+    public MySQLCredentials setPoolName(String poolName) {
+        this.poolName = poolName;
+        return this;
+    }
+
+    /**
+     * Enables adaptive sizing, which adjusts the maximum pool size between the given bounds
+     * from the observed connection wait times and query latencies. The pool starts at the pool size.
+     * <p>Has no effects on non-pooled implementations</p>
+     * @param adaptivePoolSizing The bounds and targets of the sizing, or null to keep the pool size fixed.
+     * @return The current instance of MySQLCredentials for method chaining.
+     */
+    public MySQLCredentials setAdaptivePoolSizing(AdaptivePoolSizing adaptivePoolSizing) {
+        this.adaptivePoolSizing = adaptivePoolSizing;
+        return this;
+    }
+
     /**
      * Enables or disables SSL/TLS encryption for the connection.
      * @param ssl Whether to use SSL/TLS encryption for the connection.
@@ -176,6 +227,22 @@ public final class MySQLCredentials {
         return connectionTimeout;
     }
 
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public AdaptivePoolSizing getAdaptivePoolSizing() {
+        return adaptivePoolSizing;
+    }
+
     /**
      * Gets the consumer that will be called with an instance of {@link MysqlDataSource} that is used to set up the connection
      * to the MySQL server. This can be used to customize the connection in ways that this class does not support.
@@ -0,0 +1,18 @@
+import io.github.flameyossnowy.universal.api.annotations.AutoIncrement;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+
+@Repository(name = "entries")
+public class Entry {
+    @Id
+    @AutoIncrement
+    public Long id;
+
+    public String text;
+
+    public Entry() {}
+
+    public Entry(String text) {
+        this.text = text;
+    }
+}
@@ -0,0 +1,78 @@
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.mysql.MySQLRepositoryAdapter;
+import io.github.flameyossnowy.universal.mysql.connections.MySQLHikariConnectionProvider;
+import io.github.flameyossnowy.universal.mysql.credentials.MySQLCredentials;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeneratedKeysTest {
+
+    private MySQLRepositoryAdapter<Entry, Long> adapter;
+
+    @BeforeEach
+    void setUp() {
+        MySQLCredentials credentials = new MySQLCredentials("localhost", 3306, "main", "root", "secret");
+
+        adapter = MySQLRepositoryAdapter
+                .builder(Entry.class, Long.class)
+                .withCredentials(credentials)
+                .withConnectionProvider(MySQLHikariConnectionProvider::new)
+                .build();
+        adapter.executeRawQuery("DROP TABLE IF EXISTS entries");
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        adapter.close();
+    }
+
+    @Test
+    void batchInsertAssignsGeneratedKeys() {
+        List<Entry> entries = List.of(new Entry("a"), new Entry("b"), new Entry("c"));
+
+        assertTrue(adapter.insertAll(entries).isSuccess());
+
+        Set<Long> ids = new HashSet<>();
+        for (Entry entry : entries) {
+            assertNotNull(entry.id);
+            ids.add(entry.id);
+            assertEquals(entry.text, adapter.findById(entry.id).text);
+        }
+        assertEquals(3, ids.size());
+    }
+
+    @Test
+    void batchInsertLeavesCallerTransactionOpen() throws Exception {
+        List<Entry> entries = List.of(new Entry("a"), new Entry("b"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.insertAll(entries, transaction).isSuccess());
+            assertFalse(transaction.connection().isClosed());
+            assertNotNull(entries.get(1).id);
+            transaction.rollback();
+        }
+
+        assertTrue(adapter.find().isEmpty());
+    }
+
+    @Test
+    void batchInsertInTransactionIsKeptOnCommit() {
+        List<Entry> entries = List.of(new Entry("a"), new Entry("b"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.insertAll(entries, transaction).isSuccess());
+            assertTrue(transaction.commit().isSuccess());
+        }
+
+        assertEquals(2, adapter.find().size());
+    }
+}
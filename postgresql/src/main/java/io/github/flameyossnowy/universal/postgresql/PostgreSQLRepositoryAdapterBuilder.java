@@ -18,6 +18,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.LongFunction;
 
@@ -29,6 +30,8 @@ public class PostgreSQLRepositoryAdapterBuilder<T, ID> {
     private final Class<T> repository;
     private final Class<ID> idClass;
     private CacheWarmer<T, ID> cacheWarmer;
+    private Executor asyncExecutor;
+    private int asyncConcurrency;
 
     private LongFunction<SessionCache<ID, T>> sessionCacheSupplier = (id) -> new DefaultSessionCache<>();
 
@@ -67,6 +70,29 @@ public class PostgreSQLRepositoryAdapterBuilder<T, ID> {
         return this;
     }
 
+    /**
+     * Sets the executor running the asynchronous methods of the adapter, a virtual thread per task is started by default.
+     *
+     * @param asyncExecutor the executor running asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public PostgreSQLRepositoryAdapterBuilder<T, ID> withAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Sets how many asynchronous calls may run at once, further calls wait for a slot.
+     * Defaults to the size of the connection pool, a negative value removes the limit.
+     *
+     * @param asyncConcurrency the maximum amount of concurrent asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public PostgreSQLRepositoryAdapterBuilder<T, ID> withAsyncConcurrency(int asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     public PostgreSQLRepositoryAdapter<T, ID> build() {
         if (this.credentials == null) throw new IllegalArgumentException("Credentials cannot be null");
@@ -88,7 +114,7 @@ public class PostgreSQLRepositoryAdapterBuilder<T, ID> {
 
         if (globalCacheable != null) {
             try {
-                return new PostgreSQLRepositoryAdapter<>(
+                return configureAsync(new PostgreSQLRepositoryAdapter<>(
                         this.connectionProvider != null ? this.connectionProvider.apply(credentials, this.optimizations) : new PostgreSQLSimpleConnectionProvider(this.credentials, this.optimizations),
                         resultCache,
                         this.repository,
@@ -98,13 +124,13 @@ public class PostgreSQLRepositoryAdapterBuilder<T, ID> {
                         cacheWarmer,
                         cacheEnabled,
                         maxSize
-                );
+                ));
             } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
                      NoSuchMethodException e) {
                 throw new RuntimeException(e);
             }
         }
-        return new PostgreSQLRepositoryAdapter<>(
+        return configureAsync(new PostgreSQLRepositoryAdapter<>(
                 this.connectionProvider != null
                 ? this.connectionProvider.apply(credentials, this.optimizations)
                 : new PostgreSQLSimpleConnectionProvider(this.credentials, this.optimizations),
@@ -116,6 +142,11 @@ public class PostgreSQLRepositoryAdapterBuilder<T, ID> {
                 cacheWarmer,
                 cacheEnabled,
                 maxSize
-        );
+        ));
+    }
+
+    private PostgreSQLRepositoryAdapter<T, ID> configureAsync(PostgreSQLRepositoryAdapter<T, ID> adapter) {
+        if (asyncExecutor != null || asyncConcurrency != 0) adapter.setAsyncExecutor(asyncExecutor, asyncConcurrency);
+        return adapter;
     }
 }
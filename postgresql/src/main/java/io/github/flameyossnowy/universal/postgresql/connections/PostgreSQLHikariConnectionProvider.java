@@ -1,24 +1,48 @@
 package io.github.flameyossnowy.universal.postgresql.connections;
 
+import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import io.github.flameyossnowy.universal.api.Optimizations;
 import io.github.flameyossnowy.universal.postgresql.credentials.PostgreSQLCredentials;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.pool.AdaptivePoolSizing;
+import io.github.flameyossnowy.universal.sql.pool.HikariPoolMonitor;
+import io.github.flameyossnowy.universal.sql.pool.PoolMetrics;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.EnumSet;
 
 @SuppressWarnings("unused")
 public class PostgreSQLHikariConnectionProvider extends PostgreSQLSimpleConnectionProvider implements SQLConnectionProvider {
     private final HikariDataSource pool;
+    private final HikariPoolMonitor monitor;
+    private final AdaptivePoolSizing sizing;
 
     public PostgreSQLHikariConnectionProvider(@NotNull PostgreSQLCredentials credentials, EnumSet<Optimizations> optimizations) {
-        super(credentials, optimizations);
-        this.pool = new HikariDataSource();
-        pool.setDataSource(dataSource);
+        super(credentials, optimizations, false);
+        String poolName = credentials.getPoolName() != null ? credentials.getPoolName() : "universal-postgresql-" + credentials.getDatabase();
+        this.sizing = credentials.getAdaptivePoolSizing();
+
+        int poolSize = credentials.getPoolSize();
+        if (sizing != null) poolSize = Math.max(sizing.minPoolSize(), Math.min(sizing.maxPoolSize(), poolSize));
+
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(dataSource);
+        config.setPoolName(poolName);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(credentials.getMinimumIdle(), poolSize));
+        config.setIdleTimeout(credentials.getIdleTimeout());
+        config.setConnectionTimeout(credentials.getConnectionTimeout());
+        config.setMaxLifetime(credentials.getMaxLifetime());
+        config.setLeakDetectionThreshold(credentials.getLeakDetectionThreshold());
+
+        this.monitor = new HikariPoolMonitor(poolName, sizing);
+        config.setMetricsTrackerFactory(monitor);
+
+        this.pool = new HikariDataSource(config);
+        monitor.attach(pool);
     }
 
     @Override
@@ -32,11 +56,23 @@ public class PostgreSQLHikariConnectionProvider extends PostgreSQLSimpleConnecti
 
     @Override
     public void close() {
+        super.close();
+        monitor.close();
         pool.close();
     }
 
     @Override
-    public PreparedStatement prepareStatement(String sql, @NotNull Connection connection) throws Exception {
-        return connection.prepareStatement(sql);
+    public int getMaxConnections() {
+        // The pool may grow up to the adaptive bound, callers limiting concurrency by it should allow for that
+        return sizing != null ? sizing.maxPoolSize() : pool.getMaximumPoolSize();
+    }
+
+    @Override
+    public PoolMetrics getPoolMetrics() {
+        return monitor.getMetrics();
+    }
+
+    public HikariPoolMonitor getPoolMonitor() {
+        return monitor;
     }
 }
@@ -6,7 +6,9 @@ import org.postgresql.ds.PGSimpleDataSource;
 import io.github.flameyossnowy.universal.api.Optimizations;
 import io.github.flameyossnowy.universal.postgresql.credentials.PostgreSQLCredentials;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.postgresql.jdbc.PreferQueryMode;
 
 import java.sql.Connection;
@@ -18,8 +20,20 @@ import java.util.Properties;
 @SuppressWarnings("unused")
 public class PostgreSQLSimpleConnectionProvider implements SQLConnectionProvider {
     protected final PGSimpleDataSource dataSource;
+    private final StatementCache statementCache;
 
     public PostgreSQLSimpleConnectionProvider(final @NotNull PostgreSQLCredentials credentials, final EnumSet<Optimizations> optimizations) {
+        this(credentials, optimizations, true);
+    }
+
+    /**
+     * @param ownsConnections whether the connections are the driver's own, only then are statements cached here,
+     *                        a pool has to see every statement through its proxy and relies on the driver's cache (preparedStatementCacheQueries)
+     */
+    protected PostgreSQLSimpleConnectionProvider(final @NotNull PostgreSQLCredentials credentials, final EnumSet<Optimizations> optimizations, boolean ownsConnections) {
+        this.statementCache = ownsConnections && optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)
+            ? new StatementCache(StatementCache.DEFAULT_SIZE)
+            : null;
         this.dataSource = new PGSimpleDataSource();
         dataSource.setPassword(credentials.getPassword());
         try {
@@ -66,12 +80,35 @@ public class PostgreSQLSimpleConnectionProvider implements SQLConnectionProvider
     }
 
     @Override
-    public void close() {
+    public Object getScopeKey() {
+        return dataSource.getUrl() + '@' + dataSource.getUser();
+    }
 
+    @Override
+    public void close() {
+        if (statementCache != null) statementCache.clear();
     }
 
+    @SuppressWarnings("SqlSourceToSinkFlow")
     @Override
     public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
-        return connection.prepareStatement(sql);
+        if (statementCache == null) {
+            return connection.prepareStatement(sql);
+        }
+        return statementCache.prepare(sql, connection);
+    }
+
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    @Override
+    public PreparedStatement prepareStatement(String sql, Connection connection, int autoGeneratedKeys) throws Exception {
+        if (statementCache == null) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return statementCache.prepare(sql, connection, autoGeneratedKeys);
+    }
+
+    @Override
+    public @Nullable StatementCache getStatementCache() {
+        return statementCache;
     }
 }
@@ -2,6 +2,8 @@ package io.github.flameyossnowy.universal.postgresql.credentials;
 
 import org.postgresql.ds.PGSimpleDataSource;
 
+import io.github.flameyossnowy.universal.sql.pool.AdaptivePoolSizing;
+
 import java.util.function.Consumer;
 
 @SuppressWarnings("unused")
@@ -16,6 +18,10 @@ public final class PostgreSQLCredentials {
     private int minimumIdle = 2;
     private long idleTimeout = 30000;
     private long connectionTimeout = 30000;
+    private long maxLifetime = 1800000;
+    private long leakDetectionThreshold = 0;
+    private String poolName;
+    private AdaptivePoolSizing adaptivePoolSizing;
     private Consumer<PGSimpleDataSource> dataSourceConsumer = (dataSource) -> {};
 
     public PostgreSQLCredentials(String host, int port, String database, String username, String password) {
@@ -46,6 +52,26 @@ public final class PostgreSQLCredentials {
         return this;
     }
 
+    public PostgreSQLCredentials setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+        return this;
+    }
+
+    public PostgreSQLCredentials setLeakDetectionThreshold(long leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+        return this;
+    }
+
+    public PostgreSQLCredentials setPoolName(String poolName) {
+        this.poolName = poolName;
+        return this;
+    }
+
+    public PostgreSQLCredentials setAdaptivePoolSizing(AdaptivePoolSizing adaptivePoolSizing) {
+        this.adaptivePoolSizing = adaptivePoolSizing;
+        return this;
+    }
+
     public PostgreSQLCredentials setSsl(boolean ssl) {
         this.ssl = ssl;
         return this;
@@ -96,6 +122,22 @@ public final class PostgreSQLCredentials {
         return connectionTimeout;
     }
 
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public AdaptivePoolSizing getAdaptivePoolSizing() {
+        return adaptivePoolSizing;
+    }
+
     public Consumer<PGSimpleDataSource> getDataSourceConsumer() {
         return dataSourceConsumer;
     }
@@ -46,4 +46,28 @@ public interface DatabaseImplementation {
      * In MySQL the default (without ANSI enabled) is backticks, while in others following MySQL standard it's double quotes
      */
     char quoteChar();
+
+    /**
+     * Determines if the database supports {@code RETURNING} clauses on data-modifying statements.
+     * <p>
+     * When supported, the affected rows can be read back from the same statement instead of issuing a separate query,
+     * such as {@code DELETE FROM test WHERE id = ? RETURNING *} in PostgreSQL and SQLite 3.35+.
+     *
+     * @return true if the database supports {@code RETURNING}
+     */
+    default boolean supportsReturning() {
+        return false;
+    }
+
+    /**
+     * Determines if the JDBC driver returns one generated key per row after {@link java.sql.Statement#executeBatch()}.
+     * <p>
+     * MySQL Connector/J and the PostgreSQL driver both do, while the SQLite driver only reports the last inserted row id,
+     * in which case rows are inserted one by one with a {@code RETURNING} clause instead.
+     *
+     * @return true if generated keys of a whole batch can be read back
+     */
+    default boolean supportsBatchGeneratedKeys() {
+        return false;
+    }
 }
@@ -1,7 +1,10 @@
 package io.github.flameyossnowy.universal.sql.internals;
 
 import io.github.flameyossnowy.universal.api.*;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
 import io.github.flameyossnowy.universal.api.annotations.Index;
+import io.github.flameyossnowy.universal.api.annotations.ParallelScan;
+import io.github.flameyossnowy.universal.api.annotations.Sequence;
 import io.github.flameyossnowy.universal.api.annotations.enums.CacheAlgorithmType;
 import io.github.flameyossnowy.universal.api.cache.*;
 import io.github.flameyossnowy.universal.api.connection.TransactionContext;
@@ -11,15 +14,20 @@ import io.github.flameyossnowy.universal.api.exceptions.handler.ExceptionHandler
 import io.github.flameyossnowy.universal.api.handler.RelationshipHandler;
 import io.github.flameyossnowy.universal.api.listener.AuditLogger;
 import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+import io.github.flameyossnowy.universal.api.operation.AsyncExecutor;
 import io.github.flameyossnowy.universal.api.operation.OperationContext;
 import io.github.flameyossnowy.universal.api.operation.OperationExecutor;
 import io.github.flameyossnowy.universal.api.options.*;
 import io.github.flameyossnowy.universal.api.options.validator.QueryValidator;
+import io.github.flameyossnowy.universal.api.options.validator.ValidationEstimation;
 import io.github.flameyossnowy.universal.api.reflect.*;
 
 import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
+import io.github.flameyossnowy.universal.api.sequence.SequenceAllocator;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
 import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.api.utils.PartitionedSpliterator;
 import io.github.flameyossnowy.universal.sql.SimpleTransactionContext;
 import io.github.flameyossnowy.universal.sql.iteration.ResultSetIterator;
 import io.github.flameyossnowy.universal.sql.params.SQLDatabaseParameters;
@@ -32,15 +40,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @SuppressWarnings("unchecked")
@@ -59,6 +73,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     private final AuditLogger<T> auditLogger;
     private final EntityLifecycleListener<T> entityLifecycleListener;
+    private final EventPipeline eventPipeline;
 
     // Advanced caching features
     @Nullable
@@ -67,8 +82,22 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     @Nullable
     protected final ReadThroughCache<ID, T> readThroughCache;
 
+    // Column values of loaded entities, used to only write the columns that changed
+    protected final EntitySnapshotCache<ID, T> snapshots;
+
+    // Coalesces concurrent findById calls that missed the L2 cache into one query
+    @Nullable
+    protected final BatchingLoader<ID, T> idLoader;
+
+    // Client-side id generation for @Sequence primary keys
+    @Nullable
+    protected final SequenceAllocator sequenceAllocator;
+
     protected long openedSessions = 1;
 
+    // Runs the *Async methods, limited to the size of the connection pool by default
+    protected AsyncExecutor asyncExecutor;
+
     private final boolean cacheEnabled;
     
     // Operation-based API support
@@ -115,8 +144,12 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         this.engine = new QueryParseEngine(sqlType, repositoryInformation, resolverRegistry, dataSource);
         Logging.info(() -> "Successfully created QueryParseEngine for table: " + repositoryInformation.getRepositoryName());
 
-        this.entityLifecycleListener = (EntityLifecycleListener<T>) repositoryInformation.getEntityLifecycleListener();
-        this.auditLogger = (AuditLogger<T>) repositoryInformation.getAuditLogger();
+        // The pipeline belongs to this adapter, other adapters of the entity keep theirs when this one is closed
+        this.eventPipeline = repositoryInformation.createEventPipeline();
+        EntityLifecycleListener<T> listener = (EntityLifecycleListener<T>) repositoryInformation.getEntityLifecycleListener();
+        AuditLogger<T> audit = (AuditLogger<T>) repositoryInformation.getAuditLogger();
+        this.entityLifecycleListener = eventPipeline == null ? listener : eventPipeline.wrap(listener);
+        this.auditLogger = eventPipeline == null ? audit : eventPipeline.wrap(audit);
         
         // Initialize advanced caches
         if (cacheEnabled) {
@@ -126,6 +159,18 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
             this.l2Cache = null;
             this.readThroughCache = null;
         }
+        this.snapshots = new EntitySnapshotCache<>(repositoryInformation, cacheEnabled ? maxSize : 512);
+        this.asyncExecutor = AsyncExecutor.virtualThreads(dataSource.getMaxConnections());
+
+        CoalescedLookups coalescedLookups = repositoryInformation.getCoalescedLookups();
+        this.idLoader = coalescedLookups == null
+            ? null
+            : new BatchingLoader<>(repositoryInformation.getRepositoryName(), coalescedLookups.windowMicros(), TimeUnit.MICROSECONDS, coalescedLookups.maxBatchSize(), this::loadAllByIdFromDatabase);
+
+        Sequence sequence = repositoryInformation.getSequence();
+        this.sequenceAllocator = sequence == null
+            ? null
+            : new SequenceAllocator(repositoryInformation.getSequenceName(), sequence.allocationSize(), new SQLSequenceSource(dataSource, sqlType));
 
         Logging.info(() -> "Advanced caching enabled: L2 Cache, Read-Through Cache, Prefetching Cache");
 
@@ -157,12 +202,24 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public void close() {
+        if (eventPipeline != null) eventPipeline.close();
+        asyncExecutor.close();
         dataSource.close();
         RepositoryRegistry.unregister(repositoryInformation.getRepositoryName());
     }
 
+    /**
+     * Gets the pipeline dispatching the listeners of this adapter, if the entity is annotated with {@link io.github.flameyossnowy.universal.api.annotations.AsyncEvents}.
+     */
+    public @Nullable EventPipeline getEventPipeline() {
+        return eventPipeline;
+    }
+
     @Override
     public List<T> find(SelectQuery q) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && PartitionedSpliterator.canSplit(q)) return findAllPartitioned(q, parallelScan.partitions());
+
         String query = engine.parseSelect(q, false);
         return executeQueryWithParams(query, q, q == null ? List.of() : q.filters());
     }
@@ -186,9 +243,14 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     }
 
     private @NotNull List<T> search(String sql, boolean first, SelectQuery selectQuery, @NotNull List<SelectOption> filters) throws Exception {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
-            statement.setFetchSize(repositoryInformation.getFetchPageSize() > 0 ? repositoryInformation.getFetchPageSize() : 100);
+        // Nested collection, map and relationship loads reuse the connection of this scope
+        try (ConnectionScope scope = ConnectionScope.open(dataSource);
+             PreparedStatement statement = dataSource.prepareStatement(sql, scope.connection())) {
+            QueryHints hints = selectQuery == null ? QueryHints.NONE : selectQuery.hints();
+            if (hints.batchSize() > 0) statement.setFetchSize(hints.batchSize());
+            else statement.setFetchSize(repositoryInformation.getFetchPageSize() > 0 ? repositoryInformation.getFetchPageSize() : 100);
+            // JDBC timeouts are in whole seconds, cached statements keep theirs so it is always set
+            statement.setQueryTimeout(hints.maxTimeMillis() > 0 ? (int) Math.max(1, (hints.maxTimeMillis() + 999) / 1000) : 0);
 
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             this.addFilterToPreparedStatement(filters, parameters);
@@ -221,14 +283,35 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public List<T> find() {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null) return findAllPartitioned(null, parallelScan.partitions());
+
         return executeQuery(engine.parseSelect(null, false), null);
     }
 
+    private List<T> findAllPartitioned(@Nullable SelectQuery q, int partitions) {
+        List<T> results;
+        try (Stream<T> stream = findPartitioned(q, partitions)) {
+            results = stream.collect(Collectors.toCollection(ArrayList::new));
+        } catch (Exception e) {
+            return this.exceptionHandler.handleRead(e, repositoryInformation, null, this);
+        }
+
+        if (repositoryInformation.hasRelationships() && q != null && !q.prefetch().isEmpty()) {
+            objectFactory.getRelationshipHandler().prefetch(results, q.prefetch());
+        }
+        return results;
+    }
+
     @SuppressWarnings("DataFlowIssue")
     @Override
     public T findById(ID key) {
         FieldData<?> primaryKey = validatePrimaryKey();
-        if (!cacheEnabled) return first(Query.select().where(primaryKey.name()).eq(key).build());
+        if (!cacheEnabled) {
+            T entity = idLoader != null ? idLoader.load(key) : first(Query.select().where(primaryKey.name()).eq(key).build());
+            if (entity != null) snapshots.capture(key, entity);
+            return entity;
+        }
 
         // Check L2 cache first
         T cached = l2Cache.get(key);
@@ -237,10 +320,11 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
             return cached;
         }
         
-        T entity = first(Query.select().where(primaryKey.name()).eq(key).build());
+        T entity = idLoader != null ? idLoader.load(key) : first(Query.select().where(primaryKey.name()).eq(key).build());
         
         if (entity != null) {
             l2Cache.put(key, entity);
+            snapshots.capture(key, entity);
         }
         
         return entity;
@@ -259,6 +343,23 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
             return Collections.singletonMap(next, findById(next));
         }
 
+        return loadAllByIdFromDatabase(keys);
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(ID id) {
+        if (idLoader == null) return RepositoryAdapter.super.findByIdAsync(id);
+
+        T cached = cacheEnabled ? l2Cache.get(id) : null;
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        // The caller thread is not blocked while the batch is collected, the batch fills the caches and snapshots
+        return idLoader.loadAsync(id);
+    }
+
+    private Map<ID, T> loadAllByIdFromDatabase(Collection<ID> keys) {
+        FieldData<?> primaryKey = validatePrimaryKey();
+
         SelectQuery query = Query.select().where(primaryKey.name()).in(keys).build();
         String s = engine.parseSelect(query, false);
 
@@ -267,6 +368,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         for (T t : ts) {
             ID id = primaryKey.getValue(t);
             result.put(id, t);
+            snapshots.capture(id, t);
             if (cacheEnabled) {
                 //noinspection DataFlowIssue
                 l2Cache.put(id, t);
@@ -285,19 +387,8 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
             return executeForIteration(
                 sql,
                 q == null ? List.of() : q.filters(),
-                rs -> new ResultSetIterator<>(
-                    rs,
-                    r -> {
-                        try {
-                            return repositoryInformation.hasRelationships()
-                                ? objectFactory.createWithRelationships(r)
-                                : objectFactory.create(r);
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    },
-                    repositoryInformation.getFetchPageSize()
-                )
+                null,
+                this::iterate
             );
         } catch (Exception e) {
             throw new RuntimeException("Failed to create iterator", e);
@@ -306,38 +397,168 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public @NotNull Stream<T> findStream(SelectQuery q) {
+        ParallelScan parallelScan = repositoryInformation.getParallelScan();
+        if (parallelScan != null && PartitionedSpliterator.canSplit(q)) return findPartitioned(q, parallelScan.partitions());
+
+        return streamSequentially(q);
+    }
+
+    private @NotNull Stream<T> streamSequentially(SelectQuery q) {
         try {
             String sql = engine.parseSelect(q, false);
 
             return executeForIteration(
                 sql,
                 q == null ? List.of() : q.filters(),
-                rs -> ResultSetIterator.stream(
-                    rs,
-                    r -> {
-                        try {
-                            return repositoryInformation.hasRelationships()
-                                ? objectFactory.createWithRelationships(r)
-                                : objectFactory.create(r);
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    },
-                    repositoryInformation.getFetchPageSize()
-                )
+                null,
+                rs -> ResultSetIterator.stream(rs, this::createFromRow, repositoryInformation.getFetchPageSize())
             );
         } catch (Exception e) {
             throw new RuntimeException("Failed to create stream", e);
         }
     }
 
+    @Override
+    public @NotNull Stream<T> findPartitioned(@Nullable SelectQuery q, int partitions) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        List<SelectOption> filters = q == null ? List.of() : q.filters();
+
+        // Every partition holds a connection for its whole scan, one is left for the caller
+        int maxConnections = dataSource.getMaxConnections();
+        if (maxConnections > 0) partitions = Math.min(partitions, maxConnections - 1);
+
+        // Filters on the primary key would share their parameter name with the range bounds
+        if (partitions < 2 || primaryKey == null || !PartitionedSpliterator.canSplit(q)
+                || filters.stream().anyMatch(filter -> primaryKey.name().equals(filter.option()))) {
+            return streamSequentially(q);
+        }
+
+        try {
+            List<Object> boundaries = splitKeyRange(q, filters, partitions);
+            if (boundaries.isEmpty()) return streamSequentially(q);
+
+            // Open-ended first and last ranges also cover rows inserted outside the bounds while scanning
+            List<PartitionedSpliterator.Partition<T>> ranges = new ArrayList<>(boundaries.size() + 1);
+            for (int i = 0; i <= boundaries.size(); i++) {
+                Object lower = i == 0 ? null : boundaries.get(i - 1);
+                Object upper = i == boundaries.size() ? null : boundaries.get(i);
+                String sql = engine.parseRangeSelect(q, lower != null, upper != null);
+                ranges.add(() -> executeForIteration(sql, filters, statement -> bindBounds(statement, filters, lower, upper), true, this::iterate));
+            }
+
+            Logging.deepInfo(() -> "Scanning " + repositoryInformation.getRepositoryName() + " in " + ranges.size() + " partitions");
+            return PartitionedSpliterator.stream(ranges);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to split scan", e);
+        }
+    }
+
+    /**
+     * Splits the primary keys matching the filters into ranges of about equal size.
+     *
+     * @return the boundaries between the ranges, in ascending order
+     */
+    private @NotNull List<Object> splitKeyRange(@Nullable SelectQuery q, List<SelectOption> filters, int partitions) throws Exception {
+        Object min;
+        Object max;
+        long count;
+
+        String sql = engine.parseKeyBounds(q);
+        try (Connection connection = ConnectionScope.readConnection(dataSource);
+             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            this.addFilterToPreparedStatement(filters, new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) return List.of();
+                min = resultSet.getObject(1);
+                max = resultSet.getObject(2);
+                count = resultSet.getLong(3);
+            }
+        }
+
+        if (min == null || max == null || count < 2) return List.of();
+
+        int parts = (int) Math.min(partitions, count);
+        List<Object> boundaries = new ArrayList<>(parts - 1);
+
+        if (isIntegral(min) && isIntegral(max)) {
+            long low = ((Number) min).longValue();
+            long span = ((Number) max).longValue() - low;
+
+            // A negative span overflowed, those keys are split by position below
+            if (span > 0) {
+                long previous = low;
+                for (int i = 1; i < parts; i++) {
+                    long boundary = low + span / parts * i + span % parts * i / parts;
+                    if (boundary > previous) boundaries.add(boundary);
+                    previous = boundary;
+                }
+                return boundaries;
+            }
+        }
+
+        // Keys that cannot be divided are split at the key found at every partition boundary
+        for (int i = 1; i < parts; i++) {
+            String keySql = engine.parseKeyAt(q, count * i / parts);
+            try (Connection connection = ConnectionScope.readConnection(dataSource);
+                 PreparedStatement statement = dataSource.prepareStatement(keySql, connection)) {
+                this.addFilterToPreparedStatement(filters, new SQLDatabaseParameters(statement, resolverRegistry, keySql, repositoryInformation));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) continue;
+                    Object key = resultSet.getObject(1);
+                    if (key != null && (boundaries.isEmpty() || !key.equals(boundaries.getLast()))) boundaries.add(key);
+                }
+            }
+        }
+        return boundaries;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private static void bindBounds(PreparedStatement statement, List<SelectOption> filters, @Nullable Object lower, @Nullable Object upper) throws SQLException {
+        int index = 1;
+        for (SelectOption filter : filters) {
+            if (filter == null) continue;
+            index += "IN".equalsIgnoreCase(filter.operator()) && filter.value() instanceof Collection<?> list ? list.size() : 1;
+        }
+
+        if (lower != null) statement.setObject(index++, lower);
+        if (upper != null) statement.setObject(index, upper);
+    }
+
+    private CloseableIterator<T> iterate(ResultSet resultSet) {
+        return new ResultSetIterator<>(resultSet, this::createFromRow, repositoryInformation.getFetchPageSize());
+    }
+
+    private T createFromRow(ResultSet resultSet) {
+        try {
+            return repositoryInformation.hasRelationships()
+                ? objectFactory.createWithRelationships(resultSet)
+                : objectFactory.create(resultSet);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private <R> R executeForIteration(
         String sql,
         List<SelectOption> filters,
+        @Nullable StatementSetter extraParameters,
         Function<ResultSet, R> resultSetConsumer
     ) throws Exception {
+        return executeForIteration(sql, filters, extraParameters, false, resultSetConsumer);
+    }
 
-        Connection connection = dataSource.getConnection();
+    private <R> R executeForIteration(
+        String sql,
+        List<SelectOption> filters,
+        @Nullable StatementSetter extraParameters,
+        boolean shareConnection,
+        Function<ResultSet, R> resultSetConsumer
+    ) throws Exception {
+
+        Connection connection = dataSource.getReadConnection();
         PreparedStatement statement = dataSource.prepareStatement(sql, connection);
 
         int fetchSize = repositoryInformation.getFetchPageSize() > 0
@@ -350,13 +571,15 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
             new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
 
         this.addFilterToPreparedStatement(filters, parameters);
+        if (extraParameters != null) extraParameters.set(statement);
 
         ResultSet resultSet = statement.executeQuery();
 
         // IMPORTANT: cleanup must cascade from the ResultSet
-        return resultSetConsumer.apply(
-            new DelegatingResultSet(resultSet, statement, connection)
-        );
+        DelegatingResultSet delegating = new DelegatingResultSet(resultSet, statement, connection);
+        // Rows are mapped on the reading thread, so the relationship loads of a partition join its connection
+        if (shareConnection) delegating.shareConnection(dataSource);
+        return resultSetConsumer.apply(delegating);
     }
 
     /**
@@ -392,12 +615,32 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     }
 
     private static final int BATCH_SIZE = 1000; // Prevent OOM on large batches
+    private static final int MAX_STATEMENT_PARAMETERS = 32766; // SQLite's default limit of bound parameters
     
-    private TransactionResult<Boolean> executeBatch(TransactionContext<Connection> transactionContext, String sql, Collection<T> collection) {
-        try (Connection connection = transactionContext == null ? dataSource.getConnection() : transactionContext.connection();
-             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+    private TransactionResult<Boolean> executeBatch(TransactionContext<Connection> transactionContext, String sql, Collection<T> values) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        Collection<T> collection = values;
+        if (sequenceAllocator != null) {
+            try {
+                List<T> assigned = new ArrayList<>(values.size());
+                for (T entity : values) assigned.add(assignSequenceId(entity));
+                collection = assigned;
+            } catch (Exception e) {
+                return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+            }
+        }
 
-            if (transactionContext == null) connection.setAutoCommit(false);
+        if (primaryKey != null && primaryKey.autoIncrement()) {
+            if (engine.supportsBatchGeneratedKeys()) return executeBatchWithGeneratedKeys(transactionContext, sql, collection, primaryKey);
+            if (engine.supportsReturning()) return executeInsertsReturningId(transactionContext, collection, primaryKey);
+        }
+
+        // Only a connection opened here is committed and closed here, the caller's transaction is left to the caller
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             PreparedStatement statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
+
+            Connection connection = owned != null ? owned : transactionContext.connection();
+            if (owned != null) owned.setAutoCommit(false);
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             try {
                 // Process in chunks to prevent OOM and timeout issues
@@ -419,22 +662,62 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
                 if (collection.size() % BATCH_SIZE != 0) {
                     statement.executeBatch();
                 }
-                
-                connection.commit();
 
-                FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
-                if (primaryKey != null) {
-                    // Insert collection entities after main batch
-                    for (T entity : collection) {
-                        objectFactory.insertCollectionEntities(entity, primaryKey.getValue(entity), parameters);
+                // Ids are known up front here, so the rows of collection fields go out as one batch per field
+                // in the same transaction instead of one round trip per entity
+                objectFactory.insertCollectionEntities(collection, connection);
+
+                if (owned != null) owned.commit();
+
+                afterBatchInsert(collection, primaryKey);
+                return TransactionResult.success(true);
+            } catch (Exception e) {
+                if (owned != null) owned.rollback();
+                return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+            }
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+    }
+
+    /**
+     * Batch insert for drivers that report one generated key per batched row, the keys are read back
+     * after every chunk and written into the entities in insertion order.
+     */
+    private TransactionResult<Boolean> executeBatchWithGeneratedKeys(TransactionContext<Connection> transactionContext, String sql, Collection<T> collection, FieldData<?> primaryKey) {
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             PreparedStatement statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection(), Statement.RETURN_GENERATED_KEYS)) {
+
+            Connection connection = owned != null ? owned : transactionContext.connection();
+            if (owned != null) owned.setAutoCommit(false);
+            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
+            try {
+                List<T> chunk = new ArrayList<>(Math.min(collection.size(), BATCH_SIZE));
+                for (T entity : collection) {
+                    objectFactory.insertEntity(parameters, entity);
+                    statement.addBatch();
+                    chunk.add(entity);
+
+                    if (chunk.size() == BATCH_SIZE) {
+                        statement.executeBatch();
+                        assignGeneratedKeys(statement, chunk, primaryKey);
+                        statement.clearBatch();
+                        chunk.clear();
                     }
                 }
 
-                if (cache != null) cache.clear();
+                if (!chunk.isEmpty()) {
+                    statement.executeBatch();
+                    assignGeneratedKeys(statement, chunk, primaryKey);
+                }
 
+                objectFactory.insertCollectionEntities(collection, connection);
+                if (owned != null) owned.commit();
+
+                afterBatchInsert(collection, primaryKey);
                 return TransactionResult.success(true);
             } catch (Exception e) {
-                connection.rollback();
+                if (owned != null) owned.rollback();
                 return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
             }
         } catch (Exception e) {
@@ -442,19 +725,132 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         }
     }
 
+    /**
+     * Inserts for drivers that only report the last generated key of a batch (SQLite), rows go out in multi-row
+     * {@code INSERT ... RETURNING} statements in the same transaction and the returned ids are written into the entities.
+     */
+    private TransactionResult<Boolean> executeInsertsReturningId(TransactionContext<Connection> transactionContext, Collection<T> collection, FieldData<?> primaryKey) {
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null) {
+            Connection connection = owned != null ? owned : transactionContext.connection();
+            if (owned != null) owned.setAutoCommit(false);
+            try {
+                int columns = Math.max(1, countParameters(engine.parseInsert()));
+                int rowsPerStatement = Math.max(1, Math.min(BATCH_SIZE, MAX_STATEMENT_PARAMETERS / columns));
+
+                List<T> chunk = new ArrayList<>(Math.min(collection.size(), rowsPerStatement));
+                for (T entity : collection) {
+                    chunk.add(entity);
+                    if (chunk.size() == rowsPerStatement) {
+                        insertReturningIds(connection, chunk, primaryKey);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) insertReturningIds(connection, chunk, primaryKey);
+
+                objectFactory.insertCollectionEntities(collection, connection);
+                if (owned != null) owned.commit();
+
+                afterBatchInsert(collection, primaryKey);
+                return TransactionResult.success(true);
+            } catch (Exception e) {
+                if (owned != null) owned.rollback();
+                return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+            }
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+    }
+
+    private void insertReturningIds(Connection connection, List<T> chunk, FieldData<?> primaryKey) throws Exception {
+        String sql = engine.parseInsertReturningIds(chunk.size());
+        try (PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
+            for (int row = 0; row < chunk.size(); row++) {
+                objectFactory.insertEntity(parameters.forRow(row), chunk.get(row));
+            }
+
+            TypeResolver<ID> resolver = resolverRegistry.resolve(idClass);
+            List<ID> ids = new ArrayList<>(chunk.size());
+            try (ResultSet returned = statement.executeQuery()) {
+                SQLDatabaseResult result = new SQLDatabaseResult(returned, resolverRegistry);
+                while (returned.next()) ids.add(resolver.resolve(result, primaryKey.name()));
+            }
+
+            if (ids.size() != chunk.size()) {
+                throw new SQLException("Insert returned " + ids.size() + " ids for " + chunk.size() + " rows in " + repositoryInformation.getRepositoryName());
+            }
+
+            // RETURNING gives no order, but the ids one statement generates increase in the order of its rows
+            ids.sort(null);
+            for (int i = 0; i < chunk.size(); i++) primaryKey.setValue(chunk.get(i), ids.get(i));
+        }
+    }
+
+    private static int countParameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') count++;
+        }
+        return count;
+    }
+
+    private void assignGeneratedKeys(PreparedStatement statement, List<T> chunk, FieldData<?> primaryKey) throws SQLException {
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            SQLDatabaseResult result = new SQLDatabaseResult(generatedKeys, resolverRegistry);
+            TypeResolver<ID> resolver = resolverRegistry.resolve(idClass);
+
+            // MySQL names the key column GENERATED_KEY rather than after the primary key
+            String column = null;
+            int index = 0;
+            while (index < chunk.size() && generatedKeys.next()) {
+                if (column == null) column = result.hasColumn(primaryKey.name()) ? primaryKey.name() : result.getColumnName(0);
+                primaryKey.setValue(chunk.get(index++), resolver.resolve(result, column));
+            }
+
+            if (index != chunk.size()) {
+                Logging.warn("Driver returned " + index + " generated keys for a batch of " + chunk.size() + " rows in " + repositoryInformation.getRepositoryName());
+            }
+        }
+    }
+
+    /**
+     * Post-insert handling shared by every batch insert, once the rows and their collection rows are written.
+     */
+    private void afterBatchInsert(Collection<T> collection, @Nullable FieldData<?> primaryKey) {
+        if (primaryKey != null) {
+            for (T entity : collection) {
+                ID id = primaryKey.getValue(entity);
+                if (id == null) continue;
+
+                if (globalCache != null) globalCache.put(id, entity);
+                invalidateRelationships(entity, id);
+            }
+        }
+
+        if (cache != null) cache.clear();
+    }
+
 
     @Override
     public TransactionResult<Boolean> updateAll(@NotNull T entity, TransactionContext<Connection> transactionContext) {
         FieldData<?> primaryKey = validatePrimaryKey();
 
         ID id = primaryKey.getValue(entity);
-        String sql = engine.parseUpdateFromEntity();
+        String sql = engine.parseUpdateFromEntity(snapshots.dirtyMask(id, entity));
+        if (sql == null) {
+            Logging.deepInfo(() -> "No changed columns for entity ID: " + id + ", skipping update.");
+            return TransactionResult.success(true);
+        }
+
         TransactionResult<Boolean> result = executeUpdate(transactionContext, sql, statement -> {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             this.setUpdateParameters(parameters, entity);
         }, entity, id);
         
         if (result.isSuccess()) {
+            // A caller's transaction can still roll back, then the row no longer matches the entity
+            if (transactionContext == null) snapshots.capture(id, entity);
+            else snapshots.remove(id);
             // Invalidate L2 cache for this entity
             try {
                 if (cacheEnabled) {
@@ -485,13 +881,13 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     @Override
     public TransactionResult<Boolean> deleteById(@NotNull ID entity, TransactionContext<Connection> transactionContext) {
         validatePrimaryKey();
-        return executeDeleteWithId(transactionContext, engine.parseDelete(entity), entity);
+        return executeDeleteWithId(transactionContext, entity);
     }
 
     @Override
     public TransactionResult<Boolean> deleteById(ID value) {
         validatePrimaryKey();
-        return executeDeleteWithId(null, engine.parseDelete(value), value);
+        return executeDeleteWithId(null, value);
     }
 
     @Override
@@ -554,7 +950,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     @Override
     public @NotNull List<ID> findIds(@NotNull SelectQuery query) {
         String sql = engine.parseQueryIds(query, query.limit() == 1);
-        try (Connection connection = dataSource.getConnection();
+        try (Connection connection = ConnectionScope.readConnection(dataSource);
              PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             this.addFilterToPreparedStatement(query.filters(), parameters);
@@ -566,6 +962,130 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         }
     }
 
+    @Override
+    public long count(@NotNull SelectQuery query) {
+        var validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            reportInvalidQuery(validation, query);
+            return 0;
+        }
+
+        String sql = engine.parseCount(query);
+        // The statement alone doesn't hold the parameter values
+        String key = sql + ':' + query.filters();
+        long cached = cache == null ? -1 : cache.fetchCount(key);
+        if (cached >= 0) return cached;
+
+        try (Connection connection = ConnectionScope.readConnection(dataSource);
+             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            this.addFilterToPreparedStatement(query.filters(), new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                long count = resultSet.next() ? resultSet.getLong(1) : 0;
+                if (cache != null) cache.insertCount(key, count);
+                return count;
+            }
+        } catch (Exception e) {
+            this.exceptionHandler.handleRead(e, repositoryInformation, query, this);
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean exists(@NotNull SelectQuery query) {
+        var validation = queryValidator.validateSelectQuery(query);
+        if (validation.isFail()) {
+            reportInvalidQuery(validation, query);
+            return false;
+        }
+
+        String sql = engine.parseExists(query);
+        String countKey = engine.parseCount(query) + ':' + query.filters();
+        long cached = cache == null ? -1 : cache.fetchCount(countKey);
+        if (cached >= 0) return cached > 0;
+
+        try (Connection connection = ConnectionScope.readConnection(dataSource);
+             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            this.addFilterToPreparedStatement(query.filters(), new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                boolean exists = resultSet.next();
+                // Nothing matched, which is also a count
+                if (!exists && cache != null) cache.insertCount(countKey, 0);
+                return exists;
+            }
+        } catch (Exception e) {
+            this.exceptionHandler.handleRead(e, repositoryInformation, query, this);
+            return false;
+        }
+    }
+
+    /**
+     * Reports a query that failed validation through the exception handler, like any other read failure.
+     */
+    private void reportInvalidQuery(ValidationEstimation validation, SelectQuery query) {
+        this.exceptionHandler.handleRead(new IllegalArgumentException("Query validation failed: " + validation.reason()), repositoryInformation, query, this);
+    }
+
+    @Override
+    public @NotNull List<Map<String, Object>> aggregate(@NotNull AggregateQuery query) {
+        var validation = queryValidator.validateSelectQuery(query.toSelectQuery());
+        if (validation.isFail()) {
+            reportInvalidQuery(validation, query.toSelectQuery());
+            return List.of();
+        }
+
+        // The filter values, followed by the having values
+        List<Object> values = new ArrayList<>(query.filters().size() + query.having().size());
+        for (SelectOption filter : query.filters()) addParameterValues(values, filter);
+        for (SelectOption condition : query.having()) addParameterValues(values, condition);
+
+        String sql = engine.parseAggregate(query);
+        try (Connection connection = ConnectionScope.readConnection(dataSource);
+             PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            List<String> names = new ArrayList<>(values.size());
+            for (int i = 1; i <= values.size(); i++) names.add(Integer.toString(i));
+
+            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, names);
+            for (int i = 0; i < values.size(); i++) {
+                Object value = values.get(i);
+                if (value == null) {
+                    parameters.setNull(names.get(i), Object.class);
+                    continue;
+                }
+                TypeResolver<Object> resolver = (TypeResolver<Object>) resolverRegistry.resolve(value.getClass());
+                if (resolver == null) parameters.setRaw(names.get(i), value, value.getClass());
+                else resolver.insert(parameters, names.get(i), value);
+            }
+
+            List<String> columns = query.columns();
+            int groups = query.groupBy().size();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>(columns.size());
+                    for (int i = 0; i < columns.size(); i++) {
+                        Object value = resultSet.getObject(i + 1);
+                        if (i >= groups) {
+                            Aggregation aggregation = query.aggregations().get(i - groups);
+                            FieldData<?> field = aggregation.field() == null ? null : repositoryInformation.getField(aggregation.field());
+                            value = aggregation.normalize(value, field == null ? null : field.type());
+                        }
+                        row.put(columns.get(i), value);
+                    }
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (Exception e) {
+            this.exceptionHandler.handleRead(e, repositoryInformation, query.toSelectQuery(), this);
+            return List.of();
+        }
+    }
+
+    private static void addParameterValues(List<Object> values, SelectOption option) {
+        if ("IN".equalsIgnoreCase(option.operator()) && option.value() instanceof Collection<?> list) values.addAll(list);
+        else values.add(option.value());
+    }
+
     private void addFilterToPreparedStatement(List<SelectOption> filters, SQLDatabaseParameters parameters) {
         for (SelectOption value : filters) {
             if (value == null) continue;
@@ -586,7 +1106,13 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public TransactionResult<Boolean> updateAll(@NotNull UpdateQuery query, TransactionContext<Connection> transactionContext) {
+        // The SQL only covers the assigned fields, pushes and pulls would be silently dropped
+        if (query.hasArrayUpdates()) {
+            return TransactionResult.failure(new UnsupportedOperationException(
+                "Pushing to or pulling from collection fields is not supported by SQL repositories, set the whole collection instead"));
+        }
         String sql = engine.parseUpdate(query);
+        snapshots.clear();
         return executeUpdate(transactionContext, sql, statement -> {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             setUpdateParameters(query, parameters);
@@ -600,11 +1126,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public TransactionResult<Boolean> updateAll(@NotNull UpdateQuery query) {
-        String sql = engine.parseUpdate(query);
-        return executeUpdate(null, sql, statement -> {
-            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
-            setUpdateParameters(query, parameters);
-        });
+        return updateAll(query, null);
     }
 
     @Override
@@ -626,6 +1148,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public TransactionResult<Boolean> clear() {
+        snapshots.clear();
         return executeRawQuery("DELETE FROM " + repositoryInformation.getRepositoryName());
     }
 
@@ -636,22 +1159,7 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     @Override
     public TransactionResult<Boolean> updateAll(T entity) {
-        if (entityLifecycleListener != null) entityLifecycleListener.onPreUpdate(entity);
-        T oldEntity = null;
-
-        FieldData<?> primaryKey = validatePrimaryKey();
-        if (auditLogger != null) oldEntity = findById(primaryKey.getValue(entity));
-
-        String sql = engine.parseUpdateFromEntity();
-        TransactionResult<Boolean> result = executeUpdate(null, sql, statement -> {
-            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
-            this.setUpdateParameters(parameters, entity);
-        });
-        if (result.isSuccess()) {
-            if (entityLifecycleListener != null)entityLifecycleListener.onPostUpdate(entity);
-            if (auditLogger != null) auditLogger.onUpdate(oldEntity, entity);
-        }
-        return result;
+        return updateAll(entity, null);
     }
 
     private @NotNull FieldData<?> validatePrimaryKey() {
@@ -662,6 +1170,24 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         return primaryKey;
     }
 
+    @Override
+    public @NotNull Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Replaces the executor running the asynchronous methods of this adapter.
+     *
+     * @param executor the executor running the tasks, or null to start a virtual thread per task
+     * @param maxConcurrency the maximum amount of concurrent tasks, zero to use the connection pool size, negative for no limit
+     */
+    public void setAsyncExecutor(@Nullable Executor executor, int maxConcurrency) {
+        int limit = maxConcurrency == 0 ? dataSource.getMaxConnections() : maxConcurrency;
+        AsyncExecutor previous = this.asyncExecutor;
+        this.asyncExecutor = executor == null ? AsyncExecutor.virtualThreads(limit) : AsyncExecutor.wrap(executor, limit);
+        if (previous != null && previous != asyncExecutor) previous.close();
+    }
+
     @Override
     public @NotNull Class<ID> getIdType() {
         return idClass;
@@ -729,18 +1255,26 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     private TransactionResult<Boolean> executeUpdate(TransactionContext<Connection> transactionContext, String sql, StatementSetter setter, T entity, ID id) {
         if (entityLifecycleListener != null) entityLifecycleListener.onPreUpdate(entity);
-        try (var statement = dataSource.prepareStatement(sql, transactionContext == null ? dataSource.getConnection() : transactionContext.connection())) {
+        // Only a connection opened here is closed here, the caller's transaction is left to the caller
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             var statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
+            Connection connection = owned != null ? owned : transactionContext.connection();
             if (setter != null) setter.set(statement);
-            if (cache != null) cache.clear();
-            if (globalCache != null) globalCache.put(id, entity);
 
             T oldEntity = null;
-            if (auditLogger != null) oldEntity = findById(id);
+            if (auditLogger != null) {
+                // A private copy rebuilt from the snapshot saves a read on the write connection
+                oldEntity = snapshots.restore(id);
+                if (oldEntity == null) oldEntity = resolvePreviousState(id, connection);
+            }
+
+            if (cache != null) cache.clear();
+            if (globalCache != null) globalCache.put(id, entity);
 
             TransactionResult<Boolean> success = TransactionResult.success(statement.execute());
-            if (auditLogger != null) auditLogger.onUpdate(oldEntity, entity);
+            if (auditLogger != null) auditLogger.onUpdate(entity, oldEntity);
             if (entityLifecycleListener != null) entityLifecycleListener.onPostUpdate(entity);
-            invalidateRelationships(id);
+            invalidateRelationships(entity, id);
             return success;
         } catch (Exception e) {
             return this.exceptionHandler.handleUpdate(e, repositoryInformation, this);
@@ -750,7 +1284,8 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     private TransactionResult<Boolean> executeDelete(TransactionContext<Connection> transactionContext, String sql, T entity) {
         if (entityLifecycleListener != null) entityLifecycleListener.onPreDelete(entity);
-        try (var statement = dataSource.prepareStatement(sql, transactionContext == null ? dataSource.getConnection() : transactionContext.connection())) {
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             var statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
 
             FieldData<?> primaryKey = validatePrimaryKey();
@@ -762,10 +1297,12 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
     }
 
     private TransactionResult<Boolean> executeDelete(TransactionContext<Connection> transactionContext, String sql, DeleteQuery query) {
-        try (var statement = dataSource.prepareStatement(sql, transactionContext == null ? dataSource.getConnection() : transactionContext.connection())) {
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             var statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
             setUpdateParameters(query, parameters);
             if (cache != null) cache.clear();
+            snapshots.clear();
             objectFactory.getRelationshipHandler().clear();
             return TransactionResult.success(statement.execute());
         } catch (Exception e) {
@@ -773,19 +1310,30 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         }
     }
 
-    private TransactionResult<Boolean> executeDeleteWithId(TransactionContext<Connection> transactionContext, String sql, ID id) {
-        T byId = null;
-        if (auditLogger != null || entityLifecycleListener != null) byId = findById(id);
-        if (entityLifecycleListener != null) entityLifecycleListener.onPreDelete(byId);
-        try (var statement = dataSource.prepareStatement(sql, transactionContext == null ? dataSource.getConnection() : transactionContext.connection())) {
+    private TransactionResult<Boolean> executeDeleteWithId(TransactionContext<Connection> transactionContext, ID id) {
+        // The pre-delete hook needs the entity up front, otherwise the deleted row can be returned by the statement itself
+        boolean returning = auditLogger != null && entityLifecycleListener == null && engine.supportsReturning();
+        String sql = engine.parseDeleteById(returning);
+
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             var statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
+            Connection connection = owned != null ? owned : transactionContext.connection();
+            T byId = null;
+            if (!returning && (auditLogger != null || entityLifecycleListener != null)) byId = resolvePreviousState(id, connection);
+            if (entityLifecycleListener != null) entityLifecycleListener.onPreDelete(byId);
+
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
-            return processDelete(id, parameters, statement, byId);
+            return processDelete(id, parameters, statement, byId, returning);
         } catch (Exception e) {
             return this.exceptionHandler.handleDelete(e, repositoryInformation, this);
         }
     }
 
-    private @NotNull TransactionResult<Boolean> processDelete(ID id, SQLDatabaseParameters parameters, PreparedStatement statement, T entity) throws SQLException {
+    private @NotNull TransactionResult<Boolean> processDelete(ID id, SQLDatabaseParameters parameters, PreparedStatement statement, T entity) throws Exception {
+        return processDelete(id, parameters, statement, entity, false);
+    }
+
+    private @NotNull TransactionResult<Boolean> processDelete(ID id, SQLDatabaseParameters parameters, PreparedStatement statement, T entity, boolean returning) throws Exception {
         TypeResolver<ID> resolver = resolverRegistry.resolve(idClass);
 
         // Primary key is always not null
@@ -794,16 +1342,27 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
         if (cache != null) cache.clear();
         if (globalCache != null) globalCache.remove(id);
+        snapshots.remove(id);
 
-        TransactionResult<Boolean> success = TransactionResult.success(statement.execute());
+        TransactionResult<Boolean> success;
+        if (returning) {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                boolean deleted = resultSet.next();
+                if (deleted) entity = objectFactory.create(resultSet);
+                success = TransactionResult.success(deleted);
+            }
+        } else {
+            success = TransactionResult.success(statement.execute());
+        }
         if (auditLogger != null) auditLogger.onDelete(entity);
         if (entityLifecycleListener != null) entityLifecycleListener.onPostDelete(entity);
-        invalidateRelationships(id);
+        invalidateRelationships(entity, id);
         return success;
     }
 
     private TransactionResult<Boolean> executeUpdate(TransactionContext<Connection> transactionContext, String sql, StatementSetter setter) {
-        try (var statement = dataSource.prepareStatement(sql, transactionContext == null ? dataSource.getConnection() : transactionContext.connection())) {
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             var statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection())) {
             if (setter != null) setter.set(statement);
             if (cache != null) cache.clear();
             return TransactionResult.success(statement.execute());
@@ -812,76 +1371,59 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         }
     }
 
+    /**
+     * Assigns the next id of the sequence to an entity without one, ids that were set manually are kept.
+     *
+     * @return the entity to insert, a copy carrying the id for records
+     */
+    private T assignSequenceId(T entity) {
+        if (sequenceAllocator == null) return entity;
+        return sequenceAllocator.assign(repositoryInformation, entity);
+    }
+
     private TransactionResult<Boolean> executeInsertAndSetId(TransactionContext<Connection> transactionContext, String sql, T value) {
         if (entityLifecycleListener != null) entityLifecycleListener.onPreInsert(value);
-        try (Connection connection = transactionContext == null ? dataSource.getConnection() : transactionContext.connection();
-             PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+        try {
+            value = assignSequenceId(value);
+        } catch (Exception e) {
+            return this.exceptionHandler.handleInsert(e, repositoryInformation, this);
+        }
+        try (Connection owned = transactionContext == null ? dataSource.getConnection() : null;
+             PreparedStatement statement = dataSource.prepareStatement(sql, owned != null ? owned : transactionContext.connection(), Statement.RETURN_GENERATED_KEYS)) {
 
+            Connection connection = owned != null ? owned : transactionContext.connection();
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
 
             this.objectFactory.insertEntity(parameters, value);
 
             if (statement.executeUpdate() > 0) {
-                if (repositoryInformation.getPrimaryKey() == null) {
-                    return TransactionResult.success(true);
-                }
-                if (repositoryInformation.hasRelationships()) {
-                    RelationshipHandler<T, ID> handler = objectFactory.getRelationshipHandler();
-                    ID entityId = repositoryInformation.getPrimaryKey().getValue(value);
-                    handler.invalidateRelationshipsForId(entityId);
-
-                    // Reverse-edge invalidation: if this entity references other entities (child → parent)
-                    for (FieldData<?> parentField : repositoryInformation.getManyToOneCache().values()) {
-                        Object parentValue = parentField.getValue(value);
-                        if (parentValue != null) {
-                            RepositoryInformation parentRepositoryInformation =
-                                RepositoryMetadata.getMetadata(parentField.type());
-
-                            @SuppressWarnings("DataFlowIssue") // Not worth null checking
-                            ID parentId = parentRepositoryInformation.getPrimaryKey().getValue(parentValue);
-
-                            handler.invalidateRelationshipsForId(parentId);
+                FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+                if (primaryKey != null) {
+                    if (primaryKey.autoIncrement()) {
+                        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                            SQLDatabaseResult result = new SQLDatabaseResult(generatedKeys, resolverRegistry);
+                            if (generatedKeys.next()) {
+                                TypeResolver<ID> resolver = resolverRegistry.resolve(idClass);
+                                primaryKey.setValue(value, resolver.resolve(result, primaryKey.name()));
+                            }
                         }
                     }
 
-                    for (FieldData<?> parentField : repositoryInformation.getOneToOneCache().values()) {
-                        Object parentValue = parentField.getValue(value);
-                        if (parentValue != null) {
-                            RepositoryInformation parentRepositoryInformation =
-                                RepositoryMetadata.getMetadata(parentField.type());
-
-                            @SuppressWarnings("DataFlowIssue") // not even worth null checking
-                            ID parentId = parentRepositoryInformation.getPrimaryKey().getValue(parentValue);
-
-                            handler.invalidateRelationshipsForId(parentId);
-                        }
+                    // Same handling as a batch insert: collection rows join the connection of the insert, then the
+                    // entity is cached and the cached relationships of the entities it references (child -> parent) evicted
+                    ID id = primaryKey.getValue(value);
+                    if (id != null) {
+                        this.objectFactory.insertCollectionEntities(List.of(value), connection);
+                        if (globalCache != null) globalCache.put(id, value);
+                        invalidateRelationships(value, id);
                     }
                 }
 
-                if (!repositoryInformation.getPrimaryKey().autoIncrement()) {
-                    this.objectFactory.insertCollectionEntities(value, repositoryInformation.getPrimaryKey().getValue(value), parameters);
-                    if (globalCache != null) globalCache.put(repositoryInformation.getPrimaryKey().getValue(value), value);
-                    return TransactionResult.success(true);
-                }
-
-                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                    SQLDatabaseResult result = new SQLDatabaseResult(generatedKeys, resolverRegistry);
-                    if (generatedKeys.next()) {
-                        TypeResolver<ID> resolver = resolverRegistry.resolve(idClass);
-                        ID generatedId = resolver.resolve(result, repositoryInformation.getPrimaryKey().name());
-
-                        repositoryInformation.getPrimaryKey().setValue(value, generatedId);
-
-                        if (globalCache != null) globalCache.put(generatedId, value);
-
-                        this.objectFactory.insertCollectionEntities(value, generatedId, parameters);
-                    }
-                    if (cache != null) cache.clear();
-                    if (auditLogger != null) auditLogger.onInsert(value);
-                    if (entityLifecycleListener != null) entityLifecycleListener.onPostInsert(value);
-
-                    return TransactionResult.success(true);
-                }
+                // Cached queries and counts may now miss the inserted row, whatever its key
+                if (cache != null) cache.clear();
+                if (auditLogger != null) auditLogger.onInsert(value);
+                if (entityLifecycleListener != null) entityLifecycleListener.onPostInsert(value);
+                return TransactionResult.success(true);
             }
             return TransactionResult.success(false);
         } catch (Exception exception) {
@@ -891,9 +1433,12 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
 
     private void setUpdateParameters(SQLDatabaseParameters statement, @NotNull T entity) {
         for (FieldData<?> fieldData : repositoryInformation.getFields()) {
-            if (fieldData.autoIncrement() || fieldData.oneToMany() != null) {
+            if ((fieldData.autoIncrement() && !fieldData.primary()) || fieldData.oneToMany() != null) {
                 continue; // Skip auto-incrementing fields and collection-based relationships
             }
+            if (!statement.contains(fieldData.name())) {
+                continue; // Column was not changed and is not part of this (partial) update
+            }
 
             Object value = fieldData.getValue(entity);
             Object finalValue2 = value;
@@ -972,17 +1517,37 @@ public class AbstractRelationalRepositoryAdapter<T, ID> implements RepositoryAda
         }
     }
 
+    /**
+     * Resolves the state of an entity before it gets overwritten or deleted, for audit logging and lifecycle hooks.
+     *
+     * <p>The row is read on the connection of the write itself, so uncommitted changes of the surrounding
+     * transaction are visible. Cached copies are shared instances, which are neither reverted on rollback nor
+     * refreshed after query updates or writes of other nodes, so they are not trusted as the previous state.
+     * Audited updates try {@link EntitySnapshotCache#restore(Object)} first and only read the row when the
+     * entity has no snapshot or cannot be rebuilt from one.
+     */
+    private @Nullable T resolvePreviousState(ID id, @NotNull Connection connection) throws Exception {
+        FieldData<?> primaryKey = validatePrimaryKey();
+        SelectQuery query = Query.select().where(primaryKey.name()).eq(id).build();
+        String sql = engine.parseSelect(query, true);
+        try (PreparedStatement statement = dataSource.prepareStatement(sql, connection)) {
+            SQLDatabaseParameters parameters = new SQLDatabaseParameters(statement, resolverRegistry, sql, repositoryInformation);
+            this.addFilterToPreparedStatement(query.filters(), parameters);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? objectFactory.create(resultSet) : null;
+            }
+        }
+    }
+
     private interface StatementSetter {
         void set(PreparedStatement statement) throws Exception;
     }
 
-    private void invalidateRelationships(ID id) {
-        if (!repositoryInformation.hasRelationships()) return;
-        if (id == null) return;
-
+    private void invalidateRelationships(@Nullable T entity, ID id) {
+        // Other repositories may cache this entity even if it has no relationships of its own
         try {
             RelationshipHandler<T, ID> handler = objectFactory.getRelationshipHandler();
-            handler.invalidateRelationshipsForId(id);
+            handler.invalidateRelated(entity, id);
             Logging.deepInfo(() -> "Invalidated relationship cache for ID: " + id);
         } catch (Exception e) {
             Logging.error("Failed to invalidate relationship cache for ID " + id + ": " + e.getMessage());
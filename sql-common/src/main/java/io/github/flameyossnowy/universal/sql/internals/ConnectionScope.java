@@ -0,0 +1,137 @@
+package io.github.flameyossnowy.universal.sql.internals;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binds one read connection of a provider to the current thread for the duration of a logical operation.
+ * <p>
+ * A top-level {@code find} opens a scope, and every nested load on the same thread, such as collection and map
+ * fields or relationships of other repositories on the same database, reuses its connection instead of checking out
+ * another one from the pool. Scopes are shared by {@link SQLConnectionProvider#getScopeKey()}, so repositories with
+ * providers of their own still join the scope of the outer operation. The connection is acquired on first use from
+ * the provider that opened the scope and released when the outermost scope closes.
+ * <pre>
+ * try (ConnectionScope scope = ConnectionScope.open(provider);
+ *      PreparedStatement statement = provider.prepareStatement(sql, scope.connection())) {
+ *     ...
+ * }
+ * </pre>
+ * Connections handed out by a scope ignore {@code close()}, so callers keep using try-with-resources as usual.
+ */
+public final class ConnectionScope implements AutoCloseable {
+    private static final ThreadLocal<Map<Object, ConnectionScope>> SCOPES = new ThreadLocal<>();
+
+    private final SQLConnectionProvider provider;
+    private final Object key;
+    private Connection connection;
+    private Connection view;
+    private int depth = 1;
+
+    private ConnectionScope(SQLConnectionProvider provider, Object key) {
+        this.provider = provider;
+        this.key = key;
+    }
+
+    /**
+     * Opens a scope for the provider, or joins the one already open on the current thread for the same database.
+     *
+     * @param provider the provider to acquire the connection from
+     * @return the scope, which must be closed
+     */
+    public static @NotNull ConnectionScope open(@NotNull SQLConnectionProvider provider) {
+        Map<Object, ConnectionScope> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new HashMap<>(4);
+            SCOPES.set(scopes);
+        }
+
+        Object key = provider.getScopeKey();
+        ConnectionScope scope = scopes.get(key);
+        if (scope != null) {
+            scope.depth++;
+            return scope;
+        }
+
+        scope = new ConnectionScope(provider, key);
+        scopes.put(key, scope);
+        return scope;
+    }
+
+    /**
+     * Opens a scope for the provider that shares a connection the caller already holds, such as the connection of a
+     * result set being read, or joins the scope already open on the current thread.
+     * <p>
+     * Closing the scope leaves the connection open, it stays owned by the caller.
+     *
+     * @param provider the provider the connection belongs to
+     * @param connection the connection to share
+     * @return the scope, which must be closed on this thread
+     */
+    public static @NotNull ConnectionScope bind(@NotNull SQLConnectionProvider provider, @NotNull Connection connection) {
+        ConnectionScope scope = open(provider);
+        if (scope.view == null) scope.view = nonClosing(connection);
+        return scope;
+    }
+
+    /**
+     * Gets a read connection of the provider, shared with the current operation if a scope is open on this thread.
+     *
+     * @param provider the provider to acquire the connection from
+     * @return a connection to close after use
+     */
+    public static Connection readConnection(@NotNull SQLConnectionProvider provider) {
+        Map<Object, ConnectionScope> scopes = SCOPES.get();
+        ConnectionScope scope = scopes == null ? null : scopes.get(provider.getScopeKey());
+        return scope == null ? provider.getReadConnection() : scope.connection();
+    }
+
+    /**
+     * Gets the connection of this scope, acquiring it on first use.
+     *
+     * @return a connection whose {@code close()} does nothing
+     */
+    public Connection connection() {
+        if (view == null) {
+            connection = provider.getReadConnection();
+            view = nonClosing(connection);
+        }
+        return view;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (--depth > 0) return;
+
+        Map<Object, ConnectionScope> scopes = SCOPES.get();
+        if (scopes != null && scopes.get(key) == this) {
+            scopes.remove(key);
+            if (scopes.isEmpty()) SCOPES.remove();
+        }
+
+        // A bound connection has no connection of its own to close
+        Connection connection = this.connection;
+        this.connection = null;
+        this.view = null;
+        if (connection != null) connection.close();
+    }
+
+    private static Connection nonClosing(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) return null;
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
@@ -8,6 +8,7 @@ import java.sql.Statement;
 final class DelegatingResultSet extends ResultSetWrapper {
     private final Statement statement;
     private final Connection connection;
+    private ConnectionScope scope;
 
     DelegatingResultSet(ResultSet rs, Statement stmt, Connection conn) {
         super(rs);
@@ -15,8 +16,26 @@ final class DelegatingResultSet extends ResultSetWrapper {
         this.connection = conn;
     }
 
+    /**
+     * Shares the connection with loads made on this thread until the result set is closed.
+     */
+    DelegatingResultSet shareConnection(SQLConnectionProvider provider) {
+        this.scope = ConnectionScope.bind(provider, connection);
+        return this;
+    }
+
     @Override
     public void close() throws SQLException {
+        ConnectionScope scope = this.scope;
+        this.scope = null;
+        if (scope != null) {
+            try {
+                scope.close();
+            } catch (Exception e) {
+                throw new SQLException(e);
+            }
+        }
+
         try {
             super.close();
         } finally {
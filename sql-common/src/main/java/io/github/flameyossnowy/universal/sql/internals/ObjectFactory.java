@@ -200,7 +200,9 @@ public sealed abstract class ObjectFactory<T, ID>
                     if (backRef != null) backRef.foundRelatedField().setValue(related, instance);
                 }
             } else if (field.manyToOne() != null) {
-                field.setValue(instance, relationshipHandler.handleManyToOneRelationship(primaryId, field));
+                // The column holds the id of the referenced entity
+                Object foreignKey = resolveFieldValue(field, sqlDatabaseResult);
+                field.setValue(instance, relationshipHandler.handleManyToOneRelationship(foreignKey, field));
             } else if (DatabaseObjectFactory.isListField(field) && hasPrimaryKey) {
                 field.setValue(instance, readListField(field, primaryId, rs));
             } else if (DatabaseObjectFactory.isSetField(field) && hasPrimaryKey) {
@@ -296,6 +298,51 @@ public sealed abstract class ObjectFactory<T, ID>
         }
     }
 
+    /**
+     * Inserts the collection and map fields of many entities with one batch per field, on the connection of the
+     * insert of the entities so that they commit or roll back together. Ids have to be known up front, such as
+     * ids set by the caller or taken from a sequence.
+     *
+     * @param entities the inserted entities
+     * @param connection the connection the entities were inserted on
+     */
+    @SuppressWarnings("rawtypes")
+    public void insertCollectionEntities(@NotNull Collection<T> entities, @NotNull Connection connection) throws Exception {
+        FieldData<?> primaryKey = repoInfo.getPrimaryKey();
+        if (primaryKey == null) return;
+
+        for (FieldData<?> field : repoInfo.getFields()) {
+            boolean collection = (DatabaseObjectFactory.isListField(field) || DatabaseObjectFactory.isSetField(field))
+                && !field.isRelationship();
+            if (!collection && !DatabaseObjectFactory.isMapField(field)) continue;
+
+            Map<ID, Object> values = new LinkedHashMap<>(entities.size());
+            for (T entity : entities) {
+                Object value = field.getValue(entity);
+                if (value != null) values.put(primaryKey.getValue(entity), value);
+            }
+            if (values.isEmpty()) continue;
+
+            if (collection) {
+                SQLCollections.INSTANCE
+                    .getResolver((Class<Object>) field.elementType(), idClass, connectionProvider, repoInfo, typeResolverRegistry)
+                    .insertAll((Map) values, connection);
+                continue;
+            }
+
+            MapData map = DatabaseObjectFactory.getMapData(field);
+            if (map.isMultiMap()) {
+                SQLCollections.INSTANCE
+                    .getMultiMapResolver(map.keyType(), map.valueType(), idClass, connectionProvider, repoInfo, typeResolverRegistry)
+                    .insertAll((Map) values, connection);
+            } else {
+                SQLCollections.INSTANCE
+                    .getMapResolver(map.keyType(), map.valueType(), idClass, connectionProvider, repoInfo, typeResolverRegistry)
+                    .insertAll((Map) values, connection);
+            }
+        }
+    }
+
     /* ============================================================
        Abstract capability hooks
        ============================================================ */
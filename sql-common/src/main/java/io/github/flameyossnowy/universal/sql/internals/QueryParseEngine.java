@@ -3,6 +3,7 @@ package io.github.flameyossnowy.universal.sql.internals;
 import io.github.flameyossnowy.universal.api.IndexOptions;
 import io.github.flameyossnowy.universal.api.annotations.*;
 import io.github.flameyossnowy.universal.api.annotations.enums.IndexType;
+import io.github.flameyossnowy.universal.api.cache.EntitySnapshotCache;
 import io.github.flameyossnowy.universal.api.reflect.FieldData;
 import io.github.flameyossnowy.universal.api.options.*;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
@@ -120,6 +121,144 @@ public class QueryParseEngine {
         return sql.toString();
     }
 
+    /**
+     * Parses a query for the smallest and largest primary key and the amount of rows matching the query,
+     * used to split a scan into key ranges.
+     */
+    public @NotNull String parseKeyBounds(@Nullable SelectQuery query) {
+        String idName = requirePrimaryKey().name();
+        StringBuilder sql = new StringBuilder("SELECT MIN(").append(idName).append("), MAX(").append(idName).append("), COUNT(*) FROM ")
+                .append(sqlType.quoteChar()).append(repositoryInformation.getRepositoryName()).append(sqlType.quoteChar());
+        if (query != null) appendConditions(query, sql);
+        return sql.toString();
+    }
+
+    /**
+     * Parses a count of the rows matching the filters of the query. Sort options and the limit are ignored.
+     */
+    public @NotNull String parseCount(@Nullable SelectQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ")
+                .append(sqlType.quoteChar()).append(repositoryInformation.getRepositoryName()).append(sqlType.quoteChar());
+        if (query != null) appendConditions(query, sql);
+        return sql.toString();
+    }
+
+    /**
+     * Parses a query returning one constant row if any row matches the filters of the query,
+     * so the database can stop at the first match without reading any column.
+     */
+    public @NotNull String parseExists(@Nullable SelectQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT 1 FROM ")
+                .append(sqlType.quoteChar()).append(repositoryInformation.getRepositoryName()).append(sqlType.quoteChar());
+        if (query != null) appendConditions(query, sql);
+        return sql.append(" LIMIT 1").toString();
+    }
+
+    /**
+     * Parses a query for the primary key at the given position in key order, used to split a scan into key ranges
+     * when the keys cannot be divided arithmetically.
+     */
+    public @NotNull String parseKeyAt(@Nullable SelectQuery query, long offset) {
+        String idName = requirePrimaryKey().name();
+        StringBuilder sql = new StringBuilder("SELECT ").append(idName).append(" FROM ")
+                .append(sqlType.quoteChar()).append(repositoryInformation.getRepositoryName()).append(sqlType.quoteChar());
+        if (query != null) appendConditions(query, sql);
+        return sql.append(" ORDER BY ").append(idName).append(" LIMIT 1 OFFSET ").append(offset).toString();
+    }
+
+    /**
+     * Parses a select of the primary key range of one partition of a scan.
+     * The bounds are the last parameters, after the parameters of the query filters.
+     *
+     * @param lowerBound whether the range has an inclusive lower bound
+     * @param upperBound whether the range has an exclusive upper bound
+     */
+    public @NotNull String parseRangeSelect(@Nullable SelectQuery query, boolean lowerBound, boolean upperBound) {
+        String idName = requirePrimaryKey().name();
+        StringBuilder sql = new StringBuilder("SELECT * FROM ")
+                .append(sqlType.quoteChar()).append(repositoryInformation.getRepositoryName()).append(sqlType.quoteChar());
+        if (query != null) appendConditions(query, sql);
+
+        boolean where = query == null || query.filters().isEmpty();
+        if (lowerBound) {
+            sql.append(where ? " WHERE " : " AND ").append(idName).append(" >= ?");
+            where = false;
+        }
+        if (upperBound) sql.append(where ? " WHERE " : " AND ").append(idName).append(" < ?");
+        return sql.toString();
+    }
+
+    /**
+     * Parses an aggregate query. Its parameters are the values of the filters followed by the values of the having
+     * conditions, in query order. Aliases are quoted to keep their case, having conditions repeat the aggregate
+     * expression since not every database accepts aliases there.
+     */
+    public @NotNull String parseAggregate(@NotNull AggregateQuery query) {
+        char quote = sqlType.quoteChar();
+
+        StringJoiner columns = new StringJoiner(", ");
+        for (String field : query.groupBy()) columns.add(field);
+        for (Aggregation aggregation : query.aggregations()) {
+            columns.add(aggregateExpression(aggregation) + " AS " + quote + aggregation.alias() + quote);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ")
+                .append(quote).append(repositoryInformation.getRepositoryName()).append(quote);
+        if (!query.filters().isEmpty()) sql.append(" WHERE ").append(buildConditions(query.filters()));
+        if (!query.groupBy().isEmpty()) sql.append(" GROUP BY ").append(String.join(", ", query.groupBy()));
+
+        if (!query.having().isEmpty()) {
+            StringJoiner having = new StringJoiner(" AND ");
+            for (SelectOption condition : query.having()) {
+                String column = aggregateColumn(query, condition.option(), false);
+                if ("IN".equalsIgnoreCase(condition.operator()) && condition.value() instanceof Collection<?> list) {
+                    having.add(column + " IN (" + String.join(", ", Collections.nCopies(list.size(), "?")) + ")");
+                } else {
+                    having.add(column + " " + condition.operator() + " ?");
+                }
+            }
+            sql.append(" HAVING ").append(having);
+        }
+
+        if (!query.sortOptions().isEmpty()) {
+            StringJoiner order = new StringJoiner(", ");
+            for (SortOption sortOption : query.sortOptions()) {
+                order.add(aggregateColumn(query, sortOption.field(), true) + (sortOption.order() == SortOrder.ASCENDING ? " ASC" : " DESC"));
+            }
+            sql.append(" ORDER BY ").append(order);
+        }
+        if (query.limit() != -1) sql.append(" LIMIT ").append(query.limit());
+
+        String queryString = sql.toString();
+        Logging.info(() -> "Parsed query for aggregating: " + queryString);
+        return queryString;
+    }
+
+    private static @NotNull String aggregateExpression(@NotNull Aggregation aggregation) {
+        return switch (aggregation.function()) {
+            case COUNT -> aggregation.field() == null ? "COUNT(*)" : "COUNT(" + aggregation.field() + ")";
+            case COUNT_DISTINCT -> "COUNT(DISTINCT " + aggregation.field() + ")";
+            case SUM -> "SUM(" + aggregation.field() + ")";
+            case AVG -> "AVG(" + aggregation.field() + ")";
+            case MIN -> "MIN(" + aggregation.field() + ")";
+            case MAX -> "MAX(" + aggregation.field() + ")";
+        };
+    }
+
+    private @NotNull String aggregateColumn(@NotNull AggregateQuery query, String column, boolean alias) {
+        for (Aggregation aggregation : query.aggregations()) {
+            if (!aggregation.alias().equals(column)) continue;
+            return alias ? sqlType.quoteChar() + column + sqlType.quoteChar() : aggregateExpression(aggregation);
+        }
+        return column;
+    }
+
+    private @NotNull FieldData<?> requirePrimaryKey() {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) throw new IllegalArgumentException("Cannot split a scan without a primary key.");
+        return primaryKey;
+    }
+
     private static void appendConditions(@NotNull SelectQuery query, StringBuilder sql) {
         if (!query.filters().isEmpty()) {
             sql.append(" WHERE ");
@@ -179,6 +318,59 @@ public class QueryParseEngine {
         });
     }
 
+    /**
+     * Parses a delete statement matching the primary key(s).
+     *
+     * @param returning whether the deleted row should be returned, only valid if {@link #supportsReturning()}
+     */
+    public @NotNull String parseDeleteById(boolean returning) {
+        if (repositoryInformation.getPrimaryKey() == null) {
+            throw new IllegalArgumentException("Primary key must not be null");
+        }
+
+        String key = returning ? "DELETE:ID:RETURNING" : "DELETE:ID";
+        return queryMap.computeIfAbsent(key, k -> {
+            StringJoiner whereClause = new StringJoiner(" AND ");
+            for (FieldData<?> keyField : repositoryInformation.getPrimaryKeys()) {
+                whereClause.add(keyField.name() + " = ?");
+            }
+            return "DELETE FROM " + repositoryInformation.getRepositoryName() + " WHERE " + whereClause + (returning ? " RETURNING *" : "");
+        });
+    }
+
+    public boolean supportsReturning() {
+        return sqlType.supportsReturning();
+    }
+
+    public boolean supportsBatchGeneratedKeys() {
+        return sqlType.supportsBatchGeneratedKeys();
+    }
+
+    /**
+     * Parses the insert statement returning the generated primary key, only valid if {@link #supportsReturning()}.
+     */
+    public @NotNull String parseInsertReturningId() {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) return insert;
+        return queryMap.computeIfAbsent("INSERT:RETURNING", k ->
+            insert + " RETURNING " + sqlType.quoteChar() + primaryKey.name() + sqlType.quoteChar());
+    }
+
+    /**
+     * Parses an insert of several rows returning their generated primary keys, only valid if {@link #supportsReturning()}.
+     *
+     * @param rows the amount of rows
+     */
+    public @NotNull String parseInsertReturningIds(int rows) {
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (rows == 1 || primaryKey == null) return parseInsertReturningId();
+
+        String row = insert.substring(insert.lastIndexOf(" VALUES ") + 8);
+        StringBuilder sql = new StringBuilder(insert.length() + (row.length() + 2) * (rows - 1) + 32).append(insert);
+        for (int i = 1; i < rows; i++) sql.append(", ").append(row);
+        return sql.append(" RETURNING ").append(sqlType.quoteChar()).append(primaryKey.name()).append(sqlType.quoteChar()).toString();
+    }
+
     public @NotNull String parseInsert() {
         Logging.info(() -> "Parsed query for inserting: " + insert);
         return insert;
@@ -243,13 +435,58 @@ public class QueryParseEngine {
         });
     }
 
+    /**
+     * Parses an update statement that only assigns the columns whose ordinal bit is set in {@code dirtyMask}.
+     * Statements are cached per mask, so each distinct set of changed columns is only built once.
+     *
+     * @param dirtyMask the changed field ordinals, as produced by {@link io.github.flameyossnowy.universal.api.cache.EntitySnapshotCache}
+     * @return the update statement, or {@code null} if none of the changed fields map to a column
+     */
+    public @Nullable String parseUpdateFromEntity(long dirtyMask) {
+        if (dirtyMask == EntitySnapshotCache.FULL_UPDATE) return parseUpdateFromEntity();
+
+        FieldData<?> primaryKey = repositoryInformation.getPrimaryKey();
+        if (primaryKey == null) {
+            throw new IllegalArgumentException("Primary key must not be null");
+        }
+
+        String key = "UPDATE:ENTITY:" + repositoryInformation.getType().getName() + ':' + dirtyMask;
+        String cached = queryMap.get(key);
+        if (cached != null) return cached.isEmpty() ? null : cached;
+
+        String setClause = generateSetClauseFromEntity(dirtyMask);
+        if (setClause.isEmpty()) {
+            queryMap.put(key, "");
+            return null;
+        }
+
+        String tableName = repositoryInformation.getRepositoryName();
+        StringJoiner whereClause = new StringJoiner(" AND ");
+        for (FieldData<?> keyField : repositoryInformation.getPrimaryKeys()) {
+            whereClause.add(keyField.name() + " = ?");
+        }
+
+        String sql = "UPDATE " + sqlType.quoteChar() + tableName + sqlType.quoteChar() + " SET " + setClause + " WHERE " + whereClause + ";";
+        queryMap.put(key, sql);
+        Logging.deepInfo(() -> "Parsed partial update for mask " + Long.toBinaryString(dirtyMask) + ": " + sql);
+        return sql;
+    }
+
     private String generateSetClauseFromEntity() {
+        return generateSetClauseFromEntity(EntitySnapshotCache.FULL_UPDATE);
+    }
+
+    private String generateSetClauseFromEntity(long dirtyMask) {
         StringJoiner joiner = new StringJoiner(", ");
+        int ordinal = 0;
         for (FieldData<?> data : repositoryInformation.getFields()) {
+            int current = ordinal++;
             if (Collection.class.isAssignableFrom(data.type())) continue;
             if (Map.class.isAssignableFrom(data.type())) continue;
             if (data.autoIncrement()) continue;
             if (data.primary()) continue;
+            if (data.oneToMany() != null) continue;
+            if (dirtyMask != EntitySnapshotCache.FULL_UPDATE && !EntitySnapshotCache.isDirty(dirtyMask, current)) continue;
             joiner.add(data.name() + " = ?");
         }
         return joiner.toString();
@@ -612,20 +849,24 @@ public class QueryParseEngine {
     }
 
     public enum SQLType implements DatabaseImplementation {
-        MYSQL("MySQL", "AUTO_INCREMENT", false, '`'),
-        SQLITE("SQLite", "AUTOINCREMENT", false, '"'),
-        POSTGRESQL("PostgreSQL", "GENERATED ALWAYS AS IDENTITY", true, '"');
+        MYSQL("MySQL", "AUTO_INCREMENT", false, '`', false, true),
+        SQLITE("SQLite", "AUTOINCREMENT", false, '"', true, false),
+        POSTGRESQL("PostgreSQL", "GENERATED ALWAYS AS IDENTITY", true, '"', true, true);
 
         private final boolean supportsArrays;
         private final String name;
         private final String autoIncrementKeyword;
         private final char quotesChar;
+        private final boolean supportsReturning;
+        private final boolean supportsBatchGeneratedKeys;
 
-        SQLType(String name, String autoIncrementKeyword, boolean supportsArrays, char quotesChar) {
+        SQLType(String name, String autoIncrementKeyword, boolean supportsArrays, char quotesChar, boolean supportsReturning, boolean supportsBatchGeneratedKeys) {
             this.supportsArrays = supportsArrays;
             this.name = name;
             this.autoIncrementKeyword = autoIncrementKeyword;
             this.quotesChar = quotesChar;
+            this.supportsReturning = supportsReturning;
+            this.supportsBatchGeneratedKeys = supportsBatchGeneratedKeys;
         }
 
         @Override
@@ -648,6 +889,16 @@ public class QueryParseEngine {
             return supportsArrays;
         }
 
+        @Override
+        public boolean supportsReturning() {
+            return supportsReturning;
+        }
+
+        @Override
+        public boolean supportsBatchGeneratedKeys() {
+            return supportsBatchGeneratedKeys;
+        }
+
         public SQLQueryValidator.SQLDialect getDialect() {
             return switch (this) {
                 case MYSQL -> SQLQueryValidator.SQLDialect.MYSQL;
@@ -1,6 +1,8 @@
 package io.github.flameyossnowy.universal.sql.internals;
 
 import org.jetbrains.annotations.ApiStatus;
+import io.github.flameyossnowy.universal.sql.pool.PoolMetrics;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,6 +18,43 @@ public interface SQLConnectionProvider extends AutoCloseable {
      */
     Connection getConnection();
 
+    /**
+     * Get a connection for a read outside of a transaction.
+     * <p>
+     * Providers that split reads and writes may return a connection to a replica, which can lag behind the primary.
+     * By default, this is the same as {@link #getConnection()}.
+     * <p>
+     * @return A connection, or throw an exception if the connection cannot be acquired.
+     */
+    default Connection getReadConnection() {
+        return getConnection();
+    }
+
+    /**
+     * Get a connection whose transactions commit on their own, independent of any write in progress on the current thread.
+     * <p>
+     * Used for work that has to stay durable if the caller's transaction rolls back, such as reserving sequence blocks.
+     * By default, this is the same as {@link #getConnection()}, which never joins a transaction of the caller.
+     * <p>
+     * @return A connection, or throw an exception if the connection cannot be acquired.
+     */
+    default Connection getDedicatedConnection() {
+        return getConnection();
+    }
+
+    /**
+     * Gets the key under which {@link ConnectionScope} shares a read connection with other providers.
+     * <p>
+     * Providers connecting to the same database as the same user return equal keys, so a nested load through a
+     * repository with its own provider reuses the connection of the outer operation.
+     * By default, this is the provider itself, which shares with no other provider.
+     *
+     * @return the key, compared with {@code equals}
+     */
+    default Object getScopeKey() {
+        return this;
+    }
+
     /**
      * Close the connection provider.
      */
@@ -30,4 +69,48 @@ public interface SQLConnectionProvider extends AutoCloseable {
      * @throws Exception if an error occurs
      */
     PreparedStatement prepareStatement(String sql, Connection connection) throws Exception;
+
+    /**
+     * Prepares a SQL statement with the given connection, whose generated keys can be read back.
+     * <p>
+     * By default, this prepares the statement on the connection directly.
+     *
+     * @param sql the SQL to prepare
+     * @param connection the connection to use
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} or {@link java.sql.Statement#NO_GENERATED_KEYS}
+     * @return the prepared statement
+     * @throws Exception if an error occurs
+     */
+    default PreparedStatement prepareStatement(String sql, Connection connection, int autoGeneratedKeys) throws Exception {
+        return connection.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Gets the maximum amount of connections this provider hands out at once.
+     * <p>
+     * Used to limit how many asynchronous repository calls run concurrently.
+     *
+     * @return the maximum amount of connections, or zero or less if not bounded by a pool
+     */
+    default int getMaxConnections() {
+        return -1;
+    }
+
+    /**
+     * Gets the prepared statement cache of this provider, to inspect its hit ratio.
+     *
+     * @return the cache, or null if statements are not cached by this provider
+     */
+    default @Nullable StatementCache getStatementCache() {
+        return null;
+    }
+
+    /**
+     * Gets a snapshot of the metrics of the connection pool behind this provider.
+     *
+     * @return the metrics, or null if this provider does not pool connections
+     */
+    default @Nullable PoolMetrics getPoolMetrics() {
+        return null;
+    }
 }
@@ -7,6 +7,7 @@ import io.github.flameyossnowy.universal.api.operation.OperationExecutor;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.Connection;
+import java.util.concurrent.Executor;
 
 /**
  * Operation executor for SQL-based repositories.
@@ -76,4 +77,10 @@ public class SQLOperationExecutor<T, ID> implements OperationExecutor<Connection
             @NotNull OperationContext<Connection> context) {
         throw new UnsupportedOperationException("Remote operations not supported for SQL repositories");
     }
+
+    @Override
+    @NotNull
+    public Executor getAsyncExecutor() {
+        return adapter.getAsyncExecutor();
+    }
 }
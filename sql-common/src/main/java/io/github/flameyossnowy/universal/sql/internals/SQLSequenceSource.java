@@ -0,0 +1,129 @@
+package io.github.flameyossnowy.universal.sql.internals;
+
+import io.github.flameyossnowy.universal.api.sequence.SequenceAllocator;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.sql.DatabaseImplementation;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserves sequence blocks from a shared {@code universal_sequences} table.
+ * <p>
+ * A reservation increments the row of the sequence and reads it back in its own transaction, the row lock taken by the
+ * {@code UPDATE} keeps concurrent reservations of other nodes from overlapping. It runs on a
+ * {@linkplain SQLConnectionProvider#getDedicatedConnection() dedicated connection} that commits on its own, so a rolled
+ * back insert does not hand the same block out twice.
+ * <p>
+ * Providers that cannot commit apart from the caller, such as a single SQLite writer already held by the thread, can
+ * still lose a reservation to a rollback. The end of the last block handed out is kept as a floor for the next one, so
+ * this source never reissues ids it already reserved.
+ */
+@ApiStatus.Internal
+public class SQLSequenceSource implements SequenceAllocator.SequenceSource {
+    private static final String TABLE = "universal_sequences";
+
+    private final SQLConnectionProvider dataSource;
+    private final String increment;
+    private final String select;
+    private final String insert;
+    private final String create;
+
+    private final Map<String, Long> reservedLimits = new ConcurrentHashMap<>();
+
+    private volatile boolean created;
+
+    public SQLSequenceSource(@NotNull SQLConnectionProvider dataSource, @NotNull DatabaseImplementation sqlType) {
+        this.dataSource = dataSource;
+
+        char quote = sqlType.quoteChar();
+        String table = quote + TABLE + quote;
+        this.create = "CREATE TABLE IF NOT EXISTS " + table + " (name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT NOT NULL)";
+        this.increment = "UPDATE " + table + " SET next_val = CASE WHEN next_val < ? THEN ? ELSE next_val END + ? WHERE name = ?";
+        this.select = "SELECT next_val FROM " + table + " WHERE name = ?";
+        this.insert = "INSERT INTO " + table + " (name, next_val) VALUES (?, ?)";
+    }
+
+    @Override
+    public long reserve(String name, int size) throws Exception {
+        try {
+            return reserveBlock(name, size);
+        } catch (SQLException e) {
+            if (!created) throw e;
+            // The table may have been created by a transaction that rolled back afterward
+            Logging.deepInfo(() -> "Reservation of sequence " + name + " failed, recreating " + TABLE + ": " + e.getMessage());
+            created = false;
+            return reserveBlock(name, size);
+        }
+    }
+
+    private long reserveBlock(String name, int size) throws SQLException {
+        if (!created) createTable();
+
+        try (Connection connection = dataSource.getDedicatedConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long start = reserve(connection, name, size, reservedLimits.getOrDefault(name, 1L));
+                connection.commit();
+                reservedLimits.merge(name, start + size, Math::max);
+                return start;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private long reserve(Connection connection, String name, int size, long floor) throws SQLException {
+        if (increment(connection, name, size, floor) == 0) {
+            // First reservation of this sequence, ids start at 1
+            try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                statement.setString(1, name);
+                statement.setLong(2, floor + size);
+                statement.executeUpdate();
+                return floor;
+            } catch (SQLException e) {
+                // Another node created the row first, fall back to incrementing it
+                Logging.deepInfo(() -> "Sequence " + name + " was created concurrently, retrying reservation");
+                connection.rollback();
+                if (increment(connection, name, size, floor) == 0) throw e;
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(select)) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) throw new SQLException("Sequence " + name + " disappeared during reservation");
+                return resultSet.getLong(1) - size;
+            }
+        }
+    }
+
+    private int increment(Connection connection, String name, int size, long floor) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(increment)) {
+            statement.setLong(1, floor);
+            statement.setLong(2, floor);
+            statement.setLong(3, size);
+            statement.setString(4, name);
+            return statement.executeUpdate();
+        }
+    }
+
+    private synchronized void createTable() throws SQLException {
+        if (created) return;
+        try (Connection connection = dataSource.getDedicatedConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(create);
+        }
+        created = true;
+    }
+}
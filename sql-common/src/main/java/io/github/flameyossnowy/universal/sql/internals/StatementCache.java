@@ -0,0 +1,271 @@
+package io.github.flameyossnowy.universal.sql.internals;
+
+import io.github.flameyossnowy.universal.api.cache.CacheStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A per-connection, LRU-bounded cache of prepared statements.
+ * <p>
+ * Statements are cached against the physical connection, found by unwrapping the connection given to
+ * {@link #prepare(String, Connection)}, and are prepared on it directly. A statement is removed from the cache while it is in use, so it is never shared between two callers,
+ * and closing the returned statement clears its parameters, resets its query timeout and fetch size, and puts it back
+ * instead of closing it. Statements evicted from the cache, or prepared while an identical one is in use, are closed
+ * for real.
+ * <p>
+ * The statements of a physical connection are dropped once it is closed, either through {@link #evict(Connection)}
+ * or by the sweep that runs whenever a new physical connection shows up, which is when a provider replaces a retired one.
+ * Only providers that keep their physical connections across checkouts should use a cache, otherwise every checkout
+ * is a new physical connection and nothing would ever be reused.
+ * <p>
+ * Pools that track statements and the commit state through their proxies, like Hikari, must not be used with it.
+ * Work done through a statement prepared past the proxy is unknown to the pool, which would then return the
+ * connection without rolling it back. Pooled providers leave caching to the driver instead.
+ */
+@SuppressWarnings("unused")
+public class StatementCache {
+    public static final int DEFAULT_SIZE = 64;
+    // SQL never starts with a NUL, so these keys cannot clash with plain statements
+    private static final String GENERATED_KEYS_PREFIX = "\0keys:";
+
+    private final int maxStatementsPerConnection;
+    // Every cached statement references its connection, so the keys are held strongly and removed once closed
+    private final Map<Connection, Map<String, PreparedStatement>> connections = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    public StatementCache(int maxStatementsPerConnection) {
+        if (maxStatementsPerConnection <= 0) throw new IllegalArgumentException("Cache size must be positive");
+        this.maxStatementsPerConnection = maxStatementsPerConnection;
+    }
+
+    /**
+     * Gets a cached statement for the SQL on this connection, or prepares a new one.
+     *
+     * @param sql the SQL to prepare
+     * @param connection the connection to use
+     * @return a statement whose {@code close()} returns it to the cache
+     * @throws SQLException if the statement could not be prepared
+     */
+    public PreparedStatement prepare(String sql, @NotNull Connection connection) throws SQLException {
+        return prepare(sql, connection, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Gets a cached statement for the SQL on this connection, or prepares a new one, whose generated keys can be read
+     * back if requested. Statements with and without generated keys are cached apart.
+     *
+     * @param sql the SQL to prepare
+     * @param connection the connection to use
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+     * @return a statement whose {@code close()} returns it to the cache
+     * @throws SQLException if the statement could not be prepared
+     */
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    public PreparedStatement prepare(String sql, @NotNull Connection connection, int autoGeneratedKeys) throws SQLException {
+        boolean keys = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS;
+        String key = keys ? GENERATED_KEYS_PREFIX + sql : sql;
+
+        // Handles wrap the same physical connection in a new proxy per checkout, and close statements prepared through it
+        Connection physical = unwrap(connection);
+        Map<String, PreparedStatement> statements = connections.get(physical);
+        if (statements == null) {
+            sweep();
+            statements = connections.computeIfAbsent(physical, this::createStatementMap);
+        }
+
+        PreparedStatement statement;
+        synchronized (statements) {
+            statement = statements.remove(key);
+        }
+
+        if (statement != null && !statement.isClosed()) {
+            statistics.recordHit();
+        } else {
+            long start = System.nanoTime();
+            statement = keys ? physical.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : physical.prepareStatement(sql);
+            statistics.recordMiss((System.nanoTime() - start) / 1_000_000);
+        }
+        return borrowed(key, statement, statements);
+    }
+
+    private Map<String, PreparedStatement> createStatementMap(Connection connection) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxStatementsPerConnection) return false;
+                statistics.recordEviction();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    private void release(String sql, PreparedStatement statement, Map<String, PreparedStatement> statements) {
+        try {
+            if (statement.isClosed()) return;
+            statement.clearParameters();
+            statement.clearBatch();
+            // Per-query settings would otherwise apply to the next caller
+            statement.setQueryTimeout(0);
+            statement.setFetchSize(0);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement existing;
+        synchronized (statements) {
+            existing = statements.putIfAbsent(sql, statement);
+        }
+        if (existing != null) {
+            closeQuietly(statement);
+            return;
+        }
+        statistics.recordPut();
+    }
+
+    private PreparedStatement borrowed(String sql, PreparedStatement statement, Map<String, PreparedStatement> statements) {
+        boolean[] released = new boolean[1];
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class },
+            (proxy, method, args) -> {
+                String name = method.getName();
+                if ("close".equals(name) && method.getParameterCount() == 0) {
+                    if (!released[0]) {
+                        released[0] = true;
+                        release(sql, statement, statements);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(name) && released[0]) return true;
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    /**
+     * Closes and forgets the statements of a connection, for providers that know when they close a physical connection.
+     *
+     * @param connection the connection, or a proxy of it
+     */
+    public void evict(@NotNull Connection connection) {
+        Map<String, PreparedStatement> statements = connections.remove(unwrap(connection));
+        if (statements != null) closeAll(statements);
+    }
+
+    // Drops the statements of physical connections that have been closed since the last sweep
+    private void sweep() {
+        List<Map<String, PreparedStatement>> closed = new ArrayList<>(0);
+        synchronized (connections) {
+            Iterator<Map.Entry<Connection, Map<String, PreparedStatement>>> iterator = connections.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Connection, Map<String, PreparedStatement>> entry = iterator.next();
+                if (isClosed(entry.getKey())) {
+                    closed.add(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        for (Map<String, PreparedStatement> statements : closed) closeAll(statements);
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private void closeAll(Map<String, PreparedStatement> statements) {
+        synchronized (statements) {
+            statistics.recordEvictions(statements.size());
+            statements.values().forEach(StatementCache::closeQuietly);
+            statements.clear();
+        }
+    }
+
+    private static Connection unwrap(Connection connection) {
+        try {
+            Connection physical = connection.unwrap(Connection.class);
+            return physical == null ? connection : physical;
+        } catch (SQLException e) {
+            return connection;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction statistics of this cache.
+     * Misses record the time it took to prepare the statement.
+     */
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gets the amount of idle statements currently cached, across all open connections.
+     */
+    public int size() {
+        sweep();
+        int size = 0;
+        synchronized (connections) {
+            for (Map<String, PreparedStatement> statements : connections.values()) {
+                synchronized (statements) {
+                    size += statements.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the amount of physical connections that currently have statements cached.
+     */
+    public int getConnectionCount() {
+        sweep();
+        return connections.size();
+    }
+
+    public int getMaxStatementsPerConnection() {
+        return maxStatementsPerConnection;
+    }
+
+    /**
+     * Closes every idle statement.
+     */
+    public void clear() {
+        synchronized (connections) {
+            for (Map<String, PreparedStatement> statements : connections.values()) {
+                synchronized (statements) {
+                    statements.values().forEach(StatementCache::closeQuietly);
+                    statements.clear();
+                }
+            }
+            connections.clear();
+        }
+    }
+}
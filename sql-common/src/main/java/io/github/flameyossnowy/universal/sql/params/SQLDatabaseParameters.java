@@ -43,6 +43,41 @@ public class SQLDatabaseParameters implements DatabaseParameters {
         parseSql(sql, information);
     }
 
+    /**
+     * Creates parameters named by position, for statements whose parameters cannot be told apart by the column
+     * they compare, such as the same column in both the where and the having clause.
+     *
+     * @param names the name of every parameter, in the order of the statement
+     */
+    public SQLDatabaseParameters(PreparedStatement statement, TypeResolverRegistry typeRegistry, List<String> names) {
+        if (statement == null) throw new IllegalArgumentException("PreparedStatement cannot be null");
+        if (typeRegistry == null) throw new IllegalArgumentException("TypeResolverRegistry cannot be null");
+
+        this.statement = statement;
+        this.typeRegistry = typeRegistry;
+
+        for (String name : names) nameToIndexMap.put(name, parameterIndex++);
+    }
+
+    /**
+     * Gets the parameters of a row of a multi-row insert, which are those of the first row shifted past
+     * the parameters of the rows before it.
+     *
+     * @param row the zero-based index of the row
+     * @return the parameters of the row
+     */
+    public SQLDatabaseParameters forRow(int row) {
+        if (row == 0) return this;
+
+        int offset = row * (parameterIndex - 1);
+        SQLDatabaseParameters shifted = new SQLDatabaseParameters(statement, typeRegistry, List.of());
+        for (Map.Entry<String, Integer> entry : nameToIndexMap.entrySet()) {
+            shifted.nameToIndexMap.put(entry.getKey(), entry.getValue() + offset);
+        }
+        shifted.parameterIndex = parameterIndex + offset;
+        return shifted;
+    }
+
     private void parseSql(String sql, RepositoryInformation information) {
         String lower = sql.toLowerCase().trim();
 
@@ -89,10 +124,14 @@ public class SQLDatabaseParameters implements DatabaseParameters {
     }
 
     private void parseWhere(String where) {
+        parseWhere(where, 0);
+    }
+
+    private void parseWhere(String where, int offset) {
         List<FieldIndex> cached = whereCache.get(where);
         if (cached != null) {
             for (FieldIndex fi : cached) {
-                nameToIndexMap.put(where.substring(fi.start, fi.end).trim(), fi.index);
+                nameToIndexMap.put(where.substring(fi.start, fi.end).trim(), fi.index + offset);
             }
             return;
         }
@@ -139,7 +178,7 @@ public class SQLDatabaseParameters implements DatabaseParameters {
 
         // populate nameToIndexMap
         for (FieldIndex fi : resultList) {
-            nameToIndexMap.put(where.substring(fi.start, fi.end).trim(), fi.index);
+            nameToIndexMap.put(where.substring(fi.start, fi.end).trim(), fi.index + offset);
         }
     }
 
@@ -172,10 +211,14 @@ public class SQLDatabaseParameters implements DatabaseParameters {
     }
 
     private void parseUpdate(String sql) {
-        int setIndex = sql.toLowerCase().indexOf("set");
+        String lower = sql.toLowerCase();
+        int setIndex = lower.indexOf(" set ");
         if (setIndex < 0) return;
 
-        String afterSet = sql.substring(setIndex + 3);
+        int whereIndex = lower.lastIndexOf(" where ");
+        String afterSet = whereIndex > setIndex
+            ? sql.substring(setIndex + 5, whereIndex)
+            : sql.substring(setIndex + 5);
 
         String[] assignments = afterSet.split(",");
         int pos = 1;
@@ -189,6 +232,9 @@ public class SQLDatabaseParameters implements DatabaseParameters {
 
             nameToIndexMap.put(col, pos++);
         }
+
+        // WHERE parameters come after the assignments, e.g. the primary key of an entity update
+        if (whereIndex > setIndex) parseWhere(sql.substring(whereIndex + 7), pos - 1);
     }
 
     private int getIndexForName(Object index) {
@@ -0,0 +1,33 @@
+package io.github.flameyossnowy.universal.sql.pool;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Bounds and targets of adaptive pool sizing.
+ * <p>
+ * The pool grows while threads wait longer than {@code targetWaitMillis} for a connection, unless query latency
+ * rose along with it, which means the database rather than the pool is the bottleneck. It shrinks while less than
+ * half of the connections are in use.
+ *
+ * @param minPoolSize the smallest maximum pool size to shrink to
+ * @param maxPoolSize the largest maximum pool size to grow to
+ * @param targetWaitMillis the average connection wait above which the pool grows
+ * @param intervalMillis how often the pool size is reevaluated
+ */
+public record AdaptivePoolSizing(int minPoolSize, int maxPoolSize, long targetWaitMillis, long intervalMillis) {
+    public AdaptivePoolSizing {
+        if (minPoolSize <= 0) throw new IllegalArgumentException("Minimum pool size must be positive");
+        if (maxPoolSize < minPoolSize) throw new IllegalArgumentException("Maximum pool size must not be smaller than the minimum pool size");
+        if (targetWaitMillis < 0) throw new IllegalArgumentException("Target wait must not be negative");
+        if (intervalMillis <= 0) throw new IllegalArgumentException("Interval must be positive");
+    }
+
+    /**
+     * Creates adaptive sizing between the given bounds, targeting waits under 10 milliseconds, reevaluated every 5 seconds.
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull AdaptivePoolSizing of(int minPoolSize, int maxPoolSize) {
+        return new AdaptivePoolSizing(minPoolSize, maxPoolSize, 10, 5000);
+    }
+}
@@ -0,0 +1,202 @@
+package io.github.flameyossnowy.universal.sql.pool;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the metrics of a Hikari pool and optionally resizes it from them.
+ * <p>
+ * Installed as the metrics tracker factory of the pool, so every connection checkout reports how long it waited
+ * for a connection and how long the connection was used.
+ *
+ * @see AdaptivePoolSizing
+ */
+@SuppressWarnings("unused")
+public class HikariPoolMonitor implements MetricsTrackerFactory, AutoCloseable {
+    private final String name;
+    private final @Nullable AdaptivePoolSizing sizing;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong resizes = new AtomicLong();
+
+    private volatile HikariDataSource pool;
+    private volatile boolean running = true;
+    private Thread sizer;
+
+    // Sizer state, only touched by the sizer thread
+    private long lastAcquisitions;
+    private long lastWaitNanos;
+    private long lastUsages;
+    private long lastUsageMillis;
+    private double baselineUsageMillis;
+
+    public HikariPoolMonitor(@NotNull String name, @Nullable AdaptivePoolSizing sizing) {
+        this.name = name;
+        this.sizing = sizing;
+    }
+
+    /**
+     * Starts monitoring the pool, and resizing it if adaptive sizing is enabled.
+     *
+     * @param pool the pool created with this monitor as its metrics tracker factory
+     */
+    public void attach(@NotNull HikariDataSource pool) {
+        this.pool = pool;
+        if (sizing != null && sizer == null) {
+            this.sizer = Thread.ofVirtual().name("universal-pool-sizer-" + name).start(this::resizeLoop);
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                waitNanos.add(elapsedAcquiredNanos);
+                maxWaitNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usages.increment();
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Gets a snapshot of the pool metrics.
+     */
+    public @NotNull PoolMetrics getMetrics() {
+        HikariDataSource pool = this.pool;
+        HikariPoolMXBean bean = pool == null ? null : pool.getHikariPoolMXBean();
+
+        long acquisitionCount = acquisitions.sum();
+        long usageCount = usages.sum();
+        return new PoolMetrics(
+                bean == null ? 0 : bean.getActiveConnections(),
+                bean == null ? 0 : bean.getIdleConnections(),
+                bean == null ? 0 : bean.getTotalConnections(),
+                bean == null ? 0 : bean.getThreadsAwaitingConnection(),
+                pool == null ? 0 : pool.getHikariConfigMXBean().getMaximumPoolSize(),
+                acquisitionCount,
+                timeouts.get(),
+                acquisitionCount == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / acquisitionCount,
+                maxWaitNanos.get() / 1_000_000.0,
+                usageCount == 0 ? 0 : (double) usageMillis.sum() / usageCount
+        );
+    }
+
+    /**
+     * Gets how often adaptive sizing changed the maximum pool size.
+     */
+    public long getResizeCount() {
+        return resizes.get();
+    }
+
+    private void resizeLoop() {
+        while (running) {
+            try {
+                Thread.sleep(sizing.intervalMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                resize();
+            } catch (Exception e) {
+                Logging.error("Failed to resize connection pool " + name, e);
+            }
+        }
+    }
+
+    private void resize() {
+        HikariDataSource pool = this.pool;
+        if (pool == null || pool.isClosed()) return;
+
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        HikariConfigMXBean configBean = pool.getHikariConfigMXBean();
+        if (poolBean == null) return;
+
+        long acquisitionCount = acquisitions.sum();
+        long waited = waitNanos.sum();
+        long usageCount = usages.sum();
+        long used = usageMillis.sum();
+
+        long intervalAcquisitions = acquisitionCount - lastAcquisitions;
+        long intervalUsages = usageCount - lastUsages;
+        double averageWaitMillis = intervalAcquisitions == 0 ? 0 : (waited - lastWaitNanos) / 1_000_000.0 / intervalAcquisitions;
+        double averageUsageMillis = intervalUsages == 0 ? 0 : (double) (used - lastUsageMillis) / intervalUsages;
+
+        lastAcquisitions = acquisitionCount;
+        lastWaitNanos = waited;
+        lastUsages = usageCount;
+        lastUsageMillis = used;
+
+        int maxPoolSize = configBean.getMaximumPoolSize();
+        int active = poolBean.getActiveConnections();
+        int pending = poolBean.getThreadsAwaitingConnection();
+        boolean waiting = averageWaitMillis > sizing.targetWaitMillis() || pending > 0;
+
+        // Latency measured while nobody waits is what the database does when it is not saturated
+        if (!waiting && intervalUsages > 0) {
+            baselineUsageMillis = baselineUsageMillis == 0 ? averageUsageMillis : baselineUsageMillis * 0.8 + averageUsageMillis * 0.2;
+        }
+
+        int newMaxPoolSize = maxPoolSize;
+        if (waiting) {
+            // More connections only help while queries keep their latency, otherwise the database is saturated
+            boolean saturated = baselineUsageMillis > 0 && averageUsageMillis > baselineUsageMillis * 2;
+            if (!saturated) newMaxPoolSize = Math.min(sizing.maxPoolSize(), maxPoolSize + Math.max(1, maxPoolSize / 4));
+        } else if (active < maxPoolSize / 2) {
+            newMaxPoolSize = Math.max(sizing.minPoolSize(), maxPoolSize - 1);
+        }
+
+        if (newMaxPoolSize == maxPoolSize) return;
+
+        if (configBean.getMinimumIdle() > newMaxPoolSize) configBean.setMinimumIdle(newMaxPoolSize);
+        configBean.setMaximumPoolSize(newMaxPoolSize);
+        resizes.incrementAndGet();
+
+        int size = newMaxPoolSize;
+        Logging.info(() -> "Resized connection pool " + name + " from " + maxPoolSize + " to " + size
+                + " (average wait " + String.format("%.2f", averageWaitMillis) + "ms, average usage " + String.format("%.2f", averageUsageMillis) + "ms)");
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Thread sizer = this.sizer;
+        if (sizer != null) {
+            sizer.interrupt();
+            try {
+                sizer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.flameyossnowy.universal.sql.pool;
+
+/**
+ * A snapshot of the metrics of a connection pool.
+ *
+ * @param activeConnections the amount of connections currently in use
+ * @param idleConnections the amount of connections waiting in the pool
+ * @param totalConnections the amount of open connections
+ * @param pendingThreads the amount of threads waiting for a connection
+ * @param maxPoolSize the current maximum pool size
+ * @param acquisitions the amount of connections handed out
+ * @param timeouts the amount of connection requests that timed out
+ * @param averageWaitMillis the average time spent waiting for a connection
+ * @param maxWaitMillis the longest time spent waiting for a connection
+ * @param averageUsageMillis the average time a connection was held, which covers the queries run on it
+ */
+public record PoolMetrics(
+        int activeConnections,
+        int idleConnections,
+        int totalConnections,
+        int pendingThreads,
+        int maxPoolSize,
+        long acquisitions,
+        long timeouts,
+        double averageWaitMillis,
+        double maxWaitMillis,
+        double averageUsageMillis) {
+}
@@ -202,6 +202,10 @@ public record SQLQueryValidator(RepositoryInformation repositoryInformation, SQL
         Map<String, Object> updates = query.updates();
         List<SelectOption> conditions = query.filters();
 
+        if (query.hasArrayUpdates()) {
+            return ValidationEstimation.fail("Pushing to or pulling from collection fields is not supported by SQL repositories, set the whole collection instead");
+        }
+
         // Validate update fields
         if (updates.isEmpty()) {
             return ValidationEstimation.fail("UPDATE must specify at least one field to update");
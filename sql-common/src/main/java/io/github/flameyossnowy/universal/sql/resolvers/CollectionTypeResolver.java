@@ -6,6 +6,7 @@ import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 
 import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.sql.internals.ConnectionScope;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
 import io.github.flameyossnowy.universal.sql.params.SQLDatabaseParameters;
 import io.github.flameyossnowy.universal.sql.result.SQLDatabaseResult;
@@ -50,7 +51,7 @@ public class CollectionTypeResolver<T, ID> {
 
     public <C extends Collection<T>> C resolve(ID id, CollectionKind kind) {
         String query = "SELECT * FROM " + tableName + " WHERE id = ?;";
-        try (var connection = connectionProvider.getConnection();
+        try (var connection = ConnectionScope.readConnection(connectionProvider);
              var stmt = connectionProvider.prepareStatement(query, connection)) {
 
             SQLDatabaseParameters params = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
@@ -78,7 +79,7 @@ public class CollectionTypeResolver<T, ID> {
             throw new IllegalArgumentException("Primary key not found for " + information.getRepositoryName());
         }
         String query = "SELECT * FROM " + tableName + " WHERE id = ?;";
-        try (Connection connection = connectionProvider.getConnection();
+        try (Connection connection = ConnectionScope.readConnection(connectionProvider);
              PreparedStatement stmt = connectionProvider.prepareStatement(query, connection)) {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
             idResolver.insert(parameters, primaryKey.name(), id);
@@ -120,6 +121,30 @@ public class CollectionTypeResolver<T, ID> {
         }
     }
 
+    /**
+     * Inserts the elements of many entities in one batch, on the connection of the insert of the entities
+     * themselves so that both commit together.
+     *
+     * @param collections the elements by the id of the entity they belong to
+     * @param connection the connection to insert on, left open
+     */
+    public void insertAll(@NotNull Map<ID, ? extends Collection<T>> collections, @NotNull Connection connection) throws Exception {
+        String query = "INSERT INTO " + tableName + " (id, value) VALUES (?, ?)";
+        try (var stmt = connectionProvider.prepareStatement(query, connection)) {
+            SQLDatabaseParameters params = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
+            boolean batched = false;
+            for (Map.Entry<ID, ? extends Collection<T>> entry : collections.entrySet()) {
+                for (T element : entry.getValue()) {
+                    idResolver.insert(params, "id", entry.getKey());
+                    elementResolver.insert(params, "value", element);
+                    stmt.addBatch();
+                    batched = true;
+                }
+            }
+            if (batched) stmt.executeBatch();
+        }
+    }
+
     public void delete(ID id, T element) throws Exception {
         String query = "DELETE FROM " + tableName + " WHERE id = ? AND value = ?;";
         try (var connection = connectionProvider.getConnection();
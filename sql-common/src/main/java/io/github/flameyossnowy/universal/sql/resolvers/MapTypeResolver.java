@@ -3,6 +3,7 @@ package io.github.flameyossnowy.universal.sql.resolvers;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.sql.internals.ConnectionScope;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
 import io.github.flameyossnowy.universal.sql.params.SQLDatabaseParameters;
 import io.github.flameyossnowy.universal.sql.result.SQLDatabaseResult;
@@ -47,7 +48,7 @@ public class MapTypeResolver<K, V, ID> {
 
     public Map<K, V> resolve(ID id) {
         String query = "SELECT * FROM " + tableName + " WHERE id = ?;";
-        try (Connection connection = connectionProvider.getConnection();
+        try (Connection connection = ConnectionScope.readConnection(connectionProvider);
              PreparedStatement stmt = connectionProvider.prepareStatement(query, connection)) {
             SQLDatabaseParameters parameters = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
             idResolver.insert(parameters, "id", id);
@@ -82,6 +83,29 @@ public class MapTypeResolver<K, V, ID> {
         }
     }
 
+    /**
+     * Inserts the entries of many entities in one batch, on the connection of the insert of the entities
+     * themselves so that both commit together.
+     *
+     * @param maps the entries by the id of the entity they belong to
+     * @param connection the connection to insert on, left open
+     */
+    public void insertAll(@NotNull Map<ID, ? extends Map<K, V>> maps, @NotNull Connection connection) throws Exception {
+        String insertQuery = "INSERT INTO " + tableName + " (id, map_key, map_value) VALUES (?, ?, ?)";
+        try (PreparedStatement insertStmt = connectionProvider.prepareStatement(insertQuery, connection)) {
+            SQLDatabaseParameters parameters = new SQLDatabaseParameters(insertStmt, resolverRegistry, insertQuery, information);
+            boolean batched = false;
+            for (Map.Entry<ID, ? extends Map<K, V>> map : maps.entrySet()) {
+                for (Map.Entry<K, V> entry : map.getValue().entrySet()) {
+                    addEntry(map.getKey(), entry.getKey(), entry.getValue(), insertStmt, parameters);
+                    insertStmt.addBatch();
+                    batched = true;
+                }
+            }
+            if (batched) insertStmt.executeBatch();
+        }
+    }
+
     public void insert(ID id, K key, V value) throws Exception {
         String insertQuery = "INSERT INTO " + tableName + " (id, map_key, map_value) VALUES (?, ?, ?)";
         try (Connection connection = connectionProvider.getConnection();
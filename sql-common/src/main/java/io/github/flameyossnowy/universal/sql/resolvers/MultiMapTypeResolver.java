@@ -4,6 +4,7 @@ import io.github.flameyossnowy.universal.api.factory.CollectionKind;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolver;
 import io.github.flameyossnowy.universal.api.resolver.TypeResolverRegistry;
+import io.github.flameyossnowy.universal.sql.internals.ConnectionScope;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
 import io.github.flameyossnowy.universal.sql.params.SQLDatabaseParameters;
 import io.github.flameyossnowy.universal.sql.result.SQLDatabaseResult;
@@ -41,7 +42,7 @@ public class MultiMapTypeResolver<K, V, ID> {
 
     public <C extends Collection<V>> Map<K, C> resolve(ID id, CollectionKind kind) {
         String query = "SELECT * FROM " + tableName + " WHERE id = ?;";
-        try (var connection = connectionProvider.getConnection();
+        try (var connection = ConnectionScope.readConnection(connectionProvider);
              var stmt = connectionProvider.prepareStatement(query, connection)) {
 
             SQLDatabaseParameters params = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
@@ -88,4 +89,31 @@ public class MultiMapTypeResolver<K, V, ID> {
             stmt.executeBatch();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Inserts the entries of many entities in one batch, on the connection of the insert of the entities
+     * themselves so that both commit together.
+     *
+     * @param maps the entries by the id of the entity they belong to
+     * @param connection the connection to insert on, left open
+     */
+    public void insertAll(@NotNull Map<ID, ? extends Map<K, ? extends Collection<V>>> maps, @NotNull Connection connection) throws Exception {
+        String query = "INSERT INTO " + tableName + " (id, map_key, map_value) VALUES (?, ?, ?)";
+        try (var stmt = connectionProvider.prepareStatement(query, connection)) {
+            SQLDatabaseParameters params = new SQLDatabaseParameters(stmt, resolverRegistry, query, information);
+            boolean batched = false;
+            for (var map : maps.entrySet()) {
+                for (var entry : map.getValue().entrySet()) {
+                    for (V value : entry.getValue()) {
+                        idResolver.insert(params, "id", map.getKey());
+                        keyResolver.insert(params, "map_key", entry.getKey());
+                        valueResolver.insert(params, "map_value", value);
+                        stmt.addBatch();
+                        batched = true;
+                    }
+                }
+            }
+            if (batched) stmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.flameyossnowy.universal.sql.routing;
+
+import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Reports whether a replica can serve reads and how far it lags behind the primary.
+ * <p>
+ * Checks run lazily on the thread routing a read once the previous result is older than the check interval
+ * of the {@link RoutingConnectionProvider}, so they should be cheap.
+ */
+@FunctionalInterface
+public interface ReplicaHealthCheck {
+    /**
+     * Checks a replica.
+     *
+     * @param replica the connection provider of the replica
+     * @return the status of the replica
+     * @throws Exception if the replica could not be reached, which marks it unhealthy
+     */
+    @NotNull
+    Status check(@NotNull SQLConnectionProvider replica) throws Exception;
+
+    /**
+     * Considers a replica healthy if a connection to it is valid, without measuring lag.
+     */
+    static @NotNull ReplicaHealthCheck connectionValid() {
+        return replica -> {
+            try (Connection connection = replica.getConnection()) {
+                return new Status(connection.isValid(2), 0);
+            }
+        };
+    }
+
+    /**
+     * Considers a replica healthy if the given query returns its lag in milliseconds as the first column,
+     * for example {@code SELECT COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)}
+     * on PostgreSQL.
+     *
+     * @param lagQuery the query returning the replication lag in milliseconds
+     */
+    static @NotNull ReplicaHealthCheck lagQuery(@NotNull String lagQuery) {
+        return replica -> {
+            try (Connection connection = replica.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                return resultSet.next() ? new Status(true, resultSet.getLong(1)) : new Status(false, Long.MAX_VALUE);
+            }
+        };
+    }
+
+    /**
+     * The result of a health check.
+     *
+     * @param healthy whether the replica can serve reads
+     * @param lagMillis the replication lag in milliseconds
+     */
+    record Status(boolean healthy, long lagMillis) {
+    }
+}
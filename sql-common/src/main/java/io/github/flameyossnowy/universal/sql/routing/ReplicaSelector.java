@@ -0,0 +1,45 @@
+package io.github.flameyossnowy.universal.sql.routing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the replica serving a read.
+ *
+ * @see RoutingConnectionProvider
+ */
+@FunctionalInterface
+public interface ReplicaSelector {
+    /**
+     * Selects one of the available replicas.
+     *
+     * @param replicas the healthy replicas within the lag limit, never empty
+     * @return the replica to read from, or null to read from the primary
+     */
+    @Nullable
+    RoutingConnectionProvider.Replica select(@NotNull List<RoutingConnectionProvider.Replica> replicas);
+
+    /**
+     * Cycles through the replicas in order.
+     */
+    static @NotNull ReplicaSelector roundRobin() {
+        AtomicInteger counter = new AtomicInteger();
+        return replicas -> replicas.get(Math.floorMod(counter.getAndIncrement(), replicas.size()));
+    }
+
+    /**
+     * Picks the replica with the fewest connections currently checked out through the router.
+     */
+    static @NotNull ReplicaSelector leastLoaded() {
+        return replicas -> {
+            RoutingConnectionProvider.Replica best = null;
+            for (RoutingConnectionProvider.Replica replica : replicas) {
+                if (best == null || replica.getActiveConnections() < best.getActiveConnections()) best = replica;
+            }
+            return best;
+        };
+    }
+}
@@ -0,0 +1,410 @@
+package io.github.flameyossnowy.universal.sql.routing;
+
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
+import io.github.flameyossnowy.universal.sql.pool.PoolMetrics;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits reads and writes between a primary and any amount of read replicas.
+ * <p>
+ * {@link #getConnection()} always returns a primary connection and is used for writes, transactions and reads
+ * inside a transaction. {@link #getReadConnection()}, used by {@code find}, {@code findIterator} and
+ * {@code findIds} outside of transactions, returns a replica picked by the {@link ReplicaSelector} among the
+ * replicas that passed their {@link ReplicaHealthCheck} and lag less than the configured maximum. Reads fall back
+ * to the primary when no replica qualifies.
+ * <p>
+ * With read-your-writes enabled, every read keeps going to the primary for the configured duration after a write
+ * through it, so writes are not missed on a lagging replica. This applies to all threads, not only the writing one,
+ * since async methods, coalesced lookups and partitioned scans read on threads of their own. A write is an executed
+ * {@code INSERT}, {@code UPDATE}, {@code DELETE}, {@code REPLACE} or {@code MERGE}, an executed batch, or a commit,
+ * merely checking out a primary connection for a count or a schema change does not count.
+ *
+ * <pre>
+ * MySQLRepositoryAdapter.builder(User.class, Long.class)
+ *     .withCredentials(primaryCredentials)
+ *     .withConnectionProvider((credentials, optimizations) -> RoutingConnectionProvider.builder(new MySQLHikariConnectionProvider(credentials, optimizations))
+ *         .withReplica(new MySQLHikariConnectionProvider(replicaCredentials, optimizations))
+ *         .withSelector(ReplicaSelector.leastLoaded())
+ *         .withReadYourWrites(Duration.ofSeconds(2))
+ *         .build())
+ *     .build();
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class RoutingConnectionProvider implements SQLConnectionProvider {
+    private static final String[] WRITE_KEYWORDS = { "INSERT", "UPDATE", "DELETE", "REPLACE", "MERGE", "UPSERT" };
+
+    private final SQLConnectionProvider primary;
+    private final List<Replica> replicas;
+    private final ReplicaSelector selector;
+    private final ReplicaHealthCheck healthCheck;
+    private final long checkIntervalNanos;
+    private final long maxLagMillis;
+    private final long stickinessNanos;
+
+    // Last time anything was written through the primary
+    private final AtomicLong lastWrite = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong primaryReads = new AtomicLong();
+    private final AtomicLong replicaReads = new AtomicLong();
+
+    private RoutingConnectionProvider(Builder builder) {
+        this.primary = builder.primary;
+        this.selector = builder.selector;
+        this.healthCheck = builder.healthCheck;
+        this.checkIntervalNanos = builder.checkInterval.toNanos();
+        this.maxLagMillis = builder.maxLag.toMillis();
+        this.stickinessNanos = builder.readYourWrites.toNanos();
+
+        List<Replica> replicas = new ArrayList<>(builder.replicas.size());
+        for (int i = 0; i < builder.replicas.size(); i++) {
+            replicas.add(new Replica(i, builder.replicas.get(i)));
+        }
+        this.replicas = List.copyOf(replicas);
+    }
+
+    @NotNull
+    @Contract("_ -> new")
+    public static Builder builder(@NotNull SQLConnectionProvider primary) {
+        return new Builder(primary);
+    }
+
+    @Override
+    public Connection getConnection() {
+        Connection connection = primary.getConnection();
+        return stickinessNanos > 0 ? trackWrites(connection) : connection;
+    }
+
+    @Override
+    public Connection getDedicatedConnection() {
+        return primary.getDedicatedConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() {
+        if (replicas.isEmpty() || isSticky()) return readFromPrimary();
+
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (isAvailable(replica)) available.add(replica);
+        }
+        if (available.isEmpty()) return readFromPrimary();
+
+        Replica replica = selector.select(available);
+        if (replica == null) return readFromPrimary();
+
+        try {
+            Connection connection = replica.provider.getConnection();
+            replicaReads.incrementAndGet();
+            replica.reads.incrementAndGet();
+            return replica.track(connection);
+        } catch (Exception e) {
+            // Take it out of rotation until its next health check
+            replica.healthy = false;
+            replica.lastCheck = System.nanoTime();
+            Logging.warn("Replica " + replica.index + " failed to provide a connection, reading from the primary: " + e.getMessage());
+            return readFromPrimary();
+        }
+    }
+
+    private Connection readFromPrimary() {
+        primaryReads.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    private boolean isSticky() {
+        if (stickinessNanos <= 0) return false;
+        long last = lastWrite.get();
+        return last != Long.MIN_VALUE && System.nanoTime() - last < stickinessNanos;
+    }
+
+    private static boolean isWrite(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) start++;
+        for (String keyword : WRITE_KEYWORDS) {
+            if (sql.regionMatches(true, start, keyword, 0, keyword.length())) return true;
+        }
+        return false;
+    }
+
+    // Makes reads sticky once the connection commits or runs a write, not when it is checked out
+    private Connection trackWrites(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                switch (method.getName()) {
+                    case "commit" -> markWrite();
+                    case "createStatement" -> result = trackWrites((Statement) result, Statement.class, false);
+                    case "prepareStatement" -> {
+                        if (isWrite((String) args[0])) result = trackWrites((Statement) result, PreparedStatement.class, true);
+                    }
+                    default -> {
+                    }
+                }
+                return result;
+            });
+    }
+
+    private Statement trackWrites(Statement statement, Class<? extends Statement> type, boolean write) {
+        return (Statement) Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] { type },
+            (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                String name = method.getName();
+                if (name.startsWith("execute")
+                    && (write || name.endsWith("Batch") || (args != null && args.length > 0 && args[0] instanceof String sql && isWrite(sql)))) {
+                    markWrite();
+                }
+                return result;
+            });
+    }
+
+    private boolean isAvailable(Replica replica) {
+        if (System.nanoTime() - replica.lastCheck >= checkIntervalNanos && replica.checking.compareAndSet(false, true)) {
+            try {
+                ReplicaHealthCheck.Status status = healthCheck.check(replica.provider);
+                replica.healthy = status.healthy();
+                replica.lagMillis = status.lagMillis();
+            } catch (Exception e) {
+                replica.healthy = false;
+                Logging.warn("Health check of replica " + replica.index + " failed: " + e.getMessage());
+            } finally {
+                replica.lastCheck = System.nanoTime();
+                replica.checking.set(false);
+            }
+        }
+        return replica.healthy && (maxLagMillis <= 0 || replica.lagMillis <= maxLagMillis);
+    }
+
+    /**
+     * Marks the primary as the read source for the read-your-writes duration.
+     * <p>
+     * Writes through the repository adapters already do this, this is for writes made outside of them.
+     */
+    public void markWrite() {
+        lastWrite.set(System.nanoTime());
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+        for (Replica replica : replicas) {
+            replica.provider.close();
+        }
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, @NotNull Connection connection) throws Exception {
+        // The statement cache of the primary keys statements by physical connection, so it serves replicas as well
+        PreparedStatement statement = primary.prepareStatement(sql, connection);
+        return stickinessNanos > 0 && isWrite(sql) ? (PreparedStatement) trackWrites(statement, PreparedStatement.class, true) : statement;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, @NotNull Connection connection, int autoGeneratedKeys) throws Exception {
+        PreparedStatement statement = primary.prepareStatement(sql, connection, autoGeneratedKeys);
+        return stickinessNanos > 0 && isWrite(sql) ? (PreparedStatement) trackWrites(statement, PreparedStatement.class, true) : statement;
+    }
+
+    @Override
+    public @Nullable StatementCache getStatementCache() {
+        return primary.getStatementCache();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return primary.getMaxConnections();
+    }
+
+    /**
+     * Gets the pool metrics of the primary, the metrics of a replica are available through {@link Replica#getProvider()}.
+     */
+    @Override
+    public @Nullable PoolMetrics getPoolMetrics() {
+        return primary.getPoolMetrics();
+    }
+
+    public SQLConnectionProvider getPrimary() {
+        return primary;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Gets the amount of reads served by the primary, including fallbacks and sticky reads.
+     */
+    public long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    /**
+     * Gets the amount of reads served by replicas.
+     */
+    public long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    /**
+     * A read replica and its routing state.
+     */
+    public static final class Replica {
+        private final int index;
+        private final SQLConnectionProvider provider;
+        private final AtomicInteger activeConnections = new AtomicInteger();
+        private final AtomicLong reads = new AtomicLong();
+        private final AtomicBoolean checking = new AtomicBoolean();
+
+        private volatile boolean healthy = true;
+        private volatile long lagMillis;
+        private volatile long lastCheck = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+        private Replica(int index, SQLConnectionProvider provider) {
+            this.index = index;
+            this.provider = provider;
+        }
+
+        // Counts the connection as active until it is closed, for least-loaded selection
+        private Connection track(Connection connection) {
+            activeConnections.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0 && closed.compareAndSet(false, true)) {
+                        activeConnections.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public SQLConnectionProvider getProvider() {
+            return provider;
+        }
+
+        public int getActiveConnections() {
+            return activeConnections.get();
+        }
+
+        public long getReads() {
+            return reads.get();
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagMillis() {
+            return lagMillis;
+        }
+    }
+
+    public static final class Builder {
+        private final SQLConnectionProvider primary;
+        private final List<SQLConnectionProvider> replicas = new ArrayList<>(2);
+        private ReplicaSelector selector = ReplicaSelector.roundRobin();
+        private ReplicaHealthCheck healthCheck = ReplicaHealthCheck.connectionValid();
+        private Duration checkInterval = Duration.ofSeconds(5);
+        private Duration maxLag = Duration.ZERO;
+        private Duration readYourWrites = Duration.ZERO;
+
+        private Builder(@NotNull SQLConnectionProvider primary) {
+            this.primary = Objects.requireNonNull(primary, "Primary cannot be null");
+        }
+
+        public Builder withReplica(@NotNull SQLConnectionProvider replica) {
+            this.replicas.add(Objects.requireNonNull(replica, "Replica cannot be null"));
+            return this;
+        }
+
+        public Builder withReplicas(@NotNull List<? extends SQLConnectionProvider> replicas) {
+            for (SQLConnectionProvider replica : replicas) withReplica(replica);
+            return this;
+        }
+
+        /**
+         * Sets how a replica is picked for a read, {@link ReplicaSelector#roundRobin()} by default.
+         */
+        public Builder withSelector(@NotNull ReplicaSelector selector) {
+            this.selector = Objects.requireNonNull(selector, "Selector cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets how replicas are checked, {@link ReplicaHealthCheck#connectionValid()} by default.
+         */
+        public Builder withHealthCheck(@NotNull ReplicaHealthCheck healthCheck) {
+            this.healthCheck = Objects.requireNonNull(healthCheck, "Health check cannot be null");
+            return this;
+        }
+
+        /**
+         * Sets how long the result of a health check is reused, 5 seconds by default.
+         */
+        public Builder withCheckInterval(@NotNull Duration checkInterval) {
+            this.checkInterval = checkInterval;
+            return this;
+        }
+
+        /**
+         * Sets the maximum replication lag of a replica serving reads, unlimited by default.
+         */
+        public Builder withMaxLag(@NotNull Duration maxLag) {
+            this.maxLag = maxLag;
+            return this;
+        }
+
+        /**
+         * Sets how long reads keep going to the primary after a write or commit through it, disabled by default.
+         */
+        public Builder withReadYourWrites(@NotNull Duration readYourWrites) {
+            this.readYourWrites = readYourWrites;
+            return this;
+        }
+
+        public RoutingConnectionProvider build() {
+            return new RoutingConnectionProvider(this);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.flameyossnowy.universal.sqlite;
+
+/**
+ * How a {@link SQLiteRepositoryAdapter} handles concurrent access to the database file.
+ */
+public enum SQLiteConcurrencyMode {
+    /**
+     * Every call acquires its own connection from the configured connection provider.
+     * Concurrent writers compete for the database lock.
+     */
+    DEFAULT,
+
+    /**
+     * Enables write-ahead logging, funnels every write through a single writer connection with group commit
+     * and serves reads from a pool of read-only connections.
+     *
+     * @see io.github.flameyossnowy.universal.sqlite.connections.SQLiteSingleWriterConnectionProvider
+     */
+    SINGLE_WRITER
+}
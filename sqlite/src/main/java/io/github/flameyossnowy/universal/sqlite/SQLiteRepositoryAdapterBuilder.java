@@ -11,6 +11,7 @@ import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
 import io.github.flameyossnowy.universal.api.reflect.RepositoryMetadata;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
 import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSingleWriterConnectionProvider;
 import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
 
 import java.lang.reflect.InvocationTargetException;
@@ -18,6 +19,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.LongFunction;
@@ -30,6 +32,9 @@ public class SQLiteRepositoryAdapterBuilder<T, ID> {
     private final Class<T> repository;
     private final Class<ID> idClass;
     private CacheWarmer<T, ID> cacheWarmer;
+    private Executor asyncExecutor;
+    private int asyncConcurrency;
+    private SQLiteConcurrencyMode concurrencyMode = SQLiteConcurrencyMode.DEFAULT;
 
     private LongFunction<SessionCache<ID, T>> sessionCacheSupplier = (id) -> new DefaultSessionCache<>();
 
@@ -136,6 +141,42 @@ public class SQLiteRepositoryAdapterBuilder<T, ID> {
         return this;
     }
 
+    /**
+     * Sets the executor running the asynchronous methods of the adapter, a virtual thread per task is started by default.
+     *
+     * @param asyncExecutor the executor running asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public SQLiteRepositoryAdapterBuilder<T, ID> withAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Sets how many asynchronous calls may run at once, further calls wait for a slot.
+     * Defaults to the size of the connection pool, a negative value removes the limit.
+     *
+     * @param asyncConcurrency the maximum amount of concurrent asynchronous calls
+     * @return The builder instance, for chaining method calls.
+     */
+    public SQLiteRepositoryAdapterBuilder<T, ID> withAsyncConcurrency(int asyncConcurrency) {
+        this.asyncConcurrency = asyncConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets how the adapter handles concurrent access to the database file, {@link SQLiteConcurrencyMode#DEFAULT} by default.
+     * <p>
+     * Ignored if a connection provider is set through {@link #withConnectionProvider(BiFunction)}.
+     *
+     * @param concurrencyMode the concurrency mode
+     * @return The builder instance, for chaining method calls.
+     */
+    public SQLiteRepositoryAdapterBuilder<T, ID> withConcurrencyMode(SQLiteConcurrencyMode concurrencyMode) {
+        this.concurrencyMode = Objects.requireNonNull(concurrencyMode, "Concurrency mode cannot be null");
+        return this;
+    }
+
     /**
      * Builds the {@link SQLiteRepositoryAdapter} instance.
      *
@@ -164,10 +205,8 @@ public class SQLiteRepositoryAdapterBuilder<T, ID> {
 
         GlobalCacheable globalCacheable = information.getGlobalCacheable();
         if (globalCacheable == null)
-            return new SQLiteRepositoryAdapter<>(
-                    connectionProvider != null
-                        ? this.connectionProvider.apply(credentials, optimizations)
-                        : new SQLiteSimpleConnectionProvider(this.credentials, optimizations),
+            return configureAsync(new SQLiteRepositoryAdapter<>(
+                    createConnectionProvider(),
                     resultCache,
                     this.repository,
                     this.idClass,
@@ -176,20 +215,33 @@ public class SQLiteRepositoryAdapterBuilder<T, ID> {
                     cacheWarmer,
                     cacheEnabled,
                     maxSize
-            );
+            ));
 
         Class<?> cacheableClass = globalCacheable.sessionCache();
 
         try {
-            return new SQLiteRepositoryAdapter<>(
-                    connectionProvider != null ? this.connectionProvider.apply(credentials, optimizations) : new SQLiteSimpleConnectionProvider(this.credentials, optimizations),
+            return configureAsync(new SQLiteRepositoryAdapter<>(
+                    createConnectionProvider(),
                     resultCache, this.repository, this.idClass, (SessionCache<ID, T>) cacheableClass.getDeclaredConstructor().newInstance(), sessionCacheSupplier, cacheWarmer,
                     cacheEnabled, maxSize
-            );
+            ));
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             throw new RuntimeException(e);
         } catch (NoSuchMethodException e) {
             throw new IllegalArgumentException("Session resultCache must have default no-arg constructor.", e);
         }
     }
+
+    private SQLConnectionProvider createConnectionProvider() {
+        if (connectionProvider != null) return connectionProvider.apply(credentials, optimizations);
+        return switch (concurrencyMode) {
+            case DEFAULT -> new SQLiteSimpleConnectionProvider(credentials, optimizations);
+            case SINGLE_WRITER -> new SQLiteSingleWriterConnectionProvider(credentials, optimizations);
+        };
+    }
+
+    private SQLiteRepositoryAdapter<T, ID> configureAsync(SQLiteRepositoryAdapter<T, ID> adapter) {
+        if (asyncExecutor != null || asyncConcurrency != 0) adapter.setAsyncExecutor(asyncExecutor, asyncConcurrency);
+        return adapter;
+    }
 }
@@ -8,6 +8,8 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.pool.HikariPoolMonitor;
+import io.github.flameyossnowy.universal.sql.pool.PoolMetrics;
 import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
 
 import org.jetbrains.annotations.NotNull;
@@ -18,9 +20,11 @@ import java.util.Map;
 
 public class SQLiteHikariConnectionProvider extends SQLiteSimpleConnectionProvider implements SQLConnectionProvider {
     private final HikariDataSource hikariDataSource;
+    private final HikariPoolMonitor monitor;
 
     public SQLiteHikariConnectionProvider(@NotNull SQLiteCredentials credentials, @NotNull EnumSet<Optimizations> optimizations) {
-        super(credentials, optimizations);
+        // The SQLite driver has no statement cache of its own, so pooled statements are not cached at all
+        super(credentials, optimizations, false);
         HikariConfig config = new HikariConfig();
         config.setDataSource(dataSource);
 
@@ -33,7 +37,11 @@ public class SQLiteHikariConnectionProvider extends SQLiteSimpleConnectionProvid
         config.setConnectionTimeout(credentials.getConnectionTimeout());
         config.setMaximumPoolSize(credentials.getPoolSize());
 
+        this.monitor = new HikariPoolMonitor("universal-sqlite", null);
+        config.setMetricsTrackerFactory(monitor);
+
         this.hikariDataSource = new HikariDataSource(config);
+        monitor.attach(hikariDataSource);
     }
 
     @Override
@@ -47,6 +55,18 @@ public class SQLiteHikariConnectionProvider extends SQLiteSimpleConnectionProvid
 
     @Override
     public void close() {
+        super.close();
+        monitor.close();
         hikariDataSource.close();
     }
+
+    @Override
+    public int getMaxConnections() {
+        return hikariDataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public PoolMetrics getPoolMetrics() {
+        return monitor.getMetrics();
+    }
 }
@@ -2,7 +2,9 @@ package io.github.flameyossnowy.universal.sqlite.connections;
 
 import io.github.flameyossnowy.universal.api.Optimizations;
 import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
 import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.jetbrains.annotations.Nullable;
 import org.sqlite.SQLiteDataSource;
 
 import java.sql.Connection;
@@ -10,27 +12,23 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.EnumSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class SQLiteSimpleConnectionProvider implements SQLConnectionProvider {
     protected final SQLiteDataSource dataSource;
-
-    private final Map<String, PreparedStatement> preparedStatements;
-
-    private final boolean cachePreparedStatements;
+    private final StatementCache statementCache;
 
     public SQLiteSimpleConnectionProvider(final SQLiteCredentials credentials, EnumSet<Optimizations> optimizations) {
+        this(credentials, optimizations, true);
+    }
+
+    /**
+     * @param ownsConnections whether the connections are the driver's own, only then are statements cached here,
+     *                        a pool has to see every statement through its proxy
+     */
+    protected SQLiteSimpleConnectionProvider(final SQLiteCredentials credentials, EnumSet<Optimizations> optimizations, boolean ownsConnections) {
         StringBuilder url = new StringBuilder(credentials.getJdbcUrl());
         boolean isFirst = true;
 
-        if (optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)) {
-            this.cachePreparedStatements = true;
-            this.preparedStatements = new ConcurrentHashMap<>();
-        } else {
-            this.cachePreparedStatements = false;
-            this.preparedStatements = null;
-        }
-
         for (Map.Entry<String, String> entry : credentials.getDataSourceProperties().entrySet()) {
             if (isFirst) {
                 url.append('?');
@@ -43,6 +41,9 @@ public class SQLiteSimpleConnectionProvider implements SQLConnectionProvider {
 
         this.dataSource = new SQLiteDataSource();
         this.dataSource.setUrl(url.toString());
+        this.statementCache = ownsConnections && optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)
+            ? new StatementCache(StatementCache.DEFAULT_SIZE)
+            : null;
     }
 
     @Override
@@ -54,23 +55,36 @@ public class SQLiteSimpleConnectionProvider implements SQLConnectionProvider {
         }
     }
 
+    @Override
+    public Object getScopeKey() {
+        return dataSource.getUrl();
+    }
+
     @Override
     public void close() {
+        if (statementCache != null) statementCache.clear();
     }
 
     @SuppressWarnings("SqlSourceToSinkFlow") // Don't worry, we ONLY ever use prepared statements and in the correct way :)
     @Override
     public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
-        if (!cachePreparedStatements) {
+        if (statementCache == null) {
             return connection.prepareStatement(sql);
         }
+        return statementCache.prepare(sql, connection);
+    }
 
-        PreparedStatement statement = this.preparedStatements.get(sql);
-        if (statement == null) {
-            statement = connection.prepareStatement(sql);
-            this.preparedStatements.put(sql, statement);
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    @Override
+    public PreparedStatement prepareStatement(String sql, Connection connection, int autoGeneratedKeys) throws Exception {
+        if (statementCache == null) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
         }
+        return statementCache.prepare(sql, connection, autoGeneratedKeys);
+    }
 
-        return statement;
+    @Override
+    public @Nullable StatementCache getStatementCache() {
+        return statementCache;
     }
 }
@@ -0,0 +1,606 @@
+package io.github.flameyossnowy.universal.sqlite.connections;
+
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.utils.Logging;
+import io.github.flameyossnowy.universal.sql.internals.SQLConnectionProvider;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.jetbrains.annotations.NotNull;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.lang.ref.Cleaner;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A connection provider for concurrent use of one SQLite database file.
+ * <p>
+ * The database is switched to write-ahead logging, so readers never block the writer and the other way around.
+ * Every {@link #getConnection()} hands out the same writer connection, one thread at a time in arrival order,
+ * so writers queue in the application instead of retrying on {@code SQLITE_BUSY}. Reads come from a pool of
+ * read-only connections, unless the thread is holding the writer, in which case it reads its own writes from it.
+ * <p>
+ * Writes are group committed: the writes of consecutive threads share one database transaction, which is
+ * committed with a single fsync once no other writer is waiting or the group is full. Closing the writer
+ * connection returns once the group containing the write is durable, and fails if that commit failed. A writer
+ * left waiting for its group commits it itself once the writer slot is free, in case the queued writer gave up.
+ * {@code commit()} and {@code rollback()} on the writer connection apply to the work of the current thread only,
+ * through a savepoint, and work left uncommitted when the connection is closed is kept, as nested writes of the
+ * same operation share it. Explicit transactions should be kept short, writes queued behind one commit with it.
+ * <p>
+ * {@link #getDedicatedConnection()} commits the pending group and hands out a separate connection holding the
+ * writer slot, so its transaction is durable on its own. A thread that is already writing cannot commit apart
+ * from its own unit, it gets its writer back instead.
+ * <p>
+ * A writer connection that is never closed would hold the writer slot forever. Waiting for the slot therefore
+ * times out after the connection timeout of the credentials, and a connection that becomes unreachable without
+ * being closed is closed on its behalf once it is garbage collected: its work is kept if it was in auto-commit
+ * mode and rolled back otherwise.
+ */
+@SuppressWarnings("unused")
+public class SQLiteSingleWriterConnectionProvider implements SQLConnectionProvider {
+    private static final String UNIT = "universal_write";
+    private static final long COMMIT_POLL_MILLIS = 5;
+
+    private final SQLiteDataSource writeSource;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Connection writer;
+    // A semaphore rather than a lock, so a lease abandoned by its thread can be ended by the cleaner
+    private final Semaphore writeSlot = new Semaphore(1, true);
+    private final int groupCommitSize;
+
+    // Guarded by writeSlot
+    private volatile Lease lease;
+    private Group group = new Group();
+    private boolean groupOpen;
+    private boolean autoCommit = true;
+
+    private final SQLiteDataSource readSource;
+    private final BlockingQueue<Connection> idleReaders;
+    private final Semaphore readPermits;
+    private final int readPoolSize;
+    private final long connectionTimeout;
+
+    private final StatementCache statementCache;
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedWrites = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+
+    public SQLiteSingleWriterConnectionProvider(@NotNull SQLiteCredentials credentials, @NotNull EnumSet<Optimizations> optimizations) {
+        if (credentials.getGroupCommitSize() <= 0) throw new IllegalArgumentException("Group commit size must be positive");
+        if (credentials.getPoolSize() <= 0) throw new IllegalArgumentException("Pool size must be positive");
+
+        this.groupCommitSize = credentials.getGroupCommitSize();
+        this.readPoolSize = credentials.getPoolSize();
+        this.connectionTimeout = credentials.getConnectionTimeout();
+        this.idleReaders = new ArrayBlockingQueue<>(readPoolSize);
+        this.readPermits = new Semaphore(readPoolSize, true);
+        this.statementCache = optimizations.contains(Optimizations.CACHE_PREPARED_STATEMENTS)
+            ? new StatementCache(StatementCache.DEFAULT_SIZE)
+            : null;
+
+        String url = createUrl(credentials);
+
+        SQLiteConfig writeConfig = createConfig(credentials);
+        writeConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // Every commit is still fsynced, group commit is what amortizes it
+        writeConfig.setSynchronous(SQLiteConfig.SynchronousMode.FULL);
+
+        this.writeSource = new SQLiteDataSource(writeConfig);
+        this.writeSource.setUrl(url);
+
+        // The journal mode is persistent, so the writer has to open the database before the readers
+        try {
+            this.writer = writeSource.getConnection();
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not open the SQLite writer connection", e);
+        }
+
+        SQLiteConfig readConfig = createConfig(credentials);
+        readConfig.setReadOnly(true);
+        this.readSource = new SQLiteDataSource(readConfig);
+        this.readSource.setUrl(url);
+    }
+
+    private static @NotNull String createUrl(@NotNull SQLiteCredentials credentials) {
+        StringBuilder url = new StringBuilder(credentials.getJdbcUrl());
+        boolean isFirst = true;
+        for (Map.Entry<String, String> entry : credentials.getDataSourceProperties().entrySet()) {
+            url.append(isFirst ? '?' : '&').append(entry.getKey()).append('=').append(entry.getValue());
+            isFirst = false;
+        }
+        return url.toString();
+    }
+
+    private static @NotNull SQLiteConfig createConfig(@NotNull SQLiteCredentials credentials) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(credentials.getBusyTimeout());
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setCacheSize(-16_000); // 16 MiB of page cache per connection
+        return config;
+    }
+
+    @Override
+    public Connection getConnection() {
+        Lease current = currentLease();
+        if (current != null) {
+            current.hold();
+            return writerHandle(current);
+        }
+
+        acquireSlot();
+        current = new Lease(null);
+        lease = current;
+        try {
+            beginUnit();
+        } catch (SQLException e) {
+            releaseSlot();
+            throw new RuntimeException(e);
+        }
+        return writerHandle(current);
+    }
+
+    @Override
+    public Connection getDedicatedConnection() {
+        // Nothing can commit apart from the unit of this thread until it ends
+        if (currentLease() != null) return getConnection();
+
+        acquireSlot();
+        try {
+            // The writes of the group are done, committing them leaves the database free for a transaction of its own
+            if (groupOpen) {
+                try {
+                    commitGroup();
+                } catch (SQLException e) {
+                    failGroup(e);
+                    throw e;
+                }
+            }
+            Lease current = new Lease(writeSource.getConnection());
+            lease = current;
+            return writerHandle(current);
+        } catch (SQLException e) {
+            releaseSlot();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Lease currentLease() {
+        Lease current = lease;
+        return current != null && current.owner == Thread.currentThread() ? current : null;
+    }
+
+    private void acquireSlot() {
+        try {
+            if (!writeSlot.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+                Lease holder = lease;
+                throw new RuntimeException("Timed out after " + connectionTimeout + "ms waiting for the SQLite writer"
+                    + (holder != null ? ", it is held by " + holder.owner.getName() + ", which may have left a connection open" : ""));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the SQLite writer", e);
+        }
+    }
+
+    private void releaseSlot() {
+        lease = null;
+        writeSlot.release();
+    }
+
+    @Override
+    public Connection getReadConnection() {
+        // Reads of a thread holding the writer have to see its uncommitted writes
+        if (currentLease() != null) return getConnection();
+
+        try {
+            if (!readPermits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Timed out after " + connectionTimeout + "ms waiting for a read connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a read connection", e);
+        }
+
+        try {
+            Connection reader = idleReaders.poll();
+            if (reader == null || reader.isClosed()) reader = readSource.getConnection();
+            return readerHandle(reader);
+        } catch (SQLException e) {
+            readPermits.release();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void beginUnit() throws SQLException {
+        if (!groupOpen) {
+            execute("BEGIN IMMEDIATE");
+            groupOpen = true;
+        }
+        execute("SAVEPOINT " + UNIT);
+        autoCommit = true;
+    }
+
+    private void endUnit(boolean await) throws SQLException {
+        Group current = group;
+        boolean commitNow;
+        try {
+            execute("RELEASE " + UNIT);
+            current.writes++;
+            commitNow = current.writes >= groupCommitSize || !writeSlot.hasQueuedThreads();
+            if (commitNow) commitGroup();
+        } catch (SQLException e) {
+            failGroup(e);
+            throw e;
+        } finally {
+            releaseSlot();
+        }
+
+        // Another writer is queued and will commit this group when it is done
+        if (!commitNow && await) awaitCommit(current);
+    }
+
+    // The queued writer can still time out or be interrupted before it takes the slot, then nobody else commits
+    private void awaitCommit(Group current) throws SQLException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (current.await(COMMIT_POLL_MILLIS)) break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+
+                if (!writeSlot.tryAcquire()) continue;
+                try {
+                    if (group == current) {
+                        try {
+                            commitGroup();
+                        } catch (SQLException e) {
+                            failGroup(e);
+                        }
+                    }
+                } finally {
+                    writeSlot.release();
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        current.check();
+    }
+
+    // Ends the lease once its last handle is closed, abandoned handles are closed by the cleaner thread
+    private void release(Lease current, boolean abandoned) throws SQLException {
+        if (current.release() > 0) return;
+
+        if (current.dedicated != null) {
+            try {
+                // Uncommitted work is rolled back by SQLite when the connection closes
+                current.dedicated.close();
+            } finally {
+                releaseSlot();
+            }
+            return;
+        }
+
+        if (abandoned && !autoCommit) {
+            try {
+                execute("ROLLBACK TO " + UNIT);
+            } catch (SQLException e) {
+                failGroup(e);
+                releaseSlot();
+                throw e;
+            }
+        }
+        endUnit(!abandoned);
+    }
+
+    private void commitGroup() throws SQLException {
+        Group current = group;
+        execute("COMMIT");
+        groupOpen = false;
+        group = new Group();
+
+        commits.incrementAndGet();
+        committedWrites.addAndGet(current.writes);
+        current.complete(null);
+    }
+
+    private void failGroup(SQLException e) {
+        Group current = group;
+        try {
+            execute("ROLLBACK");
+        } catch (SQLException rollbackException) {
+            e.addSuppressed(rollbackException);
+        }
+        groupOpen = false;
+        group = new Group();
+
+        failedCommits.incrementAndGet();
+        Logging.error("Group commit of SQLite writes failed, rolled back the group", e);
+        current.complete(e);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = writer.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private Connection writerHandle(Lease current) {
+        Handle state = new Handle(current);
+        Connection connection = current.dedicated != null ? current.dedicated : writer;
+        Connection handle = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                String name = method.getName();
+                if ("close".equals(name) && method.getParameterCount() == 0) {
+                    state.close();
+                    return null;
+                }
+                if ("isClosed".equals(name) && state.closed) return true;
+                if (current.dedicated != null) return invoke(connection, method, args);
+
+                switch (name) {
+                    case "getAutoCommit" -> {
+                        return autoCommit;
+                    }
+                    case "setAutoCommit" -> {
+                        boolean value = (Boolean) args[0];
+                        // Switching auto-commit back on commits, as it would on a plain connection
+                        if (value && !autoCommit) commitUnit();
+                        autoCommit = value;
+                        return null;
+                    }
+                    case "commit" -> {
+                        commitUnit();
+                        return null;
+                    }
+                    case "rollback" -> {
+                        if (method.getParameterCount() == 0) {
+                            execute("ROLLBACK TO " + UNIT);
+                            return null;
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                return invoke(connection, method, args);
+            });
+        state.cleanable = CLEANER.register(handle, state);
+        return handle;
+    }
+
+    // Merges the work of the current thread into the group, it becomes durable when the group commits
+    private void commitUnit() throws SQLException {
+        execute("RELEASE " + UNIT);
+        execute("SAVEPOINT " + UNIT);
+    }
+
+    private Connection readerHandle(Connection reader) {
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                    if (!closed[0]) {
+                        closed[0] = true;
+                        release(reader);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(method.getName()) && closed[0]) return true;
+                return invoke(reader, method, args);
+            });
+    }
+
+    private void release(Connection reader) {
+        try {
+            if (reader.isClosed()) return;
+            if (!reader.getAutoCommit()) {
+                reader.rollback();
+                reader.setAutoCommit(true);
+            }
+            if (!idleReaders.offer(reader)) reader.close();
+        } catch (SQLException e) {
+            try {
+                reader.close();
+            } catch (SQLException ignored) {
+            }
+        } finally {
+            readPermits.release();
+        }
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        boolean holding = currentLease() != null;
+        if (!holding) acquireSlot();
+        try {
+            if (groupOpen) commitGroup();
+        } catch (SQLException e) {
+            failGroup(e);
+        } finally {
+            if (!holding) writeSlot.release();
+        }
+
+        if (statementCache != null) statementCache.clear();
+
+        try {
+            writer.close();
+        } catch (SQLException e) {
+            Logging.error("Failed to close the SQLite writer connection", e);
+        }
+
+        Connection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            try {
+                reader.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    @Override
+    public PreparedStatement prepareStatement(String sql, @NotNull Connection connection) throws Exception {
+        if (statementCache == null) {
+            return connection.prepareStatement(sql);
+        }
+        return statementCache.prepare(sql, connection);
+    }
+
+    @SuppressWarnings("SqlSourceToSinkFlow")
+    @Override
+    public PreparedStatement prepareStatement(String sql, @NotNull Connection connection, int autoGeneratedKeys) throws Exception {
+        if (statementCache == null) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        return statementCache.prepare(sql, connection, autoGeneratedKeys);
+    }
+
+    @Override
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return readPoolSize;
+    }
+
+    /**
+     * Gets the amount of writers waiting for the writer connection.
+     */
+    public int getQueuedWriters() {
+        return writeSlot.getQueueLength();
+    }
+
+    /**
+     * Gets the amount of group commits so far.
+     */
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * Gets the amount of group commits that failed and were rolled back.
+     */
+    public long getFailedCommitCount() {
+        return failedCommits.get();
+    }
+
+    /**
+     * Gets the average amount of writes per group commit.
+     */
+    public double getAverageGroupSize() {
+        long commitCount = commits.get();
+        return commitCount == 0 ? 0 : (double) committedWrites.get() / commitCount;
+    }
+
+    /**
+     * The writer slot held by one thread, shared by the handles it opened until the last one is closed.
+     */
+    private static final class Lease {
+        private final Thread owner = Thread.currentThread();
+        private final Connection dedicated;
+        private int handles = 1;
+
+        private Lease(Connection dedicated) {
+            this.dedicated = dedicated;
+        }
+
+        synchronized void hold() {
+            handles++;
+        }
+
+        synchronized int release() {
+            return --handles;
+        }
+    }
+
+    /**
+     * The close state of one handle, run on close or by the cleaner once the handle is unreachable.
+     */
+    private final class Handle implements Runnable {
+        private final Lease lease;
+        private volatile boolean closed;
+        private boolean closing;
+        private SQLException failure;
+        private Cleaner.Cleanable cleanable;
+
+        private Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        void close() throws SQLException {
+            if (closed) return;
+            closing = true;
+            cleanable.clean();
+            if (failure != null) throw failure;
+        }
+
+        @Override
+        public void run() {
+            closed = true;
+            if (!closing) Logging.warn("A SQLite writer connection of " + lease.owner.getName() + " was never closed, closing it");
+            try {
+                release(lease, !closing);
+            } catch (SQLException e) {
+                failure = e;
+                if (!closing) Logging.error("Failed to close an abandoned SQLite writer connection", e);
+            }
+        }
+    }
+
+    /**
+     * Writes sharing one database transaction.
+     */
+    private static final class Group {
+        private int writes;
+        private boolean done;
+        private SQLException failure;
+
+        synchronized void complete(SQLException failure) {
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized boolean await(long millis) throws InterruptedException {
+            if (!done) wait(millis);
+            return done;
+        }
+
+        synchronized void check() throws SQLException {
+            if (failure != null) throw new SQLException("Group commit failed", failure);
+        }
+    }
+}
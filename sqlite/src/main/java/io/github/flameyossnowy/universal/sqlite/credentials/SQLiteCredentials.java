@@ -14,6 +14,8 @@ public class SQLiteCredentials {
     private int minimumIdle = 2;
     private long idleTimeout = 30000;
     private long connectionTimeout = 30000;
+    private int busyTimeout = 5000;
+    private int groupCommitSize = 64;
     private final String jdbcUrl;
 
     public SQLiteCredentials(String directory) {
@@ -61,6 +63,28 @@ public class SQLiteCredentials {
         return this;
     }
 
+    /**
+     * Sets how long a connection waits for a lock held by another connection before failing with SQLITE_BUSY.
+     *
+     * @param busyTimeout the timeout in milliseconds
+     * @return this credentials instance
+     */
+    public SQLiteCredentials setBusyTimeout(int busyTimeout) {
+        this.busyTimeout = busyTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum amount of writes committed together in single writer mode.
+     *
+     * @param groupCommitSize the maximum amount of writes per commit
+     * @return this credentials instance
+     */
+    public SQLiteCredentials setGroupCommitSize(int groupCommitSize) {
+        this.groupCommitSize = groupCommitSize;
+        return this;
+    }
+
     public SQLiteCredentials addDataSourceProperty(String key, String value) {
         this.dataSourceProperties.put(key, value);
         return this;
@@ -100,4 +124,12 @@ public class SQLiteCredentials {
     public long getConnectionTimeout() {
         return connectionTimeout;
     }
+
+    public int getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    public int getGroupCommitSize() {
+        return groupCommitSize;
+    }
 }
@@ -0,0 +1,34 @@
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+
+@Repository(name = "accounts")
+public class Account {
+    @Id
+    private String id;
+    private String name;
+    private int balance;
+
+    public Account() {}
+
+    public Account(String id, String name, int balance) {
+        this.id = id;
+        this.name = name;
+        this.balance = balance;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public int getBalance() { return balance; }
+
+    public void setName(String name) { this.name = name; }
+    public void setBalance(int balance) { this.balance = balance; }
+
+    @Override
+    public String toString() {
+        return "Account{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", balance=" + balance +
+                '}';
+    }
+}
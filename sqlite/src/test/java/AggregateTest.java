@@ -0,0 +1,132 @@
+import io.github.flameyossnowy.universal.api.RepositoryAdapter;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryExceptionHandler;
+import io.github.flameyossnowy.universal.api.exceptions.handler.DefaultExceptionHandler;
+import io.github.flameyossnowy.universal.api.options.AggregateQuery;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import io.github.flameyossnowy.universal.api.options.SortOrder;
+import io.github.flameyossnowy.universal.api.reflect.RepositoryInformation;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Reading, String> adapter;
+
+    @BeforeEach
+    void setup() {
+        RecordingExceptionHandler.reads.clear();
+        adapter = SQLiteRepositoryAdapter
+                .builder(Reading.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("readings.db").toString()))
+                .build();
+        adapter.createRepository(true);
+
+        adapter.insert(new Reading("1", "A", 10));
+        adapter.insert(new Reading("2", "A", 20));
+        adapter.insert(new Reading("3", "B", 5));
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void groupsAreAggregatedByTheDatabase() {
+        List<Map<String, Object>> rows = adapter.aggregate(Query.aggregate()
+                .groupBy("grade")
+                .count("readings")
+                .sum("amount", "total")
+                .orderBy("grade", SortOrder.ASCENDING)
+                .build());
+
+        assertEquals(2, rows.size());
+        assertEquals("A", rows.get(0).get("grade"));
+        assertEquals(2L, ((Number) rows.get(0).get("readings")).longValue());
+        assertEquals(30L, ((Number) rows.get(0).get("total")).longValue());
+        assertEquals("B", rows.get(1).get("grade"));
+    }
+
+    @Test
+    void filterValuesWithoutResolverAreBoundDirectly() {
+        // Character has no resolver, only char does
+        AggregateQuery query = Query.aggregate()
+                .where("grade").eq('A')
+                .count("readings")
+                .build();
+
+        List<Map<String, Object>> rows = adapter.aggregate(query);
+
+        assertEquals(1, rows.size());
+        assertEquals(2L, ((Number) rows.get(0).get("readings")).longValue());
+        assertTrue(RecordingExceptionHandler.reads.isEmpty(), "unexpected failures " + RecordingExceptionHandler.reads);
+    }
+
+    @Test
+    void failuresGoThroughTheReadHandler() {
+        adapter.executeRawQuery("DROP TABLE readings");
+
+        List<Map<String, Object>> rows = adapter.aggregate(Query.aggregate().count("readings").build());
+
+        assertTrue(rows.isEmpty());
+        assertEquals(1, RecordingExceptionHandler.reads.size());
+    }
+
+    @Test
+    void countAndExistsFailuresGoThroughTheReadHandler() {
+        // Unknown columns fail validation before reaching the database
+        SelectQuery invalid = Query.select().where("missing").eq(1).build();
+        assertEquals(0, adapter.count(invalid));
+        assertFalse(adapter.exists(invalid));
+        assertEquals(2, RecordingExceptionHandler.reads.size());
+
+        adapter.executeRawQuery("DROP TABLE readings");
+        SelectQuery valid = Query.select().where("grade").eq("A").build();
+        assertEquals(0, adapter.count(valid));
+        assertFalse(adapter.exists(valid));
+        assertEquals(4, RecordingExceptionHandler.reads.size());
+    }
+
+    public static class RecordingExceptionHandler extends DefaultExceptionHandler<Reading, String, Connection> {
+        static final List<Exception> reads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<Reading> handleRead(Exception exception, RepositoryInformation information, SelectQuery query, RepositoryAdapter<Reading, String, Connection> adapter) {
+            reads.add(exception);
+            return super.handleRead(exception, information, query, adapter);
+        }
+    }
+
+    @Repository(name = "readings")
+    @RepositoryExceptionHandler(RecordingExceptionHandler.class)
+    public static class Reading {
+        @Id
+        public String id;
+        public String grade;
+        public int amount;
+
+        public Reading() {}
+
+        public Reading(String id, String grade, int amount) {
+            this.id = id;
+            this.grade = grade;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import io.github.flameyossnowy.universal.api.annotations.AsyncEvents;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryAuditLogger;
+import io.github.flameyossnowy.universal.api.listener.AuditLogger;
+import io.github.flameyossnowy.universal.api.listener.EventPipeline;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void closingTheAdapterDrainsAndStopsThePipeline() {
+        SQLiteRepositoryAdapter<Event, String> adapter = SQLiteRepositoryAdapter
+                .builder(Event.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("events.db").toString()))
+                .build();
+        adapter.createRepository(true);
+
+        EventPipeline pipeline = adapter.getEventPipeline();
+        assertNotNull(pipeline);
+
+        RecordingAuditLogger.deleted.clear();
+        for (int i = 0; i < 20; i++) adapter.insert(new Event(Integer.toString(i)));
+        for (int i = 0; i < 20; i++) adapter.deleteById(Integer.toString(i));
+        adapter.close();
+
+        assertEquals(20, RecordingAuditLogger.deleted.size());
+        assertEquals(0, pipeline.getQueueDepth());
+
+        // The drainer is gone, later events run on the caller
+        long synchronous = pipeline.getMetrics().synchronous();
+        pipeline.submit(() -> {});
+        assertEquals(synchronous + 1, pipeline.getMetrics().synchronous());
+    }
+
+    @Test
+    void closingOneAdapterKeepsTheOthersAsynchronous() {
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("events.db").toString());
+        SQLiteRepositoryAdapter<Event, String> first = SQLiteRepositoryAdapter
+                .builder(Event.class, String.class)
+                .withCredentials(credentials)
+                .build();
+        first.createRepository(true);
+        SQLiteRepositoryAdapter<Event, String> second = SQLiteRepositoryAdapter
+                .builder(Event.class, String.class)
+                .withCredentials(credentials)
+                .build();
+
+        try {
+            EventPipeline pipeline = second.getEventPipeline();
+            assertNotNull(pipeline);
+            assertNotSame(first.getEventPipeline(), pipeline);
+            first.close();
+
+            RecordingAuditLogger.deleted.clear();
+            for (int i = 0; i < 20; i++) second.insert(new Event(Integer.toString(i)));
+            for (int i = 0; i < 20; i++) second.deleteById(Integer.toString(i));
+
+            assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+            assertEquals(20, RecordingAuditLogger.deleted.size());
+            assertEquals(0, pipeline.getMetrics().synchronous());
+        } finally {
+            second.close();
+        }
+    }
+
+    @Repository(name = "events")
+    @AsyncEvents
+    @RepositoryAuditLogger(RecordingAuditLogger.class)
+    public static class Event {
+        @Id
+        public String id;
+
+        public Event() {}
+
+        public Event(String id) {
+            this.id = id;
+        }
+    }
+
+    public static class RecordingAuditLogger implements AuditLogger<Event> {
+        static final List<Event> deleted = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onInsert(Event entity) {}
+
+        @Override
+        public void onInsert(Collection<Event> entities) {}
+
+        @Override
+        public void onUpdate(Event newEntity, Event oldEntity) {}
+
+        @Override
+        public void onDelete(Event entity) {
+            deleted.add(entity);
+        }
+    }
+}
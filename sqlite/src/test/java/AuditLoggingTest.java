@@ -0,0 +1,191 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryAuditLogger;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.listener.AuditLogger;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLoggingTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Audited, String> adapter;
+
+    @BeforeEach
+    void setup() {
+        RecordingAuditLogger.updates.clear();
+        RecordingAuditLogger.deletes.clear();
+        adapter = SQLiteRepositoryAdapter
+                .builder(Audited.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("audited.db").toString()))
+                .build();
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void updateReportsStoredState() {
+        adapter.insert(new Audited("a", "Alice"));
+        Audited loaded = adapter.findById("a");
+        loaded.name = "Alicia";
+
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+
+        assertEquals(1, RecordingAuditLogger.updates.size());
+        Audited[] update = RecordingAuditLogger.updates.get(0);
+        assertNotSame(update[0], update[1]);
+        assertEquals("Alice", update[0].name);
+        assertEquals("Alicia", update[1].name);
+    }
+
+    @Test
+    void updateOfLoadedEntityRunsOneStatement() {
+        AtomicInteger statements = new AtomicInteger();
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("counted.db").toString());
+        SQLiteSimpleConnectionProvider provider = new SQLiteSimpleConnectionProvider(credentials, EnumSet.noneOf(Optimizations.class)) {
+            @Override
+            public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
+                statements.incrementAndGet();
+                return super.prepareStatement(sql, connection);
+            }
+        };
+        SQLiteRepositoryAdapter<Audited, String> counted = SQLiteRepositoryAdapter
+                .builder(Audited.class, String.class)
+                .withCredentials(credentials)
+                .withConnectionProvider((c, optimizations) -> provider)
+                .build();
+        try {
+            counted.createRepository(true);
+            counted.insert(new Audited("a", "Alice"));
+            Audited loaded = counted.findById("a");
+
+            for (String name : List.of("Alicia", "Ally")) {
+                statements.set(0);
+                String previous = loaded.name;
+                loaded.name = name;
+                assertTrue(counted.updateAll(loaded).isSuccess());
+
+                // The previous state comes from the snapshot, only the UPDATE itself reaches the database
+                assertEquals(1, statements.get());
+                Audited[] update = RecordingAuditLogger.updates.get(RecordingAuditLogger.updates.size() - 1);
+                assertNotSame(loaded, update[0]);
+                assertEquals(previous, update[0].name);
+                assertEquals(name, update[1].name);
+            }
+        } finally {
+            counted.close();
+        }
+    }
+
+    @Test
+    void updateInTransactionSeesUncommittedWrites() {
+        adapter.insert(new Audited("a", "Alice"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(new Audited("a", "Bob"), transaction).isSuccess());
+            assertTrue(adapter.updateAll(new Audited("a", "Carol"), transaction).isSuccess());
+            assertTrue(transaction.commit().isSuccess());
+        }
+
+        assertEquals(2, RecordingAuditLogger.updates.size());
+        assertEquals("Alice", RecordingAuditLogger.updates.get(0)[0].name);
+        assertEquals("Bob", RecordingAuditLogger.updates.get(1)[0].name);
+    }
+
+    @Test
+    void updateAfterRollbackReportsStoredState() {
+        adapter.insert(new Audited("a", "Alice"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(new Audited("a", "Bob"), transaction).isSuccess());
+            transaction.rollback();
+        }
+        assertTrue(adapter.updateAll(new Audited("a", "Carol")).isSuccess());
+
+        assertEquals(2, RecordingAuditLogger.updates.size());
+        assertEquals("Alice", RecordingAuditLogger.updates.get(1)[0].name);
+    }
+
+    @Test
+    void updateAfterQueryUpdateReportsStoredState() {
+        adapter.insert(new Audited("a", "Alice"));
+        Audited loaded = adapter.findById("a");
+        assertTrue(adapter.updateAll(Query.update().set("name", "Changed").where("id", "a").build()).isSuccess());
+
+        loaded.name = "Alicia";
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+
+        assertEquals(1, RecordingAuditLogger.updates.size());
+        assertEquals("Changed", RecordingAuditLogger.updates.get(0)[0].name);
+    }
+
+    @Test
+    void deleteByIdReportsDeletedRow() {
+        adapter.insert(new Audited("a", "Alice"));
+
+        assertTrue(adapter.deleteById("a").isSuccess());
+
+        assertEquals(1, RecordingAuditLogger.deletes.size());
+        assertEquals("Alice", RecordingAuditLogger.deletes.get(0).name);
+        assertNull(adapter.findById("a"));
+    }
+
+    @Repository(name = "audited")
+    @RepositoryAuditLogger(RecordingAuditLogger.class)
+    public static class Audited {
+        @Id
+        public String id;
+        public String name;
+
+        public Audited() {}
+
+        public Audited(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    public static class RecordingAuditLogger implements AuditLogger<Audited> {
+        static final List<Audited[]> updates = new CopyOnWriteArrayList<>();
+        static final List<Audited> deletes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onInsert(Audited entity) {}
+
+        @Override
+        public void onInsert(Collection<Audited> entities) {}
+
+        // Recorded with the previous state first
+        @Override
+        public void onUpdate(Audited newEntity, Audited oldEntity) {
+            updates.add(new Audited[] { oldEntity, newEntity });
+        }
+
+        @Override
+        public void onDelete(Audited entity) {
+            deletes.add(entity);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.annotations.CoalescedLookups;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescedLookupsTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Profile, String> adapter;
+
+    @BeforeEach
+    void setup() {
+        adapter = SQLiteRepositoryAdapter
+                .builder(Profile.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("profiles.db").toString()))
+                .build();
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void concurrentLookupsAreLoadedTogether() throws Exception {
+        for (String id : List.of("a", "b", "c")) adapter.insert(new Profile(id, id.toUpperCase()));
+
+        CompletableFuture<Profile> a = adapter.findByIdAsync("a");
+        CompletableFuture<Profile> b = adapter.findByIdAsync("b");
+        CompletableFuture<Profile> missing = adapter.findByIdAsync("missing");
+
+        assertEquals("A", a.get(10, TimeUnit.SECONDS).name);
+        assertEquals("B", b.get(10, TimeUnit.SECONDS).name);
+        assertNull(missing.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void batchedLookupsFillTheSecondLevelCache() throws Exception {
+        for (String id : List.of("a", "b")) adapter.insert(new Profile(id, id.toUpperCase()));
+
+        CompletableFuture<Profile> a = adapter.findByIdAsync("a");
+        CompletableFuture<Profile> b = adapter.findByIdAsync("b");
+        Profile loadedA = a.get(10, TimeUnit.SECONDS);
+        Profile loadedB = b.get(10, TimeUnit.SECONDS);
+
+        // Changed behind the adapter's back, the cached entities must be served
+        adapter.executeRawQuery("UPDATE profiles SET name = 'changed'");
+
+        assertSame(loadedA, adapter.findById("a"));
+        assertSame(loadedB, adapter.findById("b"));
+        assertSame(loadedA, adapter.findByIdAsync("a").get(10, TimeUnit.SECONDS));
+    }
+
+    @Repository(name = "profiles")
+    @Cacheable
+    @CoalescedLookups(windowMicros = 50_000)
+    public static class Profile {
+        @Id
+        public String id;
+        public String name;
+
+        public Profile() {}
+
+        public Profile(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
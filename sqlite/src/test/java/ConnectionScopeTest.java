@@ -0,0 +1,245 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.ManyToOne;
+import io.github.flameyossnowy.universal.api.annotations.OneToMany;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.sql.internals.ConnectionScope;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionScopeTest {
+
+    @TempDir
+    Path tempDir;
+
+    CountingProvider provider;
+
+    @BeforeEach
+    void setup() {
+        provider = new CountingProvider(new SQLiteCredentials(tempDir.resolve("scope.db").toString()));
+    }
+
+    @AfterEach
+    void teardown() {
+        provider.close();
+    }
+
+    @Test
+    void nestedScopesShareOneConnection() throws Exception {
+        try (ConnectionScope outer = ConnectionScope.open(provider)) {
+            Connection first = outer.connection();
+            try (ConnectionScope inner = ConnectionScope.open(provider)) {
+                assertSame(outer, inner);
+                assertSame(first, inner.connection());
+                assertSame(first, ConnectionScope.readConnection(provider));
+            }
+
+            // Closing the inner scope or a handed out connection keeps it open for the outer scope
+            first.close();
+            assertFalse(first.isClosed());
+        }
+        assertEquals(1, provider.checkouts.get());
+        assertTrue(provider.last.isClosed());
+    }
+
+    @Test
+    void connectionIsAcquiredOnFirstUse() throws Exception {
+        try (ConnectionScope ignored = ConnectionScope.open(provider)) {
+            assertEquals(0, provider.checkouts.get());
+        }
+        assertEquals(0, provider.checkouts.get());
+    }
+
+    @Test
+    void readOutsideOfScopeUsesItsOwnConnection() throws Exception {
+        try (Connection first = ConnectionScope.readConnection(provider);
+             Connection second = ConnectionScope.readConnection(provider)) {
+            assertNotSame(first, second);
+        }
+        assertEquals(2, provider.checkouts.get());
+    }
+
+    @Test
+    void scopeIsBoundToItsThread() throws Exception {
+        try (ConnectionScope scope = ConnectionScope.open(provider)) {
+            Connection mine = scope.connection();
+            Connection[] theirs = new Connection[1];
+            Thread thread = new Thread(() -> theirs[0] = ConnectionScope.readConnection(provider));
+            thread.start();
+            thread.join();
+
+            assertNotSame(mine, theirs[0]);
+            theirs[0].close();
+        }
+        assertEquals(2, provider.checkouts.get());
+    }
+
+    @Test
+    void findLoadsCollectionsOnTheSameConnection() {
+        SQLiteRepositoryAdapter<Tagged, String> adapter = SQLiteRepositoryAdapter
+                .builder(Tagged.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("scope.db").toString()))
+                .withConnectionProvider((credentials, optimizations) -> provider)
+                .build();
+        adapter.createRepository(true);
+        for (int i = 0; i < 5; i++) {
+            adapter.insert(new Tagged("t" + i, List.of("a" + i, "b" + i)));
+        }
+
+        provider.checkouts.set(0);
+        List<Tagged> found = adapter.find();
+
+        assertEquals(5, found.size());
+        for (Tagged tagged : found) {
+            assertEquals(2, tagged.tags.size());
+        }
+        assertEquals(1, provider.checkouts.get());
+    }
+
+    @Test
+    void nestedLoadThroughAnotherRepositoryJoinsTheScope() {
+        // Two providers of their own on one database, with a single connection between them
+        Semaphore permits = new Semaphore(1);
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("squads.db").toString());
+        LimitedProvider squadProvider = new LimitedProvider(credentials, permits);
+        LimitedProvider recruitProvider = new LimitedProvider(credentials, permits);
+        SQLiteRepositoryAdapter<Squad, String> squads = SQLiteRepositoryAdapter
+                .builder(Squad.class, String.class)
+                .withCredentials(credentials)
+                .withConnectionProvider((c, optimizations) -> squadProvider)
+                .build();
+        SQLiteRepositoryAdapter<Recruit, String> recruits = SQLiteRepositoryAdapter
+                .builder(Recruit.class, String.class)
+                .withCredentials(credentials)
+                .withConnectionProvider((c, optimizations) -> recruitProvider)
+                .build();
+        try {
+            squads.createRepository(true);
+            recruits.createRepository(true);
+            squads.insert(new Squad("s", "alpha"));
+            recruits.insert(new Recruit("r1", new Squad("s", "alpha")));
+            recruits.insert(new Recruit("r2", new Squad("s", "alpha")));
+
+            List<Squad> found = squads.find(Query.select().where("id").eq("s").build());
+
+            assertEquals(1, found.size());
+            assertEquals(2, found.getFirst().recruits.size());
+            assertEquals(1, permits.availablePermits());
+        } finally {
+            recruits.close();
+            squads.close();
+        }
+    }
+
+    static class LimitedProvider extends SQLiteSimpleConnectionProvider {
+        private final Semaphore permits;
+
+        LimitedProvider(SQLiteCredentials credentials, Semaphore permits) {
+            super(credentials, EnumSet.noneOf(Optimizations.class));
+            this.permits = permits;
+        }
+
+        @Override
+        public Connection getConnection() {
+            if (!permits.tryAcquire()) throw new IllegalStateException("No connection available");
+            Connection connection = super.getConnection();
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0 && released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+    }
+
+    static class CountingProvider extends SQLiteSimpleConnectionProvider {
+        final AtomicInteger checkouts = new AtomicInteger();
+        volatile Connection last;
+
+        CountingProvider(SQLiteCredentials credentials) {
+            super(credentials, EnumSet.noneOf(Optimizations.class));
+        }
+
+        @Override
+        public Connection getConnection() {
+            checkouts.incrementAndGet();
+            return last = super.getConnection();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Repository(name = "tagged")
+    public static class Tagged {
+        @Id
+        private String id;
+
+        private List<String> tags = new ArrayList<>();
+
+        public Tagged(String id, List<String> tags) {
+            this.id = id;
+            this.tags = new ArrayList<>(tags);
+        }
+
+        public Tagged() {}
+    }
+
+    @SuppressWarnings("unused")
+    @Repository(name = "squads")
+    public static class Squad {
+        @Id
+        public String id;
+        public String name;
+
+        @OneToMany(mappedBy = Recruit.class)
+        public List<Recruit> recruits = new ArrayList<>();
+
+        public Squad(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Squad() {}
+    }
+
+    @SuppressWarnings("unused")
+    @Repository(name = "recruits")
+    public static class Recruit {
+        @Id
+        public String id;
+
+        @ManyToOne(join = "squads")
+        public Squad squad;
+
+        public Recruit(String id, Squad squad) {
+            this.id = id;
+            this.squad = squad;
+        }
+
+        public Recruit() {}
+    }
+}
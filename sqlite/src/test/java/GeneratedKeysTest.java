@@ -0,0 +1,124 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratedKeysTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Note, Long> adapter;
+
+    @BeforeEach
+    void setup() {
+        adapter = SQLiteRepositoryAdapter
+                .builder(Note.class, Long.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("notes.db").toString()))
+                .build();
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void insertAllAssignsReturnedIds() {
+        List<Note> notes = List.of(new Note("a"), new Note("b"), new Note("c"));
+
+        assertTrue(adapter.insertAll(notes).isSuccess());
+
+        Set<Long> ids = new HashSet<>();
+        for (Note note : notes) {
+            assertNotNull(note.getId());
+            ids.add(note.getId());
+            assertEquals(note.getText(), adapter.findById(note.getId()).getText());
+        }
+        assertEquals(3, ids.size());
+    }
+
+    @Test
+    void insertAllLeavesCallerTransactionOpen() throws Exception {
+        List<Note> notes = List.of(new Note("a"), new Note("b"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.insertAll(notes, transaction).isSuccess());
+            assertFalse(transaction.connection().isClosed());
+            assertFalse(transaction.connection().getAutoCommit());
+
+            // Still usable for further writes of the same transaction
+            assertTrue(adapter.insert(new Note("c"), transaction).isSuccess());
+            assertFalse(transaction.connection().isClosed());
+            transaction.rollback();
+        }
+
+        assertNotNull(notes.get(0).getId());
+        assertTrue(adapter.find().isEmpty());
+    }
+
+    @Test
+    void insertAllInTransactionIsKeptOnCommit() {
+        List<Note> notes = List.of(new Note("a"), new Note("b"));
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.insertAll(notes, transaction).isSuccess());
+            assertTrue(transaction.commit().isSuccess());
+        }
+
+        assertEquals(2, adapter.find().size());
+        assertEquals("b", adapter.findById(notes.get(1).getId()).getText());
+    }
+
+    @Test
+    void insertAllSendsOneStatementForAllRows() {
+        AtomicInteger statements = new AtomicInteger();
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("counted.db").toString());
+        SQLiteSimpleConnectionProvider provider = new SQLiteSimpleConnectionProvider(credentials, EnumSet.noneOf(Optimizations.class)) {
+            @Override
+            public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
+                statements.incrementAndGet();
+                return super.prepareStatement(sql, connection);
+            }
+        };
+        SQLiteRepositoryAdapter<Note, Long> counted = SQLiteRepositoryAdapter
+                .builder(Note.class, Long.class)
+                .withCredentials(credentials)
+                .withConnectionProvider((c, optimizations) -> provider)
+                .build();
+        counted.createRepository(true);
+        try {
+            List<Note> notes = new ArrayList<>();
+            for (int i = 0; i < 10; i++) notes.add(new Note("n" + i));
+
+            statements.set(0);
+            assertTrue(counted.insertAll(notes).isSuccess());
+            assertEquals(1, statements.get());
+
+            Set<Long> ids = new HashSet<>();
+            for (Note note : notes) {
+                ids.add(note.getId());
+                assertEquals(note.getText(), counted.findById(note.getId()).getText());
+            }
+            assertEquals(10, ids.size());
+        } finally {
+            counted.close();
+        }
+    }
+}
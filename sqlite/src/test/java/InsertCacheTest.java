@@ -0,0 +1,114 @@
+import io.github.flameyossnowy.universal.api.annotations.Cacheable;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryAuditLogger;
+import io.github.flameyossnowy.universal.api.annotations.RepositoryEventLifecycleListener;
+import io.github.flameyossnowy.universal.api.listener.AuditLogger;
+import io.github.flameyossnowy.universal.api.listener.EntityLifecycleListener;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.SelectQuery;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InsertCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Tag, String> adapter;
+
+    @BeforeEach
+    void setup() {
+        RecordingListener.events.clear();
+        adapter = SQLiteRepositoryAdapter
+                .builder(Tag.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("tags.db").toString()))
+                .build();
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void insertInvalidatesCachedCountsAndResults() {
+        SelectQuery second = Query.select().where("id").eq("b").build();
+        assertTrue(adapter.insert(new Tag("a", "red")).isSuccess());
+
+        // Cached by the first reads
+        assertEquals(1, adapter.count());
+        assertFalse(adapter.exists(second));
+        assertEquals(1, adapter.find().size());
+
+        assertTrue(adapter.insert(new Tag("b", "blue")).isSuccess());
+
+        assertEquals(2, adapter.count());
+        assertTrue(adapter.exists(second));
+        assertEquals(2, adapter.find().size());
+    }
+
+    @Test
+    void insertWithAssignedIdNotifiesListeners() {
+        assertTrue(adapter.insert(new Tag("a", "red")).isSuccess());
+
+        assertEquals(List.of("pre-insert a", "audit-insert a", "post-insert a"), RecordingListener.events);
+    }
+
+    @Repository(name = "tags")
+    @Cacheable
+    @RepositoryAuditLogger(RecordingAuditLogger.class)
+    @RepositoryEventLifecycleListener(RecordingListener.class)
+    public static class Tag {
+        @Id
+        public String id;
+        public String color;
+
+        public Tag() {}
+
+        public Tag(String id, String color) {
+            this.id = id;
+            this.color = color;
+        }
+    }
+
+    public static class RecordingListener implements EntityLifecycleListener<Tag> {
+        static final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onPreInsert(Tag entity) {
+            events.add("pre-insert " + entity.id);
+        }
+
+        @Override
+        public void onPostInsert(Tag entity) {
+            events.add("post-insert " + entity.id);
+        }
+    }
+
+    public static class RecordingAuditLogger implements AuditLogger<Tag> {
+        @Override
+        public void onInsert(Tag entity) {
+            RecordingListener.events.add("audit-insert " + entity.id);
+        }
+
+        @Override
+        public void onInsert(Collection<Tag> entities) {}
+
+        @Override
+        public void onUpdate(Tag newEntity, Tag oldEntity) {}
+
+        @Override
+        public void onDelete(Tag entity) {}
+    }
+}
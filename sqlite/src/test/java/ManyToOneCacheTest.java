@@ -0,0 +1,112 @@
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.ManyToOne;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManyToOneCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Team, Long> teams;
+    SQLiteRepositoryAdapter<Member, String> members;
+
+    @BeforeEach
+    void setup() {
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("teams.db").toString());
+        teams = SQLiteRepositoryAdapter
+                .builder(Team.class, Long.class)
+                .withCredentials(credentials)
+                .build();
+        teams.createRepository(true);
+        members = SQLiteRepositoryAdapter
+                .builder(Member.class, String.class)
+                .withCredentials(credentials)
+                .build();
+        members.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        members.close();
+        teams.close();
+    }
+
+    Member member(String id) {
+        return members.find(Query.select().where("id").eq(id).build()).getFirst();
+    }
+
+    @Test
+    void referencedEntityIsLoadedByItsOwnId() {
+        assertTrue(teams.insert(new Team(1L, "red")).isSuccess());
+        assertTrue(teams.insert(new Team(2L, "blue")).isSuccess());
+        assertTrue(members.insert(new Member("a", teams.findById(1L))).isSuccess());
+        assertTrue(members.insert(new Member("b", teams.findById(2L))).isSuccess());
+
+        assertEquals("red", member("a").team.name);
+        assertEquals("blue", member("b").team.name);
+    }
+
+    @Test
+    void referenceIsReloadedAfterChildAndParentUpdates() {
+        assertTrue(teams.insert(new Team(1L, "red")).isSuccess());
+        assertTrue(teams.insert(new Team(2L, "blue")).isSuccess());
+        assertTrue(members.insert(new Member("a", teams.findById(1L))).isSuccess());
+        assertEquals("red", member("a").team.name);
+
+        // The child now references another parent
+        Member moved = member("a");
+        moved.team = teams.findById(2L);
+        assertTrue(members.updateAll(moved).isSuccess());
+        assertEquals("blue", member("a").team.name);
+
+        // The referenced parent changed
+        Team renamed = new Team(2L, "navy");
+        assertTrue(teams.updateAll(renamed).isSuccess());
+        assertEquals("navy", member("a").team.name);
+
+        // And once more, so a stale entry left by either write would show
+        moved = member("a");
+        moved.team = teams.findById(1L);
+        assertTrue(members.updateAll(moved).isSuccess());
+        assertEquals("red", member("a").team.name);
+    }
+
+    @Repository(name = "teams")
+    public static class Team {
+        @Id
+        public Long id;
+        public String name;
+
+        public Team() {}
+
+        public Team(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    @Repository(name = "members")
+    public static class Member {
+        @Id
+        public String id;
+
+        @ManyToOne(join = "teams")
+        public Team team;
+
+        public Member() {}
+
+        public Member(String id, Team team) {
+            this.id = id;
+            this.team = team;
+        }
+    }
+}
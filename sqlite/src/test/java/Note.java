@@ -0,0 +1,28 @@
+import io.github.flameyossnowy.universal.api.annotations.AutoIncrement;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+
+@Repository(name = "notes")
+public class Note {
+    @Id
+    @AutoIncrement
+    private Long id;
+    private String text;
+
+    public Note() {}
+
+    public Note(String text) {
+        this.text = text;
+    }
+
+    public Long getId() { return id; }
+    public String getText() { return text; }
+
+    @Override
+    public String toString() {
+        return "Note{" +
+                "id=" + id +
+                ", text='" + text + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,157 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.ParallelScan;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelScanTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Event, Long> create(BoundedProvider provider) {
+        SQLiteRepositoryAdapter<Event, Long> adapter = SQLiteRepositoryAdapter
+                .builder(Event.class, Long.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("events.db").toString()))
+                .withConnectionProvider((credentials, optimizations) -> provider)
+                .build();
+        adapter.createRepository(true);
+        return adapter;
+    }
+
+    static void fill(SQLiteRepositoryAdapter<Event, Long> adapter, int count) {
+        List<Event> events = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) events.add(new Event(id, List.of("a" + id, "b" + id)));
+        assertTrue(adapter.insertAll(events).isSuccess());
+    }
+
+    @Test
+    void scanOfASmallPoolDoesNotDeadlock() throws Exception {
+        BoundedProvider provider = new BoundedProvider(new SQLiteCredentials(tempDir.resolve("events.db").toString()), 3);
+        SQLiteRepositoryAdapter<Event, Long> adapter = create(provider);
+        try {
+            fill(adapter, 400);
+            provider.peak.reset();
+
+            // Eight partitions plus a collection load per row would need more than three connections at once
+            List<Event> events = CompletableFuture.supplyAsync(adapter::find).get(30, TimeUnit.SECONDS);
+
+            assertEquals(400, events.size());
+            for (Event event : events) assertEquals(2, event.tags.size());
+            assertTrue(provider.peak.get() <= 2, "peak of " + provider.peak.get() + " connections");
+            assertEquals(0, provider.timeouts.get());
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void poolOfTwoScansSequentially() throws Exception {
+        BoundedProvider provider = new BoundedProvider(new SQLiteCredentials(tempDir.resolve("events.db").toString()), 2);
+        SQLiteRepositoryAdapter<Event, Long> adapter = create(provider);
+        try {
+            fill(adapter, 100);
+            provider.peak.reset();
+
+            List<Event> events = CompletableFuture.supplyAsync(adapter::find).get(30, TimeUnit.SECONDS);
+
+            // Too small to partition, the single scan leaves the second connection to the collection loads
+            assertEquals(100, events.size());
+            for (Event event : events) assertEquals(2, event.tags.size());
+            assertTrue(provider.peak.get() <= 2, "peak of " + provider.peak.get() + " connections");
+            assertEquals(0, provider.timeouts.get());
+        } finally {
+            adapter.close();
+        }
+    }
+
+    /**
+     * A pool of a fixed size, checkouts beyond it wait and fail after a second.
+     */
+    static class BoundedProvider extends SQLiteSimpleConnectionProvider {
+        final int size;
+        final Semaphore permits;
+        final AtomicInteger open = new AtomicInteger();
+        final LongAccumulator peak = new LongAccumulator(Math::max, 0);
+        final AtomicInteger timeouts = new AtomicInteger();
+
+        BoundedProvider(SQLiteCredentials credentials, int size) {
+            super(credentials, EnumSet.noneOf(Optimizations.class));
+            this.size = size;
+            this.permits = new Semaphore(size);
+        }
+
+        @Override
+        public Connection getConnection() {
+            try {
+                if (!permits.tryAcquire(1, TimeUnit.SECONDS)) {
+                    timeouts.incrementAndGet();
+                    throw new RuntimeException("Pool of " + size + " exhausted");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            peak.accumulate(open.incrementAndGet());
+
+            Connection connection = super.getConnection();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                        open.decrementAndGet();
+                        permits.release();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        }
+
+        @Override
+        public int getMaxConnections() {
+            return size;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    @Repository(name = "events")
+    @ParallelScan(partitions = 8)
+    public static class Event {
+        @Id
+        private Long id;
+
+        private List<String> tags = new ArrayList<>();
+
+        public Event(Long id, List<String> tags) {
+            this.id = id;
+            this.tags = new ArrayList<>(tags);
+        }
+
+        public Event() {}
+    }
+}
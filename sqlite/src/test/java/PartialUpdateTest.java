@@ -0,0 +1,125 @@
+import io.github.flameyossnowy.universal.api.cache.TransactionResult;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.api.options.UpdateQuery;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartialUpdateTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteRepositoryAdapter<Account, String> adapter;
+
+    @BeforeEach
+    void setup() {
+        adapter = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("accounts.db").toString()))
+                .build();
+        adapter.createRepository(true);
+    }
+
+    @AfterEach
+    void teardown() {
+        adapter.close();
+    }
+
+    @Test
+    void updateWritesOnlyChangedColumns() {
+        adapter.insert(new Account("a", "Alice", 10));
+        Account loaded = adapter.findById("a");
+
+        // Changed behind the adapter's back, a full update would overwrite it
+        adapter.executeRawQuery("UPDATE accounts SET balance = 99 WHERE id = 'a'");
+
+        loaded.setName("Alicia");
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+
+        Account reloaded = adapter.findById("a");
+        assertEquals("Alicia", reloaded.getName());
+        assertEquals(99, reloaded.getBalance());
+    }
+
+    @Test
+    void unchangedEntityIsNotWritten() {
+        adapter.insert(new Account("a", "Alice", 10));
+        Account loaded = adapter.findById("a");
+
+        adapter.executeRawQuery("UPDATE accounts SET name = 'Changed' WHERE id = 'a'");
+
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+        assertEquals("Changed", adapter.findById("a").getName());
+    }
+
+    @Test
+    void clearForgetsLoadedState() {
+        adapter.insert(new Account("a", "Alice", 10));
+        Account loaded = adapter.findById("a");
+
+        assertTrue(adapter.clear().isSuccess());
+        adapter.executeRawQuery("INSERT INTO accounts (id, name, balance) VALUES ('a', 'Other', 99)");
+
+        // The row was replaced, so every column is written
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+        Account reloaded = adapter.findById("a");
+        assertEquals("Alice", reloaded.getName());
+        assertEquals(10, reloaded.getBalance());
+    }
+
+    @Test
+    void updateIsWrittenAgainAfterRollback() throws Exception {
+        adapter.insert(new Account("a", "Alice", 10));
+        Account loaded = adapter.findById("a");
+        loaded.setName("Bob");
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(loaded, transaction).isSuccess());
+            transaction.rollback();
+        }
+
+        // The rolled back write must not count as the entity's stored state
+        assertTrue(adapter.updateAll(loaded).isSuccess());
+        assertEquals("Bob", adapter.findById("a").getName());
+    }
+
+    @Test
+    void committedTransactionalUpdateIsKept() {
+        adapter.insert(new Account("a", "Alice", 10));
+        Account loaded = adapter.findById("a");
+        loaded.setBalance(20);
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            assertTrue(adapter.updateAll(loaded, transaction).isSuccess());
+            assertTrue(transaction.commit().isSuccess());
+        }
+        assertEquals(20, adapter.findById("a").getBalance());
+    }
+
+    @Test
+    void arrayUpdatesAreRejected() throws Exception {
+        adapter.insert(new Account("a", "Alice", 10));
+        UpdateQuery query = Query.update().set("balance", 50).push("name", "x").where("id", "a").build();
+
+        TransactionResult<Boolean> result = adapter.updateAll(query);
+        assertTrue(result.isError());
+        assertInstanceOf(UnsupportedOperationException.class, result.error());
+
+        try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+            TransactionResult<Boolean> transactional = adapter.updateAll(query, transaction);
+            assertTrue(transactional.isError());
+            assertInstanceOf(UnsupportedOperationException.class, transactional.error());
+        }
+
+        // Nothing is written, not even the assigned fields
+        assertEquals(10, adapter.findById("a").getBalance());
+    }
+}
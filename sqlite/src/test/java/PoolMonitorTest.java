@@ -0,0 +1,126 @@
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.sql.pool.AdaptivePoolSizing;
+import io.github.flameyossnowy.universal.sql.pool.HikariPoolMonitor;
+import io.github.flameyossnowy.universal.sql.pool.PoolMetrics;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteHikariConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolMonitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    HikariDataSource pool;
+    HikariPoolMonitor monitor;
+
+    @AfterEach
+    void teardown() {
+        if (monitor != null) monitor.close();
+        if (pool != null) pool.close();
+    }
+
+    void createPool(int size, long connectionTimeout, AdaptivePoolSizing sizing) {
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("pool.db"));
+
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(dataSource);
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(connectionTimeout);
+
+        monitor = new HikariPoolMonitor("test", sizing);
+        config.setMetricsTrackerFactory(monitor);
+        pool = new HikariDataSource(config);
+        monitor.attach(pool);
+    }
+
+    static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void providerReportsCheckoutsAndUsage() throws Exception {
+        SQLiteHikariConnectionProvider provider = new SQLiteHikariConnectionProvider(
+                new SQLiteCredentials(tempDir.resolve("pool.db").toString()).setPoolSize(2).setMinimumIdle(1),
+                EnumSet.noneOf(Optimizations.class));
+        try {
+            for (int i = 0; i < 5; i++) {
+                try (Connection ignored = provider.getConnection()) {
+                    Thread.sleep(5);
+                }
+            }
+            try (Connection ignored = provider.getConnection()) {
+                PoolMetrics metrics = provider.getPoolMetrics();
+                assertEquals(6, metrics.acquisitions());
+                assertEquals(1, metrics.activeConnections());
+                assertEquals(2, metrics.maxPoolSize());
+                assertEquals(0, metrics.timeouts());
+                assertTrue(metrics.averageUsageMillis() >= 5, "usage " + metrics.averageUsageMillis());
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    void timeoutsAndWaitsAreCounted() throws Exception {
+        createPool(1, 250, null);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertThrows(Exception.class, () -> pool.getConnection());
+        }
+        PoolMetrics metrics = monitor.getMetrics();
+        assertEquals(1, metrics.timeouts());
+        assertEquals(0, monitor.getResizeCount());
+    }
+
+    @Test
+    void poolGrowsWhileThreadsWait() throws Exception {
+        createPool(1, 5_000, new AdaptivePoolSizing(1, 3, 0, 100));
+
+        CompletableFuture<Void> waiter;
+        try (Connection ignored = pool.getConnection()) {
+            waiter = CompletableFuture.runAsync(() -> {
+                try (Connection connection = pool.getConnection()) {
+                    assertFalse(connection.isClosed());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            await(() -> monitor.getMetrics().maxPoolSize() > 1, "The pool did not grow while a thread waited");
+        }
+        waiter.get(10, TimeUnit.SECONDS);
+
+        assertTrue(monitor.getResizeCount() >= 1);
+        assertTrue(monitor.getMetrics().maxPoolSize() <= 3);
+    }
+
+    @Test
+    void idlePoolShrinksToItsMinimum() throws Exception {
+        createPool(4, 5_000, new AdaptivePoolSizing(2, 4, 10, 50));
+
+        await(() -> monitor.getMetrics().maxPoolSize() == 2, "The idle pool did not shrink");
+        Thread.sleep(200);
+        assertEquals(2, monitor.getMetrics().maxPoolSize(), "The pool shrank below its minimum");
+        assertEquals(2, monitor.getResizeCount());
+    }
+}
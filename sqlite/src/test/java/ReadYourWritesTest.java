@@ -0,0 +1,172 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.sql.routing.RoutingConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTest {
+
+    @TempDir
+    Path tempDir;
+
+    RoutingConnectionProvider routing;
+
+    @BeforeEach
+    void setup() throws Exception {
+        routing = routing(tempDir);
+        try (Connection connection = routing.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items (id INTEGER PRIMARY KEY)");
+        }
+    }
+
+    @AfterEach
+    void teardown() {
+        routing.close();
+    }
+
+    static RoutingConnectionProvider routing(Path dir) {
+        EnumSet<Optimizations> optimizations = EnumSet.noneOf(Optimizations.class);
+        return RoutingConnectionProvider.builder(new SQLiteSimpleConnectionProvider(new SQLiteCredentials(dir.resolve("primary.db").toString()), optimizations))
+                .withReplica(new SQLiteSimpleConnectionProvider(new SQLiteCredentials(dir.resolve("replica.db").toString()), optimizations))
+                .withReadYourWrites(Duration.ofMinutes(1))
+                .build();
+    }
+
+    void read() throws Exception {
+        try (Connection ignored = routing.getReadConnection()) {
+            // Only the routing decision matters
+        }
+    }
+
+    @Test
+    void schemaChangeDoesNotStick() throws Exception {
+        read();
+        assertEquals(1, routing.getReplicaReads());
+        assertEquals(0, routing.getPrimaryReads());
+    }
+
+    @Test
+    void readThroughPrimaryDoesNotStick() throws Exception {
+        try (Connection connection = routing.getConnection();
+             PreparedStatement statement = routing.prepareStatement("SELECT COUNT(*) FROM items", connection);
+             ResultSet resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+        }
+
+        read();
+        assertEquals(1, routing.getReplicaReads());
+    }
+
+    @Test
+    void executedWriteSticks() throws Exception {
+        try (Connection connection = routing.getConnection();
+             PreparedStatement statement = routing.prepareStatement("INSERT INTO items (id) VALUES (1)", connection)) {
+            read();
+            assertEquals(1, routing.getReplicaReads(), "preparing is not writing");
+
+            statement.executeUpdate();
+        }
+
+        read();
+        assertEquals(1, routing.getPrimaryReads());
+    }
+
+    @Test
+    void writeThroughPlainStatementSticks() throws Exception {
+        try (Connection connection = routing.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM items");
+        }
+
+        read();
+        assertEquals(1, routing.getPrimaryReads());
+    }
+
+    @Test
+    void commitSticks() throws Exception {
+        try (Connection connection = routing.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.commit();
+        }
+
+        read();
+        assertEquals(1, routing.getPrimaryReads());
+    }
+
+    @Test
+    void writeOnAnotherThreadSticks() throws Exception {
+        CompletableFuture.runAsync(() -> {
+            try (Connection connection = routing.getConnection(); Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM items");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).get(10, TimeUnit.SECONDS);
+
+        read();
+        assertEquals(1, routing.getPrimaryReads());
+    }
+
+    @Test
+    void asyncWriteIsSeenByAsyncRead() throws Exception {
+        SQLiteRepositoryAdapter<Account, String> replica = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("replica.db").toString()))
+                .build();
+        replica.createRepository(true);
+        replica.close();
+
+        SQLiteRepositoryAdapter<Account, String> adapter = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("primary.db").toString()))
+                .withConnectionProvider(credentials -> routing(tempDir))
+                .build();
+        try {
+            adapter.createRepository(true);
+            assertTrue(adapter.insertAsync(new Account("a", "Alice", 10)).get(10, TimeUnit.SECONDS).isSuccess());
+            assertNotNull(adapter.findByIdAsync("a").get(10, TimeUnit.SECONDS));
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void adapterReadsFollowOnlyActualWrites() {
+        // The replica is not replicated to, so a read that reaches it cannot see the primary's rows
+        SQLiteRepositoryAdapter<Account, String> replica = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("replica.db").toString()))
+                .build();
+        replica.createRepository(true);
+        replica.close();
+
+        SQLiteRepositoryAdapter<Account, String> adapter = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("primary.db").toString()))
+                .withConnectionProvider(credentials -> routing(tempDir))
+                .build();
+        try {
+            adapter.createRepository(true);
+            adapter.count();
+            assertNull(adapter.findById("a"));
+
+            adapter.insert(new Account("a", "Alice", 10));
+            assertNotNull(adapter.findById("a"));
+        } finally {
+            adapter.close();
+        }
+    }
+}
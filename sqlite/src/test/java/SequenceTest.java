@@ -0,0 +1,189 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.annotations.Id;
+import io.github.flameyossnowy.universal.api.annotations.Repository;
+import io.github.flameyossnowy.universal.api.annotations.Sequence;
+import io.github.flameyossnowy.universal.api.connection.TransactionContext;
+import io.github.flameyossnowy.universal.sqlite.SQLiteConcurrencyMode;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SQLiteRepositoryAdapter<Ticket, Long> create(SQLiteConcurrencyMode mode) {
+        SQLiteRepositoryAdapter<Ticket, Long> adapter = SQLiteRepositoryAdapter
+                .builder(Ticket.class, Long.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("tickets.db").toString()))
+                .withConcurrencyMode(mode)
+                .build();
+        adapter.createRepository(true);
+        return adapter;
+    }
+
+    @Test
+    void idsAreAssignedFromBlocks() {
+        SQLiteRepositoryAdapter<Ticket, Long> adapter = create(SQLiteConcurrencyMode.DEFAULT);
+        try {
+            List<Ticket> tickets = new ArrayList<>();
+            for (int i = 0; i < 7; i++) tickets.add(new Ticket("t" + i));
+            assertTrue(adapter.insertAll(tickets).isSuccess());
+
+            Set<Long> ids = new HashSet<>();
+            for (Ticket ticket : tickets) ids.add(ticket.id);
+            assertEquals(7, ids.size());
+            assertEquals(7, adapter.find().size());
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void rolledBackInsertDoesNotReissueIds() throws Exception {
+        SQLiteRepositoryAdapter<Ticket, Long> first = create(SQLiteConcurrencyMode.DEFAULT);
+        Ticket rolledBack = new Ticket("rolled back");
+        try (TransactionContext<Connection> transaction = first.beginTransaction()) {
+            assertTrue(first.insert(rolledBack, transaction).isSuccess());
+            transaction.rollback();
+        }
+        first.close();
+
+        // A new allocator only knows what the database recorded
+        SQLiteRepositoryAdapter<Ticket, Long> second = create(SQLiteConcurrencyMode.DEFAULT);
+        try {
+            Ticket next = new Ticket("next");
+            assertTrue(second.insert(next).isSuccess());
+            assertTrue(next.id > rolledBack.id + 2, "Block of the rolled back insert was reissued");
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    void singleWriterReservationSurvivesRollback() throws Exception {
+        SQLiteRepositoryAdapter<Ticket, Long> adapter = create(SQLiteConcurrencyMode.SINGLE_WRITER);
+        try {
+            Ticket rolledBack = new Ticket("rolled back");
+            try (TransactionContext<Connection> transaction = adapter.beginTransaction()) {
+                assertTrue(adapter.insert(rolledBack, transaction).isSuccess());
+                transaction.rollback();
+            }
+
+            Set<Long> ids = new HashSet<>();
+            ids.add(rolledBack.id);
+            for (int i = 0; i < 6; i++) {
+                Ticket ticket = new Ticket("t" + i);
+                assertTrue(adapter.insert(ticket).isSuccess());
+                assertTrue(ids.add(ticket.id), "Id " + ticket.id + " was handed out twice");
+            }
+            assertEquals(6, adapter.find().size());
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void recordsGetIdsFromTheSequence() {
+        SQLiteRepositoryAdapter<Receipt, Long> adapter = SQLiteRepositoryAdapter
+                .builder(Receipt.class, Long.class)
+                .withCredentials(new SQLiteCredentials(tempDir.resolve("receipts.db").toString()))
+                .build();
+        adapter.createRepository(true);
+        try {
+            assertTrue(adapter.insert(new Receipt(null, "single")).isSuccess());
+            assertTrue(adapter.insertAll(List.of(new Receipt(null, "a"), new Receipt(null, "b"), new Receipt(42L, "manual"))).isSuccess());
+
+            List<Receipt> stored = adapter.find();
+            Set<Long> ids = new HashSet<>();
+            for (Receipt receipt : stored) {
+                assertNotNull(receipt.id());
+                ids.add(receipt.id());
+            }
+            assertEquals(4, ids.size());
+            assertTrue(ids.contains(42L));
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void collectionRowsAreBatchedWithTheirParents() {
+        AtomicInteger statements = new AtomicInteger();
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("labels.db").toString());
+        SQLiteSimpleConnectionProvider provider = new SQLiteSimpleConnectionProvider(credentials, EnumSet.noneOf(Optimizations.class)) {
+            @Override
+            public PreparedStatement prepareStatement(String sql, Connection connection) throws Exception {
+                statements.incrementAndGet();
+                return super.prepareStatement(sql, connection);
+            }
+        };
+        SQLiteRepositoryAdapter<Labelled, Long> adapter = SQLiteRepositoryAdapter
+                .builder(Labelled.class, Long.class)
+                .withCredentials(credentials)
+                .withConnectionProvider((c, optimizations) -> provider)
+                .build();
+        adapter.createRepository(true);
+        try {
+            List<Labelled> entities = new ArrayList<>();
+            for (int i = 0; i < 5; i++) entities.add(new Labelled(List.of("a" + i, "b" + i)));
+
+            statements.set(0);
+            assertTrue(adapter.insertAll(entities).isSuccess());
+            // One batch for the entities and one for all of their labels
+            assertEquals(2, statements.get());
+
+            for (Labelled entity : entities) {
+                assertEquals(entity.labels, adapter.findById(entity.id).labels);
+            }
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Repository(name = "receipts")
+    public record Receipt(@Id @Sequence(allocationSize = 2) Long id, String note) {}
+
+    @Repository(name = "labelled")
+    public static class Labelled {
+        @Id
+        @Sequence
+        public Long id;
+        public List<String> labels = new ArrayList<>();
+
+        public Labelled() {}
+
+        public Labelled(List<String> labels) {
+            this.labels = new ArrayList<>(labels);
+        }
+    }
+
+    @Repository(name = "tickets")
+    public static class Ticket {
+        @Id
+        @Sequence(allocationSize = 3)
+        public Long id;
+        public String title;
+
+        public Ticket() {}
+
+        public Ticket(String title) {
+            this.title = title;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.api.options.Query;
+import io.github.flameyossnowy.universal.sqlite.SQLiteConcurrencyMode;
+import io.github.flameyossnowy.universal.sqlite.SQLiteRepositoryAdapter;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSingleWriterConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    SQLiteCredentials credentials() {
+        return new SQLiteCredentials(tempDir.resolve("writer.db").toString()).setConnectionTimeout(2_000);
+    }
+
+    // Fails instead of hanging when the writer slot was left held
+    static void writeFromAnotherThread(Runnable write) throws Exception {
+        CompletableFuture.runAsync(write).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void writesWithoutTransactionReleaseTheWriter() throws Exception {
+        SQLiteRepositoryAdapter<Account, String> adapter = SQLiteRepositoryAdapter
+                .builder(Account.class, String.class)
+                .withCredentials(credentials())
+                .withConcurrencyMode(SQLiteConcurrencyMode.SINGLE_WRITER)
+                .build();
+        try {
+            adapter.createRepository(true);
+            assertTrue(adapter.insert(new Account("a", "Alice", 10)).isSuccess());
+            assertTrue(adapter.insert(new Account("b", "Bob", 20)).isSuccess());
+
+            Account alice = adapter.findById("a");
+            alice.setBalance(15);
+            assertTrue(adapter.updateAll(alice).isSuccess());
+            writeFromAnotherThread(() -> assertTrue(adapter.insert(new Account("c", "Carol", 30)).isSuccess()));
+
+            assertTrue(adapter.updateAll(Query.update().set("balance", 0).where("id", "=", "b").build()).isSuccess());
+            writeFromAnotherThread(() -> assertTrue(adapter.insert(new Account("d", "Dave", 40)).isSuccess()));
+
+            assertTrue(adapter.delete(adapter.findById("c")).isSuccess());
+            writeFromAnotherThread(() -> assertTrue(adapter.insert(new Account("e", "Eve", 50)).isSuccess()));
+
+            assertTrue(adapter.deleteById("d").isSuccess());
+            writeFromAnotherThread(() -> assertTrue(adapter.insert(new Account("f", "Frank", 60)).isSuccess()));
+
+            assertTrue(adapter.delete(Query.delete().where("id", "=", "e").build()).isSuccess());
+            writeFromAnotherThread(() -> assertTrue(adapter.insert(new Account("g", "Grace", 70)).isSuccess()));
+
+            assertEquals(15, adapter.findById("a").getBalance());
+            assertEquals(0, adapter.findById("b").getBalance());
+            assertEquals(4, adapter.find().size());
+        } finally {
+            adapter.close();
+        }
+    }
+
+    @Test
+    void waitingForAHeldWriterTimesOut() throws Exception {
+        SQLiteSingleWriterConnectionProvider provider = new SQLiteSingleWriterConnectionProvider(
+                credentials().setConnectionTimeout(200), EnumSet.noneOf(Optimizations.class));
+        try (Connection ignored = provider.getConnection()) {
+            CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> provider.getConnection().close());
+            Exception e = assertThrows(Exception.class, () -> waiter.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause().getMessage().contains("Timed out"), e.getCause().getMessage());
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    void closingWriterCommitsWhenTheQueuedWriterTimesOut() throws Exception {
+        SQLiteSingleWriterConnectionProvider provider = new SQLiteSingleWriterConnectionProvider(
+                credentials().setConnectionTimeout(200), EnumSet.noneOf(Optimizations.class));
+        try {
+            try (Connection connection = provider.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE items (id INTEGER PRIMARY KEY)");
+            }
+
+            // Stands in for a writer that is queued when the group is left to it, and times out as its turn comes
+            Semaphore writeSlot = writeSlot(provider);
+            Thread waiter = new Thread(() -> {
+                try {
+                    if (writeSlot.tryAcquire(10, TimeUnit.SECONDS)) writeSlot.release();
+                } catch (InterruptedException ignored) {
+                }
+            });
+
+            writeFromAnotherThread(() -> {
+                try {
+                    Connection connection = provider.getConnection();
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("INSERT INTO items (id) VALUES (1)");
+                    }
+
+                    waiter.start();
+                    while (provider.getQueuedWriters() == 0) Thread.onSpinWait();
+                    // Returns once the group is committed, by the closing thread itself this time
+                    connection.close();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            waiter.join();
+
+            try (Connection reader = provider.getReadConnection();
+                 Statement statement = reader.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM items")) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    void abandonedWriterIsClosedWhenCollected() throws Exception {
+        SQLiteSingleWriterConnectionProvider provider = new SQLiteSingleWriterConnectionProvider(
+                credentials().setConnectionTimeout(100), EnumSet.noneOf(Optimizations.class));
+        try {
+            try (Connection connection = provider.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE items (id INTEGER PRIMARY KEY)");
+            }
+
+            // A thread of its own, so no later task runs on the thread owning the leaked writer
+            Thread leaking = new Thread(() -> leak(provider));
+            leaking.start();
+            leaking.join();
+
+            // The leaked handle is only released once the collector notices it is unreachable
+            Connection connection = null;
+            for (int attempt = 0; attempt < 50 && connection == null; attempt++) {
+                System.gc();
+                try {
+                    connection = CompletableFuture.supplyAsync(provider::getConnection).get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    assertTrue(e.getCause().getMessage().contains("Timed out"), e.getCause().getMessage());
+                }
+            }
+            assertNotNull(connection, "The abandoned writer was never released");
+            connection.close();
+
+            // It was in auto-commit mode, so its insert is kept
+            try (Connection reader = provider.getReadConnection();
+                 Statement statement = reader.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM items")) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+    private static Semaphore writeSlot(SQLiteSingleWriterConnectionProvider provider) throws ReflectiveOperationException {
+        Field field = SQLiteSingleWriterConnectionProvider.class.getDeclaredField("writeSlot");
+        field.setAccessible(true);
+        return (Semaphore) field.get(provider);
+    }
+
+    private static void leak(SQLiteSingleWriterConnectionProvider provider) {
+        try {
+            Connection connection = provider.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO items (id) VALUES (1)");
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
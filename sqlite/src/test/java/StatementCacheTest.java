@@ -0,0 +1,207 @@
+import io.github.flameyossnowy.universal.api.Optimizations;
+import io.github.flameyossnowy.universal.sql.internals.StatementCache;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteHikariConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSimpleConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.connections.SQLiteSingleWriterConnectionProvider;
+import io.github.flameyossnowy.universal.sqlite.credentials.SQLiteCredentials;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    StatementCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new StatementCache(StatementCache.DEFAULT_SIZE);
+    }
+
+    @AfterEach
+    void teardown() {
+        cache.clear();
+    }
+
+    Connection open() throws Exception {
+        return DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("cache.db"));
+    }
+
+    // Stands in for the proxy a pool hands out per checkout of the same physical connection
+    static Connection checkout(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            (proxy, method, args) -> {
+                if ("unwrap".equals(method.getName())) return physical;
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    void query(Connection connection, String sql) throws Exception {
+        try (PreparedStatement statement = cache.prepare(sql, connection); ResultSet resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+        }
+    }
+
+    @Test
+    void statementsAreReusedAcrossCheckouts() throws Exception {
+        try (Connection physical = open()) {
+            for (int i = 0; i < 10; i++) {
+                query(checkout(physical), "SELECT 1");
+            }
+        }
+
+        assertEquals(9, cache.getStatistics().getHits());
+        assertEquals(1, cache.getStatistics().getMisses());
+        assertEquals(0.9, cache.getStatistics().getHitRate(), 0.001);
+    }
+
+    @Test
+    void statementInUseIsNotShared() throws Exception {
+        try (Connection physical = open();
+             PreparedStatement first = cache.prepare("SELECT 1", physical);
+             PreparedStatement second = cache.prepare("SELECT 1", physical)) {
+            assertNotSame(first, second);
+            assertEquals(2, cache.getStatistics().getMisses());
+        }
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void perQuerySettingsAreResetOnRelease() throws Exception {
+        try (Connection physical = open()) {
+            PreparedStatement cached;
+            try (PreparedStatement statement = cache.prepare("SELECT 1", physical)) {
+                statement.setQueryTimeout(5);
+                statement.setFetchSize(50);
+                cached = statement.unwrap(PreparedStatement.class);
+            }
+
+            assertEquals(0, cached.getQueryTimeout());
+            assertEquals(0, cached.getFetchSize());
+
+            try (PreparedStatement statement = cache.prepare("SELECT 1", physical)) {
+                assertEquals(1, cache.getStatistics().getHits());
+                assertEquals(0, statement.getQueryTimeout());
+                assertEquals(0, statement.getFetchSize());
+            }
+        }
+    }
+
+    @Test
+    void closedConnectionsAreSwept() throws Exception {
+        Connection first = open();
+        query(first, "SELECT 1");
+        query(first, "SELECT 2");
+        assertEquals(2, cache.size());
+
+        PreparedStatement cached;
+        try (PreparedStatement statement = cache.prepare("SELECT 1", first)) {
+            cached = statement.unwrap(PreparedStatement.class);
+        }
+        first.close();
+
+        try (Connection second = open()) {
+            query(second, "SELECT 1");
+            assertEquals(1, cache.getConnectionCount());
+            assertEquals(1, cache.size());
+            assertTrue(cached.isClosed());
+        }
+        assertEquals(0, cache.getConnectionCount());
+    }
+
+    @Test
+    void evictDropsTheStatementsOfAConnection() throws Exception {
+        try (Connection physical = open()) {
+            query(physical, "SELECT 1");
+            cache.evict(checkout(physical));
+
+            assertEquals(0, cache.size());
+            assertEquals(1, cache.getStatistics().getEvictions());
+
+            query(physical, "SELECT 1");
+            assertEquals(2, cache.getStatistics().getMisses());
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws Exception {
+        cache = new StatementCache(2);
+        try (Connection physical = open()) {
+            query(physical, "SELECT 1");
+            query(physical, "SELECT 2");
+            query(physical, "SELECT 1");
+            query(physical, "SELECT 3");
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getStatistics().getEvictions());
+
+            query(physical, "SELECT 1");
+            assertEquals(2, cache.getStatistics().getHits());
+        }
+    }
+
+    @Test
+    void onlyProvidersOwningTheirConnectionsCacheStatements() throws Exception {
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("cache.db").toString());
+        EnumSet<Optimizations> optimizations = EnumSet.of(Optimizations.CACHE_PREPARED_STATEMENTS);
+
+        SQLiteSimpleConnectionProvider simple = new SQLiteSimpleConnectionProvider(credentials, optimizations);
+        try (Connection connection = simple.getConnection()) {
+            StatementCache statements = simple.getStatementCache();
+            assertNotNull(statements);
+            for (int i = 0; i < 3; i++) {
+                try (PreparedStatement statement = simple.prepareStatement("SELECT 1", connection); ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                }
+            }
+            assertEquals(2, statements.getStatistics().getHits());
+        } finally {
+            simple.close();
+        }
+
+        assertNull(new SQLiteSimpleConnectionProvider(credentials, EnumSet.noneOf(Optimizations.class)).getStatementCache());
+
+        SQLiteSingleWriterConnectionProvider writer = new SQLiteSingleWriterConnectionProvider(credentials, optimizations);
+        try {
+            assertNotNull(writer.getStatementCache());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void pooledStatementsArePreparedThroughThePool() throws Exception {
+        SQLiteCredentials credentials = new SQLiteCredentials(tempDir.resolve("cache.db").toString());
+        SQLiteHikariConnectionProvider pooled = new SQLiteHikariConnectionProvider(credentials, EnumSet.of(Optimizations.CACHE_PREPARED_STATEMENTS));
+        try {
+            assertNull(pooled.getStatementCache());
+
+            // The pool has to see the statement, or it returns the connection without rolling back its work
+            PreparedStatement statement;
+            try (Connection connection = pooled.getConnection()) {
+                statement = pooled.prepareStatement("SELECT 1", connection);
+                assertSame(connection, statement.getConnection());
+            }
+            assertTrue(statement.isClosed());
+        } finally {
+            pooled.close();
+        }
+    }
+}